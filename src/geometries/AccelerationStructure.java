@@ -0,0 +1,147 @@
+package geometries;
+
+import java.util.List;
+
+import geometries.BVH.Strategy;
+
+/**
+ * The acceleration structures that a scene can be compiled into. The binary
+ * hierarchies can be kept between runs in a {@link BVHCache}, which loads them
+ * as a {@link FlatBVH} split by the same strategy.
+ */
+public enum AccelerationStructure {
+	/** The structure chosen by a {@link SceneAnalyzer} from the geometries */
+	AUTO {
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries) {
+			return SceneAnalyzer.analyze(geometries).structure().build(geometries);
+		}
+
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries, BVHCache cache) {
+			return SceneAnalyzer.analyze(geometries).structure().build(geometries, cache);
+		}
+	},
+	/** A flat list of the geometries, intersected one by one */
+	FLAT {
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries) {
+			return new Geometries(geometries.toArray(new Intersectable[0]));
+		}
+	},
+	/** A binary bounding volume hierarchy */
+	BVH {
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries) {
+			return new BVH(geometries);
+		}
+
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries, BVHCache cache) {
+			return cache == null ? build(geometries) : cache.get(geometries, Strategy.MEDIAN);
+		}
+	},
+	/**
+	 * A binary bounding volume hierarchy split by the surface area heuristic and
+	 * built in parallel
+	 */
+	SAH_BVH {
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries) {
+			return new BVH(geometries, Strategy.SAH);
+		}
+
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries, BVHCache cache) {
+			return cache == null ? build(geometries) : cache.get(geometries, Strategy.SAH);
+		}
+	},
+	/**
+	 * A linear bounding volume hierarchy over the Morton codes of the geometries,
+	 * for scenes that are rebuilt often
+	 */
+	LBVH {
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries) {
+			return new BVH(geometries, Strategy.MORTON);
+		}
+
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries, BVHCache cache) {
+			return cache == null ? build(geometries) : cache.get(geometries, Strategy.MORTON);
+		}
+	},
+	/**
+	 * A bounding volume hierarchy split by the surface area heuristic and stored
+	 * as a flat array of nodes off the heap
+	 */
+	FLAT_BVH {
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries) {
+			return new FlatBVH(geometries, Strategy.SAH, true);
+		}
+
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries, BVHCache cache) {
+			return cache == null ? build(geometries) : cache.get(geometries, Strategy.SAH);
+		}
+	},
+	/**
+	 * A binary bounding volume hierarchy whose nodes below the top levels are
+	 * split the first time a ray enters them
+	 */
+	LAZY_BVH {
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries) {
+			return new LazyBVH(geometries);
+		}
+	},
+	/**
+	 * An adaptive octree, for scenes that mix a few huge geometries with dense
+	 * clusters of small ones
+	 */
+	OCTREE {
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries) {
+			return new Octree(geometries);
+		}
+	},
+	/** A 4-wide bounding volume hierarchy with batched box and triangle tests */
+	WIDE_BVH {
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries) {
+			return new WideBVH(geometries);
+		}
+	},
+	/**
+	 * A binary bounding volume hierarchy that supports inserting, removing and
+	 * moving geometries
+	 */
+	DYNAMIC_BVH {
+		@Override
+		public Intersectable build(List<? extends Intersectable> geometries) {
+			return new DynamicBVH(geometries);
+		}
+	};
+
+	/**
+	 * Builds the acceleration structure over geometries.
+	 *
+	 * @param geometries the geometries
+	 * @return the acceleration structure
+	 */
+	public abstract Intersectable build(List<? extends Intersectable> geometries);
+
+	/**
+	 * Builds the acceleration structure over geometries, or loads it from a cache
+	 * of built hierarchies if it is a hierarchy that the cache can keep. Other
+	 * structures are always built.
+	 *
+	 * @param geometries the geometries
+	 * @param cache      the cache of built hierarchies, null to always build
+	 * @return the acceleration structure
+	 */
+	public Intersectable build(List<? extends Intersectable> geometries, BVHCache cache) {
+		return build(geometries);
+	}
+}
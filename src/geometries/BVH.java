@@ -0,0 +1,603 @@
+package geometries;
+
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import primitives.*;
+import primitives.Vector;
+
+/**
+ * A bounding volume hierarchy over a collection of geometries. The bounded
+ * geometries are organized in a binary tree of axis aligned bounding boxes,
+ * split by a {@link Strategy}; the unbounded geometries (e.g. planes) are kept
+ * aside and are always tested. The geometries of the leaves are grouped by
+ * type, so the intersection loops stay monomorphic. The hierarchy is
+ * immutable. <br/>
+ * The construction time and the statistics of the tree are logged at the
+ * {@link Level#FINE} level and are available from {@link #getStatistics()}.
+ */
+public class BVH extends Intersectable {
+	/** The maximal amount of geometries in a leaf of a median split */
+	private static final int LEAF_SIZE = 4;
+	/** The logger of the construction statistics */
+	private static final Logger logger = Logger.getLogger("BVH");
+
+	/**
+	 * The strategies for splitting the geometries into the nodes of the hierarchy
+	 */
+	public enum Strategy {
+		/** Split at the median of the longest axis of the centers, in one thread */
+		MEDIAN,
+		/**
+		 * Split by the binned surface area heuristic, with the subtrees built in
+		 * parallel by fork-join tasks
+		 */
+		SAH,
+		/**
+		 * Split at the highest differing bit of the Morton codes of the centers - a
+		 * linear hierarchy, built fastest but of lower quality
+		 */
+		MORTON
+	}
+
+	/**
+	 * The statistics of a hierarchy.
+	 *
+	 * @param strategy    the strategy that built the hierarchy
+	 * @param buildNanos  the construction time in nanoseconds
+	 * @param geometries  the amount of bounded geometries
+	 * @param nodes       the amount of nodes
+	 * @param leaves      the amount of leaves
+	 * @param depth       the depth of the deepest leaf, 1 for a single leaf
+	 * @param maxLeafSize the largest amount of geometries in a leaf
+	 * @param cost        the surface area heuristic cost of the tree: the expected
+	 *                    amount of node visits and geometry intersections of a ray
+	 *                    that hits the root
+	 */
+	public record Statistics(Strategy strategy, long buildNanos, int geometries, int nodes, int leaves, int depth,
+			int maxLeafSize, double cost) {
+		@Override
+		public String toString() {
+			return String.format("%s BVH of %d geometries built in %.2f ms: %d nodes, %d leaves, depth %d, "
+					+ "largest leaf %d, SAH cost %.2f", strategy, geometries, buildNanos / 1e6, nodes, leaves, depth,
+					maxLeafSize, cost);
+		}
+	}
+
+	/**
+	 * The bounds of a node of a hierarchy over geometries, with the slab test that
+	 * all the hierarchies traverse their nodes by.
+	 */
+	abstract static class Bounds {
+		/** The minimal x coordinate of the node bounds */
+		double minX;
+		/** The minimal y coordinate of the node bounds */
+		double minY;
+		/** The minimal z coordinate of the node bounds */
+		double minZ;
+		/** The maximal x coordinate of the node bounds */
+		double maxX;
+		/** The maximal y coordinate of the node bounds */
+		double maxY;
+		/** The maximal z coordinate of the node bounds */
+		double maxZ;
+
+		/**
+		 * Calculates the surface area of the node bounds.
+		 *
+		 * @return the surface area
+		 */
+		double area() {
+			double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+			return 2 * (dx * dy + dy * dz + dz * dx);
+		}
+
+		/**
+		 * Calculates the distance along a ray to the entry point into the node
+		 * bounds (slab test).
+		 *
+		 * @param ox   the x coordinate of the ray head
+		 * @param oy   the y coordinate of the ray head
+		 * @param oz   the z coordinate of the ray head
+		 * @param invX the inverse of the x coordinate of the ray direction
+		 * @param invY the inverse of the y coordinate of the ray direction
+		 * @param invZ the inverse of the z coordinate of the ray direction
+		 * @return the entry distance (0 if the head is inside), or infinity if the ray
+		 *         misses the bounds
+		 */
+		final double entry(double ox, double oy, double oz, double invX, double invY, double invZ) {
+			double t1 = (minX - ox) * invX;
+			double t2 = (maxX - ox) * invX;
+			double near = Math.min(t1, t2);
+			double far = Math.max(t1, t2);
+			t1 = (minY - oy) * invY;
+			t2 = (maxY - oy) * invY;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+			t1 = (minZ - oz) * invZ;
+			t2 = (maxZ - oz) * invZ;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+			return near > far || far < 0 ? Double.POSITIVE_INFINITY : Math.max(near, 0);
+		}
+	}
+
+	/**
+	 * A node of a binary hierarchy, as the closest intersection search of
+	 * {@link BVH#findClosestGeoIntersection(BinaryNode, Ray, PrimitiveArrays.Hit)}
+	 * sees it.
+	 *
+	 * @param <N> the type of the nodes of the hierarchy
+	 */
+	abstract static class BinaryNode<N extends BinaryNode<N>> extends Bounds {
+		/**
+		 * Checks whether the node is a leaf.
+		 *
+		 * @return true for a leaf, false for an inner node
+		 */
+		abstract boolean isLeaf();
+
+		/**
+		 * Returns the first child of an inner node.
+		 *
+		 * @return the first child
+		 */
+		abstract N left();
+
+		/**
+		 * Returns the second child of an inner node.
+		 *
+		 * @return the second child
+		 */
+		abstract N right();
+
+		/**
+		 * Finds the closest intersection of a ray with the geometries of a leaf.
+		 *
+		 * @param ray the ray
+		 * @param hit in and out: the closest intersection found so far
+		 */
+		abstract void findClosestGeoIntersection(Ray ray, PrimitiveArrays.Hit hit);
+	}
+
+	/**
+	 * A node of the hierarchy - either a leaf holding a few geometries or an inner
+	 * node with two children.
+	 */
+	static final class Node extends BinaryNode<Node> {
+		/** The first child of an inner node */
+		Node left;
+		/** The second child of an inner node */
+		Node right;
+		/** The geometries of a leaf, null for an inner node */
+		PrimitiveArrays geometries;
+
+		@Override
+		boolean isLeaf() {
+			return geometries != null;
+		}
+
+		@Override
+		Node left() {
+			return left;
+		}
+
+		@Override
+		Node right() {
+			return right;
+		}
+
+		@Override
+		void findClosestGeoIntersection(Ray ray, PrimitiveArrays.Hit hit) {
+			geometries.findClosestGeoIntersection(ray, hit);
+		}
+	}
+
+	/**
+	 * A geometry with its bounding box, for building the hierarchy
+	 *
+	 * @param geometry the geometry
+	 * @param box      the bounding box of the geometry
+	 */
+	record Item(Intersectable geometry, BoundingBox box) {
+		/**
+		 * Returns the center of the bounding box along an axis.
+		 *
+		 * @param axis the axis (0 - x, 1 - y, 2 - z)
+		 * @return the coordinate of the center
+		 */
+		double center(int axis) {
+			return switch (axis) {
+			case 0 -> box.minX + box.maxX;
+			case 1 -> box.minY + box.maxY;
+			default -> box.minZ + box.maxZ;
+			};
+		}
+	}
+
+	/** The root of the hierarchy, null if there are no bounded geometries */
+	private final Node root;
+	/** The unbounded geometries */
+	private final PrimitiveArrays unbounded;
+	/** The bounding box of all the geometries, null if any is unbounded */
+	private final BoundingBox box;
+	/** The numbering of the primitives in batch intersections */
+	private final PrimitiveNumbering numbering;
+	/** The statistics of the hierarchy */
+	private final Statistics statistics;
+
+	/**
+	 * Builds a bounding volume hierarchy over geometries by median splits.
+	 *
+	 * @param geometries the geometries
+	 */
+	public BVH(List<? extends Intersectable> geometries) {
+		this(geometries, Strategy.MEDIAN);
+	}
+
+	/**
+	 * Builds a bounding volume hierarchy over geometries.
+	 *
+	 * @param geometries the geometries
+	 * @param strategy   the strategy for splitting the geometries
+	 */
+	public BVH(List<? extends Intersectable> geometries, Strategy strategy) {
+		long start = System.nanoTime();
+		numbering = new PrimitiveNumbering(geometries);
+		List<Intersectable> unboundedList = new ArrayList<>();
+		List<Item> items = items(geometries, unboundedList);
+		unbounded = new PrimitiveArrays(unboundedList);
+		root = items.isEmpty() ? null : build(items, strategy);
+		box = root == null || !unboundedList.isEmpty() ? null
+				: new BoundingBox(root.minX, root.minY, root.minZ, root.maxX, root.maxY, root.maxZ);
+		statistics = statistics(strategy, System.nanoTime() - start, items.size());
+		if (logger.isLoggable(Level.FINE))
+			logger.fine(statistics.toString());
+	}
+
+	/**
+	 * Returns the construction time and the statistics of the tree.
+	 *
+	 * @return the statistics
+	 */
+	public Statistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Collects the statistics of the tree.
+	 *
+	 * @param strategy   the strategy that built the tree
+	 * @param buildNanos the construction time in nanoseconds
+	 * @param geometries the amount of bounded geometries
+	 * @return the statistics
+	 */
+	private Statistics statistics(Strategy strategy, long buildNanos, int geometries) {
+		if (root == null)
+			return new Statistics(strategy, buildNanos, 0, 0, 0, 0, 0, 0);
+		int nodes = 0, leaves = 0, depth = 0, maxLeafSize = 0;
+		double cost = 0;
+		Deque<Node> stack = new ArrayDeque<>();
+		Deque<Integer> depths = new ArrayDeque<>();
+		stack.push(root);
+		depths.push(1);
+		while (!stack.isEmpty()) {
+			Node node = stack.pop();
+			int nodeDepth = depths.pop();
+			++nodes;
+			if (node.geometries != null) {
+				++leaves;
+				depth = Math.max(depth, nodeDepth);
+				maxLeafSize = Math.max(maxLeafSize, node.geometries.size());
+				cost += node.area() * node.geometries.size();
+			} else {
+				cost += node.area();
+				stack.push(node.left);
+				depths.push(nodeDepth + 1);
+				stack.push(node.right);
+				depths.push(nodeDepth + 1);
+			}
+		}
+		double rootArea = root.area();
+		return new Statistics(strategy, buildNanos, geometries, nodes, leaves, depth, maxLeafSize,
+				rootArea == 0 ? nodes : cost / rootArea);
+	}
+
+	/**
+	 * Separates the bounded geometries, with their bounding boxes, from the
+	 * unbounded geometries.
+	 *
+	 * @param geometries the geometries
+	 * @param unbounded  output: the unbounded geometries
+	 * @return the bounded geometries
+	 */
+	static List<Item> items(List<? extends Intersectable> geometries, List<Intersectable> unbounded) {
+		List<Item> items = new ArrayList<>();
+		for (Intersectable geometry : geometries) {
+			BoundingBox geometryBox = geometry.getBoundingBox();
+			if (geometryBox == null)
+				unbounded.add(geometry);
+			else
+				items.add(new Item(geometry, geometryBox));
+		}
+		return items;
+	}
+
+	/**
+	 * Sorts items along the longest axis of their centers.
+	 *
+	 * @param items the items
+	 * @return the index of the median item
+	 */
+	static int split(List<Item> items) {
+		double[] min = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+		double[] max = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (Item item : items)
+			for (int axis = 0; axis < 3; ++axis) {
+				min[axis] = Math.min(min[axis], item.center(axis));
+				max[axis] = Math.max(max[axis], item.center(axis));
+			}
+		int axis = 0;
+		for (int i = 1; i < 3; ++i)
+			if (max[i] - min[i] > max[axis] - min[axis])
+				axis = i;
+		final int splitAxis = axis;
+		items.sort(Comparator.comparingDouble(item -> item.center(splitAxis)));
+		return items.size() / 2;
+	}
+
+	/**
+	 * Builds the nodes of a hierarchy over items.
+	 *
+	 * @param items    the items, at least one
+	 * @param strategy the strategy for splitting the items
+	 * @return the root of the hierarchy
+	 */
+	static Node build(List<Item> items, Strategy strategy) {
+		return switch (strategy) {
+		case MEDIAN -> build(items);
+		case SAH -> SAHBuilder.build(items);
+		case MORTON -> MortonBuilder.build(items);
+		};
+	}
+
+	/**
+	 * Recursively builds a subtree by splitting the items at the median of the
+	 * longest axis of their centers.
+	 *
+	 * @param items the items of the subtree
+	 * @return the root of the subtree
+	 */
+	private static Node build(List<Item> items) {
+		Node node = new Node();
+		node.minX = node.minY = node.minZ = Double.POSITIVE_INFINITY;
+		node.maxX = node.maxY = node.maxZ = Double.NEGATIVE_INFINITY;
+		for (Item item : items) {
+			BoundingBox b = item.box();
+			node.minX = Math.min(node.minX, b.minX);
+			node.minY = Math.min(node.minY, b.minY);
+			node.minZ = Math.min(node.minZ, b.minZ);
+			node.maxX = Math.max(node.maxX, b.maxX);
+			node.maxY = Math.max(node.maxY, b.maxY);
+			node.maxZ = Math.max(node.maxZ, b.maxZ);
+		}
+
+		if (items.size() <= LEAF_SIZE) {
+			node.geometries = new PrimitiveArrays(items.stream().map(Item::geometry).toList());
+			return node;
+		}
+
+		int middle = split(items);
+		node.left = build(new ArrayList<>(items.subList(0, middle)));
+		node.right = build(new ArrayList<>(items.subList(middle, items.size())));
+		return node;
+	}
+
+	@Override
+	public BoundingBox getBoundingBox() {
+		return box;
+	}
+
+	@Override
+	public int countPrimitives() {
+		return numbering.count();
+	}
+
+	@Override
+	protected int primitiveIndex(Intersectable primitive) {
+		return numbering.indexOf(primitive);
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+		return findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+		List<GeoPoint> intersections = unbounded.findGeoIntersections(ray, maxDistance, null);
+		if (root == null)
+			return intersections;
+
+		Point head = ray.getHead();
+		Vector direction = ray.getDirection();
+		double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+		double invX = 1 / direction.getX(), invY = 1 / direction.getY(), invZ = 1 / direction.getZ();
+
+		// the stack grows as needed for deep hierarchies
+		Node[] stack = new Node[64];
+		int size = 0;
+		stack[size++] = root;
+		while (size > 0) {
+			Node node = stack[--size];
+			double entry = node.entry(ox, oy, oz, invX, invY, invZ);
+			if (entry == Double.POSITIVE_INFINITY || entry > maxDistance)
+				continue;
+			if (node.geometries != null)
+				intersections = node.geometries.findGeoIntersections(ray, maxDistance, intersections);
+			else {
+				if (size + 2 > stack.length)
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				stack[size++] = node.right;
+				stack[size++] = node.left;
+			}
+		}
+		return intersections;
+	}
+
+	/**
+	 * Finds the closest intersection point by traversing the hierarchy front to
+	 * back, skipping any node whose entry distance is beyond the closest
+	 * intersection found so far.
+	 */
+	@Override
+	public GeoPoint findClosestGeoIntersection(Ray ray) {
+		PrimitiveArrays.Hit hit = new PrimitiveArrays.Hit();
+		unbounded.findClosestGeoIntersection(ray, hit);
+		if (root != null)
+			findClosestGeoIntersection(root, ray, hit);
+		return hit.geoPoint;
+	}
+
+	/**
+	 * Traverses a subtree of a binary hierarchy front to back to find the closest
+	 * intersection point of a ray, skipping any node whose entry distance is
+	 * beyond the closest intersection found so far.
+	 *
+	 * @param <N>   the type of the nodes of the hierarchy
+	 * @param start the root of the subtree
+	 * @param ray   the ray
+	 * @param hit   in and out: the closest intersection found so far
+	 */
+	static <N extends BinaryNode<N>> void findClosestGeoIntersection(N start, Ray ray, PrimitiveArrays.Hit hit) {
+		Point head = ray.getHead();
+		Vector direction = ray.getDirection();
+		double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+		double invX = 1 / direction.getX(), invY = 1 / direction.getY(), invZ = 1 / direction.getZ();
+
+		double startEntry = start.entry(ox, oy, oz, invX, invY, invZ);
+		if (startEntry == Double.POSITIVE_INFINITY)
+			return;
+		// a deep or edited hierarchy may be unbalanced, so the stack grows as needed
+		BinaryNode<?>[] stack = new BinaryNode<?>[64];
+		double[] entries = new double[64];
+		int size = 0;
+		stack[size] = start;
+		entries[size++] = startEntry;
+		while (size > 0) {
+			@SuppressWarnings("unchecked")
+			N node = (N) stack[--size];
+			if (entries[size] > hit.distance)
+				continue;
+			if (node.isLeaf()) {
+				node.findClosestGeoIntersection(ray, hit);
+				continue;
+			}
+
+			if (size + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+				entries = Arrays.copyOf(entries, entries.length * 2);
+			}
+			N left = node.left(), right = node.right();
+			double leftEntry = left.entry(ox, oy, oz, invX, invY, invZ);
+			double rightEntry = right.entry(ox, oy, oz, invX, invY, invZ);
+			// push the farther child first, so the nearer child is visited first
+			boolean leftNear = leftEntry <= rightEntry;
+			double nearEntry = leftNear ? leftEntry : rightEntry, farEntry = leftNear ? rightEntry : leftEntry;
+			if (farEntry != Double.POSITIVE_INFINITY && farEntry <= hit.distance) {
+				stack[size] = leftNear ? right : left;
+				entries[size++] = farEntry;
+			}
+			if (nearEntry != Double.POSITIVE_INFINITY && nearEntry <= hit.distance) {
+				stack[size] = leftNear ? left : right;
+				entries[size++] = nearEntry;
+			}
+		}
+	}
+
+	/**
+	 * Finds the closest intersection points of a packet of coherent rays. The
+	 * packet traverses the hierarchy together: each node is tested against the
+	 * rays of the packet that entered its parent, and is visited if any of them
+	 * enters it before its closest intersection so far. When the rays diverge -
+	 * fewer than a quarter of the packet enter a node - each of them continues
+	 * alone from that node. Packets of more than {@link Long#SIZE} rays are traced
+	 * ray by ray.
+	 */
+	@Override
+	public void findClosestGeoIntersections(Ray[] rays, GeoPoint[] closest) {
+		int count = rays.length;
+		if (count > Long.SIZE) {
+			super.findClosestGeoIntersections(rays, closest);
+			return;
+		}
+		PrimitiveArrays.Hit[] hits = new PrimitiveArrays.Hit[count];
+		double[] ox = new double[count], oy = new double[count], oz = new double[count];
+		double[] invX = new double[count], invY = new double[count], invZ = new double[count];
+		for (int i = 0; i < count; ++i) {
+			hits[i] = new PrimitiveArrays.Hit();
+			unbounded.findClosestGeoIntersection(rays[i], hits[i]);
+			Point head = rays[i].getHead();
+			Vector direction = rays[i].getDirection();
+			ox[i] = head.getX();
+			oy[i] = head.getY();
+			oz[i] = head.getZ();
+			invX[i] = 1 / direction.getX();
+			invY[i] = 1 / direction.getY();
+			invZ[i] = 1 / direction.getZ();
+		}
+
+		if (root != null) {
+			Node[] stack = new Node[64];
+			// the rays that entered the parent of each node in the stack
+			long[] masks = new long[64];
+			int size = 0;
+			stack[size] = root;
+			masks[size++] = count == Long.SIZE ? -1L : (1L << count) - 1;
+			while (size > 0) {
+				Node node = stack[--size];
+				long parentMask = masks[size];
+				long mask = 0;
+				for (long rest = parentMask; rest != 0; rest &= rest - 1) {
+					int i = Long.numberOfTrailingZeros(rest);
+					double entry = node.entry(ox[i], oy[i], oz[i], invX[i], invY[i], invZ[i]);
+					if (entry != Double.POSITIVE_INFINITY && entry <= hits[i].distance)
+						mask |= 1L << i;
+				}
+				if (mask == 0)
+					continue;
+
+				if (node.geometries != null || Long.bitCount(mask) * 4 < count) {
+					for (long rest = mask; rest != 0; rest &= rest - 1) {
+						int i = Long.numberOfTrailingZeros(rest);
+						if (node.geometries != null)
+							node.geometries.findClosestGeoIntersection(rays[i], hits[i]);
+						else
+							findClosestGeoIntersection(node, rays[i], hits[i]);
+					}
+					continue;
+				}
+
+				if (size + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+					masks = Arrays.copyOf(masks, masks.length * 2);
+				}
+				// visit first the child that the first active ray enters first
+				int first = Long.numberOfTrailingZeros(mask);
+				double leftEntry = node.left.entry(ox[first], oy[first], oz[first], invX[first], invY[first],
+						invZ[first]);
+				double rightEntry = node.right.entry(ox[first], oy[first], oz[first], invX[first], invY[first],
+						invZ[first]);
+				Node near = leftEntry <= rightEntry ? node.left : node.right;
+				stack[size] = near == node.left ? node.right : node.left;
+				masks[size++] = mask;
+				stack[size] = near;
+				masks[size++] = mask;
+			}
+		}
+
+		for (int i = 0; i < count; ++i)
+			closest[i] = hits[i].geoPoint;
+	}
+}
@@ -0,0 +1,213 @@
+package geometries;
+
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import geometries.BVH.Item;
+import geometries.BVH.Strategy;
+import primitives.BoundingBox;
+
+/**
+ * A directory of built hierarchies, kept between runs. A hierarchy is stored in
+ * the layout of a {@link FlatBVH} - its nodes followed by the order of its
+ * geometries - in a file named by a hash of its input: the strategy and the
+ * bounding boxes of the geometries in order, which are all that the hierarchy
+ * depends on. When the same geometries are loaded again, the file is mapped to
+ * memory and the nodes are traversed in place, so the hierarchy is not built
+ * and its nodes are not even read before rays reach them. <br/>
+ * A file that can't be read, doesn't match the geometries or holds nodes that
+ * don't form a valid hierarchy is replaced by a newly built hierarchy; a file
+ * that can't be written is logged and skipped, so the cache never fails a
+ * render.
+ */
+public class BVHCache {
+	/** The logger of the cache */
+	private static final Logger logger = Logger.getLogger("BVHCache");
+	/** The first bytes of a cache file */
+	private static final int MAGIC = 0x48564231;
+	/** The version of the file layout */
+	private static final int VERSION = 1;
+	/** The size of the file header: magic, version, nodes and geometries */
+	private static final int HEADER_BYTES = 16;
+	/** The extension of the cache files */
+	private static final String EXTENSION = ".bvh";
+
+	/** The directory of the cache files */
+	private final Path directory;
+
+	/**
+	 * Constructs a cache over a directory; the directory is created when the first
+	 * hierarchy is stored.
+	 *
+	 * @param directory the directory of the cache files
+	 */
+	public BVHCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns a hierarchy over geometries: loads it from the cache if it was built
+	 * for the same geometries before, or else builds it and stores it.
+	 *
+	 * @param geometries the geometries
+	 * @param strategy   the strategy for splitting the geometries
+	 * @return the hierarchy
+	 */
+	public FlatBVH get(List<? extends Intersectable> geometries, Strategy strategy) {
+		List<Intersectable> unbounded = new ArrayList<>();
+		List<Item> items = BVH.items(geometries, unbounded);
+		Path file = directory.resolve(key(items, strategy) + EXTENSION);
+		if (Files.isRegularFile(file))
+			try {
+				FlatBVH loaded = read(file, geometries, items, unbounded);
+				if (loaded != null) {
+					logger.fine(() -> "Loaded " + file);
+					return loaded;
+				}
+				logger.warning(() -> "Replacing mismatching " + file);
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Failed to read " + file, e);
+			}
+
+		FlatBVH built = new FlatBVH(geometries, strategy, true);
+		try {
+			write(file, built, items);
+			logger.fine(() -> "Stored " + file);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Failed to write " + file, e);
+		}
+		return built;
+	}
+
+	/**
+	 * Hashes the input of a hierarchy.
+	 *
+	 * @param items    the bounded geometries
+	 * @param strategy the strategy for splitting the geometries
+	 * @return the hash, in hexadecimal
+	 */
+	private static String key(List<Item> items, Strategy strategy) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(6 * Double.BYTES);
+		digest.update((VERSION + " " + strategy + " " + items.size()).getBytes());
+		for (Item item : items) {
+			BoundingBox box = item.box();
+			buffer.clear();
+			buffer.putDouble(box.minX).putDouble(box.minY).putDouble(box.minZ) //
+					.putDouble(box.maxX).putDouble(box.maxY).putDouble(box.maxZ);
+			digest.update(buffer.array());
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Maps a cache file to memory.
+	 *
+	 * @param file       the file
+	 * @param geometries all the geometries, in the order of the input
+	 * @param items      the bounded geometries
+	 * @param unbounded  the unbounded geometries
+	 * @return the hierarchy, or null if the file doesn't match the geometries or
+	 *         doesn't hold a valid hierarchy
+	 * @throws IOException if the file can't be read
+	 */
+	private static FlatBVH read(Path file, List<? extends Intersectable> geometries, List<Item> items,
+			List<Intersectable> unbounded) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_BYTES)
+				return null;
+			// the mapping stays valid after the channel is closed
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+			int nodeCount = mapped.getInt(8), count = mapped.getInt(12);
+			long nodeBytes = (long) nodeCount * FlatBVH.NODE_BYTES;
+			if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION || count != items.size()
+					|| size != HEADER_BYTES + nodeBytes + (long) count * Integer.BYTES)
+				return null;
+
+			ByteBuffer nodes = mapped.slice(HEADER_BYTES, (int) nodeBytes).order(ByteOrder.LITTLE_ENDIAN);
+			if (!FlatBVH.isValid(nodes, count))
+				return null;
+			// the order of the geometries must be a permutation of the input
+			Intersectable[] ordered = new Intersectable[count];
+			boolean[] used = new boolean[count];
+			for (int i = 0; i < count; ++i) {
+				int index = mapped.getInt(HEADER_BYTES + (int) nodeBytes + i * Integer.BYTES);
+				if (index < 0 || index >= count || used[index])
+					return null;
+				used[index] = true;
+				ordered[i] = items.get(index).geometry();
+			}
+			return new FlatBVH(nodes, geometries, ordered, unbounded, box(items, unbounded));
+		}
+	}
+
+	/**
+	 * Writes a hierarchy to a cache file. The file is written aside and then moved
+	 * into place, so a concurrent reader never sees a partial file.
+	 *
+	 * @param file  the file
+	 * @param bvh   the hierarchy
+	 * @param items the bounded geometries, in the order of the input
+	 * @throws IOException if the file can't be written
+	 */
+	private void write(Path file, FlatBVH bvh, List<Item> items) throws IOException {
+		// a geometry listed more than once has an input index for every leaf slot
+		// that holds it
+		Map<Intersectable, Deque<Integer>> indices = new IdentityHashMap<>();
+		for (int i = 0; i < items.size(); ++i)
+			indices.computeIfAbsent(items.get(i).geometry(), geometry -> new ArrayDeque<>()).add(i);
+		ByteBuffer nodes = bvh.nodes();
+		Intersectable[] geometries = bvh.geometries();
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(bvh.getNodeCount()).putInt(geometries.length).flip();
+		ByteBuffer order = ByteBuffer.allocate(geometries.length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		for (Intersectable geometry : geometries)
+			order.putInt(indices.get(geometry).remove());
+		order.flip();
+
+		Files.createDirectories(directory);
+		Path temporary = Files.createTempFile(directory, "bvh", ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				ByteBuffer[] parts = { header, nodes, order };
+				long remaining = header.remaining() + nodes.remaining() + order.remaining();
+				while (remaining > 0)
+					remaining -= channel.write(parts);
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Calculates the bounding box of geometries.
+	 *
+	 * @param items     the bounded geometries
+	 * @param unbounded the unbounded geometries
+	 * @return the bounding box, null if there are unbounded or no geometries
+	 */
+	private static BoundingBox box(List<Item> items, List<Intersectable> unbounded) {
+		if (items.isEmpty() || !unbounded.isEmpty())
+			return null;
+		BoundingBox box = items.getFirst().box();
+		for (Item item : items)
+			box = box.union(item.box());
+		return box;
+	}
+}
@@ -24,6 +24,21 @@ public class Cylinder extends Tube {
 		this.height = height;
 	}
 
+	/**
+	 * Creates a transformed copy of the cylinder.
+	 *
+	 * @param transform the transform
+	 * @return the transformed cylinder
+	 * @throws IllegalArgumentException if the transform does not scale uniformly
+	 */
+	@Override
+	public Intersectable transform(Transform transform) {
+		if (!transform.isUniform())
+			throw new IllegalArgumentException("A cylinder can be transformed only by a uniform transform");
+		double scale = transform.getScale();
+		return copyAppearanceTo(new Cylinder(height * scale, transformAxis(transform), radius * scale));
+	}
+
 	/**
 	 * Returns the normal vector at the specified point on the surface of the
 	 * cylinder.
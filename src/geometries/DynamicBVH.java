@@ -0,0 +1,690 @@
+package geometries;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import primitives.*;
+import primitives.Vector;
+
+/**
+ * A binary bounding volume hierarchy that is updated in place when geometries
+ * are inserted, removed or moved, instead of being rebuilt. Every leaf holds a
+ * single bounded geometry; the unbounded geometries (e.g. planes) are kept
+ * aside and are always tested. <br/>
+ * A new geometry becomes the sibling of the node that adds the least surface
+ * area to the tree, and the bounds of the ancestors of a changed leaf are
+ * refitted bottom up. A geometry that moves out of the bounds of its parent is
+ * inserted again. Edits keep the hierarchy valid but degrade its quality,
+ * measured as the total surface area of the inner nodes relative to the root
+ * (the surface area heuristic). The cost of the last full build estimates the
+ * cost of building the geometries afresh. When the cost degrades past a
+ * threshold relative to that estimate, or when a quarter of the geometries were
+ * edited since the estimate (so it may no longer describe them, e.g. a far
+ * geometry inflated the root), the hierarchy is built afresh in the background.
+ * The new hierarchy replaces the current one if it is cheaper and the
+ * geometries were not edited in the meantime; in any case its cost becomes the
+ * estimate. <br/>
+ * Edits are synchronized with each other, but must not run concurrently with
+ * intersection queries.
+ */
+public class DynamicBVH extends Intersectable {
+	/** The default cost ratio that triggers a rebuild */
+	private static final double DEFAULT_REBUILD_THRESHOLD = 1.5;
+	/** The fraction of the geometries whose edits make the estimate stale */
+	private static final double ESTIMATE_LIFETIME = 0.25;
+
+	/**
+	 * A node of the hierarchy - either a leaf holding a single geometry or an
+	 * inner node with two children.
+	 */
+	private static final class Node extends BVH.BinaryNode<Node> {
+		/** The parent of the node, null for the root */
+		private Node parent;
+		/** The first child of an inner node */
+		private Node left;
+		/** The second child of an inner node */
+		private Node right;
+		/** The geometry of a leaf, null for an inner node */
+		private Intersectable geometry;
+
+		/**
+		 * Sets the bounds of the node to a bounding box.
+		 *
+		 * @param box the bounding box
+		 */
+		private void fit(BoundingBox box) {
+			minX = box.minX;
+			minY = box.minY;
+			minZ = box.minZ;
+			maxX = box.maxX;
+			maxY = box.maxY;
+			maxZ = box.maxZ;
+		}
+
+		/**
+		 * Sets the bounds of an inner node to the union of the bounds of its
+		 * children.
+		 *
+		 * @return true if the bounds changed
+		 */
+		private boolean fitChildren() {
+			double x0 = Math.min(left.minX, right.minX), y0 = Math.min(left.minY, right.minY);
+			double z0 = Math.min(left.minZ, right.minZ), x1 = Math.max(left.maxX, right.maxX);
+			double y1 = Math.max(left.maxY, right.maxY), z1 = Math.max(left.maxZ, right.maxZ);
+			if (x0 == minX && y0 == minY && z0 == minZ && x1 == maxX && y1 == maxY && z1 == maxZ)
+				return false;
+			minX = x0;
+			minY = y0;
+			minZ = z0;
+			maxX = x1;
+			maxY = y1;
+			maxZ = z1;
+			return true;
+		}
+
+		/**
+		 * Checks whether the bounds of the node contain a bounding box.
+		 *
+		 * @param box the bounding box
+		 * @return true if the box is inside the bounds
+		 */
+		private boolean contains(BoundingBox box) {
+			return minX <= box.minX && minY <= box.minY && minZ <= box.minZ //
+					&& box.maxX <= maxX && box.maxY <= maxY && box.maxZ <= maxZ;
+		}
+
+		/**
+		 * Calculates the surface area of the union of the bounds of the node and of
+		 * another node.
+		 *
+		 * @param other the other node
+		 * @return the surface area of the union
+		 */
+		private double unionArea(Node other) {
+			return area(Math.max(maxX, other.maxX) - Math.min(minX, other.minX),
+					Math.max(maxY, other.maxY) - Math.min(minY, other.minY),
+					Math.max(maxZ, other.maxZ) - Math.min(minZ, other.minZ));
+		}
+
+		/**
+		 * Calculates the surface area of a box.
+		 *
+		 * @param dx the size of the box along the x axis
+		 * @param dy the size of the box along the y axis
+		 * @param dz the size of the box along the z axis
+		 * @return the surface area
+		 */
+		private static double area(double dx, double dy, double dz) {
+			return 2 * (dx * dy + dy * dz + dz * dx);
+		}
+
+		@Override
+		boolean isLeaf() {
+			return geometry != null;
+		}
+
+		@Override
+		Node left() {
+			return left;
+		}
+
+		@Override
+		Node right() {
+			return right;
+		}
+
+		@Override
+		void findClosestGeoIntersection(Ray ray, PrimitiveArrays.Hit hit) {
+			PrimitiveArrays.findClosestGeoIntersection(geometry, ray, hit);
+		}
+	}
+
+	/**
+	 * A hierarchy built from scratch.
+	 *
+	 * @param root      the root, null if there are no bounded geometries
+	 * @param leaves    the leaf of each bounded geometry
+	 * @param innerArea the total surface area of the inner nodes
+	 */
+	private record Tree(Node root, Map<Intersectable, Node> leaves, double innerArea) {
+	}
+
+	/** The root of the hierarchy, null if there are no bounded geometries */
+	private volatile Node root = null;
+	/** The leaf of each bounded geometry */
+	private Map<Intersectable, Node> leaves = new IdentityHashMap<>();
+	/** The unbounded geometries */
+	private final List<Intersectable> unbounded = new ArrayList<>();
+	/** The total surface area of the inner nodes */
+	private double innerArea = 0;
+	/** The estimated cost of a full build: the cost of the last one */
+	private double estimatedCost = 1;
+	/** The cost ratio that triggers a rebuild */
+	private double rebuildThreshold = DEFAULT_REBUILD_THRESHOLD;
+	/** The number of edits so far, to detect edits during a rebuild */
+	private long version = 0;
+	/** The number of geometries edited so far */
+	private long edits = 0;
+	/** The number of geometries edited before the last full build started */
+	private long estimatedEdits = 0;
+	/** The background rebuild, null if there is none */
+	private CompletableFuture<Void> rebuild = null;
+
+	/**
+	 * Constructs an empty hierarchy.
+	 */
+	public DynamicBVH() {
+	}
+
+	/**
+	 * Builds a hierarchy over geometries.
+	 *
+	 * @param geometries the geometries
+	 */
+	public DynamicBVH(List<? extends Intersectable> geometries) {
+		List<Intersectable> bounded = new ArrayList<>();
+		for (Intersectable geometry : geometries)
+			if (geometry.getBoundingBox() == null)
+				unbounded.add(geometry);
+			else
+				bounded.add(geometry);
+		install(build(bounded), edits);
+	}
+
+	/**
+	 * Sets the ratio between the cost of the hierarchy and the estimated cost of
+	 * building it afresh - the cost of the last full build - above which the
+	 * hierarchy is rebuilt in the background. The cost is the total surface area
+	 * of the inner nodes divided by the surface area of the root.
+	 *
+	 * @param rebuildThreshold the cost ratio, at least 1
+	 * @return the hierarchy itself
+	 * @throws IllegalArgumentException if the ratio is less than 1
+	 */
+	public DynamicBVH setRebuildThreshold(double rebuildThreshold) {
+		if (rebuildThreshold < 1)
+			throw new IllegalArgumentException("The rebuild threshold must be at least 1");
+		this.rebuildThreshold = rebuildThreshold;
+		return this;
+	}
+
+	/**
+	 * Inserts geometries into the hierarchy.
+	 *
+	 * @param geometries the geometries to insert
+	 * @throws IllegalArgumentException if a geometry is already in the hierarchy
+	 */
+	public synchronized void insert(Intersectable... geometries) {
+		for (Intersectable geometry : geometries) {
+			if (contains(geometry))
+				throw new IllegalArgumentException("The geometry is already in the hierarchy");
+			insertGeometry(geometry);
+		}
+		edited(geometries.length);
+	}
+
+	/**
+	 * Removes geometries from the hierarchy. Geometries are compared by identity;
+	 * geometries that are not in the hierarchy are ignored.
+	 *
+	 * @param geometries the geometries to remove
+	 */
+	public synchronized void remove(Intersectable... geometries) {
+		for (Intersectable geometry : geometries)
+			removeGeometry(geometry);
+		edited(geometries.length);
+	}
+
+	/**
+	 * Replaces a geometry with its moved copy. The leaf of the geometry is reused
+	 * and the bounds of its ancestors are refitted, unless the copy moved out of
+	 * the bounds of the parent of the leaf, in which case it is inserted again.
+	 *
+	 * @param geometry the geometry in the hierarchy
+	 * @param moved    the geometry that replaces it
+	 * @throws IllegalArgumentException if the geometry is not in the hierarchy, or
+	 *                                  the moved geometry already is
+	 */
+	public synchronized void move(Intersectable geometry, Intersectable moved) {
+		if (!contains(geometry))
+			throw new IllegalArgumentException("The geometry is not in the hierarchy");
+		if (moved != geometry && contains(moved))
+			throw new IllegalArgumentException("The moved geometry is already in the hierarchy");
+		update(geometry, moved);
+		edited(1);
+	}
+
+	/**
+	 * Refits the hierarchy after the bounds of a geometry changed in place, e.g.
+	 * when geometries were added to a collection in the hierarchy.
+	 *
+	 * @param geometry the geometry in the hierarchy
+	 * @throws IllegalArgumentException if the geometry is not in the hierarchy
+	 */
+	public synchronized void refit(Intersectable geometry) {
+		move(geometry, geometry);
+	}
+
+	/**
+	 * Rebuilds the whole hierarchy at once, in the calling thread.
+	 */
+	public synchronized void rebuild() {
+		++version;
+		install(build(new ArrayList<>(leaves.keySet())), edits);
+	}
+
+	/**
+	 * Waits until no background rebuild is running.
+	 */
+	public void awaitRebuild() {
+		while (true) {
+			CompletableFuture<Void> pending;
+			synchronized (this) {
+				pending = rebuild;
+			}
+			if (pending == null)
+				return;
+			pending.join();
+		}
+	}
+
+	/**
+	 * Returns the cost of the hierarchy: the total surface area of the inner nodes
+	 * divided by the surface area of the root. It is the expected number of inner
+	 * nodes a random ray that hits the root visits.
+	 *
+	 * @return the cost, 1 if there are less than two bounded geometries
+	 */
+	public synchronized double getCost() {
+		return cost();
+	}
+
+	/**
+	 * Checks whether a geometry is in the hierarchy.
+	 *
+	 * @param geometry the geometry
+	 * @return true if the geometry is in the hierarchy
+	 */
+	private boolean contains(Intersectable geometry) {
+		if (leaves.containsKey(geometry))
+			return true;
+		for (Intersectable g : unbounded)
+			if (g == geometry)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Calculates the cost of the hierarchy.
+	 *
+	 * @return the cost, 1 if there are less than two bounded geometries
+	 */
+	private double cost() {
+		return cost(root, innerArea);
+	}
+
+	/**
+	 * Calculates the cost of a hierarchy.
+	 *
+	 * @param top       the root, null if there are no bounded geometries
+	 * @param innerArea the total surface area of the inner nodes
+	 * @return the cost, 1 if there are less than two bounded geometries
+	 */
+	private static double cost(Node top, double innerArea) {
+		if (top == null || top.geometry != null)
+			return 1;
+		double area = top.area();
+		return area == 0 ? 1 : innerArea / area;
+	}
+
+	/**
+	 * Inserts a geometry, without checking whether it is already in the hierarchy.
+	 *
+	 * @param geometry the geometry
+	 */
+	private void insertGeometry(Intersectable geometry) {
+		BoundingBox box = geometry.getBoundingBox();
+		if (box == null) {
+			unbounded.add(geometry);
+			return;
+		}
+		Node leaf = new Node();
+		leaf.geometry = geometry;
+		leaf.fit(box);
+		insertLeaf(leaf);
+	}
+
+	/**
+	 * Removes a geometry, if it is in the hierarchy.
+	 *
+	 * @param geometry the geometry
+	 */
+	private void removeGeometry(Intersectable geometry) {
+		Node leaf = leaves.get(geometry);
+		if (leaf != null)
+			removeLeaf(leaf);
+		else
+			unbounded.removeIf(g -> g == geometry);
+	}
+
+	/**
+	 * Inserts a leaf as the sibling of the node that adds the least surface area
+	 * to the hierarchy, descending from the root.
+	 *
+	 * @param leaf the leaf
+	 */
+	private void insertLeaf(Node leaf) {
+		leaves.put(leaf.geometry, leaf);
+		leaf.parent = null;
+		if (root == null) {
+			root = leaf;
+			return;
+		}
+
+		Node sibling = root;
+		while (sibling.geometry == null) {
+			double combined = sibling.unionArea(leaf);
+			// a new parent here costs the area of the union; descending costs the growth
+			// of this node and the cost of the insertion into the child
+			double here = 2 * combined;
+			double inheritance = 2 * (combined - sibling.area());
+			double leftCost = descentCost(sibling.left, leaf) + inheritance;
+			double rightCost = descentCost(sibling.right, leaf) + inheritance;
+			if (here < leftCost && here < rightCost)
+				break;
+			sibling = leftCost < rightCost ? sibling.left : sibling.right;
+		}
+
+		Node grandparent = sibling.parent;
+		Node parent = new Node();
+		parent.parent = grandparent;
+		parent.left = sibling;
+		parent.right = leaf;
+		sibling.parent = parent;
+		leaf.parent = parent;
+		parent.fitChildren();
+		innerArea += parent.area();
+		if (grandparent == null)
+			root = parent;
+		else {
+			if (grandparent.left == sibling)
+				grandparent.left = parent;
+			else
+				grandparent.right = parent;
+			refitAncestors(grandparent);
+		}
+	}
+
+	/**
+	 * Calculates the cost of inserting a leaf into the subtree of a node.
+	 *
+	 * @param child the node
+	 * @param leaf  the leaf
+	 * @return the cost: the area of a new parent for a leaf node, or the growth of
+	 *         an inner node
+	 */
+	private static double descentCost(Node child, Node leaf) {
+		double combined = child.unionArea(leaf);
+		return child.geometry != null ? combined : combined - child.area();
+	}
+
+	/**
+	 * Removes a leaf: its sibling takes the place of their parent.
+	 *
+	 * @param leaf the leaf
+	 */
+	private void removeLeaf(Node leaf) {
+		leaves.remove(leaf.geometry);
+		Node parent = leaf.parent;
+		leaf.parent = null;
+		if (parent == null) {
+			root = null;
+			return;
+		}
+
+		Node sibling = parent.left == leaf ? parent.right : parent.left;
+		Node grandparent = parent.parent;
+		innerArea -= parent.area();
+		sibling.parent = grandparent;
+		if (grandparent == null)
+			root = sibling;
+		else {
+			if (grandparent.left == parent)
+				grandparent.left = sibling;
+			else
+				grandparent.right = sibling;
+			refitAncestors(grandparent);
+		}
+	}
+
+	/**
+	 * Replaces a geometry in the hierarchy and refits its leaf.
+	 *
+	 * @param geometry the geometry in the hierarchy
+	 * @param moved    the geometry that replaces it
+	 */
+	private void update(Intersectable geometry, Intersectable moved) {
+		Node leaf = leaves.get(geometry);
+		BoundingBox box = moved.getBoundingBox();
+		if (leaf == null || box == null) {
+			removeGeometry(geometry);
+			insertGeometry(moved);
+			return;
+		}
+
+		leaves.remove(geometry);
+		leaves.put(moved, leaf);
+		leaf.geometry = moved;
+		leaf.fit(box);
+		if (leaf.parent == null || leaf.parent.contains(box))
+			refitAncestors(leaf.parent);
+		else {
+			// the geometry moved away from its siblings
+			removeLeaf(leaf);
+			insertLeaf(leaf);
+		}
+	}
+
+	/**
+	 * Refits the bounds of a node and of its ancestors, bottom up, until the bounds
+	 * of a node do not change.
+	 *
+	 * @param node the lowest node to refit, may be null
+	 */
+	private void refitAncestors(Node node) {
+		while (node != null) {
+			double area = node.area();
+			if (!node.fitChildren())
+				return;
+			innerArea += node.area() - area;
+			node = node.parent;
+		}
+	}
+
+	/**
+	 * Counts an edit and checks the quality of the hierarchy.
+	 *
+	 * @param count the number of edited geometries
+	 */
+	private void edited(int count) {
+		++version;
+		edits += count;
+		checkQuality();
+	}
+
+	/**
+	 * Starts a background rebuild if no rebuild is running and either the quality
+	 * of the hierarchy degraded past the threshold or the estimate is stale.
+	 */
+	private void checkQuality() {
+		if (rebuild != null || cost() <= rebuildThreshold * estimatedCost
+				&& edits - estimatedEdits <= ESTIMATE_LIFETIME * leaves.size())
+			return;
+		long builtVersion = version, builtEdits = edits;
+		List<Intersectable> geometries = new ArrayList<>(leaves.keySet());
+		// the rebuild is registered before it starts, so that it can't end first
+		CompletableFuture<Void> pending = new CompletableFuture<>();
+		rebuild = pending;
+		ForkJoinPool.commonPool().execute(() -> {
+			Tree tree = null;
+			try {
+				tree = build(geometries);
+			} finally {
+				rebuilt(tree, builtVersion, builtEdits);
+				pending.complete(null);
+			}
+		});
+	}
+
+	/**
+	 * Replaces the hierarchy with the result of a background rebuild if it is
+	 * cheaper and the geometries were not edited during the rebuild, and takes its
+	 * cost as the estimate of a full build.
+	 *
+	 * @param tree         the rebuilt hierarchy, null if the rebuild failed
+	 * @param builtVersion the number of edits when the rebuild started
+	 * @param builtEdits   the number of edited geometries when the rebuild started
+	 */
+	private synchronized void rebuilt(Tree tree, long builtVersion, long builtEdits) {
+		rebuild = null;
+		// a full build in the calling thread may have made a newer estimate
+		if (tree == null || builtEdits < estimatedEdits)
+			return;
+		double builtCost = cost(tree.root(), tree.innerArea());
+		if (builtVersion == version && builtCost < cost()) {
+			install(tree, builtEdits);
+			return;
+		}
+		estimatedCost = builtCost;
+		estimatedEdits = builtEdits;
+		// try again over the current geometries if they are still badly organized
+		if (builtVersion != version)
+			checkQuality();
+	}
+
+	/**
+	 * Replaces the hierarchy with a hierarchy built from scratch.
+	 *
+	 * @param tree       the hierarchy
+	 * @param builtEdits the number of edited geometries when the build started
+	 */
+	private void install(Tree tree, long builtEdits) {
+		leaves = tree.leaves();
+		innerArea = tree.innerArea();
+		root = tree.root();
+		estimatedCost = cost();
+		estimatedEdits = builtEdits;
+	}
+
+	/**
+	 * Builds a hierarchy from scratch by splitting the geometries at the median of
+	 * the longest axis of their centers.
+	 *
+	 * @param geometries the bounded geometries
+	 * @return the hierarchy
+	 */
+	private static Tree build(List<Intersectable> geometries) {
+		Map<Intersectable, Node> leaves = new IdentityHashMap<>();
+		List<BVH.Item> items = BVH.items(geometries, new ArrayList<>());
+		if (items.isEmpty())
+			return new Tree(null, leaves, 0);
+		double[] innerArea = { 0 };
+		Node root = build(items, leaves, innerArea);
+		return new Tree(root, leaves, innerArea[0]);
+	}
+
+	/**
+	 * Recursively builds a subtree.
+	 *
+	 * @param items     the items of the subtree
+	 * @param leaves    output: the leaf of each geometry
+	 * @param innerArea in and out: the total surface area of the inner nodes
+	 * @return the root of the subtree
+	 */
+	private static Node build(List<BVH.Item> items, Map<Intersectable, Node> leaves, double[] innerArea) {
+		Node node = new Node();
+		if (items.size() == 1) {
+			node.geometry = items.getFirst().geometry();
+			node.fit(items.getFirst().box());
+			leaves.put(node.geometry, node);
+			return node;
+		}
+
+		int middle = BVH.split(items);
+		node.left = build(new ArrayList<>(items.subList(0, middle)), leaves, innerArea);
+		node.right = build(new ArrayList<>(items.subList(middle, items.size())), leaves, innerArea);
+		node.left.parent = node.right.parent = node;
+		node.fitChildren();
+		innerArea[0] += node.area();
+		return node;
+	}
+
+	/**
+	 * Returns the bounding box of all the geometries.
+	 *
+	 * @return the bounding box, or null if the hierarchy is empty or any of its
+	 *         geometries is unbounded
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		Node top = root;
+		return top == null || !unbounded.isEmpty() ? null
+				: new BoundingBox(top.minX, top.minY, top.minZ, top.maxX, top.maxY, top.maxZ);
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+		return findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+		List<GeoPoint> intersections = null;
+		for (Intersectable geometry : unbounded)
+			intersections = PrimitiveArrays.findGeoIntersections(geometry, ray, maxDistance, intersections);
+		Node top = root;
+		if (top == null)
+			return intersections;
+
+		Point head = ray.getHead();
+		Vector direction = ray.getDirection();
+		double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+		double invX = 1 / direction.getX(), invY = 1 / direction.getY(), invZ = 1 / direction.getZ();
+
+		// edits may unbalance the tree, so the stack grows as needed
+		Node[] stack = new Node[64];
+		int size = 0;
+		stack[size++] = top;
+		while (size > 0) {
+			Node node = stack[--size];
+			double entry = node.entry(ox, oy, oz, invX, invY, invZ);
+			if (entry == Double.POSITIVE_INFINITY || entry > maxDistance)
+				continue;
+			if (node.geometry != null)
+				intersections = PrimitiveArrays.findGeoIntersections(node.geometry, ray, maxDistance, intersections);
+			else {
+				if (size + 2 > stack.length)
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				stack[size++] = node.right;
+				stack[size++] = node.left;
+			}
+		}
+		return intersections;
+	}
+
+	/**
+	 * Finds the closest intersection point by traversing the hierarchy front to
+	 * back, skipping any node whose entry distance is beyond the closest
+	 * intersection found so far.
+	 */
+	@Override
+	public GeoPoint findClosestGeoIntersection(Ray ray) {
+		PrimitiveArrays.Hit hit = new PrimitiveArrays.Hit();
+		for (Intersectable geometry : unbounded)
+			PrimitiveArrays.findClosestGeoIntersection(geometry, ray, hit);
+		Node top = root;
+		if (top != null)
+			BVH.findClosestGeoIntersection(top, ray, hit);
+		return hit.geoPoint;
+	}
+}
@@ -0,0 +1,400 @@
+package geometries;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+import geometries.BVH.Item;
+import geometries.BVH.Node;
+import geometries.BVH.Strategy;
+import primitives.*;
+import primitives.Vector;
+
+/**
+ * A bounding volume hierarchy stored as one flat array of nodes in depth-first
+ * order, instead of an object per node. Every node takes {@value #NODE_BYTES}
+ * bytes: its bounds as floats, rounded outwards so that no intersection is
+ * lost, and two integers. The first child of an inner node follows it in the
+ * array, and the integers hold the index of its second child and zero; a leaf
+ * holds the index of its first geometry and the amount of its geometries, in
+ * one array of geometries ordered by leaves. <br/>
+ * The nodes may be kept off the heap, in a direct buffer, where the collector
+ * never scans them, or in a file mapped to memory by a {@link BVHCache}. Rays
+ * traverse the array with a stack of node indices, so traversal allocates
+ * nothing but the found intersections.
+ */
+public class FlatBVH extends Intersectable {
+	/** The size of a node in bytes */
+	static final int NODE_BYTES = 32;
+	/** The offset of the index of the second child or of the first geometry */
+	private static final int OFFSET = 24;
+	/** The offset of the amount of geometries of a leaf, zero for inner nodes */
+	private static final int COUNT = 28;
+	/** The initial size of the traversal stack, which grows for deeper trees */
+	private static final int STACK_SIZE = 64;
+
+	/** The nodes, in depth-first order */
+	private final ByteBuffer nodes;
+	/** The amount of nodes */
+	private final int nodeCount;
+	/** The bounded geometries, ordered by the leaves that hold them */
+	private final Intersectable[] geometries;
+	/** The unbounded geometries */
+	private final PrimitiveArrays unbounded;
+	/** The bounding box of all the geometries, null if any is unbounded */
+	private final BoundingBox box;
+	/** The numbering of the primitives in batch intersections */
+	private final PrimitiveNumbering numbering;
+
+	/**
+	 * Builds a flat hierarchy over geometries, split by the surface area heuristic
+	 * and kept on the heap.
+	 *
+	 * @param geometries the geometries
+	 */
+	public FlatBVH(List<? extends Intersectable> geometries) {
+		this(geometries, Strategy.SAH, false);
+	}
+
+	/**
+	 * Builds a flat hierarchy over geometries.
+	 *
+	 * @param geometries the geometries
+	 * @param strategy   the strategy for splitting the geometries
+	 * @param offHeap    whether to keep the nodes in a direct buffer, off the heap
+	 */
+	public FlatBVH(List<? extends Intersectable> geometries, Strategy strategy, boolean offHeap) {
+		numbering = new PrimitiveNumbering(geometries);
+		List<Intersectable> unboundedList = new ArrayList<>();
+		List<Item> items = BVH.items(geometries, unboundedList);
+		unbounded = new PrimitiveArrays(unboundedList);
+		this.geometries = new Intersectable[items.size()];
+		if (items.isEmpty()) {
+			nodeCount = 0;
+			nodes = ByteBuffer.allocate(0);
+			box = null;
+			return;
+		}
+
+		Node root = BVH.build(items, strategy);
+		nodeCount = count(root);
+		nodes = (offHeap ? ByteBuffer.allocateDirect(nodeCount * NODE_BYTES)
+				: ByteBuffer.allocate(nodeCount * NODE_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+		write(root, 0, new int[1]);
+		box = !unboundedList.isEmpty() ? null
+				: new BoundingBox(root.minX, root.minY, root.minZ, root.maxX, root.maxY, root.maxZ);
+	}
+
+	/**
+	 * Constructs a flat hierarchy over nodes that were already laid out.
+	 *
+	 * @param nodes      the nodes, in little endian order
+	 * @param input      all the geometries, in the order of the input
+	 * @param geometries the bounded geometries, ordered by the leaves that hold
+	 *                   them
+	 * @param unbounded  the unbounded geometries
+	 * @param box        the bounding box of all the geometries, null if any is
+	 *                   unbounded
+	 */
+	FlatBVH(ByteBuffer nodes, List<? extends Intersectable> input, Intersectable[] geometries,
+			List<Intersectable> unbounded, BoundingBox box) {
+		numbering = new PrimitiveNumbering(input);
+		this.nodes = nodes.order(ByteOrder.LITTLE_ENDIAN);
+		this.nodeCount = nodes.capacity() / NODE_BYTES;
+		this.geometries = geometries;
+		this.unbounded = new PrimitiveArrays(unbounded);
+		this.box = box;
+	}
+
+	/**
+	 * Checks that nodes laid out elsewhere, e.g. read from a file, form a
+	 * hierarchy that can be traversed safely: every inner node is followed by the
+	 * subtree of its first child and points right past it to its second child,
+	 * and the leaves hold consecutive nonempty ranges that cover the geometries in
+	 * order. The nodes are checked in one pass over their depth-first order, so a
+	 * tree of any depth is checked without recursion.
+	 *
+	 * @param nodes      the nodes, in little endian order
+	 * @param geometries the amount of bounded geometries
+	 * @return true if the nodes form such a hierarchy
+	 */
+	static boolean isValid(ByteBuffer nodes, int geometries) {
+		int count = nodes.capacity() / NODE_BYTES;
+		if (count == 0 || nodes.capacity() % NODE_BYTES != 0)
+			return count == 0 && nodes.capacity() == 0 && geometries == 0;
+		// the second children of the inner nodes whose first subtree is being checked
+		int[] pending = new int[STACK_SIZE];
+		int size = 0, next = 0, index = 0;
+		while (true) {
+			if (index >= count)
+				return false;
+			int at = index * NODE_BYTES;
+			int offset = nodes.getInt(at + OFFSET), leafSize = nodes.getInt(at + COUNT);
+			if (leafSize < 0)
+				return false;
+			if (leafSize == 0) {
+				if (offset <= index + 1 || offset >= count)
+					return false;
+				if (size == pending.length)
+					pending = Arrays.copyOf(pending, size * 2);
+				pending[size++] = offset;
+				++index;
+				continue;
+			}
+
+			if (offset != next || leafSize > geometries - offset)
+				return false;
+			next += leafSize;
+			++index;
+			// a leaf ends the first subtree of the innermost pending node, which must
+			// be followed right away by its second child
+			if (size == 0)
+				return index == count && next == geometries;
+			if (index != pending[--size])
+				return false;
+		}
+	}
+
+	/**
+	 * Returns a read-only view of the nodes.
+	 *
+	 * @return the nodes, in little endian order
+	 */
+	ByteBuffer nodes() {
+		return nodes.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Returns the bounded geometries, ordered by the leaves that hold them.
+	 *
+	 * @return the geometries
+	 */
+	Intersectable[] geometries() {
+		return geometries;
+	}
+
+	/**
+	 * Counts the nodes of a subtree.
+	 *
+	 * @param node the root of the subtree
+	 * @return the amount of nodes
+	 */
+	private static int count(Node node) {
+		return node.geometries != null ? 1 : 1 + count(node.left) + count(node.right);
+	}
+
+	/**
+	 * Writes a subtree to the node array in depth-first order.
+	 *
+	 * @param node  the root of the subtree
+	 * @param index the index of the root in the array
+	 * @param next  in and out: the index of the next geometry
+	 * @return the index following the subtree
+	 */
+	private int write(Node node, int index, int[] next) {
+		int at = index * NODE_BYTES;
+		nodes.putFloat(at, down(node.minX)).putFloat(at + 4, down(node.minY)).putFloat(at + 8, down(node.minZ))
+				.putFloat(at + 12, up(node.maxX)).putFloat(at + 16, up(node.maxY)).putFloat(at + 20, up(node.maxZ));
+		if (node.geometries != null) {
+			int first = next[0];
+			for (Intersectable geometry : node.geometries.toList())
+				geometries[next[0]++] = geometry;
+			nodes.putInt(at + OFFSET, first).putInt(at + COUNT, next[0] - first);
+			return index + 1;
+		}
+		int second = write(node.left, index + 1, next);
+		nodes.putInt(at + OFFSET, second).putInt(at + COUNT, 0);
+		return write(node.right, second, next);
+	}
+
+	/**
+	 * Rounds a coordinate down to a float.
+	 *
+	 * @param value the coordinate
+	 * @return the greatest float not above the coordinate
+	 */
+	private static float down(double value) {
+		float rounded = (float) value;
+		return rounded > value ? Math.nextDown(rounded) : rounded;
+	}
+
+	/**
+	 * Rounds a coordinate up to a float.
+	 *
+	 * @param value the coordinate
+	 * @return the least float not below the coordinate
+	 */
+	private static float up(double value) {
+		float rounded = (float) value;
+		return rounded < value ? Math.nextUp(rounded) : rounded;
+	}
+
+	/**
+	 * Returns the amount of nodes of the hierarchy.
+	 *
+	 * @return the amount of nodes
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Tells whether the nodes are kept off the heap.
+	 *
+	 * @return true if the nodes are in a direct buffer
+	 */
+	public boolean isOffHeap() {
+		return nodes.isDirect();
+	}
+
+	@Override
+	public BoundingBox getBoundingBox() {
+		return box;
+	}
+
+	@Override
+	public int countPrimitives() {
+		return numbering.count();
+	}
+
+	@Override
+	protected int primitiveIndex(Intersectable primitive) {
+		return numbering.indexOf(primitive);
+	}
+
+	/**
+	 * Calculates the distance along a ray to the entry point into the bounds of a
+	 * node (slab test).
+	 *
+	 * @param node the index of the node
+	 * @param ox   the x coordinate of the ray head
+	 * @param oy   the y coordinate of the ray head
+	 * @param oz   the z coordinate of the ray head
+	 * @param invX the inverse of the x coordinate of the ray direction
+	 * @param invY the inverse of the y coordinate of the ray direction
+	 * @param invZ the inverse of the z coordinate of the ray direction
+	 * @return the entry distance (0 if the head is inside), or infinity if the ray
+	 *         misses the bounds
+	 */
+	private double entry(int node, double ox, double oy, double oz, double invX, double invY, double invZ) {
+		int at = node * NODE_BYTES;
+		double t1 = (nodes.getFloat(at) - ox) * invX;
+		double t2 = (nodes.getFloat(at + 12) - ox) * invX;
+		double near = Math.min(t1, t2);
+		double far = Math.max(t1, t2);
+		t1 = (nodes.getFloat(at + 4) - oy) * invY;
+		t2 = (nodes.getFloat(at + 16) - oy) * invY;
+		near = Math.max(near, Math.min(t1, t2));
+		far = Math.min(far, Math.max(t1, t2));
+		t1 = (nodes.getFloat(at + 8) - oz) * invZ;
+		t2 = (nodes.getFloat(at + 20) - oz) * invZ;
+		near = Math.max(near, Math.min(t1, t2));
+		far = Math.min(far, Math.max(t1, t2));
+		return near > far || far < 0 ? Double.POSITIVE_INFINITY : Math.max(near, 0);
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+		return findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+		List<GeoPoint> intersections = unbounded.findGeoIntersections(ray, maxDistance, null);
+		if (nodeCount == 0)
+			return intersections;
+
+		Point head = ray.getHead();
+		Vector direction = ray.getDirection();
+		double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+		double invX = 1 / direction.getX(), invY = 1 / direction.getY(), invZ = 1 / direction.getZ();
+
+		int[] stack = new int[STACK_SIZE];
+		int size = 0;
+		stack[size++] = 0;
+		while (size > 0) {
+			int node = stack[--size];
+			double entry = entry(node, ox, oy, oz, invX, invY, invZ);
+			if (entry == Double.POSITIVE_INFINITY || entry > maxDistance)
+				continue;
+			int at = node * NODE_BYTES;
+			int offset = nodes.getInt(at + OFFSET), count = nodes.getInt(at + COUNT);
+			if (count != 0)
+				for (int i = offset; i < offset + count; ++i)
+					intersections = PrimitiveArrays.findGeoIntersections(geometries[i], ray, maxDistance,
+							intersections);
+			else {
+				if (size + 2 > stack.length)
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				stack[size++] = offset;
+				stack[size++] = node + 1;
+			}
+		}
+		return intersections;
+	}
+
+	/**
+	 * Finds the closest intersection point by traversing the nodes front to back,
+	 * skipping any node whose entry distance is beyond the closest intersection
+	 * found so far.
+	 */
+	@Override
+	public GeoPoint findClosestGeoIntersection(Ray ray) {
+		PrimitiveArrays.Hit hit = new PrimitiveArrays.Hit();
+		unbounded.findClosestGeoIntersection(ray, hit);
+		if (nodeCount == 0)
+			return hit.geoPoint;
+
+		Point head = ray.getHead();
+		Vector direction = ray.getDirection();
+		double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+		double invX = 1 / direction.getX(), invY = 1 / direction.getY(), invZ = 1 / direction.getZ();
+
+		int[] stack = new int[STACK_SIZE];
+		double[] entries = new double[STACK_SIZE];
+		int size = 0;
+		double rootEntry = entry(0, ox, oy, oz, invX, invY, invZ);
+		if (rootEntry == Double.POSITIVE_INFINITY)
+			return hit.geoPoint;
+		stack[size] = 0;
+		entries[size++] = rootEntry;
+		while (size > 0) {
+			int node = stack[--size];
+			if (entries[size] > hit.distance)
+				continue;
+			int at = node * NODE_BYTES;
+			int offset = nodes.getInt(at + OFFSET), count = nodes.getInt(at + COUNT);
+			if (count != 0) {
+				for (int i = offset; i < offset + count; ++i)
+					PrimitiveArrays.findClosestGeoIntersection(geometries[i], ray, hit);
+				continue;
+			}
+
+			if (size + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+				entries = Arrays.copyOf(entries, entries.length * 2);
+			}
+			int left = node + 1, right = offset;
+			double leftEntry = entry(left, ox, oy, oz, invX, invY, invZ);
+			double rightEntry = entry(right, ox, oy, oz, invX, invY, invZ);
+			// push the farther child first, so the nearer child is visited first
+			int near = left, far = right;
+			double nearEntry = leftEntry, farEntry = rightEntry;
+			if (rightEntry < leftEntry) {
+				near = right;
+				far = left;
+				nearEntry = rightEntry;
+				farEntry = leftEntry;
+			}
+			if (farEntry != Double.POSITIVE_INFINITY && farEntry <= hit.distance) {
+				stack[size] = far;
+				entries[size++] = farEntry;
+			}
+			if (nearEntry != Double.POSITIVE_INFINITY && nearEntry <= hit.distance) {
+				stack[size] = near;
+				entries[size++] = nearEntry;
+			}
+		}
+		return hit.geoPoint;
+	}
+}
@@ -12,6 +12,12 @@ public class Geometries extends Intersectable {
 	/** The list of intersectable geometries. */
 	final private List<Intersectable> intersectables = new LinkedList<>();
 
+	/**
+	 * The geometries grouped by type for intersecting, created on demand and
+	 * discarded when geometries are added.
+	 */
+	private PrimitiveArrays arrays = null;
+
 	/**
 	 * Constructs an empty Geometries object.
 	 */
@@ -34,6 +40,75 @@ public class Geometries extends Intersectable {
 	 */
 	public void add(Intersectable... geometries) {
 		this.intersectables.addAll(List.of(geometries));
+		arrays = null;
+	}
+
+	/**
+	 * Removes geometries from this collection. Geometries are compared by
+	 * identity; geometries that are not in the collection are ignored.
+	 *
+	 * @param geometries the geometries to remove
+	 */
+	public void remove(Intersectable... geometries) {
+		for (Intersectable geometry : geometries)
+			intersectables.removeIf(g -> g == geometry);
+		arrays = null;
+	}
+
+	/**
+	 * Returns the geometries of this collection.
+	 *
+	 * @return an unmodifiable view of the geometries
+	 */
+	public List<Intersectable> getGeometries() {
+		return Collections.unmodifiableList(intersectables);
+	}
+
+	/**
+	 * Creates a collection of the transformed copies of the geometries of this
+	 * collection.
+	 *
+	 * @param transform the transform
+	 * @return the transformed collection
+	 * @throws UnsupportedOperationException if any of the geometries cannot be
+	 *                                       transformed
+	 */
+	@Override
+	public Intersectable transform(Transform transform) {
+		Geometries copy = new Geometries();
+		for (Intersectable geometry : intersectables)
+			copy.add(geometry.transform(transform));
+		return copy;
+	}
+
+	/**
+	 * Returns the bounding box of all the geometries of this collection.
+	 *
+	 * @return the bounding box, or null if the collection is empty or any of its
+	 *         geometries is unbounded
+	 */
+	@Override
+	public BoundingBox getBoundingBox() {
+		BoundingBox box = null;
+		for (Intersectable geometry : intersectables) {
+			BoundingBox childBox = geometry.getBoundingBox();
+			if (childBox == null)
+				return null;
+			box = childBox.union(box);
+		}
+		return box;
+	}
+
+	/**
+	 * Returns the geometries grouped by type, creating the groups if needed.
+	 *
+	 * @return the geometries grouped by type
+	 */
+	private PrimitiveArrays arrays() {
+		PrimitiveArrays result = arrays;
+		if (result == null)
+			arrays = result = new PrimitiveArrays(intersectables);
+		return result;
 	}
 
 	/**
@@ -44,22 +119,61 @@ public class Geometries extends Intersectable {
 	 * @return a list of intersection points, or null if there are no intersections
 	 */
 	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+		return arrays().findGeoIntersections(ray, Double.POSITIVE_INFINITY, null);
+	}
 
-		List<GeoPoint> intersections = null;
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+		return arrays().findGeoIntersections(ray, maxDistance, null);
+	}
+
+	@Override
+	public GeoPoint findClosestGeoIntersection(Ray ray) {
+		PrimitiveArrays.Hit hit = new PrimitiveArrays.Hit();
+		arrays().findClosestGeoIntersection(ray, hit);
+		return hit.geoPoint;
+	}
 
+	/**
+	 * Intersects a batch of rays with the geometries of this collection. The
+	 * primitives are numbered in depth first order, starting from the given index,
+	 * so that nested collections are numbered as if they were flattened.
+	 *
+	 * @param batch     the rays and their closest intersections
+	 * @param primitive the index recorded for the first primitive of the
+	 *                  collection
+	 * @return the index following the primitives of the collection
+	 */
+	@Override
+	public int intersect(RayBatch batch, int primitive) {
+		for (Intersectable geometry : intersectables)
+			primitive = geometry.intersect(batch, primitive);
+		return primitive;
+	}
+
+	/**
+	 * Counts the primitives of this collection, including those of nested
+	 * collections, acceleration structures and instances.
+	 *
+	 * @return the amount of primitives
+	 */
+	@Override
+	public int countPrimitives() {
+		int count = 0;
+		for (Intersectable geometry : intersectables)
+			count += geometry.countPrimitives();
+		return count;
+	}
+
+	@Override
+	protected int primitiveIndex(Intersectable primitive) {
+		int first = 0;
 		for (Intersectable geometry : intersectables) {
-			// get all intersections
-			var tempIntersections = geometry.findGeoIntersections(ray);
-			// if any intersections
-			if (tempIntersections != null) {
-				// for first add
-				if (intersections == null)
-					intersections = new LinkedList<>(tempIntersections);
-				else
-					intersections.addAll(tempIntersections);
-			}
+			int index = geometry.primitiveIndex(primitive);
+			if (index >= 0)
+				return first + index;
+			first += geometry.countPrimitives();
 		}
-
-		return intersections;
+		return -1;
 	}
 }
@@ -64,4 +64,15 @@ public abstract class Geometry extends Intersectable {
 	 * @return The normal vector at the specified point.
 	 */
 	public abstract Vector getNormal(Point pointOnSurface);
+
+	/**
+	 * Copies the emission and the material of the geometry to another geometry,
+	 * such as a transformed copy of it.
+	 *
+	 * @param copy the other geometry
+	 * @return the other geometry
+	 */
+	protected Geometry copyAppearanceTo(Geometry copy) {
+		return copy.setEmission(emission).setMaterial(material);
+	}
 }
@@ -0,0 +1,213 @@
+package geometries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import primitives.*;
+
+/**
+ * A placed copy of a shared geometry. The instance references its prototype -
+ * typically an acceleration structure over a mesh, built once - through an
+ * affine transform, so placing the same object many times costs memory only
+ * for the instances, not for copies of the geometry. <br/>
+ * Rays are transformed into the object space of the prototype and its
+ * intersections are transformed back. The geometry of an intersection is a
+ * lightweight view of the intersected primitive of the prototype, with the
+ * appearance of the primitive and its normal transformed to the world space;
+ * views are created only for found intersections. A scene of instances is
+ * intersected through a top-level acceleration structure built over their
+ * bounding boxes, like any other geometries.
+ */
+public class Instance extends Intersectable {
+	/** The shared geometry */
+	private final Intersectable prototype;
+	/** The transform from the object space of the prototype to the world */
+	private final Transform transform;
+	/** The transform from the world to the object space of the prototype */
+	private final Transform inverse;
+	/** The bounding box of the instance in the world, null if it is unbounded */
+	private final BoundingBox box;
+
+	/**
+	 * A primitive of the prototype as seen through the instance.
+	 */
+	private final class View extends Geometry {
+		/** The primitive of the prototype */
+		private final Geometry primitive;
+
+		/**
+		 * Constructs a view of a primitive of the prototype.
+		 *
+		 * @param primitive the primitive
+		 */
+		private View(Geometry primitive) {
+			this.primitive = primitive;
+		}
+
+		@Override
+		public Color getEmission() {
+			return primitive.getEmission();
+		}
+
+		@Override
+		public Material getMaterial() {
+			return primitive.getMaterial();
+		}
+
+		@Override
+		public Vector getNormal(Point pointOnSurface) {
+			return transform.applyToNormal(primitive.getNormal(inverse.apply(pointOnSurface)));
+		}
+
+		@Override
+		protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+			return toWorld(primitive.findGeoIntersections(toObject(ray)));
+		}
+
+		@Override
+		public String toString() {
+			return primitive + " in " + Instance.this;
+		}
+	}
+
+	/**
+	 * Constructs an instance of a geometry.
+	 *
+	 * @param prototype the shared geometry
+	 * @param transform the transform that places the geometry in the world
+	 * @throws IllegalArgumentException if the transform is singular
+	 */
+	public Instance(Intersectable prototype, Transform transform) {
+		this.prototype = prototype;
+		this.transform = transform;
+		try {
+			inverse = transform.inverse();
+		} catch (IllegalStateException e) {
+			throw new IllegalArgumentException("An instance can't be placed by a singular transform", e);
+		}
+		BoundingBox objectBox = prototype.getBoundingBox();
+		if (objectBox == null)
+			box = null;
+		else {
+			Point[] corners = objectBox.getCorners();
+			for (int i = 0; i < corners.length; ++i)
+				corners[i] = transform.apply(corners[i]);
+			box = BoundingBox.of(corners);
+		}
+	}
+
+	/**
+	 * Returns the shared geometry of the instance.
+	 *
+	 * @return the prototype
+	 */
+	public Intersectable getPrototype() {
+		return prototype;
+	}
+
+	/**
+	 * Returns the transform that places the prototype in the world.
+	 *
+	 * @return the transform
+	 */
+	public Transform getTransform() {
+		return transform;
+	}
+
+	/**
+	 * Creates another instance of the same prototype, moved by a transform. The
+	 * prototype is not copied.
+	 *
+	 * @param transform the transform
+	 * @return the moved instance
+	 */
+	@Override
+	public Intersectable transform(Transform transform) {
+		return new Instance(prototype, this.transform.then(transform));
+	}
+
+	@Override
+	public BoundingBox getBoundingBox() {
+		return box;
+	}
+
+	@Override
+	public int countPrimitives() {
+		return prototype.countPrimitives();
+	}
+
+	/**
+	 * Finds the index of a primitive of the instance, numbered as the primitives
+	 * of the prototype.
+	 */
+	@Override
+	protected int primitiveIndex(Intersectable primitive) {
+		return primitive instanceof View view ? prototype.primitiveIndex(view.primitive) : -1;
+	}
+
+	/**
+	 * Transforms a ray into the object space of the prototype.
+	 *
+	 * @param ray the ray in the world
+	 * @return the ray in object space
+	 */
+	private Ray toObject(Ray ray) {
+		return new Ray(inverse.apply(ray.getHead()), inverse.applyToVector(ray.getDirection()));
+	}
+
+	/**
+	 * Transforms an intersection of the prototype to the world.
+	 *
+	 * @param gp the intersection in object space
+	 * @return the intersection in the world
+	 */
+	private GeoPoint toWorld(GeoPoint gp) {
+		return gp == null ? null : new GeoPoint(new View(gp.geometry), transform.apply(gp.point));
+	}
+
+	/**
+	 * Transforms intersections of the prototype to the world.
+	 *
+	 * @param intersections the intersections in object space, may be null
+	 * @return the intersections in the world, or null if there are none
+	 */
+	private List<GeoPoint> toWorld(List<GeoPoint> intersections) {
+		if (intersections == null)
+			return null;
+		List<GeoPoint> result = new ArrayList<>(intersections.size());
+		for (GeoPoint gp : intersections)
+			result.add(toWorld(gp));
+		return result;
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+		return toWorld(prototype.findGeoIntersections(toObject(ray)));
+	}
+
+	/**
+	 * Finds the intersections up to a distance. A distance along the ray in the
+	 * world is scaled to the object space by the length of the transformed
+	 * direction of the ray.
+	 */
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+		Vector direction = inverse.applyToVector(ray.getDirection());
+		Ray objectRay = new Ray(inverse.apply(ray.getHead()), direction);
+		return toWorld(prototype.findGeoIntersections(objectRay, maxDistance * direction.length()));
+	}
+
+	/**
+	 * Finds the closest intersection in object space; an affine transform keeps
+	 * the order of the points along the ray.
+	 */
+	@Override
+	public GeoPoint findClosestGeoIntersection(Ray ray) {
+		return toWorld(prototype.findClosestGeoIntersection(toObject(ray)));
+	}
+
+	@Override
+	public String toString() {
+		return "Instance " + transform;
+	}
+}
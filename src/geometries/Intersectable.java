@@ -2,6 +2,7 @@ package geometries;
 
 import java.util.List;
 import primitives.*;
+import static primitives.Util.*;
 
 /**
  * Abstract class representing an intersectable geometry object.
@@ -88,4 +89,135 @@ public abstract class Intersectable {
 	 * @return a list of GeoPoints, or null if there are no intersections
 	 */
 	protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray);
+
+	/**
+	 * Finds the intersection points between a given ray and the geometry that are
+	 * not farther than a given distance from the head of the ray.
+	 *
+	 * @param ray         the ray to intersect with the geometry
+	 * @param maxDistance the maximal distance of an intersection from the ray head
+	 * @return a list of GeoPoints, or null if there are no intersections
+	 */
+	public final List<GeoPoint> findGeoIntersections(Ray ray, double maxDistance) {
+		return findGeoIntersectionsHelper(ray, maxDistance);
+	}
+
+	/**
+	 * Helper method to find the intersection points between a given ray and the
+	 * geometry up to a given distance. The default implementation filters the
+	 * results of {@link #findGeoIntersectionsHelper(Ray)}; acceleration
+	 * structures override it to prune the search.
+	 *
+	 * @param ray         the ray to intersect with the geometry
+	 * @param maxDistance the maximal distance of an intersection from the ray head
+	 * @return a list of GeoPoints, or null if there are no intersections
+	 */
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+		List<GeoPoint> intersections = findGeoIntersectionsHelper(ray);
+		if (intersections == null || maxDistance == Double.POSITIVE_INFINITY)
+			return intersections;
+		Point head = ray.getHead();
+		List<GeoPoint> result = intersections.stream()
+				.filter(gp -> alignZero(gp.point.distance(head) - maxDistance) <= 0).toList();
+		return result.isEmpty() ? null : result;
+	}
+
+	/**
+	 * Finds the closest intersection point between a given ray and the geometry.
+	 * The default implementation selects the closest of all the intersections;
+	 * acceleration structures override it to stop the search early.
+	 *
+	 * @param ray the ray to intersect with the geometry
+	 * @return the closest GeoPoint, or null if there are no intersections
+	 */
+	public GeoPoint findClosestGeoIntersection(Ray ray) {
+		return ray.findClosestGeoPoint(findGeoIntersections(ray));
+	}
+
+	/**
+	 * Finds the closest intersection points between a packet of rays and the
+	 * geometry. The default implementation intersects the rays one by one;
+	 * acceleration structures override it to traverse coherent rays together.
+	 *
+	 * @param rays    the rays to intersect with the geometry
+	 * @param closest output: the closest GeoPoint of each ray, or null if the ray
+	 *                has no intersections
+	 */
+	public void findClosestGeoIntersections(Ray[] rays, GeoPoint[] closest) {
+		for (int i = 0; i < rays.length; ++i)
+			closest[i] = findClosestGeoIntersection(rays[i]);
+	}
+
+	/**
+	 * Intersects a batch of rays with the geometry, recording for each ray the
+	 * intersection closer than its closest intersection so far. The primitives of
+	 * the geometry are numbered from the given index on, as by
+	 * {@link #primitiveIndex(Intersectable)}. The default implementation
+	 * intersects the rays one by one; primitives override it with loops over the
+	 * coordinate arrays of the batch that create no objects.
+	 *
+	 * @param batch     the rays and their closest intersections
+	 * @param primitive the index of the first primitive of the geometry
+	 * @return the index following the primitives of the geometry
+	 */
+	public int intersect(RayBatch batch, int primitive) {
+		for (int i = 0; i < batch.size; ++i) {
+			Ray ray = batch.getRay(i);
+			GeoPoint closest = findClosestGeoIntersection(ray);
+			if (closest == null)
+				continue;
+			double t = closest.point.distance(ray.getHead());
+			if (t < batch.distance[i]) {
+				Vector normal = closest.geometry.getNormal(closest.point);
+				batch.record(i, t, primitive + Math.max(primitiveIndex(closest.geometry), 0), normal.getX(),
+						normal.getY(), normal.getZ());
+			}
+		}
+		return primitive + countPrimitives();
+	}
+
+	/**
+	 * Counts the primitives of the geometry, as numbered in batch intersections.
+	 * A primitive counts as one; collections, acceleration structures and
+	 * instances count the primitives they contain.
+	 *
+	 * @return the amount of primitives
+	 */
+	public int countPrimitives() {
+		return 1;
+	}
+
+	/**
+	 * Finds the index of a primitive among the primitives of the geometry, as
+	 * numbered in batch intersections.
+	 *
+	 * @param primitive the primitive, as found in an intersection with the
+	 *                  geometry
+	 * @return the index of the primitive, or -1 if it is not a primitive of the
+	 *         geometry
+	 */
+	protected int primitiveIndex(Intersectable primitive) {
+		return primitive == this ? 0 : -1;
+	}
+
+	/**
+	 * Creates a transformed copy of the geometry, with the same emission and
+	 * material. The geometry itself is not changed.
+	 *
+	 * @param transform the transform
+	 * @return the transformed geometry
+	 * @throws UnsupportedOperationException if the geometry cannot be transformed
+	 */
+	public Intersectable transform(Transform transform) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " can't be transformed");
+	}
+
+	/**
+	 * Returns the axis aligned bounding box of the geometry.
+	 *
+	 * @return the bounding box, or null if the geometry is unbounded
+	 */
+	public BoundingBox getBoundingBox() {
+		return null;
+	}
 }
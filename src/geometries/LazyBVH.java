@@ -0,0 +1,246 @@
+package geometries;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import geometries.BVH.Item;
+import primitives.*;
+import primitives.Vector;
+
+/**
+ * A bounding volume hierarchy built on demand. Only the top levels are built
+ * eagerly; every other inner node keeps its geometries unsplit until a ray
+ * first enters it, and only then splits them at the median of the longest
+ * axis of their centers into its two children. Parts of the scene that no ray
+ * reaches are never split, so a render that sees a small part of a huge scene
+ * starts almost at once. <br/>
+ * The hierarchy may be traversed by several render threads at once. A node is
+ * split under its own lock, at most once, and its children are published
+ * through a volatile field, so threads that race into the same node wait for
+ * one split instead of repeating it, and threads in other nodes never wait.
+ */
+public class LazyBVH extends Intersectable {
+	/** The maximal amount of geometries in a leaf */
+	private static final int LEAF_SIZE = 4;
+	/** The default amount of levels built eagerly */
+	private static final int EAGER_DEPTH = 6;
+
+	/** The root of the hierarchy, null if there are no bounded geometries */
+	private final Node root;
+	/** The unbounded geometries */
+	private final PrimitiveArrays unbounded;
+	/** The bounding box of all the geometries, null if any is unbounded */
+	private final BoundingBox box;
+	/** The numbering of the primitives in batch intersections */
+	private final PrimitiveNumbering numbering;
+	/** The amount of nodes built so far */
+	private final AtomicInteger nodeCount = new AtomicInteger();
+
+	/**
+	 * A node of the hierarchy - either a leaf holding a few geometries or an inner
+	 * node whose children are built on demand.
+	 */
+	private final class Node extends BVH.BinaryNode<Node> {
+		/** The geometries of a leaf, null for an inner node */
+		private final PrimitiveArrays geometries;
+		/** The geometries of an inner node that has not been split yet */
+		private List<Item> pending;
+		/** The two children of an inner node, null until it is split */
+		private volatile Node[] children;
+
+		/**
+		 * Constructs a node over items; the node is a leaf if there are few of
+		 * them.
+		 *
+		 * @param items the items
+		 */
+		private Node(List<Item> items) {
+			double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY, z0 = Double.POSITIVE_INFINITY;
+			double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY, z1 = Double.NEGATIVE_INFINITY;
+			for (Item item : items) {
+				BoundingBox b = item.box();
+				x0 = Math.min(x0, b.minX);
+				y0 = Math.min(y0, b.minY);
+				z0 = Math.min(z0, b.minZ);
+				x1 = Math.max(x1, b.maxX);
+				y1 = Math.max(y1, b.maxY);
+				z1 = Math.max(z1, b.maxZ);
+			}
+			minX = x0;
+			minY = y0;
+			minZ = z0;
+			maxX = x1;
+			maxY = y1;
+			maxZ = z1;
+			if (items.size() <= LEAF_SIZE) {
+				geometries = new PrimitiveArrays(items.stream().map(Item::geometry).toList());
+				pending = null;
+			} else {
+				geometries = null;
+				pending = items;
+			}
+			nodeCount.incrementAndGet();
+		}
+
+		/**
+		 * Returns the children of an inner node, splitting its geometries the first
+		 * time.
+		 *
+		 * @return the two children
+		 */
+		private Node[] children() {
+			Node[] result = children;
+			if (result != null)
+				return result;
+			synchronized (this) {
+				result = children;
+				if (result == null) {
+					int middle = BVH.split(pending);
+					result = new Node[] { new Node(new ArrayList<>(pending.subList(0, middle))),
+							new Node(new ArrayList<>(pending.subList(middle, pending.size()))) };
+					pending = null;
+					children = result;
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Splits the subtree eagerly down to a depth.
+		 *
+		 * @param depth the amount of levels to split
+		 */
+		private void expand(int depth) {
+			if (geometries != null || depth == 0)
+				return;
+			for (Node child : children())
+				child.expand(depth - 1);
+		}
+
+		@Override
+		boolean isLeaf() {
+			return geometries != null;
+		}
+
+		@Override
+		Node left() {
+			return children()[0];
+		}
+
+		@Override
+		Node right() {
+			return children()[1];
+		}
+
+		@Override
+		void findClosestGeoIntersection(Ray ray, PrimitiveArrays.Hit hit) {
+			geometries.findClosestGeoIntersection(ray, hit);
+		}
+	}
+
+	/**
+	 * Builds the top levels of a hierarchy over geometries.
+	 *
+	 * @param geometries the geometries
+	 */
+	public LazyBVH(List<? extends Intersectable> geometries) {
+		this(geometries, EAGER_DEPTH);
+	}
+
+	/**
+	 * Builds the top levels of a hierarchy over geometries.
+	 *
+	 * @param geometries the geometries
+	 * @param eagerDepth the amount of levels below the root that are built eagerly
+	 * @throws IllegalArgumentException if the depth is negative
+	 */
+	public LazyBVH(List<? extends Intersectable> geometries, int eagerDepth) {
+		if (eagerDepth < 0)
+			throw new IllegalArgumentException("The eager depth can't be negative");
+		numbering = new PrimitiveNumbering(geometries);
+		List<Intersectable> unboundedList = new ArrayList<>();
+		List<Item> items = BVH.items(geometries, unboundedList);
+		unbounded = new PrimitiveArrays(unboundedList);
+		root = items.isEmpty() ? null : new Node(items);
+		if (root != null)
+			root.expand(eagerDepth);
+		box = root == null || !unboundedList.isEmpty() ? null
+				: new BoundingBox(root.minX, root.minY, root.minZ, root.maxX, root.maxY, root.maxZ);
+	}
+
+	/**
+	 * Returns the amount of nodes built so far.
+	 *
+	 * @return the amount of nodes
+	 */
+	public int getNodeCount() {
+		return nodeCount.get();
+	}
+
+	@Override
+	public BoundingBox getBoundingBox() {
+		return box;
+	}
+
+	@Override
+	public int countPrimitives() {
+		return numbering.count();
+	}
+
+	@Override
+	protected int primitiveIndex(Intersectable primitive) {
+		return numbering.indexOf(primitive);
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+		return findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+		List<GeoPoint> intersections = unbounded.findGeoIntersections(ray, maxDistance, null);
+		if (root == null)
+			return intersections;
+
+		Point head = ray.getHead();
+		Vector direction = ray.getDirection();
+		double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+		double invX = 1 / direction.getX(), invY = 1 / direction.getY(), invZ = 1 / direction.getZ();
+
+		// the stack grows as needed for deep hierarchies
+		Node[] stack = new Node[64];
+		int size = 0;
+		stack[size++] = root;
+		while (size > 0) {
+			Node node = stack[--size];
+			double entry = node.entry(ox, oy, oz, invX, invY, invZ);
+			if (entry == Double.POSITIVE_INFINITY || entry > maxDistance)
+				continue;
+			if (node.geometries != null)
+				intersections = node.geometries.findGeoIntersections(ray, maxDistance, intersections);
+			else {
+				Node[] children = node.children();
+				if (size + 2 > stack.length)
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				stack[size++] = children[1];
+				stack[size++] = children[0];
+			}
+		}
+		return intersections;
+	}
+
+	/**
+	 * Finds the closest intersection point by traversing the hierarchy front to
+	 * back, skipping any node whose entry distance is beyond the closest
+	 * intersection found so far; such nodes are not split.
+	 */
+	@Override
+	public GeoPoint findClosestGeoIntersection(Ray ray) {
+		PrimitiveArrays.Hit hit = new PrimitiveArrays.Hit();
+		unbounded.findClosestGeoIntersection(ray, hit);
+		if (root != null)
+			BVH.findClosestGeoIntersection(root, ray, hit);
+		return hit.geoPoint;
+	}
+}
@@ -0,0 +1,316 @@
+package geometries;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+import geometries.BVH.Item;
+import geometries.BVH.Node;
+import primitives.BoundingBox;
+
+/**
+ * Builds the nodes of a {@link BVH} as a linear bounding volume hierarchy. The
+ * centers of the geometries are quantized to a grid and ordered along a
+ * Z-order curve by their Morton codes - the interleaved bits of their grid
+ * coordinates - so that geometries close in space are close in the order. The
+ * codes are sorted by a parallel radix sort, and the hierarchy is the binary
+ * radix tree of the sorted codes: every inner node splits its range of
+ * geometries at the first bit where their codes differ. Each inner node of
+ * the radix tree is found independently of the others, in parallel, so the
+ * whole construction takes linear time. <br/>
+ * The tree is of lower quality than a tree split by the surface area heuristic,
+ * but it is built much faster, which suits scenes that are rebuilt every frame.
+ */
+final class MortonBuilder {
+	/** The amount of bits of the grid coordinates along each axis */
+	private static final int BITS = 21;
+	/** The maximal amount of geometries in a leaf */
+	private static final int LEAF_SIZE = 4;
+	/** The amount of bits sorted by each pass of the radix sort */
+	private static final int RADIX_BITS = 8;
+	/** The amount of keys in a chunk of a parallel pass of the radix sort */
+	private static final int SORT_GRAIN = 16384;
+	/** The amount of geometries below which a subtree is converted in one task */
+	private static final int SUBTREE_GRAIN = 1024;
+
+	/** The geometries, in the order of their Morton codes */
+	private final Item[] items;
+	/** The sorted Morton codes */
+	private final long[] codes;
+	/** The first child of each inner node: an inner node, or a leaf if negative */
+	private final int[] left;
+	/** The second child of each inner node: an inner node, or a leaf if negative */
+	private final int[] right;
+	/** The first geometry of the range of each inner node */
+	private final int[] first;
+	/** The last geometry of the range of each inner node */
+	private final int[] last;
+
+	/**
+	 * Constructs a builder over items: computes and sorts their Morton codes.
+	 *
+	 * @param items the items
+	 */
+	private MortonBuilder(List<Item> items) {
+		int count = items.size();
+		double[] min = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+		double[] max = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (Item item : items)
+			for (int axis = 0; axis < 3; ++axis) {
+				min[axis] = Math.min(min[axis], item.center(axis));
+				max[axis] = Math.max(max[axis], item.center(axis));
+			}
+		double[] scale = new double[3];
+		for (int axis = 0; axis < 3; ++axis)
+			scale[axis] = max[axis] == min[axis] ? 0 : ((1 << BITS) - 1) / (max[axis] - min[axis]);
+
+		long[] unsorted = new long[count];
+		int[] order = new int[count];
+		IntStream.range(0, count).parallel().forEach(i -> {
+			Item item = items.get(i);
+			unsorted[i] = spread((long) ((item.center(0) - min[0]) * scale[0])) //
+					| spread((long) ((item.center(1) - min[1]) * scale[1])) << 1 //
+					| spread((long) ((item.center(2) - min[2]) * scale[2])) << 2;
+			order[i] = i;
+		});
+		codes = unsorted;
+		radixSort(codes, order);
+
+		this.items = new Item[count];
+		for (int i = 0; i < count; ++i)
+			this.items[i] = items.get(order[i]);
+		left = new int[Math.max(count - 1, 0)];
+		right = new int[left.length];
+		first = new int[left.length];
+		last = new int[left.length];
+	}
+
+	/**
+	 * Builds the nodes of a hierarchy over items.
+	 *
+	 * @param items the items, at least one
+	 * @return the root of the hierarchy
+	 */
+	static Node build(List<Item> items) {
+		MortonBuilder builder = new MortonBuilder(items);
+		if (items.size() == 1)
+			return builder.leaf(0, 0);
+		IntStream.range(0, items.size() - 1).parallel().forEach(builder::innerNode);
+		Task task = builder.new Task(0);
+		return ForkJoinTask.inForkJoinPool() ? task.invoke() : ForkJoinPool.commonPool().invoke(task);
+	}
+
+	/**
+	 * Spreads the bits of a grid coordinate apart, two zero bits after every bit.
+	 *
+	 * @param value the grid coordinate, of {@link #BITS} bits
+	 * @return the spread bits
+	 */
+	private static long spread(long value) {
+		long x = value & 0x1fffffL;
+		x = (x | x << 32) & 0x1f00000000ffffL;
+		x = (x | x << 16) & 0x1f0000ff0000ffL;
+		x = (x | x << 8) & 0x100f00f00f00f00fL;
+		x = (x | x << 4) & 0x10c30c30c30c30c3L;
+		x = (x | x << 2) & 0x1249249249249249L;
+		return x;
+	}
+
+	/**
+	 * Sorts keys with their values by a least significant digit radix sort. Each
+	 * pass counts the digits of chunks of the keys in parallel, and then moves
+	 * every chunk to its place in parallel; passes over digits that all the keys
+	 * share are skipped.
+	 *
+	 * @param keys   the keys, sorted in place
+	 * @param values the values of the keys, reordered with them
+	 */
+	private static void radixSort(long[] keys, int[] values) {
+		int count = keys.length;
+		int buckets = 1 << RADIX_BITS;
+		int chunks = Math.max(1, (count + SORT_GRAIN - 1) / SORT_GRAIN);
+		long[] keyBuffer = new long[count];
+		int[] valueBuffer = new int[count];
+		long[] sourceKeys = keys, targetKeys = keyBuffer;
+		int[] sourceValues = values, targetValues = valueBuffer;
+		int[][] offsets = new int[chunks][buckets];
+
+		for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+			final int digitShift = shift;
+			final long[] fromKeys = sourceKeys;
+			IntStream.range(0, chunks).parallel().forEach(c -> {
+				int[] histogram = offsets[c];
+				Arrays.fill(histogram, 0);
+				for (int i = c * SORT_GRAIN, end = Math.min(i + SORT_GRAIN, count); i < end; ++i)
+					++histogram[(int) (fromKeys[i] >>> digitShift) & buckets - 1];
+			});
+
+			// turn the counts into the first target index of each digit of each chunk
+			int total = 0;
+			boolean shared = false;
+			for (int digit = 0; digit < buckets; ++digit) {
+				int digitCount = 0;
+				for (int c = 0; c < chunks; ++c) {
+					int chunkCount = offsets[c][digit];
+					offsets[c][digit] = total + digitCount;
+					digitCount += chunkCount;
+				}
+				shared |= digitCount == count;
+				total += digitCount;
+			}
+			if (shared)
+				continue;
+
+			final long[] toKeys = targetKeys;
+			final int[] fromValues = sourceValues, toValues = targetValues;
+			IntStream.range(0, chunks).parallel().forEach(c -> {
+				int[] next = offsets[c];
+				for (int i = c * SORT_GRAIN, end = Math.min(i + SORT_GRAIN, count); i < end; ++i) {
+					int target = next[(int) (fromKeys[i] >>> digitShift) & buckets - 1]++;
+					toKeys[target] = fromKeys[i];
+					toValues[target] = fromValues[i];
+				}
+			});
+			targetKeys = sourceKeys;
+			sourceKeys = toKeys;
+			targetValues = sourceValues;
+			sourceValues = toValues;
+		}
+
+		if (sourceKeys != keys) {
+			System.arraycopy(sourceKeys, 0, keys, 0, count);
+			System.arraycopy(sourceValues, 0, values, 0, count);
+		}
+	}
+
+	/**
+	 * Calculates the length of the common prefix of the codes of two geometries in
+	 * the sorted order. Equal codes are told apart by the indices of the
+	 * geometries.
+	 *
+	 * @param i the first geometry
+	 * @param j the second geometry
+	 * @return the length of the common prefix, or -1 if the second index is out of
+	 *         range
+	 */
+	private int prefix(int i, int j) {
+		if (j < 0 || j >= codes.length)
+			return -1;
+		long difference = codes[i] ^ codes[j];
+		return difference == 0 ? Long.SIZE + Integer.numberOfLeadingZeros(i ^ j)
+				: Long.numberOfLeadingZeros(difference);
+	}
+
+	/**
+	 * Finds the range of geometries of an inner node of the radix tree and splits
+	 * it at the first bit where their codes differ. Inner node i starts or ends at
+	 * geometry i, and extends in the direction of the neighbor with which it
+	 * shares the longer prefix.
+	 *
+	 * @param i the inner node
+	 */
+	private void innerNode(int i) {
+		int direction = prefix(i, i + 1) > prefix(i, i - 1) ? 1 : -1;
+		int minPrefix = prefix(i, i - direction);
+
+		// find the other end of the range by an exponential and a binary search
+		int maxLength = 2;
+		while (prefix(i, i + maxLength * direction) > minPrefix)
+			maxLength *= 2;
+		int length = 0;
+		for (int step = maxLength / 2; step > 0; step /= 2)
+			if (prefix(i, i + (length + step) * direction) > minPrefix)
+				length += step;
+		int j = i + length * direction;
+
+		// find the split by a binary search for the last geometry that shares the
+		// prefix of the whole range with geometry i
+		int nodePrefix = prefix(i, j);
+		int split = 0;
+		int step = length;
+		do {
+			step = (step + 1) / 2;
+			if (prefix(i, i + (split + step) * direction) > nodePrefix)
+				split += step;
+		} while (step > 1);
+		int gamma = i + split * direction + Math.min(direction, 0);
+
+		first[i] = Math.min(i, j);
+		last[i] = Math.max(i, j);
+		left[i] = first[i] == gamma ? ~gamma : gamma;
+		right[i] = last[i] == gamma + 1 ? ~(gamma + 1) : gamma + 1;
+	}
+
+	/**
+	 * A task converting a subtree of the radix tree into nodes of the hierarchy.
+	 * Subtrees of a few geometries become leaves.
+	 */
+	private final class Task extends RecursiveTask<Node> {
+		/** Serialization version of the task */
+		private static final long serialVersionUID = 1L;
+		/** The inner node of the radix tree at the root of the subtree */
+		private final int inner;
+
+		/**
+		 * Constructs a task converting a subtree.
+		 *
+		 * @param inner the inner node at the root of the subtree
+		 */
+		private Task(int inner) {
+			this.inner = inner;
+		}
+
+		@Override
+		protected Node compute() {
+			int count = last[inner] - first[inner] + 1;
+			if (count <= LEAF_SIZE)
+				return leaf(first[inner], last[inner]);
+
+			Node node = new Node();
+			ForkJoinTask<Node> leftTask = left[inner] < 0 ? null : new Task(left[inner]);
+			Node rightNode;
+			if (leftTask != null && count > SUBTREE_GRAIN)
+				leftTask.fork();
+			rightNode = right[inner] < 0 ? leaf(~right[inner], ~right[inner]) : new Task(right[inner]).compute();
+			if (leftTask == null)
+				node.left = leaf(~left[inner], ~left[inner]);
+			else
+				node.left = count > SUBTREE_GRAIN ? leftTask.join() : leftTask.invoke();
+			node.right = rightNode;
+
+			node.minX = Math.min(node.left.minX, node.right.minX);
+			node.minY = Math.min(node.left.minY, node.right.minY);
+			node.minZ = Math.min(node.left.minZ, node.right.minZ);
+			node.maxX = Math.max(node.left.maxX, node.right.maxX);
+			node.maxY = Math.max(node.left.maxY, node.right.maxY);
+			node.maxZ = Math.max(node.left.maxZ, node.right.maxZ);
+			return node;
+		}
+	}
+
+	/**
+	 * Creates a leaf holding a range of geometries in the sorted order.
+	 *
+	 * @param from the first geometry
+	 * @param to   the last geometry (inclusive)
+	 * @return the leaf
+	 */
+	private Node leaf(int from, int to) {
+		Node node = new Node();
+		node.minX = node.minY = node.minZ = Double.POSITIVE_INFINITY;
+		node.maxX = node.maxY = node.maxZ = Double.NEGATIVE_INFINITY;
+		List<Intersectable> geometries = new ArrayList<>(to - from + 1);
+		for (int i = from; i <= to; ++i) {
+			BoundingBox box = items[i].box();
+			node.minX = Math.min(node.minX, box.minX);
+			node.minY = Math.min(node.minY, box.minY);
+			node.minZ = Math.min(node.minZ, box.minZ);
+			node.maxX = Math.max(node.maxX, box.maxX);
+			node.maxY = Math.max(node.maxY, box.maxY);
+			node.maxZ = Math.max(node.maxZ, box.maxZ);
+			geometries.add(items[i].geometry());
+		}
+		node.geometries = new PrimitiveArrays(geometries);
+		return node;
+	}
+}
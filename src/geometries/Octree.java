@@ -0,0 +1,301 @@
+package geometries;
+
+import java.util.*;
+
+import geometries.BVH.Item;
+import primitives.*;
+import primitives.Vector;
+
+/**
+ * An adaptive octree over geometries. Every node splits its box into eight
+ * equal octants, until a node holds few enough geometries or the tree reaches
+ * its maximal depth, so dense clusters are subdivided deeply while empty space
+ * costs nothing. A geometry larger than an octant of a node is kept in the node
+ * itself, so a few huge geometries don't spread over the whole tree; a smaller
+ * geometry is referenced by every octant that its box overlaps. The octants
+ * are half-open at the middle of their parent: a box that only touches the
+ * middle plane, or lies in it like a geometry of a flat mesh, is referenced by
+ * one side only. <br/>
+ * The closest intersection is found front to back: the octants of a node are
+ * visited in the order of the distance at which the ray enters them, and the
+ * search stops as soon as the closest intersection so far is nearer than the
+ * entry into the next octant. A geometry referenced by several octants may be
+ * intersected more than once, but every intersection is reported once.
+ */
+public class Octree extends Intersectable {
+	/** The default maximal depth of the tree */
+	private static final int MAX_DEPTH = 8;
+	/** The default amount of geometries above which a node is split */
+	private static final int LEAF_OCCUPANCY = 8;
+
+	/** The root of the tree, null if there are no bounded geometries */
+	private final Node root;
+	/** The unbounded geometries */
+	private final PrimitiveArrays unbounded;
+	/** The bounding box of all the geometries, null if any is unbounded */
+	private final BoundingBox box;
+	/** The numbering of the primitives in batch intersections */
+	private final PrimitiveNumbering numbering;
+	/** The maximal depth of the tree */
+	private final int maxDepth;
+	/** The amount of references to the geometries in all the nodes */
+	private final int referenceCount;
+
+	/**
+	 * A node of the tree, with the geometries kept in it and up to eight octants.
+	 */
+	private static final class Node extends BVH.Bounds {
+		/** The geometries kept in the node, null if there are none */
+		private Intersectable[] geometries;
+		/** The octants of the node, null for a leaf; empty octants are null */
+		private Node[] children;
+
+		/**
+		 * Constructs a node over a box.
+		 *
+		 * @param minX the minimal x coordinate
+		 * @param minY the minimal y coordinate
+		 * @param minZ the minimal z coordinate
+		 * @param maxX the maximal x coordinate
+		 * @param maxY the maximal y coordinate
+		 * @param maxZ the maximal z coordinate
+		 */
+		private Node(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+			this.minX = minX;
+			this.minY = minY;
+			this.minZ = minZ;
+			this.maxX = maxX;
+			this.maxY = maxY;
+			this.maxZ = maxZ;
+		}
+	}
+
+	/**
+	 * Builds an octree over geometries with the default maximal depth and leaf
+	 * occupancy.
+	 *
+	 * @param geometries the geometries
+	 */
+	public Octree(List<? extends Intersectable> geometries) {
+		this(geometries, MAX_DEPTH, LEAF_OCCUPANCY);
+	}
+
+	/**
+	 * Builds an octree over geometries.
+	 *
+	 * @param geometries    the geometries
+	 * @param maxDepth      the maximal depth of the tree below the root
+	 * @param leafOccupancy the amount of geometries above which a node is split
+	 * @throws IllegalArgumentException if the depth is negative or the occupancy
+	 *                                  is not positive
+	 */
+	public Octree(List<? extends Intersectable> geometries, int maxDepth, int leafOccupancy) {
+		if (maxDepth < 0)
+			throw new IllegalArgumentException("The maximal depth can't be negative");
+		if (leafOccupancy < 1)
+			throw new IllegalArgumentException("The leaf occupancy must be positive");
+		this.maxDepth = maxDepth;
+		numbering = new PrimitiveNumbering(geometries);
+		List<Intersectable> unboundedList = new ArrayList<>();
+		List<Item> items = BVH.items(geometries, unboundedList);
+		unbounded = new PrimitiveArrays(unboundedList);
+		if (items.isEmpty()) {
+			root = null;
+			box = null;
+			referenceCount = 0;
+			return;
+		}
+
+		BoundingBox bounds = items.getFirst().box();
+		for (Item item : items)
+			bounds = bounds.union(item.box());
+		root = new Node(bounds.minX, bounds.minY, bounds.minZ, bounds.maxX, bounds.maxY, bounds.maxZ);
+		referenceCount = build(root, items, maxDepth, leafOccupancy);
+		box = unboundedList.isEmpty() ? bounds : null;
+	}
+
+	/**
+	 * Recursively fills a node: keeps the items in it if there are few of them or
+	 * the depth is exhausted, or else keeps the items larger than an octant and
+	 * passes the rest to the octants that they overlap.
+	 *
+	 * @param node          the node
+	 * @param items         the items overlapping the node
+	 * @param depth         the remaining depth
+	 * @param leafOccupancy the amount of items above which a node is split
+	 * @return the amount of references to the items in the node and below it
+	 */
+	private static int build(Node node, List<Item> items, int depth, int leafOccupancy) {
+		if (items.size() <= leafOccupancy || depth == 0) {
+			node.geometries = items.stream().map(Item::geometry).toArray(Intersectable[]::new);
+			return items.size();
+		}
+
+		double midX = (node.minX + node.maxX) / 2, midY = (node.minY + node.maxY) / 2,
+				midZ = (node.minZ + node.maxZ) / 2;
+		double halfX = midX - node.minX, halfY = midY - node.minY, halfZ = midZ - node.minZ;
+		List<Intersectable> kept = new ArrayList<>();
+		List<List<Item>> octants = new ArrayList<>(8);
+		for (int i = 0; i < 8; ++i)
+			octants.add(new ArrayList<>());
+		for (Item item : items) {
+			BoundingBox b = item.box();
+			if (b.maxX - b.minX > halfX || b.maxY - b.minY > halfY || b.maxZ - b.minZ > halfZ) {
+				kept.add(item.geometry());
+				continue;
+			}
+			// octant i lies above the middle along x if bit 0 is set, y - bit 1, z - bit 2;
+			// a box reaching the middle from one side stays on that side, and a box
+			// lying in the middle plane goes above it
+			for (int i = 0; i < 8; ++i)
+				if (((i & 1) == 0 ? b.minX < midX : b.maxX > midX || b.minX >= midX) //
+						&& ((i & 2) == 0 ? b.minY < midY : b.maxY > midY || b.minY >= midY) //
+						&& ((i & 4) == 0 ? b.minZ < midZ : b.maxZ > midZ || b.minZ >= midZ))
+					octants.get(i).add(item);
+		}
+
+		int references = kept.size();
+		if (!kept.isEmpty())
+			node.geometries = kept.toArray(new Intersectable[0]);
+		node.children = new Node[8];
+		for (int i = 0; i < 8; ++i) {
+			List<Item> octant = octants.get(i);
+			if (octant.isEmpty())
+				continue;
+			Node child = new Node((i & 1) == 0 ? node.minX : midX, (i & 2) == 0 ? node.minY : midY,
+					(i & 4) == 0 ? node.minZ : midZ, (i & 1) == 0 ? midX : node.maxX, (i & 2) == 0 ? midY : node.maxY,
+					(i & 4) == 0 ? midZ : node.maxZ);
+			references += build(child, octant, depth - 1, leafOccupancy);
+			node.children[i] = child;
+		}
+		return references;
+	}
+
+	/**
+	 * Returns the amount of references to the geometries in all the nodes of the
+	 * tree. A geometry overlapping several octants is counted in each of them, so
+	 * the amount divided by the amount of geometries measures the duplication.
+	 *
+	 * @return the amount of references
+	 */
+	public int getReferenceCount() {
+		return referenceCount;
+	}
+
+	@Override
+	public BoundingBox getBoundingBox() {
+		return box;
+	}
+
+	@Override
+	public int countPrimitives() {
+		return numbering.count();
+	}
+
+	@Override
+	protected int primitiveIndex(Intersectable primitive) {
+		return numbering.indexOf(primitive);
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+		return findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+		List<GeoPoint> intersections = unbounded.findGeoIntersections(ray, maxDistance, null);
+		if (root == null)
+			return intersections;
+
+		Point head = ray.getHead();
+		Vector direction = ray.getDirection();
+		double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+		double invX = 1 / direction.getX(), invY = 1 / direction.getY(), invZ = 1 / direction.getZ();
+
+		// a geometry referenced by several octants is intersected once
+		Set<Intersectable> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		Node[] stack = new Node[7 * maxDepth + 1];
+		int size = 0;
+		stack[size++] = root;
+		while (size > 0) {
+			Node node = stack[--size];
+			double entry = node.entry(ox, oy, oz, invX, invY, invZ);
+			if (entry == Double.POSITIVE_INFINITY || entry > maxDistance)
+				continue;
+			if (node.geometries != null)
+				for (Intersectable geometry : node.geometries)
+					if (visited.add(geometry))
+						intersections = PrimitiveArrays.findGeoIntersections(geometry, ray, maxDistance,
+								intersections);
+			if (node.children != null)
+				for (Node child : node.children)
+					if (child != null)
+						stack[size++] = child;
+		}
+		return intersections;
+	}
+
+	/**
+	 * Finds the closest intersection point by visiting the octants front to back,
+	 * skipping any octant whose entry distance is beyond the closest intersection
+	 * found so far.
+	 */
+	@Override
+	public GeoPoint findClosestGeoIntersection(Ray ray) {
+		PrimitiveArrays.Hit hit = new PrimitiveArrays.Hit();
+		unbounded.findClosestGeoIntersection(ray, hit);
+		if (root == null)
+			return hit.geoPoint;
+
+		Point head = ray.getHead();
+		Vector direction = ray.getDirection();
+		double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+		double invX = 1 / direction.getX(), invY = 1 / direction.getY(), invZ = 1 / direction.getZ();
+
+		double rootEntry = root.entry(ox, oy, oz, invX, invY, invZ);
+		if (rootEntry == Double.POSITIVE_INFINITY)
+			return hit.geoPoint;
+		// every visited node pushes at most eight octants in place of itself
+		Node[] stack = new Node[7 * maxDepth + 1];
+		double[] entries = new double[stack.length];
+		Node[] octants = new Node[8];
+		double[] octantEntries = new double[8];
+		int size = 0;
+		stack[size] = root;
+		entries[size++] = rootEntry;
+		while (size > 0) {
+			Node node = stack[--size];
+			if (entries[size] > hit.distance)
+				continue;
+			if (node.geometries != null)
+				for (Intersectable geometry : node.geometries)
+					PrimitiveArrays.findClosestGeoIntersection(geometry, ray, hit);
+			if (node.children == null)
+				continue;
+
+			// sort the entered octants from the farthest to the nearest, and push them
+			// so that the nearest is visited first
+			int count = 0;
+			for (Node child : node.children) {
+				if (child == null)
+					continue;
+				double entry = child.entry(ox, oy, oz, invX, invY, invZ);
+				if (entry == Double.POSITIVE_INFINITY || entry > hit.distance)
+					continue;
+				int i = count++;
+				for (; i > 0 && octantEntries[i - 1] < entry; --i) {
+					octants[i] = octants[i - 1];
+					octantEntries[i] = octantEntries[i - 1];
+				}
+				octants[i] = child;
+				octantEntries[i] = entry;
+			}
+			for (int i = 0; i < count; ++i) {
+				stack[size] = octants[i];
+				entries[size++] = octantEntries[i];
+			}
+		}
+		return hit.geoPoint;
+	}
+}
@@ -8,7 +8,7 @@ import static primitives.Util.*;
 /**
  * Represents a plane in three-dimensional space.
  */
-public class Plane extends Geometry {
+public final class Plane extends Geometry {
 
 	/** A point on the plane. */
 	private final Point pointOnPlane;
@@ -41,6 +41,11 @@ public class Plane extends Geometry {
 		this.normalVector = normalVector.normalize();
 	}
 
+	@Override
+	public Intersectable transform(Transform transform) {
+		return copyAppearanceTo(new Plane(transform.apply(pointOnPlane), transform.applyToNormal(normalVector)));
+	}
+
 	/**
 	 * Returns the normal vector to the plane.
 	 * 
@@ -61,6 +66,15 @@ public class Plane extends Geometry {
 		return normalVector;
 	}
 
+	/**
+	 * Returns the reference point of the plane.
+	 * 
+	 * @return A point on the plane.
+	 */
+	public Point getPoint() {
+		return pointOnPlane;
+	}
+
 	/**
 	 * Finds the intersection points between the given ray and the plane.
 	 * 
@@ -85,4 +99,26 @@ public class Plane extends Geometry {
 		return t <= 0 ? null : List.of(new GeoPoint(this, ray.getPoint(t)));
 	}
 
+	/**
+	 * Intersects a batch of rays with the plane.
+	 *
+	 * @param batch     the rays and their closest intersections
+	 * @param primitive the index recorded for an intersection with the plane
+	 * @return the index following the plane
+	 */
+	@Override
+	public int intersect(RayBatch batch, int primitive) {
+		double nx = normalVector.getX(), ny = normalVector.getY(), nz = normalVector.getZ();
+		double qx = pointOnPlane.getX(), qy = pointOnPlane.getY(), qz = pointOnPlane.getZ();
+		for (int i = 0; i < batch.size; ++i) {
+			double s = nx * batch.directionX[i] + ny * batch.directionY[i] + nz * batch.directionZ[i];
+			if (isZero(s))
+				continue;
+			double t = alignZero(
+					(nx * (qx - batch.originX[i]) + ny * (qy - batch.originY[i]) + nz * (qz - batch.originZ[i])) / s);
+			if (t > 0)
+				batch.record(i, t, primitive, nx, ny, nz);
+		}
+		return primitive + 1;
+	}
 }
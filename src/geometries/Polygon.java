@@ -19,6 +19,13 @@ public class Polygon extends Geometry {
 	protected final Plane plane;
 	/** The size of the polygon - the amount of the vertices in the polygon */
 	private final int size;
+	/** The bounding box of the polygon */
+	private final BoundingBox box;
+	/**
+	 * The x, y and z coordinates of the vertices, for batch intersections; null
+	 * for a triangle, which intersects batches by itself
+	 */
+	private final double[] vertexX, vertexY, vertexZ;
 
 	/**
 	 * Polygon constructor based on vertices list. The list must be ordered by edge
@@ -46,6 +53,19 @@ public class Polygon extends Geometry {
 			throw new IllegalArgumentException("A polygon can't have less than 3 vertices");
 		this.vertices = List.of(vertices);
 		size = vertices.length;
+		box = BoundingBox.of(vertices);
+		if (this instanceof Triangle)
+			vertexX = vertexY = vertexZ = null;
+		else {
+			vertexX = new double[size];
+			vertexY = new double[size];
+			vertexZ = new double[size];
+			for (int i = 0; i < size; ++i) {
+				vertexX[i] = vertices[i].getX();
+				vertexY[i] = vertices[i].getY();
+				vertexZ[i] = vertices[i].getZ();
+			}
+		}
 
 		// Generate the plane according to the first three vertices and associate the
 		// polygon with this plane.
@@ -80,11 +100,30 @@ public class Polygon extends Geometry {
 		}
 	}
 
+	/**
+	 * Returns the vertices of the polygon.
+	 *
+	 * @return an unmodifiable list of the vertices, ordered by edge path
+	 */
+	public List<Point> getVertices() {
+		return vertices;
+	}
+
+	@Override
+	public Intersectable transform(Transform transform) {
+		return copyAppearanceTo(new Polygon(vertices.stream().map(transform::apply).toArray(Point[]::new)));
+	}
+
 	@Override
 	public Vector getNormal(Point point) {
 		return plane.getNormal();
 	}
 
+	@Override
+	public BoundingBox getBoundingBox() {
+		return box;
+	}
+
 	/**
 	 * Finds the intersection points between a given ray and the Polygon.
 	 * 
@@ -126,4 +165,48 @@ public class Polygon extends Geometry {
 		// Return the intersection point with the plane of the polygon
 		return List.of(new GeoPoint(this, intersections.getFirst()));
 	}
+
+	/**
+	 * Intersects a batch of rays with the polygon. Like the single ray test, a ray
+	 * hits the polygon if it is on the same side of all the planes through its
+	 * head and the edges of the polygon.
+	 *
+	 * @param batch     the rays and their closest intersections
+	 * @param primitive the index recorded for an intersection with the polygon
+	 * @return the index following the polygon
+	 */
+	@Override
+	public int intersect(RayBatch batch, int primitive) {
+		Vector normal = plane.getNormal();
+		double nx = normal.getX(), ny = normal.getY(), nz = normal.getZ();
+		Point q = vertices.getFirst();
+		double[] vx = vertexX, vy = vertexY, vz = vertexZ;
+
+		rays: for (int i = 0; i < batch.size; ++i) {
+			double ox = batch.originX[i], oy = batch.originY[i], oz = batch.originZ[i];
+			double dx = batch.directionX[i], dy = batch.directionY[i], dz = batch.directionZ[i];
+			double s = nx * dx + ny * dy + nz * dz;
+			if (isZero(s))
+				continue;
+			double t = alignZero((nx * (q.getX() - ox) + ny * (q.getY() - oy) + nz * (q.getZ() - oz)) / s);
+			if (t <= 0 || t >= batch.distance[i])
+				continue;
+
+			double sign = 0;
+			for (int j = 0; j < size; ++j) {
+				int k = j + 1 == size ? 0 : j + 1;
+				double ax = vx[j] - ox, ay = vy[j] - oy, az = vz[j] - oz;
+				double bx = vx[k] - ox, by = vy[k] - oy, bz = vz[k] - oz;
+				double cx = ay * bz - az * by, cy = az * bx - ax * bz, cz = ax * by - ay * bx;
+				double length = Math.sqrt(cx * cx + cy * cy + cz * cz);
+				double d = alignZero((cx * dx + cy * dy + cz * dz) / length);
+				// an intersection on an edge is considered outside the polygon
+				if (d == 0 || d * sign < 0)
+					continue rays;
+				sign = d;
+			}
+			batch.record(i, t, primitive, nx, ny, nz);
+		}
+		return primitive + 1;
+	}
 }
@@ -0,0 +1,235 @@
+package geometries;
+
+import java.util.*;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+import static primitives.Util.*;
+
+/**
+ * An immutable group of geometries stored in homogeneous arrays by type. Each
+ * type is intersected in its own loop, so the intersection call site of every
+ * loop sees a single receiver class and the JIT compiler can inline it, unlike
+ * a loop over a list of mixed geometries.
+ */
+final class PrimitiveArrays {
+	/** The spheres of the group */
+	private final Sphere[] spheres;
+	/** The triangles of the group */
+	private final Triangle[] triangles;
+	/** The polygons of the group, excluding triangles */
+	private final Polygon[] polygons;
+	/** The planes of the group */
+	private final Plane[] planes;
+	/** The rest of the geometries of the group */
+	private final Intersectable[] others;
+
+	/**
+	 * The closest intersection found so far by a closest intersection search
+	 */
+	static final class Hit {
+		/** The closest intersection, null if none was found */
+		GeoPoint geoPoint = null;
+		/** The distance of the closest intersection from the ray head */
+		double distance = Double.POSITIVE_INFINITY;
+		/** The squared distance of the closest intersection from the ray head */
+		private double distanceSquared = Double.POSITIVE_INFINITY;
+
+		/**
+		 * Replaces the closest intersection.
+		 *
+		 * @param geoPoint the new closest intersection
+		 * @param distance its distance from the ray head
+		 */
+		void set(GeoPoint geoPoint, double distance) {
+			this.geoPoint = geoPoint;
+			this.distance = distance;
+			this.distanceSquared = distance * distance;
+		}
+	}
+
+	/**
+	 * Groups geometries by type.
+	 *
+	 * @param geometries the geometries
+	 */
+	PrimitiveArrays(Collection<? extends Intersectable> geometries) {
+		List<Sphere> sphereList = new ArrayList<>();
+		List<Triangle> triangleList = new ArrayList<>();
+		List<Polygon> polygonList = new ArrayList<>();
+		List<Plane> planeList = new ArrayList<>();
+		List<Intersectable> otherList = new ArrayList<>();
+		for (Intersectable geometry : geometries)
+			switch (geometry) {
+			case Sphere sphere -> sphereList.add(sphere);
+			case Triangle triangle -> triangleList.add(triangle);
+			case Polygon polygon -> polygonList.add(polygon);
+			case Plane plane -> planeList.add(plane);
+			default -> otherList.add(geometry);
+			}
+		spheres = sphereList.toArray(new Sphere[0]);
+		triangles = triangleList.toArray(new Triangle[0]);
+		polygons = polygonList.toArray(new Polygon[0]);
+		planes = planeList.toArray(new Plane[0]);
+		others = otherList.toArray(new Intersectable[0]);
+	}
+
+	/**
+	 * Returns the amount of geometries of the group.
+	 *
+	 * @return the amount of geometries
+	 */
+	int size() {
+		return spheres.length + triangles.length + polygons.length + planes.length + others.length;
+	}
+
+	/**
+	 * Returns the geometries of the group, grouped by type.
+	 *
+	 * @return the geometries
+	 */
+	List<Intersectable> toList() {
+		List<Intersectable> result = new ArrayList<>(size());
+		result.addAll(Arrays.asList(spheres));
+		result.addAll(Arrays.asList(triangles));
+		result.addAll(Arrays.asList(polygons));
+		result.addAll(Arrays.asList(planes));
+		result.addAll(Arrays.asList(others));
+		return result;
+	}
+
+	/**
+	 * Finds the intersections of a ray with the geometries of the group up to a
+	 * given distance.
+	 *
+	 * @param ray           the ray
+	 * @param maxDistance   the maximal distance of an intersection from the ray
+	 *                      head
+	 * @param intersections the intersections found so far, may be null
+	 * @return the intersections found so far with the intersections of the group
+	 */
+	List<GeoPoint> findGeoIntersections(Ray ray, double maxDistance, List<GeoPoint> intersections) {
+		for (Sphere sphere : spheres)
+			intersections = addAll(intersections, sphere.findGeoIntersectionsHelper(ray), ray, maxDistance);
+		for (Triangle triangle : triangles)
+			intersections = addAll(intersections, triangle.findGeoIntersectionsHelper(ray), ray, maxDistance);
+		for (Polygon polygon : polygons)
+			intersections = addAll(intersections, polygon.findGeoIntersectionsHelper(ray), ray, maxDistance);
+		for (Plane plane : planes)
+			intersections = addAll(intersections, plane.findGeoIntersectionsHelper(ray), ray, maxDistance);
+		for (Intersectable other : others)
+			intersections = addAll(intersections, other.findGeoIntersections(ray, maxDistance), ray,
+					Double.POSITIVE_INFINITY);
+		return intersections;
+	}
+
+	/**
+	 * Adds intersections that are not beyond a given distance to a list of
+	 * intersections.
+	 *
+	 * @param intersections the list, may be null
+	 * @param more          the intersections to add, may be null
+	 * @param ray           the ray
+	 * @param maxDistance   the maximal distance of an intersection from the ray
+	 *                      head
+	 * @return the list with the added intersections
+	 */
+	private static List<GeoPoint> addAll(List<GeoPoint> intersections, List<GeoPoint> more, Ray ray,
+			double maxDistance) {
+		if (more == null)
+			return intersections;
+		if (maxDistance == Double.POSITIVE_INFINITY) {
+			if (intersections == null)
+				return new ArrayList<>(more);
+			intersections.addAll(more);
+			return intersections;
+		}
+		Point head = ray.getHead();
+		for (GeoPoint gp : more)
+			if (alignZero(gp.point.distance(head) - maxDistance) <= 0) {
+				if (intersections == null)
+					intersections = new ArrayList<>();
+				intersections.add(gp);
+			}
+		return intersections;
+	}
+
+	/**
+	 * Updates the closest intersection of a ray with the intersections of the
+	 * geometries of the group.
+	 *
+	 * @param ray the ray
+	 * @param hit the closest intersection found so far
+	 */
+	void findClosestGeoIntersection(Ray ray, Hit hit) {
+		for (Sphere sphere : spheres)
+			closest(sphere.findGeoIntersectionsHelper(ray), ray, hit);
+		for (Triangle triangle : triangles)
+			closest(triangle.findGeoIntersectionsHelper(ray), ray, hit);
+		for (Polygon polygon : polygons)
+			closest(polygon.findGeoIntersectionsHelper(ray), ray, hit);
+		for (Plane plane : planes)
+			closest(plane.findGeoIntersectionsHelper(ray), ray, hit);
+		for (Intersectable other : others) {
+			GeoPoint gp = other.findClosestGeoIntersection(ray);
+			if (gp != null)
+				closest(List.of(gp), ray, hit);
+		}
+	}
+
+	/**
+	 * Finds the intersections of a ray with a single geometry up to a given
+	 * distance.
+	 *
+	 * @param geometry      the geometry
+	 * @param ray           the ray
+	 * @param maxDistance   the maximal distance of an intersection from the ray
+	 *                      head
+	 * @param intersections the intersections found so far, may be null
+	 * @return the intersections found so far with the intersections of the
+	 *         geometry
+	 */
+	static List<GeoPoint> findGeoIntersections(Intersectable geometry, Ray ray, double maxDistance,
+			List<GeoPoint> intersections) {
+		return addAll(intersections, geometry.findGeoIntersections(ray, maxDistance), ray, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Updates the closest intersection of a ray with the intersections of a
+	 * single geometry.
+	 *
+	 * @param geometry the geometry
+	 * @param ray      the ray
+	 * @param hit      the closest intersection found so far
+	 */
+	static void findClosestGeoIntersection(Intersectable geometry, Ray ray, Hit hit) {
+		if (geometry instanceof Geometry)
+			closest(geometry.findGeoIntersectionsHelper(ray), ray, hit);
+		else {
+			GeoPoint gp = geometry.findClosestGeoIntersection(ray);
+			if (gp != null)
+				closest(List.of(gp), ray, hit);
+		}
+	}
+
+	/**
+	 * Updates the closest intersection of a ray with a list of intersections.
+	 *
+	 * @param intersections the intersections, may be null
+	 * @param ray           the ray
+	 * @param hit           the closest intersection found so far
+	 */
+	private static void closest(List<GeoPoint> intersections, Ray ray, Hit hit) {
+		if (intersections == null)
+			return;
+		Point head = ray.getHead();
+		for (GeoPoint gp : intersections) {
+			double distanceSquared = head.distanceSquared(gp.point);
+			if (distanceSquared < hit.distanceSquared) {
+				hit.distanceSquared = distanceSquared;
+				hit.distance = Math.sqrt(distanceSquared);
+				hit.geoPoint = gp;
+			}
+		}
+	}
+}
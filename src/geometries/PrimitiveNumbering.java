@@ -0,0 +1,85 @@
+package geometries;
+
+import java.util.*;
+
+/**
+ * The numbering of the primitives of an acceleration structure in batch
+ * intersections. The primitives are numbered in the order of the geometries
+ * that the structure was built over, every geometry taking as many indices as
+ * it has primitives, so a structure is numbered as the collection of its
+ * geometries would be. <br/>
+ * The offsets of the geometries and the map from a geometry to its offset are
+ * built on the first query, so structures that are never intersected in
+ * batches don't pay for them.
+ */
+final class PrimitiveNumbering {
+	/** The geometries, in the order of the input */
+	private final Intersectable[] geometries;
+	/** The index of the first primitive of each geometry, and then the amount */
+	private volatile int[] offsets;
+	/** The index of the first primitive of each geometry, by the geometry */
+	private volatile Map<Intersectable, Integer> indices;
+
+	/**
+	 * Constructs the numbering of the primitives of geometries.
+	 *
+	 * @param geometries the geometries, in the order of the input
+	 */
+	PrimitiveNumbering(List<? extends Intersectable> geometries) {
+		this.geometries = geometries.toArray(new Intersectable[0]);
+	}
+
+	/**
+	 * Returns the offsets of the geometries, calculating them the first time.
+	 *
+	 * @return the index of the first primitive of each geometry, followed by the
+	 *         amount of primitives
+	 */
+	private int[] offsets() {
+		int[] result = offsets;
+		if (result == null) {
+			result = new int[geometries.length + 1];
+			for (int i = 0; i < geometries.length; ++i)
+				result[i + 1] = result[i] + geometries[i].countPrimitives();
+			offsets = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the amount of primitives.
+	 *
+	 * @return the amount of primitives
+	 */
+	int count() {
+		return offsets()[geometries.length];
+	}
+
+	/**
+	 * Finds the index of a primitive. A primitive that is one of the geometries is
+	 * found in a map; a primitive nested in one of them is searched for in each
+	 * geometry in turn.
+	 *
+	 * @param primitive the primitive
+	 * @return the index of the primitive, or -1 if it is not numbered
+	 */
+	int indexOf(Intersectable primitive) {
+		int[] firsts = offsets();
+		Map<Intersectable, Integer> map = indices;
+		if (map == null) {
+			map = new IdentityHashMap<>(geometries.length * 2);
+			for (int i = 0; i < geometries.length; ++i)
+				map.put(geometries[i], firsts[i]);
+			indices = map;
+		}
+		Integer index = map.get(primitive);
+		if (index != null)
+			return index;
+		for (int i = 0; i < geometries.length; ++i) {
+			int nested = geometries[i].primitiveIndex(primitive);
+			if (nested >= 0)
+				return firsts[i] + nested;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,508 @@
+package geometries;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BinaryOperator;
+
+import geometries.BVH.Item;
+import geometries.BVH.Node;
+import primitives.BoundingBox;
+
+/**
+ * Builds the nodes of a {@link BVH} by the binned surface area heuristic. The
+ * centers of the geometries of a node are binned along each axis, and the node
+ * is split at the bin boundary that minimizes the expected cost of a ray that
+ * enters the node - the cost of visiting each child plus the cost of
+ * intersecting its geometries, weighted by the probability of entering it
+ * (its surface area relative to the node). A node is a leaf when splitting it
+ * costs more than intersecting all its geometries. The heuristic may peel a
+ * few geometries off a node at every level - e.g. geometries spaced
+ * exponentially along a line - so below a maximal depth the nodes are split at
+ * the median instead, which bounds the depth by the logarithm of the amount of
+ * geometries. <br/>
+ * The subtrees are built in parallel as recursive fork-join tasks, and the
+ * bounds and bins of the large nodes near the root - where a single task would
+ * scan most of the geometries - are also computed by parallel tasks over chunks
+ * of the geometries. The bounds of the geometries are kept in flat coordinate
+ * arrays that are partitioned in place, so the scans read memory sequentially.
+ */
+final class SAHBuilder {
+	/** The amount of bins along each axis */
+	private static final int BINS = 16;
+	/** The cost of visiting a node, relative to intersecting a geometry */
+	private static final double TRAVERSAL_COST = 1;
+	/** The maximal amount of geometries in a leaf */
+	private static final int MAX_LEAF_SIZE = 8;
+	/** The amount of geometries below which a subtree is built in one task */
+	private static final int SUBTREE_GRAIN = 1024;
+	/** The depth below which the nodes are split at the median */
+	private static final int MAX_SAH_DEPTH = 48;
+	/** The amount of geometries in a chunk of a parallel scan of a node */
+	private static final int SCAN_GRAIN = 32768;
+	/** Empty bounds: min x, y, z and max x, y, z */
+	private static final double[] EMPTY = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+			Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+
+	/** The geometries */
+	private final Intersectable[] geometries;
+	/**
+	 * The bounds of the geometries, one array per coordinate: min x, y, z and max
+	 * x, y, z
+	 */
+	private final double[][] bounds = new double[6][];
+	/** The doubled centers of the geometries, one array per axis */
+	private final double[][] centers = new double[3][];
+
+	/**
+	 * Constructs a builder over items.
+	 *
+	 * @param items the items
+	 */
+	private SAHBuilder(List<Item> items) {
+		int count = items.size();
+		geometries = new Intersectable[count];
+		for (int k = 0; k < 6; ++k)
+			bounds[k] = new double[count];
+		for (int axis = 0; axis < 3; ++axis)
+			centers[axis] = new double[count];
+		for (int i = 0; i < count; ++i) {
+			Item item = items.get(i);
+			BoundingBox box = item.box();
+			geometries[i] = item.geometry();
+			bounds[0][i] = box.minX;
+			bounds[1][i] = box.minY;
+			bounds[2][i] = box.minZ;
+			bounds[3][i] = box.maxX;
+			bounds[4][i] = box.maxY;
+			bounds[5][i] = box.maxZ;
+			for (int axis = 0; axis < 3; ++axis)
+				centers[axis][i] = item.center(axis);
+		}
+	}
+
+	/**
+	 * Builds the nodes of a hierarchy over items.
+	 *
+	 * @param items the items, at least one
+	 * @return the root of the hierarchy
+	 */
+	static Node build(List<Item> items) {
+		Task task = new SAHBuilder(items).new Task(0, items.size(), 0);
+		return ForkJoinTask.inForkJoinPool() ? task.invoke() : ForkJoinPool.commonPool().invoke(task);
+	}
+
+	/**
+	 * The bounds of a range of geometries and of their centers.
+	 */
+	private final class Bounds {
+		/** The bounds of the boxes: min x, y, z and max x, y, z */
+		private final double[] box = empty();
+		/** The bounds of the doubled centers: min x, y, z and max x, y, z */
+		private final double[] centerBox = empty();
+
+		/**
+		 * Accumulates the bounds of a range of geometries.
+		 *
+		 * @param from the first geometry of the range
+		 * @param to   the end of the range (exclusive)
+		 * @return the bounds
+		 */
+		private Bounds add(int from, int to) {
+			for (int k = 0; k < 3; ++k) {
+				double[] mins = bounds[k], maxs = bounds[k + 3], c = centers[k];
+				double min = box[k], max = box[k + 3], cMin = centerBox[k], cMax = centerBox[k + 3];
+				for (int i = from; i < to; ++i) {
+					min = Math.min(min, mins[i]);
+					max = Math.max(max, maxs[i]);
+					cMin = Math.min(cMin, c[i]);
+					cMax = Math.max(cMax, c[i]);
+				}
+				box[k] = min;
+				box[k + 3] = max;
+				centerBox[k] = cMin;
+				centerBox[k + 3] = cMax;
+			}
+			return this;
+		}
+
+		/**
+		 * Accumulates other bounds.
+		 *
+		 * @param other the other bounds
+		 * @return the bounds
+		 */
+		private Bounds add(Bounds other) {
+			union(box, 0, other.box, 0);
+			union(centerBox, 0, other.centerBox, 0);
+			return this;
+		}
+	}
+
+	/**
+	 * The bins of a node along the three axes: the amount of geometries and the
+	 * bounds of their boxes in each bin.
+	 */
+	private final class Bins {
+		/** The amount of geometries in each bin, axis by axis */
+		private final int[] counts = new int[3 * BINS];
+		/** The bounds of each bin, axis by axis: min x, y, z and max x, y, z */
+		private final double[] boxes = new double[3 * BINS * 6];
+
+		/**
+		 * Constructs empty bins.
+		 */
+		private Bins() {
+			for (int b = 0; b < 3 * BINS; ++b)
+				System.arraycopy(EMPTY, 0, boxes, b * 6, 6);
+		}
+
+		/**
+		 * Adds a range of geometries into the bins.
+		 *
+		 * @param from      the first geometry of the range
+		 * @param to        the end of the range (exclusive)
+		 * @param centerBox the bounds of the doubled centers of the node
+		 * @return the bins
+		 */
+		private Bins add(int from, int to, double[] centerBox) {
+			for (int axis = 0; axis < 3; ++axis) {
+				double[] c = centers[axis];
+				double min = centerBox[axis], scale = scale(centerBox, axis);
+				for (int i = from; i < to; ++i) {
+					int b = axis * BINS + bin(c[i], min, scale);
+					++counts[b];
+					int offset = b * 6;
+					for (int k = 0; k < 3; ++k) {
+						boxes[offset + k] = Math.min(boxes[offset + k], bounds[k][i]);
+						boxes[offset + k + 3] = Math.max(boxes[offset + k + 3], bounds[k + 3][i]);
+					}
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Accumulates other bins.
+		 *
+		 * @param other the other bins
+		 * @return the bins
+		 */
+		private Bins add(Bins other) {
+			for (int b = 0; b < 3 * BINS; ++b) {
+				counts[b] += other.counts[b];
+				union(boxes, b * 6, other.boxes, b * 6);
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * A task building the subtree of a range of geometries.
+	 */
+	private final class Task extends RecursiveTask<Node> {
+		/** Serialization version of the task */
+		private static final long serialVersionUID = 1L;
+		/** The first geometry of the subtree */
+		private final int from;
+		/** The end of the geometries of the subtree (exclusive) */
+		private final int to;
+		/** The depth of the root of the subtree */
+		private final int depth;
+
+		/**
+		 * Constructs a task building the subtree of a range of geometries.
+		 *
+		 * @param from  the first geometry of the range
+		 * @param to    the end of the range (exclusive)
+		 * @param depth the depth of the root of the subtree
+		 */
+		private Task(int from, int to, int depth) {
+			this.from = from;
+			this.to = to;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Node compute() {
+			int count = to - from;
+			Bounds nodeBounds = scan(count, (a, b) -> new Bounds().add(a, b), Bounds::add);
+			Node node = new Node();
+			node.minX = nodeBounds.box[0];
+			node.minY = nodeBounds.box[1];
+			node.minZ = nodeBounds.box[2];
+			node.maxX = nodeBounds.box[3];
+			node.maxY = nodeBounds.box[4];
+			node.maxZ = nodeBounds.box[5];
+			if (count == 1)
+				return leaf(node);
+
+			int middle;
+			if (depth < MAX_SAH_DEPTH)
+				middle = split(node, count, nodeBounds.centerBox);
+			else
+				middle = count <= MAX_LEAF_SIZE ? from : -1;
+			if (middle == from)
+				return leaf(node);
+			if (middle < 0) {
+				// all the centers coincide, the bins failed to separate them or the
+				// tree is too deep
+				sortRange(longestAxis(nodeBounds.centerBox));
+				middle = from + count / 2;
+			}
+
+			Task left = new Task(from, middle, depth + 1);
+			Task right = new Task(middle, to, depth + 1);
+			if (count > SUBTREE_GRAIN) {
+				left.fork();
+				node.right = right.compute();
+				node.left = left.join();
+			} else {
+				node.left = left.compute();
+				node.right = right.compute();
+			}
+			return node;
+		}
+
+		/**
+		 * Finds the best split of the node by the binned surface area heuristic and
+		 * partitions its geometries accordingly.
+		 *
+		 * @param node      the node, with its bounds
+		 * @param count     the amount of geometries of the node
+		 * @param centerBox the bounds of the doubled centers of the geometries
+		 * @return the first geometry of the second child, {@link #from} if the node
+		 *         should be a leaf, or -1 if the geometries can't be split by the bins
+		 */
+		private int split(Node node, int count, double[] centerBox) {
+			int longest = longestAxis(centerBox);
+			if (centerBox[longest + 3] == centerBox[longest])
+				return count <= MAX_LEAF_SIZE ? from : -1;
+
+			Bins bins = scan(count, (a, b) -> new Bins().add(a, b, centerBox), Bins::add);
+			double bestCost = Double.POSITIVE_INFINITY;
+			int bestAxis = -1, bestBin = -1;
+			double[] rightAreas = new double[BINS];
+			double[] box = new double[6];
+			for (int axis = 0; axis < 3; ++axis) {
+				if (centerBox[axis + 3] == centerBox[axis])
+					continue;
+				int first = axis * BINS;
+				// sweep from the right to find the areas of the right sides
+				System.arraycopy(EMPTY, 0, box, 0, 6);
+				for (int b = BINS - 1; b > 0; --b) {
+					union(box, 0, bins.boxes, (first + b) * 6);
+					rightAreas[b] = area(box);
+				}
+				System.arraycopy(EMPTY, 0, box, 0, 6);
+				int leftCount = 0;
+				for (int b = 0; b < BINS - 1; ++b) {
+					union(box, 0, bins.boxes, (first + b) * 6);
+					leftCount += bins.counts[first + b];
+					int rightCount = count - leftCount;
+					if (leftCount == 0 || rightCount == 0)
+						continue;
+					double cost = area(box) * leftCount + rightAreas[b + 1] * rightCount;
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestAxis = axis;
+						bestBin = b;
+					}
+				}
+			}
+			if (bestAxis < 0)
+				return -1;
+
+			double area = node.area();
+			double splitCost = TRAVERSAL_COST + (area == 0 ? count : bestCost / area);
+			if (splitCost >= count && count <= MAX_LEAF_SIZE)
+				return from;
+
+			// partition the geometries in place: the bins up to the best one go left
+			double[] c = centers[bestAxis];
+			double min = centerBox[bestAxis], scale = scale(centerBox, bestAxis);
+			int i = from, j = to - 1;
+			while (i <= j)
+				if (bin(c[i], min, scale) <= bestBin)
+					++i;
+				else
+					swap(i, j--);
+			return i == from || i == to ? -1 : i;
+		}
+
+		/**
+		 * Sorts the geometries of the task by their centers along an axis.
+		 *
+		 * @param axis the axis
+		 */
+		private void sortRange(int axis) {
+			double[] c = centers[axis];
+			Integer[] order = new Integer[to - from];
+			for (int i = 0; i < order.length; ++i)
+				order[i] = from + i;
+			Arrays.sort(order, Comparator.comparingDouble(i -> c[i]));
+			Intersectable[] sortedGeometries = new Intersectable[order.length];
+			double[][] sorted = new double[9][order.length];
+			for (int i = 0; i < order.length; ++i) {
+				sortedGeometries[i] = geometries[order[i]];
+				for (int k = 0; k < 6; ++k)
+					sorted[k][i] = bounds[k][order[i]];
+				for (int k = 0; k < 3; ++k)
+					sorted[k + 6][i] = centers[k][order[i]];
+			}
+			System.arraycopy(sortedGeometries, 0, geometries, from, order.length);
+			for (int k = 0; k < 6; ++k)
+				System.arraycopy(sorted[k], 0, bounds[k], from, order.length);
+			for (int k = 0; k < 3; ++k)
+				System.arraycopy(sorted[k + 6], 0, centers[k], from, order.length);
+		}
+
+		/**
+		 * Reduces a function over the geometries of the task, in parallel chunks
+		 * when there are many geometries.
+		 *
+		 * @param <T>     the type of the result
+		 * @param count   the amount of geometries
+		 * @param range   computes the result over a range of geometries
+		 * @param combine combines the result of two ranges into the first one
+		 * @return the result over all the geometries
+		 */
+		private <T> T scan(int count, RangeFunction<T> range, BinaryOperator<T> combine) {
+			if (count <= SCAN_GRAIN)
+				return range.apply(from, to);
+			List<ForkJoinTask<T>> chunks = new ArrayList<>();
+			for (int start = from; start < to; start += SCAN_GRAIN) {
+				int a = start, b = Math.min(start + SCAN_GRAIN, to);
+				chunks.add(ForkJoinTask.adapt(() -> range.apply(a, b)));
+			}
+			ForkJoinTask.invokeAll(chunks);
+			T result = chunks.getFirst().join();
+			for (int k = 1; k < chunks.size(); ++k)
+				result = combine.apply(result, chunks.get(k).join());
+			return result;
+		}
+
+		/**
+		 * Makes a node a leaf holding the geometries of the task.
+		 *
+		 * @param node the node
+		 * @return the leaf
+		 */
+		private Node leaf(Node node) {
+			node.geometries = new PrimitiveArrays(Arrays.asList(geometries).subList(from, to));
+			return node;
+		}
+	}
+
+	/**
+	 * A function computing a result over a range of geometries.
+	 *
+	 * @param <T> the type of the result
+	 */
+	@FunctionalInterface
+	private interface RangeFunction<T> {
+		/**
+		 * Computes the result over a range of geometries.
+		 *
+		 * @param from the first geometry of the range
+		 * @param to   the end of the range (exclusive)
+		 * @return the result
+		 */
+		T apply(int from, int to);
+	}
+
+	/**
+	 * Swaps two geometries with their bounds and centers.
+	 *
+	 * @param i the first geometry
+	 * @param j the second geometry
+	 */
+	private void swap(int i, int j) {
+		Intersectable geometry = geometries[i];
+		geometries[i] = geometries[j];
+		geometries[j] = geometry;
+		for (double[] values : bounds) {
+			double value = values[i];
+			values[i] = values[j];
+			values[j] = value;
+		}
+		for (double[] values : centers) {
+			double value = values[i];
+			values[i] = values[j];
+			values[j] = value;
+		}
+	}
+
+	/**
+	 * Creates empty bounds.
+	 *
+	 * @return the bounds: min x, y, z and max x, y, z
+	 */
+	private static double[] empty() {
+		return EMPTY.clone();
+	}
+
+	/**
+	 * Calculates the factor that maps a center along an axis to its bin.
+	 *
+	 * @param centerBox the bounds of the doubled centers of the node
+	 * @param axis      the axis
+	 * @return the amount of bins per unit along the axis
+	 */
+	private static double scale(double[] centerBox, int axis) {
+		double extent = centerBox[axis + 3] - centerBox[axis];
+		return extent == 0 ? 0 : BINS / extent;
+	}
+
+	/**
+	 * Finds the bin of a center.
+	 *
+	 * @param center the doubled center along the axis of the bins
+	 * @param min    the minimal doubled center of the node along the axis
+	 * @param scale  the amount of bins per unit along the axis
+	 * @return the bin
+	 */
+	private static int bin(double center, double min, double scale) {
+		return Math.min((int) ((center - min) * scale), BINS - 1);
+	}
+
+	/**
+	 * Finds the axis along which the centers spread the most.
+	 *
+	 * @param centerBox the bounds of the centers
+	 * @return the axis
+	 */
+	private static int longestAxis(double[] centerBox) {
+		int axis = 0;
+		for (int k = 1; k < 3; ++k)
+			if (centerBox[k + 3] - centerBox[k] > centerBox[axis + 3] - centerBox[axis])
+				axis = k;
+		return axis;
+	}
+
+	/**
+	 * Extends bounds to include other bounds.
+	 *
+	 * @param bounds      the array of the bounds
+	 * @param offset      the offset of the bounds in their array: min x, y, z and
+	 *                    max x, y, z
+	 * @param other       the array of the other bounds
+	 * @param otherOffset the offset of the other bounds in their array
+	 */
+	private static void union(double[] bounds, int offset, double[] other, int otherOffset) {
+		for (int k = 0; k < 3; ++k) {
+			bounds[offset + k] = Math.min(bounds[offset + k], other[otherOffset + k]);
+			bounds[offset + k + 3] = Math.max(bounds[offset + k + 3], other[otherOffset + k + 3]);
+		}
+	}
+
+	/**
+	 * Calculates the surface area of bounds.
+	 *
+	 * @param bounds the bounds: min x, y, z and max x, y, z
+	 * @return the surface area, 0 for empty bounds
+	 */
+	private static double area(double[] bounds) {
+		double dx = bounds[3] - bounds[0], dy = bounds[4] - bounds[1], dz = bounds[5] - bounds[2];
+		return dx < 0 ? 0 : 2 * (dx * dy + dy * dz + dz * dx);
+	}
+}
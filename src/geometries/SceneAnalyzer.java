@@ -0,0 +1,155 @@
+package geometries;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import primitives.BoundingBox;
+
+/**
+ * Chooses the acceleration structure for geometries from their statistics:
+ * <ul>
+ * <li>a handful of geometries, or no bounded ones, are kept in a flat list,
+ * which costs nothing to build and is as fast as any structure to
+ * traverse;</li>
+ * <li>geometries of similar sizes spread evenly over their bounds are split at
+ * the median - on such a distribution the surface area heuristic finds nearly
+ * the same splits, at a higher build cost;</li>
+ * <li>clustered geometries, or geometries of very different sizes, are split by
+ * the surface area heuristic, which fits the boxes to the clusters.</li>
+ * </ul>
+ * The distribution is measured by scattering the centers of the geometries into
+ * a grid of about one cell per geometry over the extended axes of their
+ * bounds: evenly spread centers occupy most of the cells, clustered centers
+ * leave most of them empty. Unbounded geometries are intersected beside any
+ * structure and only count toward the total.
+ */
+public final class SceneAnalyzer {
+	/** The logger of the choices */
+	private static final Logger logger = Logger.getLogger("SceneAnalyzer");
+	/** The largest amount of geometries kept in a flat list */
+	private static final int FLAT_LIMIT = 8;
+	/** The maximal amount of grid cells along an axis */
+	private static final int MAX_CELLS = 64;
+	/**
+	 * The least fraction of occupied grid cells of an even distribution; evenly
+	 * spread random centers occupy about 63% of the cells
+	 */
+	private static final double EVEN_OCCUPANCY = 0.4;
+	/** The largest ratio of the largest box diagonal to the mean box diagonal */
+	private static final double SIZE_SPREAD = 8;
+
+	/**
+	 * The chosen acceleration structure.
+	 *
+	 * @param structure the kind of the acceleration structure
+	 * @param reason    why it was chosen
+	 */
+	public record Choice(AccelerationStructure structure, String reason) {
+	}
+
+	/** A private constructor for the static utility class */
+	private SceneAnalyzer() {
+	}
+
+	/**
+	 * Chooses the acceleration structure for geometries and logs the choice.
+	 *
+	 * @param geometries the geometries
+	 * @return the choice
+	 */
+	public static Choice analyze(List<? extends Intersectable> geometries) {
+		Choice choice = choose(geometries);
+		logger.info(() -> choice.structure() + " for " + geometries.size() + " geometries: " + choice.reason());
+		return choice;
+	}
+
+	/**
+	 * Chooses the acceleration structure for geometries.
+	 *
+	 * @param geometries the geometries
+	 * @return the choice
+	 */
+	private static Choice choose(List<? extends Intersectable> geometries) {
+		if (geometries.size() <= FLAT_LIMIT)
+			return new Choice(AccelerationStructure.FLAT, "at most " + FLAT_LIMIT + " geometries");
+
+		int count = 0;
+		double diagonals = 0, maxDiagonal = 0;
+		BoundingBox centers = null;
+		BoundingBox[] boxes = new BoundingBox[geometries.size()];
+		for (Intersectable geometry : geometries) {
+			BoundingBox box = geometry.getBoundingBox();
+			if (box == null)
+				continue;
+			boxes[count++] = box;
+			double diagonal = box.getDiagonal();
+			diagonals += diagonal;
+			maxDiagonal = Math.max(maxDiagonal, diagonal);
+			centers = BoundingBox.of(box.getCenter()).union(centers);
+		}
+		int unbounded = geometries.size() - count;
+		String unboundedNote = unbounded == 0 ? "" : " (" + unbounded + " unbounded kept aside)";
+		if (count <= FLAT_LIMIT)
+			return new Choice(AccelerationStructure.FLAT,
+					"at most " + FLAT_LIMIT + " bounded geometries" + unboundedNote);
+
+		if (maxDiagonal > SIZE_SPREAD * diagonals / count)
+			return new Choice(AccelerationStructure.SAH_BVH,
+					String.format("sizes vary - largest box %.1f times the mean%s", maxDiagonal * count / diagonals,
+							unboundedNote));
+
+		double occupancy = occupancy(boxes, count, centers);
+		return occupancy >= EVEN_OCCUPANCY
+				? new Choice(AccelerationStructure.BVH,
+						String.format("evenly spread - %.0f%% of the grid cells occupied%s", occupancy * 100,
+								unboundedNote))
+				: new Choice(AccelerationStructure.SAH_BVH, String.format(
+						"clustered - %.0f%% of the grid cells occupied%s", occupancy * 100, unboundedNote));
+	}
+
+	/**
+	 * Scatters the centers of boxes into a grid of about one cell per box over the
+	 * extended axes of the bounds of the centers, and measures the occupied
+	 * fraction of the cells.
+	 *
+	 * @param boxes   the boxes
+	 * @param count   the amount of boxes
+	 * @param centers the bounds of the centers of the boxes
+	 * @return the fraction of occupied cells
+	 */
+	private static double occupancy(BoundingBox[] boxes, int count, BoundingBox centers) {
+		double[] min = { centers.minX, centers.minY, centers.minZ };
+		double[] extent = { centers.maxX - centers.minX, centers.maxY - centers.minY, centers.maxZ - centers.minZ };
+		double maxExtent = Math.max(extent[0], Math.max(extent[1], extent[2]));
+		if (maxExtent == 0)
+			return 0;
+		// axes much shorter than the longest one are not split, so that a flat or a
+		// long scene is measured over its own dimensions
+		int dimensions = 0;
+		for (double axisExtent : extent)
+			if (axisExtent > maxExtent / count)
+				++dimensions;
+		int perAxis = Math.min(MAX_CELLS, Math.max(1, (int) Math.round(Math.pow(count, 1.0 / dimensions))));
+		int[] cells = new int[3];
+		for (int axis = 0; axis < 3; ++axis)
+			cells[axis] = extent[axis] > maxExtent / count ? perAxis : 1;
+
+		boolean[] occupied = new boolean[cells[0] * cells[1] * cells[2]];
+		int occupiedCount = 0;
+		for (int i = 0; i < count; ++i) {
+			double[] center = { boxes[i].minX + boxes[i].maxX, boxes[i].minY + boxes[i].maxY,
+					boxes[i].minZ + boxes[i].maxZ };
+			int cell = 0;
+			for (int axis = 0; axis < 3; ++axis) {
+				int index = cells[axis] == 1 ? 0
+						: (int) ((center[axis] / 2 - min[axis]) / extent[axis] * cells[axis]);
+				cell = cell * cells[axis] + Math.min(index, cells[axis] - 1);
+			}
+			if (!occupied[cell]) {
+				occupied[cell] = true;
+				++occupiedCount;
+			}
+		}
+		return (double) occupiedCount / Math.min(occupied.length, count);
+	}
+}
@@ -8,11 +8,14 @@ import static primitives.Util.*;
 /**
  * Represents a sphere in three-dimensional space.
  */
-public class Sphere extends RadialGeometry {
+public final class Sphere extends RadialGeometry {
 
 	/** The center point of the sphere. */
 	private final Point centerPoint;
 
+	/** The bounding box of the sphere. */
+	private final BoundingBox box;
+
 	/**
 	 * Constructs a new sphere with the specified center point and radius.
 	 *
@@ -22,6 +25,28 @@ public class Sphere extends RadialGeometry {
 	public Sphere(Point centerPoint, double radius) {
 		super(radius);
 		this.centerPoint = centerPoint;
+		this.box = new BoundingBox(centerPoint.getX() - radius, centerPoint.getY() - radius,
+				centerPoint.getZ() - radius, centerPoint.getX() + radius, centerPoint.getY() + radius,
+				centerPoint.getZ() + radius);
+	}
+
+	/**
+	 * Creates a transformed copy of the sphere.
+	 *
+	 * @param transform the transform
+	 * @return the transformed sphere
+	 * @throws IllegalArgumentException if the transform does not scale uniformly
+	 */
+	@Override
+	public Intersectable transform(Transform transform) {
+		if (!transform.isUniform())
+			throw new IllegalArgumentException("A sphere can be transformed only by a uniform transform");
+		return copyAppearanceTo(new Sphere(transform.apply(centerPoint), radius * transform.getScale()));
+	}
+
+	@Override
+	public BoundingBox getBoundingBox() {
+		return box;
 	}
 
 	/**
@@ -71,4 +96,34 @@ public class Sphere extends RadialGeometry {
 		return t1 <= 0 ? List.of((new GeoPoint(this, ray.getPoint(t2))))//
 				: List.of((new GeoPoint(this, ray.getPoint(t1))), new GeoPoint(this, ray.getPoint(t2)));
 	}
+
+	/**
+	 * Intersects a batch of rays with the sphere, recording the first
+	 * intersection of each ray in front of its head.
+	 *
+	 * @param batch     the rays and their closest intersections
+	 * @param primitive the index recorded for an intersection with the sphere
+	 * @return the index following the sphere
+	 */
+	@Override
+	public int intersect(RayBatch batch, int primitive) {
+		double cx = centerPoint.getX(), cy = centerPoint.getY(), cz = centerPoint.getZ();
+		for (int i = 0; i < batch.size; ++i) {
+			double dx = batch.directionX[i], dy = batch.directionY[i], dz = batch.directionZ[i];
+			// vector from the ray head to the center of the sphere
+			double ux = cx - batch.originX[i], uy = cy - batch.originY[i], uz = cz - batch.originZ[i];
+			double tm = alignZero(ux * dx + uy * dy + uz * dz);
+			double thSquared = alignZero(radiusSquared - (ux * ux + uy * uy + uz * uz - tm * tm));
+			if (thSquared <= 0)
+				continue;
+			double th = Math.sqrt(thSquared);
+			double t = alignZero(tm - th);
+			if (t <= 0)
+				t = alignZero(tm + th);
+			if (t <= 0 || t >= batch.distance[i])
+				continue;
+			batch.record(i, t, primitive, (t * dx - ux) / radius, (t * dy - uy) / radius, (t * dz - uz) / radius);
+		}
+		return primitive + 1;
+	}
 }
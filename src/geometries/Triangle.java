@@ -8,7 +8,7 @@ import primitives.Vector;
 /**
  * Represents a triangle in three-dimensional space.
  */
-public class Triangle extends Polygon {
+public final class Triangle extends Polygon {
 
 	/**
 	 * Constructs a triangle with the specified vertices.
@@ -23,6 +23,12 @@ public class Triangle extends Polygon {
 		super(p1, p2, p3);
 	}
 
+	@Override
+	public Intersectable transform(Transform transform) {
+		return copyAppearanceTo(new Triangle(transform.apply(vertices.get(0)), transform.apply(vertices.get(1)),
+				transform.apply(vertices.get(2))));
+	}
+
 	/**
 	 * Finds the intersection points between the given ray and the triangle.
 	 * 
@@ -72,4 +78,43 @@ public class Triangle extends Polygon {
 		return List.of(new GeoPoint(this, intersections.getFirst()));
 	}
 
+	/**
+	 * Intersects a batch of rays with the triangle by the Moller-Trumbore
+	 * algorithm, which works on the coordinates of the rays directly.
+	 *
+	 * @param batch     the rays and their closest intersections
+	 * @param primitive the index recorded for an intersection with the triangle
+	 * @return the index following the triangle
+	 */
+	@Override
+	public int intersect(RayBatch batch, int primitive) {
+		Point p0 = vertices.get(0), p1 = vertices.get(1), p2 = vertices.get(2);
+		double v0x = p0.getX(), v0y = p0.getY(), v0z = p0.getZ();
+		double e1x = p1.getX() - v0x, e1y = p1.getY() - v0y, e1z = p1.getZ() - v0z;
+		double e2x = p2.getX() - v0x, e2y = p2.getY() - v0y, e2z = p2.getZ() - v0z;
+		Vector normal = plane.getNormal();
+		double nx = normal.getX(), ny = normal.getY(), nz = normal.getZ();
+
+		for (int i = 0; i < batch.size; ++i) {
+			double dx = batch.directionX[i], dy = batch.directionY[i], dz = batch.directionZ[i];
+			double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+			double determinant = e1x * px + e1y * py + e1z * pz;
+			if (Util.isZero(determinant))
+				continue;
+			double inverse = 1 / determinant;
+			double tx = batch.originX[i] - v0x, ty = batch.originY[i] - v0y, tz = batch.originZ[i] - v0z;
+			double u = Util.alignZero((tx * px + ty * py + tz * pz) * inverse);
+			if (u <= 0)
+				continue;
+			double qx = ty * e1z - tz * e1y, qy = tz * e1x - tx * e1z, qz = tx * e1y - ty * e1x;
+			double v = Util.alignZero((dx * qx + dy * qy + dz * qz) * inverse);
+			// an intersection on an edge is considered outside the triangle
+			if (v <= 0 || Util.alignZero(1 - u - v) <= 0)
+				continue;
+			double t = Util.alignZero((e2x * qx + e2y * qy + e2z * qz) * inverse);
+			if (t > 0)
+				batch.record(i, t, primitive, nx, ny, nz);
+		}
+		return primitive + 1;
+	}
 }
@@ -23,6 +23,30 @@ public class Tube extends RadialGeometry {
 		this.axis = axis;
 	}
 
+	/**
+	 * Creates a transformed copy of the tube.
+	 *
+	 * @param transform the transform
+	 * @return the transformed tube
+	 * @throws IllegalArgumentException if the transform does not scale uniformly
+	 */
+	@Override
+	public Intersectable transform(Transform transform) {
+		if (!transform.isUniform())
+			throw new IllegalArgumentException("A tube can be transformed only by a uniform transform");
+		return copyAppearanceTo(new Tube(radius * transform.getScale(), transformAxis(transform)));
+	}
+
+	/**
+	 * Transforms the axis of the tube.
+	 *
+	 * @param transform the transform
+	 * @return the transformed axis
+	 */
+	protected Ray transformAxis(Transform transform) {
+		return new Ray(transform.apply(axis.getHead()), transform.applyToVector(axis.getDirection()));
+	}
+
 	/**
 	 * Returns the normal vector at the specified point on the surface of the tube.
 	 * 
@@ -0,0 +1,114 @@
+package geometries;
+
+import jdk.incubator.vector.*;
+
+/**
+ * The lane loops of a {@link WideBVH} written with the vector API, so that the
+ * four child boxes of a node and the triangles of a leaf are tested in SIMD
+ * registers whatever the JIT compiler makes of the scalar loops. The vector API
+ * is an incubator module, resolved only when the program runs with
+ * {@code --add-modules jdk.incubator.vector}. This class refers to the module
+ * already in its static fields, so it must not be touched unless the module is
+ * present; the hierarchy checks that, as well as {@link #isSupported()}, and
+ * falls back to its scalar loops otherwise. <br/>
+ * Every lane computes exactly what the scalar loop computes - the same
+ * operations in the same order, with the same handling of infinities and NaNs -
+ * so both paths find the same intersections.
+ */
+final class VectorLanes {
+	/** The species of the child boxes of a node - four doubles */
+	private static final VectorSpecies<Double> BOXES = DoubleVector.SPECIES_256;
+	/** The species of the triangles of a leaf */
+	private static final VectorSpecies<Double> TRIANGLES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Tells whether the processor has vectors wide enough for the child boxes of
+	 * a node; otherwise the vector API would emulate them in software.
+	 *
+	 * @return true if the preferred species holds at least four doubles
+	 */
+	static boolean isSupported() {
+		return DoubleVector.SPECIES_PREFERRED.vectorBitSize() >= BOXES.vectorBitSize();
+	}
+
+	/** A private constructor for the static utility class */
+	private VectorLanes() {
+	}
+
+	/**
+	 * Calculates the entry distances of a ray into four boxes (slab test).
+	 *
+	 * @param minX    the minimal x coordinates of the boxes
+	 * @param minY    the minimal y coordinates of the boxes
+	 * @param minZ    the minimal z coordinates of the boxes
+	 * @param maxX    the maximal x coordinates of the boxes
+	 * @param maxY    the maximal y coordinates of the boxes
+	 * @param maxZ    the maximal z coordinates of the boxes
+	 * @param base    the index of the first box
+	 * @param ray     the ray data: the head and the inverse of the direction
+	 * @param entries output: the entry distance into each box, or infinity if the
+	 *                ray misses it
+	 */
+	static void entries(double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY, double[] maxZ,
+			int base, double[] ray, double[] entries) {
+		DoubleVector t1 = DoubleVector.fromArray(BOXES, minX, base).sub(ray[0]).mul(ray[3]);
+		DoubleVector t2 = DoubleVector.fromArray(BOXES, maxX, base).sub(ray[0]).mul(ray[3]);
+		DoubleVector near = t1.min(t2);
+		DoubleVector far = t1.max(t2);
+		t1 = DoubleVector.fromArray(BOXES, minY, base).sub(ray[1]).mul(ray[4]);
+		t2 = DoubleVector.fromArray(BOXES, maxY, base).sub(ray[1]).mul(ray[4]);
+		near = near.max(t1.min(t2));
+		far = far.min(t1.max(t2));
+		t1 = DoubleVector.fromArray(BOXES, minZ, base).sub(ray[2]).mul(ray[5]);
+		t2 = DoubleVector.fromArray(BOXES, maxZ, base).sub(ray[2]).mul(ray[5]);
+		near = near.max(t1.min(t2));
+		far = far.min(t1.max(t2));
+		VectorMask<Double> miss = near.compare(VectorOperators.GT, far).or(far.compare(VectorOperators.LT, 0));
+		near.max(0).blend(Double.POSITIVE_INFINITY, miss).intoArray(entries, 0);
+	}
+
+	/**
+	 * Calculates the distances along a ray to triangles stored as their first
+	 * vertices and the two edges from them (Möller-Trumbore).
+	 *
+	 * @param count     the amount of triangles
+	 * @param v0        the coordinates of the first vertices: x, y and z arrays
+	 * @param e1        the coordinates of the first edges
+	 * @param e2        the coordinates of the second edges
+	 * @param ray       the ray data: the head, the inverse of the direction and
+	 *                  the direction
+	 * @param distances output: the distance to each triangle, or infinity if the
+	 *                  ray misses it
+	 */
+	static void intersect(int count, double[][] v0, double[][] e1, double[][] e2, double[] ray, double[] distances) {
+		double ox = ray[0], oy = ray[1], oz = ray[2], dx = ray[6], dy = ray[7], dz = ray[8];
+		for (int i = 0; i < count; i += TRIANGLES.length()) {
+			VectorMask<Double> lanes = TRIANGLES.indexInRange(i, count);
+			DoubleVector e1x = DoubleVector.fromArray(TRIANGLES, e1[0], i, lanes);
+			DoubleVector e1y = DoubleVector.fromArray(TRIANGLES, e1[1], i, lanes);
+			DoubleVector e1z = DoubleVector.fromArray(TRIANGLES, e1[2], i, lanes);
+			DoubleVector e2x = DoubleVector.fromArray(TRIANGLES, e2[0], i, lanes);
+			DoubleVector e2y = DoubleVector.fromArray(TRIANGLES, e2[1], i, lanes);
+			DoubleVector e2z = DoubleVector.fromArray(TRIANGLES, e2[2], i, lanes);
+
+			DoubleVector px = e2z.mul(dy).sub(e2y.mul(dz));
+			DoubleVector py = e2x.mul(dz).sub(e2z.mul(dx));
+			DoubleVector pz = e2y.mul(dx).sub(e2x.mul(dy));
+			DoubleVector inverse = DoubleVector.broadcast(TRIANGLES, 1)
+					.div(e1x.mul(px).add(e1y.mul(py)).add(e1z.mul(pz)));
+			DoubleVector tx = DoubleVector.fromArray(TRIANGLES, v0[0], i, lanes).neg().add(ox);
+			DoubleVector ty = DoubleVector.fromArray(TRIANGLES, v0[1], i, lanes).neg().add(oy);
+			DoubleVector tz = DoubleVector.fromArray(TRIANGLES, v0[2], i, lanes).neg().add(oz);
+			DoubleVector u = tx.mul(px).add(ty.mul(py)).add(tz.mul(pz)).mul(inverse);
+			DoubleVector qx = ty.mul(e1z).sub(tz.mul(e1y));
+			DoubleVector qy = tz.mul(e1x).sub(tx.mul(e1z));
+			DoubleVector qz = tx.mul(e1y).sub(ty.mul(e1x));
+			DoubleVector v = qx.mul(dx).add(qy.mul(dy)).add(qz.mul(dz)).mul(inverse);
+			DoubleVector t = e2x.mul(qx).add(e2y.mul(qy)).add(e2z.mul(qz)).mul(inverse);
+			// a ray parallel to the triangle gives an infinite or NaN inverse and fails
+			VectorMask<Double> hit = u.compare(VectorOperators.GT, 0).and(v.compare(VectorOperators.GT, 0))
+					.and(u.add(v).compare(VectorOperators.LT, 1)).and(t.compare(VectorOperators.GT, 0));
+			t.blend(Double.POSITIVE_INFINITY, hit.not()).intoArray(distances, i, lanes);
+		}
+	}
+}
@@ -0,0 +1,536 @@
+package geometries;
+
+import java.util.*;
+
+import geometries.BVH.Item;
+import primitives.*;
+import primitives.Vector;
+import static primitives.Util.*;
+
+/**
+ * A 4-wide bounding volume hierarchy. Every inner node holds the bounding boxes
+ * of its (up to) four children in structure-of-arrays layout, so a ray is
+ * tested against all of them in one loop over the four lanes; the triangles of
+ * each leaf are stored the same way and are intersected in one loop as well.
+ * When the vector API module is present and the processor has vectors of at
+ * least four doubles the lane loops run in SIMD registers
+ * ({@link VectorLanes}); otherwise they are plain counted loops over primitive
+ * arrays without calls or allocations, which the JIT compiler may still turn
+ * into SIMD instructions. Both paths find the same intersections. The
+ * hierarchy is immutable.
+ */
+public class WideBVH extends Intersectable {
+	/** The amount of children of an inner node */
+	private static final int WIDTH = 4;
+	/** The maximal amount of geometries in a leaf */
+	private static final int LEAF_SIZE = 8;
+	/** The initial size of the traversal stack, which grows for deeper trees */
+	private static final int STACK_SIZE = 64 * WIDTH;
+	/**
+	 * Whether the vector API module is present in the running program and the
+	 * processor has vectors wide enough for the lanes
+	 */
+	private static final boolean VECTOR_API = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+			&& VectorLanes.isSupported();
+
+	/** The minimal x coordinates of the child boxes, {@link #WIDTH} per node */
+	private final double[] minX;
+	/** The minimal y coordinates of the child boxes */
+	private final double[] minY;
+	/** The minimal z coordinates of the child boxes */
+	private final double[] minZ;
+	/** The maximal x coordinates of the child boxes */
+	private final double[] maxX;
+	/** The maximal y coordinates of the child boxes */
+	private final double[] maxY;
+	/** The maximal z coordinates of the child boxes */
+	private final double[] maxZ;
+	/**
+	 * The children: the index of an inner node, or the bitwise complement of the
+	 * index of a leaf
+	 */
+	private final int[] children;
+	/** The triangles of the leaves */
+	private final TriangleBatch[] triangleLeaves;
+	/** The other geometries of the leaves */
+	private final PrimitiveArrays[] otherLeaves;
+	/** The index of the root: an inner node, or the complement of a leaf */
+	private final int root;
+	/** The unbounded geometries */
+	private final PrimitiveArrays unbounded;
+	/** The bounding box of all the geometries, null if any is unbounded */
+	private final BoundingBox box;
+	/** The numbering of the primitives in batch intersections */
+	private final PrimitiveNumbering numbering;
+	/** Whether the lane loops use the vector API */
+	private final boolean vectorized;
+
+	/**
+	 * Triangles stored in structure-of-arrays layout - the first vertex and the
+	 * two edges from it of every triangle - for intersecting a ray with all of them
+	 * in one loop (Möller-Trumbore).
+	 */
+	private static final class TriangleBatch {
+		/** The triangles */
+		private final Triangle[] triangles;
+		/** The coordinates of the first vertices and of the edges */
+		private final double[] v0x, v0y, v0z, e1x, e1y, e1z, e2x, e2y, e2z;
+		/** The same coordinates grouped by point: x, y and z arrays */
+		private final double[][] v0, e1, e2;
+
+		/**
+		 * Stores triangles in a batch.
+		 *
+		 * @param triangles the triangles
+		 */
+		private TriangleBatch(List<Triangle> triangles) {
+			this.triangles = triangles.toArray(new Triangle[0]);
+			int size = this.triangles.length;
+			v0x = new double[size];
+			v0y = new double[size];
+			v0z = new double[size];
+			e1x = new double[size];
+			e1y = new double[size];
+			e1z = new double[size];
+			e2x = new double[size];
+			e2y = new double[size];
+			e2z = new double[size];
+			for (int i = 0; i < size; ++i) {
+				List<Point> vertices = this.triangles[i].vertices;
+				Point p0 = vertices.get(0), p1 = vertices.get(1), p2 = vertices.get(2);
+				v0x[i] = p0.getX();
+				v0y[i] = p0.getY();
+				v0z[i] = p0.getZ();
+				e1x[i] = p1.getX() - p0.getX();
+				e1y[i] = p1.getY() - p0.getY();
+				e1z[i] = p1.getZ() - p0.getZ();
+				e2x[i] = p2.getX() - p0.getX();
+				e2y[i] = p2.getY() - p0.getY();
+				e2z[i] = p2.getZ() - p0.getZ();
+			}
+			v0 = new double[][] { v0x, v0y, v0z };
+			e1 = new double[][] { e1x, e1y, e1z };
+			e2 = new double[][] { e2x, e2y, e2z };
+		}
+
+		/**
+		 * Calculates the distances along a ray to all the triangles of the batch.
+		 *
+		 * @param ray       the ray
+		 * @param distances output: the distance to each triangle, or infinity if the
+		 *                  ray misses it
+		 */
+		private void intersect(Ray ray, double[] distances) {
+			Point head = ray.getHead();
+			Vector direction = ray.getDirection();
+			double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+			double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+			for (int i = 0; i < triangles.length; ++i) {
+				double px = dy * e2z[i] - dz * e2y[i];
+				double py = dz * e2x[i] - dx * e2z[i];
+				double pz = dx * e2y[i] - dy * e2x[i];
+				double inverse = 1 / (e1x[i] * px + e1y[i] * py + e1z[i] * pz);
+				double tx = ox - v0x[i], ty = oy - v0y[i], tz = oz - v0z[i];
+				double u = (tx * px + ty * py + tz * pz) * inverse;
+				double qx = ty * e1z[i] - tz * e1y[i];
+				double qy = tz * e1x[i] - tx * e1z[i];
+				double qz = tx * e1y[i] - ty * e1x[i];
+				double v = (dx * qx + dy * qy + dz * qz) * inverse;
+				double t = (e2x[i] * qx + e2y[i] * qy + e2z[i] * qz) * inverse;
+				// a ray parallel to the triangle gives an infinite or NaN inverse and fails
+				distances[i] = u > 0 && v > 0 && u + v < 1 && t > 0 ? t : Double.POSITIVE_INFINITY;
+			}
+		}
+
+		/**
+		 * Confirms an intersection found by the batch test with the scalar test of
+		 * the triangle, so that intersections on the edges and near the ray head are
+		 * treated exactly as in the rest of the geometries.
+		 *
+		 * @param triangle the index of the triangle
+		 * @param ray      the ray
+		 * @param t        the distance
+		 * @return the intersection point, or null if it is not a proper intersection
+		 */
+		private GeoPoint geoPoint(int triangle, Ray ray, double t) {
+			if (alignZero(t) <= 0)
+				return null;
+			var intersections = triangles[triangle].findGeoIntersectionsHelper(ray);
+			return intersections == null ? null : intersections.getFirst();
+		}
+	}
+
+	/**
+	 * Builds a 4-wide bounding volume hierarchy over geometries, using the vector
+	 * API if it is available.
+	 *
+	 * @param geometries the geometries
+	 */
+	public WideBVH(List<? extends Intersectable> geometries) {
+		this(geometries, true);
+	}
+
+	/**
+	 * Builds a 4-wide bounding volume hierarchy over geometries.
+	 *
+	 * @param geometries the geometries
+	 * @param vectorized whether to use the vector API; ignored if the vector API
+	 *                   is not available (see {@link #isVectorAPIAvailable()})
+	 */
+	public WideBVH(List<? extends Intersectable> geometries, boolean vectorized) {
+		this.vectorized = vectorized && VECTOR_API;
+		numbering = new PrimitiveNumbering(geometries);
+		List<Intersectable> unboundedList = new ArrayList<>();
+		List<Item> items = BVH.items(geometries, unboundedList);
+		unbounded = new PrimitiveArrays(unboundedList);
+
+		Builder builder = new Builder();
+		root = items.isEmpty() ? 0 : builder.build(items);
+		minX = builder.minX.toArray();
+		minY = builder.minY.toArray();
+		minZ = builder.minZ.toArray();
+		maxX = builder.maxX.toArray();
+		maxY = builder.maxY.toArray();
+		maxZ = builder.maxZ.toArray();
+		children = builder.children.stream().mapToInt(Integer::intValue).toArray();
+		triangleLeaves = builder.triangleLeaves.toArray(new TriangleBatch[0]);
+		otherLeaves = builder.otherLeaves.toArray(new PrimitiveArrays[0]);
+
+		BoundingBox bounds = null;
+		for (Item item : items)
+			bounds = item.box().union(bounds);
+		box = unboundedList.isEmpty() ? bounds : null;
+	}
+
+	/**
+	 * A growable array of doubles
+	 */
+	private static final class DoubleList {
+		/** The values */
+		private double[] values = new double[64];
+		/** The amount of values */
+		private int size = 0;
+
+		/**
+		 * Appends a value.
+		 *
+		 * @param value the value
+		 */
+		private void add(double value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		/**
+		 * Sets a value.
+		 *
+		 * @param index the index of the value
+		 * @param value the value
+		 */
+		private void set(int index, double value) {
+			values[index] = value;
+		}
+
+		/**
+		 * Returns the values.
+		 *
+		 * @return an array of the values
+		 */
+		private double[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	/**
+	 * Collects the nodes and the leaves of the hierarchy while building it
+	 */
+	private static final class Builder {
+		/** The minimal x coordinates of the child boxes */
+		private final DoubleList minX = new DoubleList();
+		/** The minimal y coordinates of the child boxes */
+		private final DoubleList minY = new DoubleList();
+		/** The minimal z coordinates of the child boxes */
+		private final DoubleList minZ = new DoubleList();
+		/** The maximal x coordinates of the child boxes */
+		private final DoubleList maxX = new DoubleList();
+		/** The maximal y coordinates of the child boxes */
+		private final DoubleList maxY = new DoubleList();
+		/** The maximal z coordinates of the child boxes */
+		private final DoubleList maxZ = new DoubleList();
+		/** The children of the nodes */
+		private final List<Integer> children = new ArrayList<>();
+		/** The triangles of the leaves */
+		private final List<TriangleBatch> triangleLeaves = new ArrayList<>();
+		/** The other geometries of the leaves */
+		private final List<PrimitiveArrays> otherLeaves = new ArrayList<>();
+
+		/**
+		 * Recursively builds a subtree. The items are split twice at the median of
+		 * the longest axis of their centers, giving up to four children.
+		 *
+		 * @param items the items of the subtree
+		 * @return the index of the node, or the complement of the index of the leaf
+		 */
+		private int build(List<Item> items) {
+			if (items.size() <= LEAF_SIZE) {
+				List<Triangle> triangles = new ArrayList<>();
+				List<Intersectable> others = new ArrayList<>();
+				for (Item item : items)
+					if (item.geometry() instanceof Triangle triangle)
+						triangles.add(triangle);
+					else
+						others.add(item.geometry());
+				triangleLeaves.add(new TriangleBatch(triangles));
+				otherLeaves.add(new PrimitiveArrays(others));
+				return ~(triangleLeaves.size() - 1);
+			}
+
+			List<List<Item>> groups = new ArrayList<>();
+			int middle = BVH.split(items);
+			for (List<Item> half : List.of(items.subList(0, middle), items.subList(middle, items.size()))) {
+				List<Item> list = new ArrayList<>(half);
+				if (list.size() <= LEAF_SIZE)
+					groups.add(list);
+				else {
+					int quarter = BVH.split(list);
+					groups.add(new ArrayList<>(list.subList(0, quarter)));
+					groups.add(new ArrayList<>(list.subList(quarter, list.size())));
+				}
+			}
+
+			int node = children.size() / WIDTH;
+			for (int lane = 0; lane < WIDTH; ++lane) {
+				// empty lanes have a box at infinity that no ray hits
+				minX.add(Double.POSITIVE_INFINITY);
+				minY.add(Double.POSITIVE_INFINITY);
+				minZ.add(Double.POSITIVE_INFINITY);
+				maxX.add(Double.POSITIVE_INFINITY);
+				maxY.add(Double.POSITIVE_INFINITY);
+				maxZ.add(Double.POSITIVE_INFINITY);
+				children.add(0);
+			}
+			for (int lane = 0; lane < groups.size(); ++lane) {
+				List<Item> group = groups.get(lane);
+				BoundingBox b = null;
+				for (Item item : group)
+					b = item.box().union(b);
+				int index = node * WIDTH + lane;
+				minX.set(index, b.minX);
+				minY.set(index, b.minY);
+				minZ.set(index, b.minZ);
+				maxX.set(index, b.maxX);
+				maxY.set(index, b.maxY);
+				maxZ.set(index, b.maxZ);
+				children.set(index, build(group));
+			}
+			return node;
+		}
+	}
+
+	/**
+	 * Tells whether the vector API module is present in the running program and
+	 * the processor has vectors of at least four doubles (256 bits). On narrower
+	 * hardware the vector API would emulate the four lanes of a node, which is
+	 * slower than the scalar loops, so they are kept.
+	 *
+	 * @return true if hierarchies may use the vector API
+	 */
+	public static boolean isVectorAPIAvailable() {
+		return VECTOR_API;
+	}
+
+	/**
+	 * Tells whether the lane loops of the hierarchy use the vector API.
+	 *
+	 * @return true if the hierarchy is vectorized
+	 */
+	public boolean isVectorized() {
+		return vectorized;
+	}
+
+	@Override
+	public BoundingBox getBoundingBox() {
+		return box;
+	}
+
+	@Override
+	public int countPrimitives() {
+		return numbering.count();
+	}
+
+	@Override
+	protected int primitiveIndex(Intersectable primitive) {
+		return numbering.indexOf(primitive);
+	}
+
+	/**
+	 * Calculates the entry distances of a ray into the four child boxes of a node.
+	 *
+	 * @param node    the node
+	 * @param ray     the ray data: the head and the inverse of the direction
+	 * @param entries output: the entry distance into each child box, or infinity
+	 *                if the ray misses it
+	 */
+	private void entries(int node, double[] ray, double[] entries) {
+		if (vectorized) {
+			VectorLanes.entries(minX, minY, minZ, maxX, maxY, maxZ, node * WIDTH, ray, entries);
+			return;
+		}
+		double ox = ray[0], oy = ray[1], oz = ray[2], invX = ray[3], invY = ray[4], invZ = ray[5];
+		int base = node * WIDTH;
+		for (int lane = 0; lane < WIDTH; ++lane) {
+			int i = base + lane;
+			double t1 = (minX[i] - ox) * invX;
+			double t2 = (maxX[i] - ox) * invX;
+			double near = Math.min(t1, t2);
+			double far = Math.max(t1, t2);
+			t1 = (minY[i] - oy) * invY;
+			t2 = (maxY[i] - oy) * invY;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+			t1 = (minZ[i] - oz) * invZ;
+			t2 = (maxZ[i] - oz) * invZ;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+			entries[lane] = near > far || far < 0 ? Double.POSITIVE_INFINITY : Math.max(near, 0);
+		}
+	}
+
+	/**
+	 * Calculates the distances along a ray to all the triangles of a leaf.
+	 *
+	 * @param batch     the triangles of the leaf
+	 * @param ray       the ray
+	 * @param data      the ray data
+	 * @param distances output: the distance to each triangle, or infinity if the
+	 *                  ray misses it
+	 */
+	private void intersect(TriangleBatch batch, Ray ray, double[] data, double[] distances) {
+		if (vectorized)
+			VectorLanes.intersect(batch.triangles.length, batch.v0, batch.e1, batch.e2, data, distances);
+		else
+			batch.intersect(ray, distances);
+	}
+
+	/**
+	 * Prepares the ray data for the box and triangle tests.
+	 *
+	 * @param ray the ray
+	 * @return the head, the inverse of the direction and the direction
+	 */
+	private static double[] rayData(Ray ray) {
+		Point head = ray.getHead();
+		Vector direction = ray.getDirection();
+		return new double[] { head.getX(), head.getY(), head.getZ(), 1 / direction.getX(), 1 / direction.getY(),
+				1 / direction.getZ(), direction.getX(), direction.getY(), direction.getZ() };
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+		return findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+		List<GeoPoint> intersections = unbounded.findGeoIntersections(ray, maxDistance, null);
+		if (triangleLeaves.length == 0)
+			return intersections;
+
+		double[] data = rayData(ray);
+		double[] entries = new double[WIDTH];
+		double[] distances = new double[LEAF_SIZE];
+		int[] stack = new int[STACK_SIZE];
+		int size = 0;
+		stack[size++] = root;
+		while (size > 0) {
+			int node = stack[--size];
+			if (node < 0) {
+				int leaf = ~node;
+				TriangleBatch batch = triangleLeaves[leaf];
+				intersect(batch, ray, data, distances);
+				for (int i = 0; i < batch.triangles.length; ++i)
+					if (distances[i] != Double.POSITIVE_INFINITY && alignZero(distances[i] - maxDistance) <= 0) {
+						GeoPoint gp = batch.geoPoint(i, ray, distances[i]);
+						if (gp != null) {
+							if (intersections == null)
+								intersections = new ArrayList<>();
+							intersections.add(gp);
+						}
+					}
+				intersections = otherLeaves[leaf].findGeoIntersections(ray, maxDistance, intersections);
+				continue;
+			}
+			entries(node, data, entries);
+			if (size + WIDTH > stack.length)
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			for (int lane = 0; lane < WIDTH; ++lane)
+				if (entries[lane] != Double.POSITIVE_INFINITY && entries[lane] <= maxDistance)
+					stack[size++] = children[node * WIDTH + lane];
+		}
+		return intersections;
+	}
+
+	/**
+	 * Finds the closest intersection point by traversing the hierarchy front to
+	 * back, skipping any child whose entry distance is beyond the closest
+	 * intersection found so far.
+	 */
+	@Override
+	public GeoPoint findClosestGeoIntersection(Ray ray) {
+		PrimitiveArrays.Hit hit = new PrimitiveArrays.Hit();
+		unbounded.findClosestGeoIntersection(ray, hit);
+		if (triangleLeaves.length == 0)
+			return hit.geoPoint;
+
+		double[] data = rayData(ray);
+		double[] entries = new double[WIDTH];
+		double[] distances = new double[LEAF_SIZE];
+		int[] stack = new int[STACK_SIZE];
+		double[] stackEntries = new double[STACK_SIZE];
+		int size = 0;
+		stack[size] = root;
+		stackEntries[size++] = 0;
+		while (size > 0) {
+			int node = stack[--size];
+			if (stackEntries[size] > hit.distance)
+				continue;
+			if (node < 0) {
+				int leaf = ~node;
+				TriangleBatch batch = triangleLeaves[leaf];
+				intersect(batch, ray, data, distances);
+				for (int i = 0; i < batch.triangles.length; ++i)
+					if (distances[i] < hit.distance) {
+						GeoPoint gp = batch.geoPoint(i, ray, distances[i]);
+						if (gp != null)
+							hit.set(gp, distances[i]);
+					}
+				otherLeaves[leaf].findClosestGeoIntersection(ray, hit);
+				continue;
+			}
+
+			entries(node, data, entries);
+			if (size + WIDTH > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+				stackEntries = Arrays.copyOf(stackEntries, stackEntries.length * 2);
+			}
+			// push the hit children from the farthest to the nearest (insertion sort)
+			int first = size;
+			for (int lane = 0; lane < WIDTH; ++lane) {
+				double entry = entries[lane];
+				if (entry == Double.POSITIVE_INFINITY || entry > hit.distance)
+					continue;
+				int child = children[node * WIDTH + lane];
+				int i = size++;
+				while (i > first && stackEntries[i - 1] < entry) {
+					stack[i] = stack[i - 1];
+					stackEntries[i] = stackEntries[i - 1];
+					--i;
+				}
+				stack[i] = child;
+				stackEntries[i] = entry;
+			}
+		}
+		return hit.geoPoint;
+	}
+}
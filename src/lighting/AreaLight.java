@@ -0,0 +1,83 @@
+package lighting;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import primitives.*;
+
+/**
+ * The AreaLight abstract class represents a light source with a surface. The
+ * direction, the distance and the attenuated intensity of the light are
+ * calculated from the center of its surface, as for a point light, while its
+ * shadows are soft - they are sampled over the surface, which is divided into a
+ * grid of strata with one jittered sample in each stratum.
+ */
+public abstract class AreaLight extends PointLight {
+
+	/** The size of the grid of strata (the grid is gridSize x gridSize). */
+	private int gridSize = 4;
+
+	/**
+	 * Constructs an AreaLight with the specified intensity and center.
+	 *
+	 * @param intensity The intensity (color) of the light.
+	 * @param position  The center of the surface of the light.
+	 */
+	protected AreaLight(Color intensity, Point position) {
+		super(intensity, position);
+	}
+
+	/**
+	 * {@inheritDoc} The shadow rays of an area light are aimed at its whole surface
+	 * rather than its center, hence no box is culled.
+	 */
+	@Override
+	public boolean canAffect(BoundingBox box) {
+		return true;
+	}
+
+	/**
+	 * Sets the size of the grid of strata the surface is sampled with - up to
+	 * gridSize x gridSize shadow rays are traced per shaded point.
+	 *
+	 * @param gridSize The size of the grid, at least 2.
+	 * @return The AreaLight object itself for method chaining.
+	 * @throws IllegalArgumentException if the grid size is less than 2.
+	 */
+	public AreaLight setGridSize(int gridSize) {
+		if (gridSize < 2)
+			throw new IllegalArgumentException("Grid size must be at least 2");
+		this.gridSize = gridSize;
+		return this;
+	}
+
+	/**
+	 * Returns the size of the grid of strata the surface is sampled with.
+	 *
+	 * @return The size of the grid.
+	 */
+	public int getGridSize() {
+		return gridSize;
+	}
+
+	/**
+	 * Returns a random sample point inside a stratum of the surface of the light.
+	 *
+	 * @param i The row of the stratum (0 to gridSize - 1).
+	 * @param j The column of the stratum (0 to gridSize - 1).
+	 * @return The sample point on the surface.
+	 */
+	public Point getSample(int i, int j) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return getSurfacePoint((i + random.nextDouble()) / gridSize, (j + random.nextDouble()) / gridSize);
+	}
+
+	/**
+	 * Maps a point of the unit square onto the surface of the light. The mapping
+	 * must keep the strata of the unit square compact on the surface.
+	 *
+	 * @param u The first coordinate in the unit square (0 to 1).
+	 * @param v The second coordinate in the unit square (0 to 1).
+	 * @return The point on the surface of the light.
+	 */
+	protected abstract Point getSurfacePoint(double u, double v);
+}
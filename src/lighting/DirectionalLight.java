@@ -47,6 +47,15 @@ public class DirectionalLight extends Light implements LightSource {
 		return direction;
 	}
 
+	/**
+	 * Returns the direction of the directional light.
+	 *
+	 * @return The direction of the light.
+	 */
+	public Vector getDirection() {
+		return direction;
+	}
+
 	@Override
 	public double getDistance(Point point) {
 		return Double.POSITIVE_INFINITY;
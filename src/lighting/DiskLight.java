@@ -0,0 +1,69 @@
+package lighting;
+
+import primitives.*;
+import static primitives.Util.*;
+
+/**
+ * The DiskLight class represents a disk shaped area light source, defined by
+ * its center, the normal of its plane and its radius.
+ */
+public class DiskLight extends AreaLight {
+
+	/** A unit vector in the plane of the disk. */
+	private final Vector u;
+
+	/** A unit vector in the plane of the disk, orthogonal to u. */
+	private final Vector v;
+
+	/** The radius of the disk. */
+	private final double radius;
+
+	/**
+	 * Constructs a DiskLight with the specified intensity, center, normal and
+	 * radius.
+	 *
+	 * @param intensity The intensity (color) of the light.
+	 * @param position  The center of the disk.
+	 * @param normal    The normal of the plane of the disk.
+	 * @param radius    The radius of the disk.
+	 */
+	public DiskLight(Color intensity, Point position, Vector normal, double radius) {
+		super(intensity, position);
+		Vector n = normal.normalize();
+		this.u = n.getOrto();
+		this.v = n.crossProduct(u).normalize();
+		this.radius = radius;
+	}
+
+	/**
+	 * Maps the unit square onto the disk by the concentric mapping, which keeps
+	 * the strata compact and of equal areas.
+	 */
+	@Override
+	protected Point getSurfacePoint(double s, double t) {
+		double a = 2 * s - 1;
+		double b = 2 * t - 1;
+		if (a == 0 && b == 0)
+			return position;
+
+		double r;
+		double phi;
+		if (Math.abs(a) > Math.abs(b)) {
+			r = a;
+			phi = Math.PI / 4 * (b / a);
+		} else {
+			r = b;
+			phi = Math.PI / 2 - Math.PI / 4 * (a / b);
+		}
+		r *= radius;
+		double x = r * Math.cos(phi);
+		double y = r * Math.sin(phi);
+
+		Point point = position;
+		if (!isZero(x))
+			point = point.add(u.scale(x));
+		if (!isZero(y))
+			point = point.add(v.scale(y));
+		return point;
+	}
+}
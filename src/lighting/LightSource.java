@@ -33,4 +33,43 @@ public interface LightSource {
 	 * @return The distance from the light source to the specified point.
 	 */
 	public double getDistance(Point point);
+
+	/**
+	 * Checks whether the point lies inside the influence volume of the light, out
+	 * of which the light is guaranteed to have no significant effect. The check is
+	 * conservative and cheap - it is meant to be done before any vector math or
+	 * shadow ray. The default implementation considers all the points affected.
+	 *
+	 * @param point The point to check.
+	 * @return false if the light has no significant effect on the point, true
+	 *         otherwise.
+	 */
+	public default boolean canAffect(Point point) {
+		return true;
+	}
+
+	/**
+	 * Checks whether the influence volume of the light intersects a box, i.e.
+	 * whether a geometry in the box may occlude the light from any point the light
+	 * can affect. The check is conservative. The default implementation considers
+	 * all the boxes affected.
+	 *
+	 * @param box The box to check.
+	 * @return false if no geometry in the box can shadow a point affected by the
+	 *         light, true otherwise.
+	 */
+	public default boolean canAffect(BoundingBox box) {
+		return true;
+	}
+
+	/**
+	 * Returns a copy of the light that later changes of this light don't affect,
+	 * for a compiled snapshot of a scene. The default implementation returns the
+	 * light itself, which suits lights that can't be changed.
+	 *
+	 * @return The copy of the light.
+	 */
+	public default LightSource copy() {
+		return this;
+	}
 }
@@ -0,0 +1,189 @@
+package lighting;
+
+import java.util.*;
+
+import primitives.*;
+
+/**
+ * A bounding volume hierarchy over the positions of the point lights (and spot
+ * lights) of a scene. Each node bounds the positions of its lights by an axis
+ * aligned box and their intensity by the sum of their maximal intensity
+ * components and their smallest attenuation factors, so that the contribution
+ * of a whole cluster of lights to a point can be bounded from above without
+ * visiting its lights. Lights without a position (e.g. directional lights) are
+ * kept aside and are always considered significant.
+ */
+public class LightTree {
+
+	/**
+	 * A node of the light tree - either a leaf holding a single light or an inner
+	 * node with two children.
+	 */
+	private static class Node {
+		/** Minimal x coordinate of the lights' positions */
+		private double minX = Double.POSITIVE_INFINITY;
+		/** Minimal y coordinate of the lights' positions */
+		private double minY = Double.POSITIVE_INFINITY;
+		/** Minimal z coordinate of the lights' positions */
+		private double minZ = Double.POSITIVE_INFINITY;
+		/** Maximal x coordinate of the lights' positions */
+		private double maxX = Double.NEGATIVE_INFINITY;
+		/** Maximal y coordinate of the lights' positions */
+		private double maxY = Double.NEGATIVE_INFINITY;
+		/** Maximal z coordinate of the lights' positions */
+		private double maxZ = Double.NEGATIVE_INFINITY;
+		/** Sum of the maximal intensity components of the lights */
+		private double intensity = 0;
+		/** Smallest constant attenuation factor of the lights */
+		private double kC = Double.POSITIVE_INFINITY;
+		/** Smallest linear attenuation factor of the lights */
+		private double kL = Double.POSITIVE_INFINITY;
+		/** Smallest quadratic attenuation factor of the lights */
+		private double kQ = Double.POSITIVE_INFINITY;
+		/** The light of a leaf, null for an inner node */
+		private PointLight light;
+		/** The first child of an inner node */
+		private Node left;
+		/** The second child of an inner node */
+		private Node right;
+
+		/**
+		 * Extends the bounds of the node by the bounds of another node.
+		 *
+		 * @param other the other node
+		 */
+		private void include(Node other) {
+			minX = Math.min(minX, other.minX);
+			minY = Math.min(minY, other.minY);
+			minZ = Math.min(minZ, other.minZ);
+			maxX = Math.max(maxX, other.maxX);
+			maxY = Math.max(maxY, other.maxY);
+			maxZ = Math.max(maxZ, other.maxZ);
+			intensity += other.intensity;
+			kC = Math.min(kC, other.kC);
+			kL = Math.min(kL, other.kL);
+			kQ = Math.min(kQ, other.kQ);
+		}
+
+		/**
+		 * Calculates an upper bound of the summarized intensity of the lights of the
+		 * node at a point.
+		 *
+		 * @param x x coordinate of the point
+		 * @param y y coordinate of the point
+		 * @param z z coordinate of the point
+		 * @return the intensity bound
+		 */
+		private double bound(double x, double y, double z) {
+			double dx = Math.max(0, Math.max(minX - x, x - maxX));
+			double dy = Math.max(0, Math.max(minY - y, y - maxY));
+			double dz = Math.max(0, Math.max(minZ - z, z - maxZ));
+			double d2 = dx * dx + dy * dy + dz * dz;
+			return intensity / (kC + kL * Math.sqrt(d2) + kQ * d2);
+		}
+	}
+
+	/** The lights without a position */
+	private final List<LightSource> unbounded = new ArrayList<>();
+
+	/** The root of the tree, null if there are no point lights */
+	private final Node root;
+
+	/**
+	 * Builds a light tree over the given lights.
+	 *
+	 * @param lights the lights of the scene
+	 */
+	public LightTree(List<LightSource> lights) {
+		List<Node> leaves = new ArrayList<>();
+		for (LightSource light : lights) {
+			if (light instanceof PointLight pl)
+				leaves.add(leaf(pl));
+			else
+				unbounded.add(light);
+		}
+		root = leaves.isEmpty() ? null : build(leaves);
+	}
+
+	/**
+	 * Creates a leaf node for a point light.
+	 *
+	 * @param light the light
+	 * @return the leaf node
+	 */
+	private static Node leaf(PointLight light) {
+		Node node = new Node();
+		Point p = light.getPosition();
+		node.minX = node.maxX = p.getX();
+		node.minY = node.maxY = p.getY();
+		node.minZ = node.maxZ = p.getZ();
+		node.intensity = light.getIntensity().maxComponent();
+		node.kC = light.kC;
+		node.kL = light.kL;
+		node.kQ = light.kQ;
+		node.light = light;
+		return node;
+	}
+
+	/**
+	 * Recursively builds a subtree by splitting the leaves at the median of the
+	 * longest axis of their bounds.
+	 *
+	 * @param leaves the leaves of the subtree
+	 * @return the root of the subtree
+	 */
+	private static Node build(List<Node> leaves) {
+		if (leaves.size() == 1)
+			return leaves.getFirst();
+
+		Node node = new Node();
+		for (Node leaf : leaves)
+			node.include(leaf);
+
+		double dx = node.maxX - node.minX;
+		double dy = node.maxY - node.minY;
+		double dz = node.maxZ - node.minZ;
+		Comparator<Node> axis = dx >= dy && dx >= dz ? Comparator.comparingDouble(n -> n.minX)
+				: dy >= dz ? Comparator.comparingDouble(n -> n.minY) : Comparator.comparingDouble(n -> n.minZ);
+		leaves.sort(axis);
+
+		int middle = leaves.size() / 2;
+		node.left = build(new ArrayList<>(leaves.subList(0, middle)));
+		node.right = build(new ArrayList<>(leaves.subList(middle, leaves.size())));
+		return node;
+	}
+
+	/**
+	 * Finds the lights whose contribution to a point may be significant. A
+	 * cluster of lights is skipped when the upper bound of its summarized intensity
+	 * at the point is below the given threshold.
+	 *
+	 * @param p         the point
+	 * @param threshold the smallest significant intensity
+	 * @return the lights that may contribute to the point
+	 */
+	public List<LightSource> getLights(Point p, double threshold) {
+		List<LightSource> result = new ArrayList<>(unbounded);
+		if (root == null)
+			return result;
+
+		double x = p.getX();
+		double y = p.getY();
+		double z = p.getZ();
+		Node[] stack = new Node[64];
+		int size = 0;
+		stack[size++] = root;
+		while (size > 0) {
+			Node node = stack[--size];
+			if (node.bound(x, y, z) < threshold)
+				continue;
+			if (node.light != null)
+				result.add(node.light);
+			else {
+				stack[size++] = node.right;
+				stack[size++] = node.left;
+			}
+		}
+		return result;
+	}
+}
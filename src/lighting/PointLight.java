@@ -7,19 +7,31 @@ import primitives.*;
  * light source has a specific position and its intensity diminishes with
  * distance according to the attenuation factors kC, kL, and kQ.
  */
-public class PointLight extends Light implements LightSource {
+public class PointLight extends Light implements LightSource, Cloneable {
 
 	/** The position of the point light. */
 	protected final Point position;
 
 	/** The constant attenuation factor. */
-	private double kC = 1;
+	protected double kC = 1;
 
 	/** The linear attenuation factor. */
-	private double kL = 0;
+	protected double kL = 0;
 
 	/** The quadratic attenuation factor. */
-	private double kQ = 0;
+	protected double kQ = 0;
+
+	/** The default intensity under which the light has no significant effect. */
+	public static final double DEFAULT_CUTOFF = 0.001;
+
+	/** The intensity under which the light has no significant effect. */
+	protected double cutoff = DEFAULT_CUTOFF;
+
+	/**
+	 * The squared radius of the sphere of effect of the light - out of it the
+	 * attenuated intensity of the light is below the cutoff.
+	 */
+	private double radiusSquared;
 
 	/**
 	 * Constructs a PointLight with the specified intensity and position.
@@ -30,6 +42,16 @@ public class PointLight extends Light implements LightSource {
 	public PointLight(Color intensity, Point position) {
 		super(intensity);
 		this.position = position;
+		updateRadius();
+	}
+
+	/**
+	 * Returns the position of the point light.
+	 *
+	 * @return The position of the point light.
+	 */
+	public Point getPosition() {
+		return position;
 	}
 
 	/**
@@ -40,6 +62,7 @@ public class PointLight extends Light implements LightSource {
 	 */
 	public PointLight setKC(double kC) {
 		this.kC = kC;
+		updateInfluence();
 		return this;
 	}
 
@@ -51,6 +74,7 @@ public class PointLight extends Light implements LightSource {
 	 */
 	public PointLight setKL(double kL) {
 		this.kL = kL;
+		updateInfluence();
 		return this;
 	}
 
@@ -62,9 +86,98 @@ public class PointLight extends Light implements LightSource {
 	 */
 	public PointLight setKQ(double kQ) {
 		this.kQ = kQ;
+		updateInfluence();
+		return this;
+	}
+
+	/**
+	 * Sets the intensity under which the light is considered to have no
+	 * significant effect. It determines the radius of the sphere of effect of the
+	 * light.
+	 *
+	 * @param cutoff The cutoff intensity.
+	 * @return The PointLight object itself for method chaining.
+	 */
+	public PointLight setCutoff(double cutoff) {
+		this.cutoff = cutoff;
+		updateInfluence();
 		return this;
 	}
 
+	/**
+	 * Returns the cutoff intensity of the light.
+	 *
+	 * @return The cutoff intensity.
+	 */
+	public double getCutoff() {
+		return cutoff;
+	}
+
+	/**
+	 * Returns the radius of the sphere of effect of the light, out of which the
+	 * attenuated intensity of the light is below the cutoff.
+	 *
+	 * @return The radius of the sphere of effect, or infinity if the intensity of
+	 *         the light never drops below the cutoff.
+	 */
+	public double getInfluenceRadius() {
+		return Math.sqrt(radiusSquared);
+	}
+
+	/**
+	 * Recalculates the influence volume of the light after its attenuation factors
+	 * or cutoff have changed.
+	 */
+	protected void updateInfluence() {
+		updateRadius();
+	}
+
+	/**
+	 * Recalculates the radius of the sphere of effect of the light.
+	 */
+	private void updateRadius() {
+		// the distance d where kC + kL*d + kQ*d^2 = maxIntensity / cutoff
+		double a = intensity.maxComponent() / cutoff - kC;
+		double radius;
+		if (a <= 0)
+			radius = 0;
+		else if (kQ > 0)
+			radius = (Math.sqrt(kL * kL + 4 * kQ * a) - kL) / (2 * kQ);
+		else if (kL > 0)
+			radius = a / kL;
+		else
+			radius = Double.POSITIVE_INFINITY;
+		radiusSquared = radius * radius;
+	}
+
+	@Override
+	public boolean canAffect(Point point) {
+		return position.distanceSquared(point) <= radiusSquared;
+	}
+
+	/**
+	 * {@inheritDoc} The copy is of the same class, with the same attenuation
+	 * factors, cutoff and every setting of the subclass.
+	 */
+	@Override
+	public PointLight copy() {
+		try {
+			return (PointLight) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError();
+		}
+	}
+
+	/**
+	 * {@inheritDoc} The segment between an affected point and the light lies in the
+	 * sphere of effect, hence only boxes intersecting the sphere may hold
+	 * occluders.
+	 */
+	@Override
+	public boolean canAffect(BoundingBox box) {
+		return box.distanceSquared(position) <= radiusSquared;
+	}
+
 	/**
 	 * Calculates the intensity (color) of the light at the specified point.
 	 *
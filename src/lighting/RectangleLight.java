@@ -0,0 +1,42 @@
+package lighting;
+
+import primitives.*;
+import static primitives.Util.*;
+
+/**
+ * The RectangleLight class represents a rectangular area light source. The
+ * rectangle is defined by its center and by two edge vectors whose lengths are
+ * the sizes of the rectangle.
+ */
+public class RectangleLight extends AreaLight {
+
+	/** The first edge of the rectangle. */
+	private final Vector width;
+
+	/** The second edge of the rectangle. */
+	private final Vector height;
+
+	/**
+	 * Constructs a RectangleLight with the specified intensity, center and edges.
+	 *
+	 * @param intensity The intensity (color) of the light.
+	 * @param position  The center of the rectangle.
+	 * @param width     The first edge of the rectangle.
+	 * @param height    The second edge of the rectangle.
+	 */
+	public RectangleLight(Color intensity, Point position, Vector width, Vector height) {
+		super(intensity, position);
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	protected Point getSurfacePoint(double u, double v) {
+		Point point = position;
+		if (!isZero(u - 0.5))
+			point = point.add(width.scale(u - 0.5));
+		if (!isZero(v - 0.5))
+			point = point.add(height.scale(v - 0.5));
+		return point;
+	}
+}
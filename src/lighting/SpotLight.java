@@ -16,6 +16,12 @@ public class SpotLight extends PointLight {
 	/** The narrow beam factor of the spot light. Default is 1. */
 	private double narrowBeam = 1;
 
+	/**
+	 * The squared cosine of the half angle of the bounding cone of the light - out
+	 * of it the intensity of the light is below the cutoff.
+	 */
+	private double cosSquared = 0;
+
 	/**
 	 * Constructs a SpotLight with the specified intensity, position, and direction.
 	 *
@@ -26,6 +32,26 @@ public class SpotLight extends PointLight {
 	public SpotLight(Color intensity, Vector direction, Point position) {
 		super(intensity, position);
 		this.direction = direction.normalize();
+		updateCone();
+	}
+
+	/**
+	 * Returns the direction of the spot light.
+	 *
+	 * @return The direction of the spot light.
+	 */
+	public Vector getDirection() {
+		return direction;
+	}
+
+	/**
+	 * Returns the cosine of the half angle of the bounding cone of the light, out
+	 * of which the intensity of the light is below the cutoff.
+	 *
+	 * @return The cosine of the half angle of the cone (0 for a half space).
+	 */
+	public double getConeCosine() {
+		return Math.sqrt(cosSquared);
 	}
 
 	/**
@@ -81,6 +107,58 @@ public class SpotLight extends PointLight {
 	 */
 	public SpotLight setNarrowBeam(double narrowBeam) {
 		this.narrowBeam = narrowBeam;
+		updateInfluence();
 		return this;
 	}
+
+	@Override
+	public SpotLight setCutoff(double cutoff) {
+		return (SpotLight) super.setCutoff(cutoff);
+	}
+
+	@Override
+	protected void updateInfluence() {
+		super.updateInfluence();
+		updateCone();
+	}
+
+	/**
+	 * Recalculates the bounding cone of the light.
+	 */
+	private void updateCone() {
+		// the attenuation is at least kC, hence out of the cone where
+		// cos^narrowBeam * maxIntensity / kC < cutoff there is no significant effect
+		double cos = narrowBeam <= 0 ? 0
+				: Math.pow(cutoff * kC / intensity.maxComponent(), 1 / narrowBeam);
+		cosSquared = Math.min(1, cos * cos);
+	}
+
+	@Override
+	public boolean canAffect(Point point) {
+		if (!super.canAffect(point))
+			return false;
+		double dx = point.getX() - position.getX();
+		double dy = point.getY() - position.getY();
+		double dz = point.getZ() - position.getZ();
+		double dot = direction.getX() * dx + direction.getY() * dy + direction.getZ() * dz;
+		return dot > 0 && dot * dot >= cosSquared * (dx * dx + dy * dy + dz * dz);
+	}
+
+	/**
+	 * {@inheritDoc} The segment between an affected point and the light lies in the
+	 * bounding cone as well, hence the bounding sphere of the box must also
+	 * intersect the cone.
+	 */
+	@Override
+	public boolean canAffect(BoundingBox box) {
+		if (!super.canAffect(box))
+			return false;
+		Point center = box.getCenter();
+		double r = box.getDiagonal() / 2;
+		double distance = position.distance(center);
+		if (distance <= r)
+			return true;
+		double cos = direction.dotProduct(center.subtract(position)) / distance;
+		return Math.acos(Math.clamp(cos, -1, 1)) <= Math.acos(getConeCosine()) + Math.asin(r / distance);
+	}
 }
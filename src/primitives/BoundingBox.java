@@ -0,0 +1,122 @@
+package primitives;
+
+/**
+ * Represents an axis aligned bounding box in three-dimensional space. The box
+ * is immutable; its bounds are exposed as fields for fast access by the
+ * acceleration structures.
+ */
+public class BoundingBox {
+	/** The minimal x coordinate of the box */
+	public final double minX;
+	/** The minimal y coordinate of the box */
+	public final double minY;
+	/** The minimal z coordinate of the box */
+	public final double minZ;
+	/** The maximal x coordinate of the box */
+	public final double maxX;
+	/** The maximal y coordinate of the box */
+	public final double maxY;
+	/** The maximal z coordinate of the box */
+	public final double maxZ;
+
+	/**
+	 * Constructs a bounding box from its bounds.
+	 *
+	 * @param minX the minimal x coordinate
+	 * @param minY the minimal y coordinate
+	 * @param minZ the minimal z coordinate
+	 * @param maxX the maximal x coordinate
+	 * @param maxY the maximal y coordinate
+	 * @param maxZ the maximal z coordinate
+	 */
+	public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+	}
+
+	/**
+	 * Constructs the smallest bounding box containing all the given points.
+	 *
+	 * @param points the points, at least one
+	 * @return the bounding box of the points
+	 */
+	public static BoundingBox of(Point... points) {
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		for (Point p : points) {
+			minX = Math.min(minX, p.xyz.d1);
+			minY = Math.min(minY, p.xyz.d2);
+			minZ = Math.min(minZ, p.xyz.d3);
+			maxX = Math.max(maxX, p.xyz.d1);
+			maxY = Math.max(maxY, p.xyz.d2);
+			maxZ = Math.max(maxZ, p.xyz.d3);
+		}
+		return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Constructs the smallest bounding box containing this box and another one.
+	 *
+	 * @param other the other box, may be null
+	 * @return the union of the boxes
+	 */
+	public BoundingBox union(BoundingBox other) {
+		return other == null ? this
+				: new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+						Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+	}
+
+	/**
+	 * Calculates the squared distance from a point to the box.
+	 *
+	 * @param p the point
+	 * @return the squared distance, 0 if the point is inside the box
+	 */
+	public double distanceSquared(Point p) {
+		double dx = Math.max(0, Math.max(minX - p.xyz.d1, p.xyz.d1 - maxX));
+		double dy = Math.max(0, Math.max(minY - p.xyz.d2, p.xyz.d2 - maxY));
+		double dz = Math.max(0, Math.max(minZ - p.xyz.d3, p.xyz.d3 - maxZ));
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Returns the center of the box.
+	 *
+	 * @return the center point
+	 */
+	public Point getCenter() {
+		return new Point((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2);
+	}
+
+	/**
+	 * Returns the length of the diagonal of the box.
+	 *
+	 * @return the length of the diagonal
+	 */
+	public double getDiagonal() {
+		double dx = maxX - minX;
+		double dy = maxY - minY;
+		double dz = maxZ - minZ;
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	/**
+	 * Returns the eight corners of the box.
+	 *
+	 * @return the corners of the box
+	 */
+	public Point[] getCorners() {
+		return new Point[] { new Point(minX, minY, minZ), new Point(minX, minY, maxZ), new Point(minX, maxY, minZ),
+				new Point(minX, maxY, maxZ), new Point(maxX, minY, minZ), new Point(maxX, minY, maxZ),
+				new Point(maxX, maxY, minZ), new Point(maxX, maxY, maxZ) };
+	}
+
+	@Override
+	public String toString() {
+		return "[" + minX + "," + minY + "," + minZ + " : " + maxX + "," + maxY + "," + maxZ + "]";
+	}
+}
@@ -130,6 +130,15 @@ public class Color {
 		return new Color(rgb.reduce(k));
 	}
 
+	/**
+	 * Returns the largest of the RGB components of the color
+	 * 
+	 * @return the maximal component
+	 */
+	public double maxComponent() {
+		return rgb.max();
+	}
+
 	@Override
 	public String toString() {
 		return "rgb:" + rgb;
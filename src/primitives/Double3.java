@@ -10,7 +10,7 @@ import static primitives.Util.isZero;
  * 
  * @author Dan Zilberstein
  */
-public class Double3 {
+public final class Double3 {
 	/** First number */
 	final double d1;
 	/** Second number */
@@ -166,4 +166,13 @@ public class Double3 {
 		return d1 > other.d1 || d2 > other.d2 || d3 > other.d3;
 	}
 
+	/**
+	 * Returns the largest of the three numbers
+	 * 
+	 * @return the maximal number
+	 */
+	public double max() {
+		return Math.max(d1, Math.max(d2, d3));
+	}
+
 }
@@ -1,5 +1,7 @@
 package primitives;
 
+import java.util.Objects;
+
 /**
  * The Material class represents the material properties of a geometric object.
  * It includes properties such as diffuse reflection, specular reflection,
@@ -120,4 +122,17 @@ public class Material {
 		this.shininess = shininess;
 		return this;
 	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		return obj instanceof Material other && shininess == other.shininess && kD.equals(other.kD)
+				&& kS.equals(other.kS) && kT.equals(other.kT) && kR.equals(other.kR);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(kD, kS, kT, kR, shininess);
+	}
 }
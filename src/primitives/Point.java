@@ -30,6 +30,33 @@ public class Point {
 		this.xyz = xyz;
 	}
 
+	/**
+	 * Gets the x-coordinate of this point.
+	 *
+	 * @return The x-coordinate of this point.
+	 */
+	public double getX() {
+		return xyz.d1;
+	}
+
+	/**
+	 * Gets the y-coordinate of this point.
+	 *
+	 * @return The y-coordinate of this point.
+	 */
+	public double getY() {
+		return xyz.d2;
+	}
+
+	/**
+	 * Gets the z-coordinate of this point.
+	 *
+	 * @return The z-coordinate of this point.
+	 */
+	public double getZ() {
+		return xyz.d3;
+	}
+
 	/**
 	 * Checks if this point is equal to another object.
 	 *
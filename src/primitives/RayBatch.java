@@ -0,0 +1,175 @@
+package primitives;
+
+import java.util.Arrays;
+
+/**
+ * A batch of rays and of their closest intersections, stored as arrays of
+ * coordinates so that geometries can intersect thousands of rays in one call
+ * without creating an object per ray. <br/>
+ * The directions are kept normalized, so the distance of an intersection is
+ * its distance from the ray head. Each ray starts with no intersection (an
+ * infinite distance and the index -1); intersecting the batch with a geometry
+ * replaces the result of a ray only by a closer intersection.
+ */
+public class RayBatch {
+	/** The amount of rays in the batch */
+	public final int size;
+
+	/** The x coordinates of the ray heads */
+	public final double[] originX;
+	/** The y coordinates of the ray heads */
+	public final double[] originY;
+	/** The z coordinates of the ray heads */
+	public final double[] originZ;
+	/** The x coordinates of the (normalized) ray directions */
+	public final double[] directionX;
+	/** The y coordinates of the (normalized) ray directions */
+	public final double[] directionY;
+	/** The z coordinates of the (normalized) ray directions */
+	public final double[] directionZ;
+
+	/** The distance to the closest intersection of each ray */
+	public final double[] distance;
+	/** The index of the primitive of the closest intersection of each ray */
+	public final int[] primitive;
+	/** The x coordinates of the normals at the closest intersections */
+	public final double[] normalX;
+	/** The y coordinates of the normals at the closest intersections */
+	public final double[] normalY;
+	/** The z coordinates of the normals at the closest intersections */
+	public final double[] normalZ;
+
+	/**
+	 * Constructs a batch of rays, all of them with their head at the origin and
+	 * no direction. The rays are set by {@link #setRay(int, Point, Vector)}.
+	 *
+	 * @param size the amount of rays
+	 */
+	public RayBatch(int size) {
+		if (size < 0)
+			throw new IllegalArgumentException("The size of a ray batch can't be negative");
+		this.size = size;
+		originX = new double[size];
+		originY = new double[size];
+		originZ = new double[size];
+		directionX = new double[size];
+		directionY = new double[size];
+		directionZ = new double[size];
+		distance = new double[size];
+		primitive = new int[size];
+		normalX = new double[size];
+		normalY = new double[size];
+		normalZ = new double[size];
+		reset();
+	}
+
+	/**
+	 * Constructs a batch of the given rays.
+	 *
+	 * @param rays the rays
+	 */
+	public RayBatch(Ray... rays) {
+		this(rays.length);
+		for (int i = 0; i < size; ++i)
+			setRay(i, rays[i].getHead(), rays[i].getDirection());
+	}
+
+	/**
+	 * Sets a ray of the batch. The direction is normalized.
+	 *
+	 * @param ray       the index of the ray
+	 * @param head      the head of the ray
+	 * @param direction the direction of the ray
+	 * @return the batch itself
+	 */
+	public RayBatch setRay(int ray, Point head, Vector direction) {
+		double length = direction.length();
+		originX[ray] = head.getX();
+		originY[ray] = head.getY();
+		originZ[ray] = head.getZ();
+		directionX[ray] = direction.getX() / length;
+		directionY[ray] = direction.getY() / length;
+		directionZ[ray] = direction.getZ() / length;
+		return this;
+	}
+
+	/**
+	 * Clears the intersections of all the rays, so that the batch can be
+	 * intersected again.
+	 *
+	 * @return the batch itself
+	 */
+	public final RayBatch reset() {
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		Arrays.fill(primitive, -1);
+		return this;
+	}
+
+	/**
+	 * Records an intersection of a ray if it is closer than the closest
+	 * intersection found so far.
+	 *
+	 * @param ray       the index of the ray
+	 * @param t         the distance of the intersection from the ray head
+	 * @param primitive the index of the intersected primitive
+	 * @param nx        the x coordinate of the normal at the intersection
+	 * @param ny        the y coordinate of the normal at the intersection
+	 * @param nz        the z coordinate of the normal at the intersection
+	 * @return true if the intersection was recorded, false otherwise
+	 */
+	public boolean record(int ray, double t, int primitive, double nx, double ny, double nz) {
+		if (t >= distance[ray])
+			return false;
+		distance[ray] = t;
+		this.primitive[ray] = primitive;
+		normalX[ray] = nx;
+		normalY[ray] = ny;
+		normalZ[ray] = nz;
+		return true;
+	}
+
+	/**
+	 * Checks whether a ray has an intersection.
+	 *
+	 * @param ray the index of the ray
+	 * @return true if an intersection was recorded for the ray
+	 */
+	public boolean isHit(int ray) {
+		return primitive[ray] >= 0;
+	}
+
+	/**
+	 * Constructs a ray of the batch as a ray object.
+	 *
+	 * @param ray the index of the ray
+	 * @return the ray
+	 */
+	public Ray getRay(int ray) {
+		return new Ray(new Point(originX[ray], originY[ray], originZ[ray]),
+				new Vector(directionX[ray], directionY[ray], directionZ[ray]));
+	}
+
+	/**
+	 * Calculates the closest intersection point of a ray.
+	 *
+	 * @param ray the index of the ray
+	 * @return the point, or null if the ray has no intersection
+	 */
+	public Point getPoint(int ray) {
+		if (!isHit(ray))
+			return null;
+		double t = distance[ray];
+		return new Point(originX[ray] + t * directionX[ray], originY[ray] + t * directionY[ray],
+				originZ[ray] + t * directionZ[ray]);
+	}
+
+	/**
+	 * Returns the normal at the closest intersection point of a ray.
+	 *
+	 * @param ray the index of the ray
+	 * @return the normal, or null if the ray has no intersection
+	 */
+	public Vector getNormal(int ray) {
+		return isHit(ray) ? new Vector(normalX[ray], normalY[ray], normalZ[ray]) : null;
+	}
+}
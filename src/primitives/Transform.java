@@ -0,0 +1,228 @@
+package primitives;
+
+import static primitives.Util.*;
+
+/**
+ * An immutable affine transform of the three-dimensional space: a linear map
+ * followed by a translation. Transforms are created by the factory methods and
+ * combined by {@link #then(Transform)}.
+ */
+public final class Transform {
+	/** The transform that maps every point to itself */
+	public static final Transform IDENTITY = new Transform(1, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0);
+
+	/** The rows of the matrix of the linear map */
+	private final double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+	/** The translation */
+	private final double tx, ty, tz;
+
+	/**
+	 * Constructs a transform from its matrix and translation.
+	 *
+	 * @param m00 the matrix entry at row 0, column 0
+	 * @param m01 the matrix entry at row 0, column 1
+	 * @param m02 the matrix entry at row 0, column 2
+	 * @param m10 the matrix entry at row 1, column 0
+	 * @param m11 the matrix entry at row 1, column 1
+	 * @param m12 the matrix entry at row 1, column 2
+	 * @param m20 the matrix entry at row 2, column 0
+	 * @param m21 the matrix entry at row 2, column 1
+	 * @param m22 the matrix entry at row 2, column 2
+	 * @param tx  the x coordinate of the translation
+	 * @param ty  the y coordinate of the translation
+	 * @param tz  the z coordinate of the translation
+	 */
+	private Transform(double m00, double m01, double m02, double m10, double m11, double m12, double m20,
+			double m21, double m22, double tx, double ty, double tz) {
+		this.m00 = m00;
+		this.m01 = m01;
+		this.m02 = m02;
+		this.m10 = m10;
+		this.m11 = m11;
+		this.m12 = m12;
+		this.m20 = m20;
+		this.m21 = m21;
+		this.m22 = m22;
+		this.tx = tx;
+		this.ty = ty;
+		this.tz = tz;
+	}
+
+	/**
+	 * Creates a translation.
+	 *
+	 * @param offset the offset of every point
+	 * @return the transform
+	 */
+	public static Transform translation(Vector offset) {
+		return new Transform(1, 0, 0, 0, 1, 0, 0, 0, 1, offset.getX(), offset.getY(), offset.getZ());
+	}
+
+	/**
+	 * Creates a uniform scaling about the origin.
+	 *
+	 * @param factor the scale factor
+	 * @return the transform
+	 * @throws IllegalArgumentException if the factor is zero
+	 */
+	public static Transform scaling(double factor) {
+		return scaling(factor, factor, factor);
+	}
+
+	/**
+	 * Creates a scaling about the origin along the axes.
+	 *
+	 * @param sx the scale factor along the x axis
+	 * @param sy the scale factor along the y axis
+	 * @param sz the scale factor along the z axis
+	 * @return the transform
+	 * @throws IllegalArgumentException if any of the factors is zero
+	 */
+	public static Transform scaling(double sx, double sy, double sz) {
+		if (isZero(sx) || isZero(sy) || isZero(sz))
+			throw new IllegalArgumentException("A scale factor can't be zero");
+		return new Transform(sx, 0, 0, 0, sy, 0, 0, 0, sz, 0, 0, 0);
+	}
+
+	/**
+	 * Creates a rotation about an axis through the origin. A positive angle turns
+	 * counterclockwise when looking against the direction of the axis.
+	 *
+	 * @param axis  the direction of the axis
+	 * @param angle the angle of the rotation in degrees
+	 * @return the transform
+	 */
+	public static Transform rotation(Vector axis, double angle) {
+		Vector u = axis.normalize();
+		double x = u.getX(), y = u.getY(), z = u.getZ();
+		double radians = Math.toRadians(angle);
+		double cos = Math.cos(radians), sin = Math.sin(radians), c = 1 - cos;
+		return new Transform(cos + x * x * c, x * y * c - z * sin, x * z * c + y * sin, //
+				y * x * c + z * sin, cos + y * y * c, y * z * c - x * sin, //
+				z * x * c - y * sin, z * y * c + x * sin, cos + z * z * c, //
+				0, 0, 0);
+	}
+
+	/**
+	 * Combines the transform with a following one.
+	 *
+	 * @param next the transform to apply after this one
+	 * @return the transform that applies this transform and then the next one
+	 */
+	public Transform then(Transform next) {
+		return new Transform( //
+				next.m00 * m00 + next.m01 * m10 + next.m02 * m20, //
+				next.m00 * m01 + next.m01 * m11 + next.m02 * m21, //
+				next.m00 * m02 + next.m01 * m12 + next.m02 * m22, //
+				next.m10 * m00 + next.m11 * m10 + next.m12 * m20, //
+				next.m10 * m01 + next.m11 * m11 + next.m12 * m21, //
+				next.m10 * m02 + next.m11 * m12 + next.m12 * m22, //
+				next.m20 * m00 + next.m21 * m10 + next.m22 * m20, //
+				next.m20 * m01 + next.m21 * m11 + next.m22 * m21, //
+				next.m20 * m02 + next.m21 * m12 + next.m22 * m22, //
+				next.m00 * tx + next.m01 * ty + next.m02 * tz + next.tx, //
+				next.m10 * tx + next.m11 * ty + next.m12 * tz + next.ty, //
+				next.m20 * tx + next.m21 * ty + next.m22 * tz + next.tz);
+	}
+
+	/**
+	 * Calculates the inverse transform.
+	 *
+	 * @return the transform that undoes this one
+	 * @throws IllegalStateException if the transform is singular
+	 */
+	public Transform inverse() {
+		double c00 = m11 * m22 - m12 * m21, c01 = m02 * m21 - m01 * m22, c02 = m01 * m12 - m02 * m11;
+		double c10 = m12 * m20 - m10 * m22, c11 = m00 * m22 - m02 * m20, c12 = m02 * m10 - m00 * m12;
+		double c20 = m10 * m21 - m11 * m20, c21 = m01 * m20 - m00 * m21, c22 = m00 * m11 - m01 * m10;
+		double determinant = m00 * c00 + m01 * c10 + m02 * c20;
+		if (isZero(determinant))
+			throw new IllegalStateException("A singular transform has no inverse");
+		double f = 1 / determinant;
+		double i00 = c00 * f, i01 = c01 * f, i02 = c02 * f;
+		double i10 = c10 * f, i11 = c11 * f, i12 = c12 * f;
+		double i20 = c20 * f, i21 = c21 * f, i22 = c22 * f;
+		return new Transform(i00, i01, i02, i10, i11, i12, i20, i21, i22, //
+				-(i00 * tx + i01 * ty + i02 * tz), -(i10 * tx + i11 * ty + i12 * tz), -(i20 * tx + i21 * ty + i22 * tz));
+	}
+
+	/**
+	 * Transforms a point.
+	 *
+	 * @param point the point
+	 * @return the transformed point
+	 */
+	public Point apply(Point point) {
+		double x = point.getX(), y = point.getY(), z = point.getZ();
+		return new Point(m00 * x + m01 * y + m02 * z + tx, m10 * x + m11 * y + m12 * z + ty,
+				m20 * x + m21 * y + m22 * z + tz);
+	}
+
+	/**
+	 * Transforms a direction by the linear part of the transform, without the
+	 * translation.
+	 *
+	 * @param vector the direction
+	 * @return the transformed direction, not normalized
+	 */
+	public Vector applyToVector(Vector vector) {
+		double x = vector.getX(), y = vector.getY(), z = vector.getZ();
+		return new Vector(m00 * x + m01 * y + m02 * z, m10 * x + m11 * y + m12 * z, m20 * x + m21 * y + m22 * z);
+	}
+
+	/**
+	 * Transforms a normal of a surface, so that it stays orthogonal to the
+	 * transformed surface.
+	 *
+	 * @param normal the normal
+	 * @return the transformed normal, normalized
+	 */
+	public Vector applyToNormal(Vector normal) {
+		double x = normal.getX(), y = normal.getY(), z = normal.getZ();
+		// the inverse transpose of the matrix is its cofactor matrix divided by the
+		// determinant, which does not change the direction up to its sign
+		double c00 = m11 * m22 - m12 * m21, c01 = m12 * m20 - m10 * m22, c02 = m10 * m21 - m11 * m20;
+		double c10 = m02 * m21 - m01 * m22, c11 = m00 * m22 - m02 * m20, c12 = m01 * m20 - m00 * m21;
+		double c20 = m01 * m12 - m02 * m11, c21 = m02 * m10 - m00 * m12, c22 = m00 * m11 - m01 * m10;
+		double determinant = m00 * c00 + m01 * c01 + m02 * c02;
+		Vector result = new Vector(c00 * x + c01 * y + c02 * z, c10 * x + c11 * y + c12 * z,
+				c20 * x + c21 * y + c22 * z).normalize();
+		return determinant < 0 ? result.scale(-1) : result;
+	}
+
+	/**
+	 * Checks whether the transform scales all the directions equally, so that it
+	 * maps spheres to spheres.
+	 *
+	 * @return true if the linear part is a rotation or reflection times a uniform
+	 *         scale
+	 */
+	public boolean isUniform() {
+		double xx = m00 * m00 + m10 * m10 + m20 * m20;
+		double yy = m01 * m01 + m11 * m11 + m21 * m21;
+		double zz = m02 * m02 + m12 * m12 + m22 * m22;
+		double xy = m00 * m01 + m10 * m11 + m20 * m21;
+		double xz = m00 * m02 + m10 * m12 + m20 * m22;
+		double yz = m01 * m02 + m11 * m12 + m21 * m22;
+		return isZero((xx - yy) / xx) && isZero((xx - zz) / xx) && isZero(xy / xx) && isZero(xz / xx)
+				&& isZero(yz / xx);
+	}
+
+	/**
+	 * Returns the scale factor of a uniform transform.
+	 *
+	 * @return the factor by which the transform scales every length
+	 * @throws IllegalStateException if the transform is not uniform
+	 */
+	public double getScale() {
+		if (!isUniform())
+			throw new IllegalStateException("The transform does not scale uniformly");
+		return Math.sqrt(m00 * m00 + m10 * m10 + m20 * m20);
+	}
+
+	@Override
+	public String toString() {
+		return "[" + m00 + " " + m01 + " " + m02 + " | " + tx + "; " + m10 + " " + m11 + " " + m12 + " | " + ty + "; "
+				+ m20 + " " + m21 + " " + m22 + " | " + tz + "]";
+	}
+}
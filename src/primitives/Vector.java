@@ -6,7 +6,7 @@ import static primitives.Util.isZero;
  * Represents a vector in three-dimensional space.
  * This class extends the Point class to provide additional vector operations.
  */
-public class Vector extends Point {
+public final class Vector extends Point {
 
     /**
      * Constructs a new vector with the specified coordinates.
@@ -119,15 +119,6 @@ public class Vector extends Point {
                           xyz.d1 * v.xyz.d2 - xyz.d2 * v.xyz.d1);
     }
 
-    /**
-     * Gets the x-coordinate of this vector.
-     *
-     * @return The x-coordinate of this vector.
-     */
-    public double getX() {
-        return this.xyz.d1;
-    }
-    
     /**
      * Gets an orthogonal vector to this vector.
      * The orthogonal vector is chosen such that it is perpendicular to the current vector.
@@ -144,24 +135,6 @@ public class Vector extends Point {
         return null;
     }
 
-    /**
-     * Gets the y-coordinate of this vector.
-     *
-     * @return The y-coordinate of this vector.
-     */
-    public double getY() {
-        return this.xyz.d2;
-    }
-
-    /**
-     * Gets the z-coordinate of this vector.
-     *
-     * @return The z-coordinate of this vector.
-     */
-    public double getZ() {
-        return this.xyz.d3;
-    }
-
     /**
      * Normalizes this vector, returning a new vector with length 1.
      *
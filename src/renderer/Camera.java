@@ -2,9 +2,14 @@ package renderer;
 
 import primitives.*;
 import primitives.Vector;
+import scene.CompiledScene;
+import geometries.AccelerationStructure;
+import geometries.Intersectable;
+import geometries.Intersectable.GeoPoint;
 import static primitives.Util.*;
 //import renderer.PixelManager;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Camera class represents a camera in a 3D scene. The camera is characterized
@@ -61,6 +66,12 @@ public class Camera implements Cloneable {
 	 * The ray tracer responsible for tracing rays and computing colors.
 	 */
 	private RayTracerBase rayTracer;
+
+	/**
+	 * The acceleration structure to compile the scene into, or null to keep the
+	 * choice of the ray tracer, which is automatic unless set on the ray tracer.
+	 */
+	private AccelerationStructure acceleration = null;
 	/**
 	 * The pixel manager
 	 */
@@ -77,12 +88,107 @@ public class Camera implements Cloneable {
 	 * The number or rays for rendering.
 	 */
     private int numberOfRays = 0;
+    /**
+	 * Whether to trace the primary rays in packets of neighbouring pixels.
+	 */
+    private boolean packetTracing = false;
+    /**
+	 * Whether to find the primary visibility by rasterization.
+	 */
+    private boolean rasterization = false;
+    /**
+	 * The rasterized primary visibility of the current render, or null.
+	 */
+    private HitBuffer hitBuffer;
+    /**
+	 * Whether to cache the primary samples in a geometry buffer for relighting.
+	 */
+    private boolean gBufferCaching = false;
+    /**
+	 * The cached primary samples, or null before the first render.
+	 */
+    private volatile GBuffer gBuffer;
+    /**
+	 * The pixel offsets of the last resolution rendered, created on demand.
+	 */
+    private volatile ViewPlaneTable viewPlaneTable;
 
 	/**
 	 * Depth of Field settings.
 	 */
 	public DOF dof = new DOF();
 
+	/**
+	 * The pixel centers of the view plane for one resolution, stored as the
+	 * center of the view plane with one offset along vRight per column and one
+	 * offset along vUp per row. A pixel center is then found by two additions per
+	 * coordinate, without creating any vector.
+	 */
+	private static final class ViewPlaneTable {
+		/** The number of columns */
+		final int nX;
+		/** The number of rows */
+		final int nY;
+		/** The center of the view plane */
+		final Point center;
+		/** The coordinates of the center of the view plane */
+		final double centerX, centerY, centerZ;
+		/** The offsets of the columns along vRight */
+		final double[] columnX, columnY, columnZ;
+		/** The offsets of the rows along vUp */
+		final double[] rowX, rowY, rowZ;
+
+		/**
+		 * Creates the table of a camera for a resolution.
+		 *
+		 * @param camera the camera
+		 * @param nX     the number of columns
+		 * @param nY     the number of rows
+		 */
+		ViewPlaneTable(Camera camera, int nX, int nY) {
+			this.nX = nX;
+			this.nY = nY;
+			center = camera.p0.add(camera.vTo.scale(camera.distanceFromCamera));
+			centerX = center.getX();
+			centerY = center.getY();
+			centerZ = center.getZ();
+
+			double rX = camera.width / nX;
+			columnX = new double[nX];
+			columnY = new double[nX];
+			columnZ = new double[nX];
+			for (int j = 0; j < nX; ++j) {
+				double xJ = alignZero((j - (nX - 1) / 2d) * rX);
+				columnX[j] = camera.vRight.getX() * xJ;
+				columnY[j] = camera.vRight.getY() * xJ;
+				columnZ[j] = camera.vRight.getZ() * xJ;
+			}
+
+			double rY = camera.height / nY;
+			rowX = new double[nY];
+			rowY = new double[nY];
+			rowZ = new double[nY];
+			for (int i = 0; i < nY; ++i) {
+				double yI = alignZero(-(i - (nY - 1) / 2d) * rY);
+				rowX[i] = camera.vUp.getX() * yI;
+				rowY[i] = camera.vUp.getY() * yI;
+				rowZ[i] = camera.vUp.getZ() * yI;
+			}
+		}
+
+		/**
+		 * Calculates the center of a pixel.
+		 *
+		 * @param j the column of the pixel
+		 * @param i the row of the pixel
+		 * @return the center of the pixel
+		 */
+		Point pixelCenter(int j, int i) {
+			return new Point(centerX + columnX[j] + rowX[i], centerY + columnY[j] + rowY[i],
+					centerZ + columnZ[j] + rowZ[i]);
+		}
+	}
+
 	/**
 	 * Private constructor for the Camera class.
 	 */
@@ -171,6 +277,15 @@ public class Camera implements Cloneable {
 	    return adaptive;
 	}
 
+	/**
+	 * Returns the ray tracer that the camera renders with.
+	 * 
+	 * @return the ray tracer
+	 */
+	public RayTracerBase getRayTracer() {
+	    return rayTracer;
+	}
+
 	
 	/**
 	 * Renders the image based on the current settings and threading configuration.
@@ -191,6 +306,32 @@ public class Camera implements Cloneable {
 	    int nX = imageWriter.getNx();
 	    int nY = imageWriter.getNy();
 	    pixelManager = new PixelManager(nY, nX, 100l);
+	    // relighting from a captured geometry buffer needs no new geometry
+	    GBuffer cached = gBuffer;
+	    boolean relight = gBufferCaching && !adaptive && cached != null && cached.nX == nX && cached.nY == nY
+	            && rayTracer.getCompiledScene() != null;
+	    if (relight)
+	        rayTracer.prepareLights();
+	    else
+	        rayTracer.prepare();
+	    viewPlaneTable(nX, nY);
+
+	    hitBuffer = null;
+	    if (rasterization && numberOfRays == 0 && !relight) {
+	        CompiledScene compiled = rayTracer.getCompiledScene();
+	        if (compiled != null)
+	            hitBuffer = new Rasterizer(compiled).rasterize(this, nX, nY);
+	    }
+
+	    if (gBufferCaching && !adaptive && rayTracer.getCompiledScene() != null) {
+	        renderFromGBuffer(nX, nY);
+	        return this;
+	    }
+
+	    if (packetTracing && numberOfRays == 0 && hitBuffer == null) {
+	        renderPackets(nX, nY);
+	        return this;
+	    }
 
 	    // Single-threaded processing
 	    if (threadsCount == 0) {
@@ -216,7 +357,7 @@ public class Camera implements Cloneable {
 	    } else {
 	        // Multi-threaded processing
 	        var threads = new LinkedList<Thread>(); // list of threads
-	        while (threadsCount-- > 0) {
+	        for (int t = 0; t < threadsCount; ++t) {
 	            threads.add(new Thread(() -> {
 	                PixelManager.Pixel pixel; // current pixel(row,col)
 	                while ((pixel = pixelManager.nextPixel()) != null) {
@@ -250,6 +391,147 @@ public class Camera implements Cloneable {
 	    return this;
 	}
 	
+	/**
+	 * Renders the image in square tiles of pixels, tracing the primary rays of each
+	 * tile together as one packet. The size of the tiles is chosen by the ray
+	 * tracer. The tiles are distributed between the rendering threads.
+	 *
+	 * @param nX The number of pixels in the X direction.
+	 * @param nY The number of pixels in the Y direction.
+	 */
+	private void renderPackets(int nX, int nY) {
+	    int size = rayTracer.getPacketSize();
+	    int tilesX = (nX + size - 1) / size;
+	    int tiles = tilesX * ((nY + size - 1) / size);
+	    var nextTile = new AtomicInteger();
+	    runWorkers(() -> {
+	        for (int tile = nextTile.getAndIncrement(); tile < tiles; tile = nextTile.getAndIncrement())
+	            castPacket(nX, nY, tile % tilesX * size, tile / tilesX * size, size);
+	    });
+	}
+
+	/**
+	 * Runs a rendering worker on the rendering threads, or on the calling thread
+	 * if multithreading is disabled, and waits for all of them to finish.
+	 *
+	 * @param worker The worker.
+	 */
+	private void runWorkers(Runnable worker) {
+	    if (threadsCount == 0) {
+	        worker.run();
+	        return;
+	    }
+	    var threads = new LinkedList<Thread>();
+	    for (int t = 0; t < threadsCount; ++t)
+	        threads.add(new Thread(worker));
+	    for (var thread : threads) thread.start();
+	    try {
+	        for (var thread : threads) thread.join();
+	    } catch (InterruptedException ignore) {}
+	}
+
+	/**
+	 * Renders the image from the geometry buffer, capturing the buffer first if
+	 * there is none for the resolution. Each pixel is the average of the colors
+	 * of its cached samples.
+	 *
+	 * @param nX The number of pixels in the X direction.
+	 * @param nY The number of pixels in the Y direction.
+	 */
+	private void renderFromGBuffer(int nX, int nY) {
+	    GBuffer buffer = gBuffer;
+	    boolean capture = buffer == null || buffer.nX != nX || buffer.nY != nY;
+	    if (capture)
+	        buffer = new GBuffer(nX, nY);
+	    GBuffer samples = buffer;
+	    Intersectable geometries = rayTracer.getCompiledScene().geometries;
+
+	    var nextRow = new AtomicInteger();
+	    runWorkers(() -> {
+	        for (int i = nextRow.getAndIncrement(); i < nY; i = nextRow.getAndIncrement())
+	            for (int j = 0; j < nX; ++j) {
+	                if (capture)
+	                    samples.setSamples(j, i, captureSamples(nX, nY, j, i, geometries));
+	                GBuffer.Sample[] pixel = samples.getSamples(j, i);
+	                Color color = Color.BLACK;
+	                for (GBuffer.Sample sample : pixel)
+	                    color = color.add(rayTracer.shade(sample));
+	                imageWriter.writePixel(j, i, numberOfRays == 0 ? color : color.reduce(pixel.length));
+	                pixelManager.pixelDone();
+	            }
+	    });
+	    gBuffer = buffer;
+	}
+
+	/**
+	 * Finds the primary samples of a pixel and their closest intersections.
+	 *
+	 * @param nX         The number of pixels in the X direction.
+	 * @param nY         The number of pixels in the Y direction.
+	 * @param j          The pixel index in the X direction.
+	 * @param i          The pixel index in the Y direction.
+	 * @param geometries The geometries of the scene.
+	 * @return The samples of the pixel.
+	 */
+	private GBuffer.Sample[] captureSamples(int nX, int nY, int j, int i, Intersectable geometries) {
+	    List<Ray> rays = numberOfRays == 0 ? List.of(constructRay(nX, nY, j, i))
+	            : dof.constructRayWithDOF(findPIJ(nX, nY, j, i), this);
+	    GBuffer.Sample[] samples = new GBuffer.Sample[rays.size()];
+	    for (int s = 0; s < samples.length; ++s) {
+	        Ray ray = rays.get(s);
+	        GeoPoint hit = hitBuffer != null ? hitBuffer.findPrimaryHit(ray, j, i)
+	                : geometries.findClosestGeoIntersection(ray);
+	        samples[s] = new GBuffer.Sample(ray, hit, hit == null ? null : hit.geometry.getNormal(hit.point));
+	    }
+	    return samples;
+	}
+
+	/**
+	 * Returns the geometry buffer captured by the last render with geometry buffer
+	 * caching.
+	 *
+	 * @return the geometry buffer, or null if none was captured
+	 */
+	public GBuffer getGBuffer() {
+	    return gBuffer;
+	}
+
+	/**
+	 * Discards the cached geometry buffer, so that the next render finds the
+	 * primary intersections again. It must be called after changing the
+	 * geometries of the scene.
+	 *
+	 * @return The current {@link Camera} instance.
+	 */
+	public Camera invalidateGBuffer() {
+	    gBuffer = null;
+	    return this;
+	}
+
+	/**
+	 * Casts the primary rays of a tile of pixels as one packet.
+	 *
+	 * @param nX   The number of pixels in the X direction.
+	 * @param nY   The number of pixels in the Y direction.
+	 * @param col0 The column of the top left pixel of the tile.
+	 * @param row0 The row of the top left pixel of the tile.
+	 * @param size The width and height of the tile.
+	 */
+	private void castPacket(int nX, int nY, int col0, int row0, int size) {
+	    int cols = Math.min(size, nX - col0);
+	    int rows = Math.min(size, nY - row0);
+	    Ray[] rays = new Ray[cols * rows];
+	    for (int i = 0; i < rows; ++i)
+	        for (int j = 0; j < cols; ++j)
+	            rays[i * cols + j] = constructRay(nX, nY, col0 + j, row0 + i);
+	    Color[] colors = rayTracer.traceRays(rays);
+	    for (int i = 0; i < rows; ++i)
+	        for (int j = 0; j < cols; ++j) {
+	            imageWriter.writePixel(col0 + j, row0 + i, colors[i * cols + j]);
+	            pixelManager.pixelDone();
+	        }
+	}
+
 	/**
 	 * Casts a ray from the camera through a specific pixel.
 	 * 
@@ -261,7 +543,9 @@ public class Camera implements Cloneable {
 	private void castRay(int nX, int nY, int j, int i) {
 		List<Ray> rays = new ArrayList<>();
 		if (numberOfRays == 0) {
-			imageWriter.writePixel(j, i, rayTracer.traceRay(constructRay(nX, nY, j, i)));
+			Ray ray = constructRay(nX, nY, j, i);
+			imageWriter.writePixel(j, i, hitBuffer == null ? rayTracer.traceRay(ray)
+					: rayTracer.traceRay(ray, hitBuffer.findPrimaryHit(ray, j, i)));
 		} else if (!adaptive){
 			Point pij = findPIJ(nX, nY, j, i);
 			rays = dof.constructRayWithDOF(pij, this);
@@ -288,7 +572,11 @@ public class Camera implements Cloneable {
 	 * @return The 3D point in world coordinates for the given pixel.
 	 */
     private Point findPIJ(int nX, int nY, double j, double i) {
-        Point pIJ = p0.add(vTo.scale(distanceFromCamera));
+        ViewPlaneTable table = viewPlaneTable(nX, nY);
+        if (isPixel(table, j, i))
+            return table.pixelCenter((int) j, (int) i);
+
+        Point pIJ = table.center;
 
         double rY = height / nY;
         double rX = width / nX;
@@ -313,10 +601,86 @@ public class Camera implements Cloneable {
      * @return the ray through the pixel
      */
     public Ray constructRay(int nX, int nY, double j, double i) {
-        Point imgCenter = findPIJ(nX, nY, j, i);
-        Vector vIJ = imgCenter.subtract(p0);
-        return new Ray(p0, vIJ);
+        ViewPlaneTable table = viewPlaneTable(nX, nY);
+        if (!isPixel(table, j, i))
+            return new Ray(p0, findPIJ(nX, nY, j, i).subtract(p0));
+
+        int col = (int) j, row = (int) i;
+        return new Ray(p0, new Vector(table.centerX + table.columnX[col] + table.rowX[row] - p0.getX(),
+                table.centerY + table.columnY[col] + table.rowY[row] - p0.getY(),
+                table.centerZ + table.columnZ[col] + table.rowZ[row] - p0.getZ()));
+    }
+
+    /**
+     * Constructs the rays through a rectangle of pixels directly into the
+     * coordinate arrays of a ray batch, row by row, without creating any object
+     * per ray.
+     *
+     * @param nX    the number of pixels in the x direction
+     * @param nY    the number of pixels in the y direction
+     * @param col0  the column of the top left pixel of the rectangle
+     * @param row0  the row of the top left pixel of the rectangle
+     * @param cols  the number of columns of the rectangle
+     * @param rows  the number of rows of the rectangle
+     * @param batch the batch to fill, with at least cols * rows rays
+     * @return the batch
+     * @throws IllegalArgumentException if the rectangle is out of the view plane
+     *                                  or the batch is too small
+     */
+    public RayBatch constructRays(int nX, int nY, int col0, int row0, int cols, int rows, RayBatch batch) {
+        if (col0 < 0 || row0 < 0 || cols < 0 || rows < 0 || col0 + cols > nX || row0 + rows > nY)
+            throw new IllegalArgumentException("The pixels must be in the view plane");
+        if (batch.size < cols * rows)
+            throw new IllegalArgumentException("The batch is too small for the pixels");
+
+        ViewPlaneTable table = viewPlaneTable(nX, nY);
+        double x0 = p0.getX(), y0 = p0.getY(), z0 = p0.getZ();
+        for (int i = 0; i < rows; ++i) {
+            int row = row0 + i;
+            for (int j = 0; j < cols; ++j) {
+                int col = col0 + j;
+                int ray = i * cols + j;
+                double dx = table.centerX + table.columnX[col] + table.rowX[row] - x0;
+                double dy = table.centerY + table.columnY[col] + table.rowY[row] - y0;
+                double dz = table.centerZ + table.columnZ[col] + table.rowZ[row] - z0;
+                double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                batch.originX[ray] = x0;
+                batch.originY[ray] = y0;
+                batch.originZ[ray] = z0;
+                batch.directionX[ray] = dx / length;
+                batch.directionY[ray] = dy / length;
+                batch.directionZ[ray] = dz / length;
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Returns the view plane table of a resolution, creating it if the last
+     * table was created for another resolution.
+     *
+     * @param nX the number of pixels in the x direction
+     * @param nY the number of pixels in the y direction
+     * @return the table
+     */
+    private ViewPlaneTable viewPlaneTable(int nX, int nY) {
+        ViewPlaneTable table = viewPlaneTable;
+        if (table == null || table.nX != nX || table.nY != nY)
+            viewPlaneTable = table = new ViewPlaneTable(this, nX, nY);
+        return table;
+    }
 
+    /**
+     * Checks whether coordinates on the view plane are the center of one of the
+     * pixels of a table.
+     *
+     * @param table the table
+     * @param j     the x index
+     * @param i     the y index
+     * @return true if the indices are whole and inside the view plane
+     */
+    private static boolean isPixel(ViewPlaneTable table, double j, double i) {
+        return j == (int) j && i == (int) i && j >= 0 && i >= 0 && j < table.nX && i < table.nY;
     }
 	
 	/**
@@ -357,7 +721,7 @@ public class Camera implements Cloneable {
 	
 	    double rY = alignZero(height / nY);
 	    double rX  = alignZero(width / nX);
-	    Point pIJ = getCenterOfPixel(i, j, nX, nY, rY, rX);
+	    Point pIJ = findPIJ(nX, nY, j, i);
 
 	    double PRy = alignZero(rY / numOfRaysInRowCol);
 	    double PRx = alignZero(rX / numOfRaysInRowCol);
@@ -505,7 +869,7 @@ private static final int MAX_RECURSION_DEPTH = 5;
     */
    public Point getCenterOfPixel(int i, int j, int nX,int nY,double pixelHeight,double pixelWidth)
    {
-       Point center = this.p0.add(this.vTo.scale(distanceFromCamera));
+       Point center = viewPlaneTable(nX, nY).center;
        double yi = -(i - ((double)nY - 1) / 2) * pixelHeight;
        if (yi !=0 ) center = center.add(this.vUp.scale(yi));
        double xj = (j - ((double)nX - 1) / 2) * pixelWidth;
@@ -711,6 +1075,64 @@ private static final int MAX_RECURSION_DEPTH = 5;
 		    return this;
 		}
 
+		/**
+		 * Sets whether the primary rays should be traced in packets of neighbouring
+		 * pixels. Packets are not used with depth of field.
+		 *
+		 * @param packetTracing true to trace tiles of pixels as packets, false to
+		 *                      trace every pixel alone
+		 * @return the builder instance for method chaining
+		 */
+		public Builder setPacketTracing(boolean packetTracing) {
+		    this.camera.packetTracing = packetTracing;
+		    return this;
+		}
+
+		/**
+		 * Sets whether the primary visibility should be found by rasterizing the
+		 * triangles, polygons and spheres of the scene instead of tracing the
+		 * primary rays. Only the secondary and shadow rays are then traced.
+		 * Rasterization is not used with depth of field, and takes precedence over
+		 * packet tracing.
+		 *
+		 * @param rasterization true to rasterize the primary visibility
+		 * @return the builder instance for method chaining
+		 */
+		public Builder setRasterization(boolean rasterization) {
+		    this.camera.rasterization = rasterization;
+		    return this;
+		}
+
+		/**
+		 * Sets whether the primary samples of the rendered pixels should be cached
+		 * in a geometry buffer. The first render captures the buffer; the following
+		 * renders of the camera shade the cached samples again, so changes to the
+		 * lights and the materials are rendered without finding the primary
+		 * intersections. Adaptive super sampling is not cached.
+		 *
+		 * @param gBufferCaching true to cache the primary samples
+		 * @return the builder instance for method chaining
+		 */
+		public Builder setGBufferCaching(boolean gBufferCaching) {
+		    this.camera.gBufferCaching = gBufferCaching;
+		    return this;
+		}
+
+		/**
+		 * Overrides the acceleration structure that the ray tracer compiles the
+		 * scene into, which is otherwise chosen automatically from the geometries.
+		 * The built camera renders with its own copy of the ray tracer, so the ray
+		 * tracer set on the builder and other cameras sharing it are not changed.
+		 *
+		 * @param acceleration the kind of the acceleration structure, or null to
+		 *                     keep the choice of the ray tracer
+		 * @return the builder instance for method chaining
+		 */
+		public Builder setAcceleration(AccelerationStructure acceleration) {
+		    this.camera.acceleration = acceleration;
+		    return this;
+		}
+
         
         
 		/**
@@ -756,12 +1178,19 @@ private static final int MAX_RECURSION_DEPTH = 5;
 						"View plane rayTracer");
 			if (camera.adaptive && camera.numberOfRays==0)
 				throw new IllegalStateException("Adaptive Super Sampling must work whit DOF (nunumberOfRays=0).");
+			if (camera.acceleration != null && !(camera.rayTracer instanceof SimpleRayTracer))
+				throw new IllegalStateException(
+						"The ray tracer doesn't compile the scene into an acceleration structure");
 
+			Camera result;
 			try {
-				return (Camera) camera.clone();
+				result = (Camera) camera.clone();
 			} catch (CloneNotSupportedException e) {
 				throw new AssertionError();
 			}
+			if (camera.acceleration != null)
+				result.rayTracer = ((SimpleRayTracer) camera.rayTracer).withAcceleration(camera.acceleration);
+			return result;
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package renderer;
+
+import lighting.PointLight;
+import primitives.*;
+
+/**
+ * A cube shadow map of a point light - six perspective faces looking along the
+ * positive and negative directions of the three axes.
+ */
+class CubeShadowMap extends ShadowMap {
+	/** The position of the light */
+	private final Point position;
+
+	/**
+	 * Constructs an empty cube shadow map of a point light.
+	 *
+	 * @param light      the point light
+	 * @param resolution the resolution of each face of the map
+	 * @param filtering  whether to use percentage-closer filtering
+	 */
+	CubeShadowMap(PointLight light, int resolution, boolean filtering) {
+		super(resolution, 6, filtering);
+		position = light.getPosition();
+	}
+
+	@Override
+	protected Ray texelRay(int face, double x, double y) {
+		int axis = face / 2;
+		double[] direction = new double[3];
+		direction[axis] = face % 2 == 0 ? 1 : -1;
+		direction[(axis + 1) % 3] = 2 * x / resolution - 1;
+		direction[(axis + 2) % 3] = 2 * y / resolution - 1;
+		return new Ray(position, new Vector(direction[0], direction[1], direction[2]));
+	}
+
+	@Override
+	protected boolean project(Point point, double[] texel) {
+		double[] d = { point.getX() - position.getX(), point.getY() - position.getY(),
+				point.getZ() - position.getZ() };
+		double ax = Math.abs(d[0]);
+		double ay = Math.abs(d[1]);
+		double az = Math.abs(d[2]);
+		int axis = ax >= ay && ax >= az ? 0 : ay >= az ? 1 : 2;
+		double major = Math.abs(d[axis]);
+		if (major == 0)
+			return false;
+
+		double depth = Math.sqrt(d[0] * d[0] + d[1] * d[1] + d[2] * d[2]);
+		texel[0] = 2 * axis + (d[axis] < 0 ? 1 : 0);
+		texel[1] = (d[(axis + 1) % 3] / major + 1) / 2 * resolution;
+		texel[2] = (d[(axis + 2) % 3] / major + 1) / 2 * resolution;
+		texel[3] = depth;
+		texel[4] = 2 * depth / resolution;
+		return true;
+	}
+}
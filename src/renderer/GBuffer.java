@@ -0,0 +1,72 @@
+package renderer;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+
+/**
+ * A geometry buffer: the primary samples of every pixel of an image together
+ * with their closest intersections. As long as the geometries and the camera do
+ * not change, the image can be shaded again from the buffer after changes to
+ * the lights or to the materials, without finding the primary intersections
+ * again.
+ */
+public final class GBuffer {
+	/**
+	 * A primary sample of a pixel.
+	 *
+	 * @param ray    the primary ray
+	 * @param hit    the closest intersection of the ray, or null if it hits nothing
+	 * @param normal the normal at the intersection, or null if there is none
+	 */
+	public record Sample(Ray ray, GeoPoint hit, Vector normal) {
+		/**
+		 * Returns the view vector of the sample.
+		 *
+		 * @return the direction of the primary ray
+		 */
+		public Vector view() {
+			return ray.getDirection();
+		}
+	}
+
+	/** The number of columns */
+	public final int nX;
+	/** The number of rows */
+	public final int nY;
+	/** The samples of each pixel, row by row */
+	private final Sample[][] samples;
+
+	/**
+	 * Constructs an empty buffer.
+	 *
+	 * @param nX the number of columns
+	 * @param nY the number of rows
+	 */
+	GBuffer(int nX, int nY) {
+		this.nX = nX;
+		this.nY = nY;
+		samples = new Sample[nX * nY][];
+	}
+
+	/**
+	 * Returns the samples of a pixel.
+	 *
+	 * @param j the column of the pixel
+	 * @param i the row of the pixel
+	 * @return the samples
+	 */
+	public Sample[] getSamples(int j, int i) {
+		return samples[i * nX + j];
+	}
+
+	/**
+	 * Stores the samples of a pixel.
+	 *
+	 * @param j       the column of the pixel
+	 * @param i       the row of the pixel
+	 * @param samples the samples
+	 */
+	void setSamples(int j, int i, Sample[] samples) {
+		this.samples[i * nX + j] = samples;
+	}
+}
@@ -0,0 +1,122 @@
+package renderer;
+
+import java.util.Arrays;
+
+import geometries.*;
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+
+/**
+ * The primary visibility of an image, found by a {@link Rasterizer}: for every
+ * pixel the rasterized geometry visible through its center and the distance of
+ * that geometry from the camera. <br/>
+ * Rasterization decides visibility from the projected primitives, so it may
+ * disagree with ray tracing on the edges of the primitives and between
+ * primitives at equal depths. Such pixels are marked unresolved, and their
+ * primary rays are traced as usual. Geometries that cannot be rasterized -
+ * primitives crossing the plane of the camera and geometries other than
+ * spheres, polygons and planes - are intersected with the primary ray of every
+ * pixel and compared with the rasterized geometry, so each of them costs a
+ * traversal per pixel as in plain ray tracing.
+ */
+public final class HitBuffer {
+	/** The number of columns */
+	public final int nX;
+	/** The number of rows */
+	public final int nY;
+	/** The rasterized geometry visible through each pixel, row by row */
+	final Geometry[] geometries;
+	/** The distance of the visible geometry from the camera */
+	final double[] depths;
+	/** Pixels whose visibility must be found by ray tracing */
+	final boolean[] unresolved;
+	/** The geometries that were not rasterized, or null if there are none */
+	private final Intersectable remaining;
+	/** All the geometries of the scene */
+	private final Intersectable all;
+
+	/**
+	 * Constructs an empty buffer.
+	 *
+	 * @param nX        the number of columns
+	 * @param nY        the number of rows
+	 * @param remaining the geometries that are not rasterized, or null
+	 * @param all       all the geometries of the scene
+	 */
+	HitBuffer(int nX, int nY, Intersectable remaining, Intersectable all) {
+		this.nX = nX;
+		this.nY = nY;
+		this.remaining = remaining;
+		this.all = all;
+		geometries = new Geometry[nX * nY];
+		depths = new double[nX * nY];
+		unresolved = new boolean[nX * nY];
+		Arrays.fill(depths, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Returns the rasterized geometry visible through a pixel.
+	 *
+	 * @param j the column of the pixel
+	 * @param i the row of the pixel
+	 * @return the geometry, or null if no rasterized geometry covers the pixel
+	 */
+	public Geometry getGeometry(int j, int i) {
+		return geometries[i * nX + j];
+	}
+
+	/**
+	 * Returns the distance from the camera of the rasterized geometry visible
+	 * through a pixel.
+	 *
+	 * @param j the column of the pixel
+	 * @param i the row of the pixel
+	 * @return the distance, or infinity if no rasterized geometry covers the pixel
+	 */
+	public double getDepth(int j, int i) {
+		return depths[i * nX + j];
+	}
+
+	/**
+	 * Checks whether the visibility of a pixel was resolved by the rasterization.
+	 *
+	 * @param j the column of the pixel
+	 * @param i the row of the pixel
+	 * @return false if the primary ray of the pixel must be traced
+	 */
+	public boolean isResolved(int j, int i) {
+		return !unresolved[i * nX + j];
+	}
+
+	/**
+	 * Finds the closest intersection of the primary ray of a pixel. The rasterized
+	 * geometry of the pixel is intersected with the ray to find the exact point,
+	 * and compared with the geometries that were not rasterized. Unresolved pixels
+	 * are traced through all the geometries.
+	 *
+	 * @param ray the primary ray through the center of the pixel
+	 * @param j   the column of the pixel
+	 * @param i   the row of the pixel
+	 * @return the closest intersection, or null if the ray hits nothing
+	 */
+	public GeoPoint findPrimaryHit(Ray ray, int j, int i) {
+		int pixel = i * nX + j;
+		if (unresolved[pixel])
+			return all.findClosestGeoIntersection(ray);
+
+		GeoPoint hit = null;
+		double distance = Double.POSITIVE_INFINITY;
+		if (geometries[pixel] != null) {
+			hit = geometries[pixel].findClosestGeoIntersection(ray);
+			if (hit == null)
+				return all.findClosestGeoIntersection(ray);
+			distance = hit.point.distance(ray.getHead());
+		}
+		if (remaining != null) {
+			GeoPoint other = remaining.findClosestGeoIntersection(ray);
+			if (other != null && other.point.distance(ray.getHead()) < distance)
+				hit = other;
+		}
+		return hit;
+	}
+}
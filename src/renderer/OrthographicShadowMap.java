@@ -0,0 +1,123 @@
+package renderer;
+
+import java.util.List;
+
+import geometries.*;
+import geometries.Intersectable.GeoPoint;
+import lighting.DirectionalLight;
+import primitives.*;
+
+/**
+ * An orthographic shadow map of a directional light, covering the bounding box
+ * of the bounded geometries of the scene. The map plane lies just before the
+ * box, so an unbounded geometry between the light and the plane is never hit by
+ * the texel rays; a point that such a geometry may shadow is traced by an exact
+ * shadow ray.
+ */
+class OrthographicShadowMap extends ShadowMap {
+	/** The direction of the light */
+	private final Vector forward;
+	/** The horizontal direction of the map */
+	private final Vector right;
+	/** The vertical direction of the map */
+	private final Vector up;
+	/** The horizontal coordinate of the map origin */
+	private final double minU;
+	/** The vertical coordinate of the map origin */
+	private final double minV;
+	/** The coordinate of the map plane along the light direction */
+	private final double minF;
+	/** The size of the (square) map */
+	private final double size;
+	/** The unbounded geometries of the scene, null if there are none */
+	private final Geometries unbounded;
+
+	/**
+	 * Constructs an empty orthographic shadow map of a directional light.
+	 *
+	 * @param light      the directional light
+	 * @param box        the box to cover by the map
+	 * @param unbounded  the unbounded geometries of the scene
+	 * @param resolution the resolution of the map
+	 * @param filtering  whether to use percentage-closer filtering
+	 */
+	OrthographicShadowMap(DirectionalLight light, BoundingBox box, List<Intersectable> unbounded, int resolution,
+			boolean filtering) {
+		super(resolution, 1, filtering);
+		this.unbounded = unbounded.isEmpty() ? null : new Geometries(unbounded.toArray(new Intersectable[0]));
+		forward = light.getDirection();
+		right = forward.getOrto();
+		up = forward.crossProduct(right).normalize();
+
+		double uMin = Double.POSITIVE_INFINITY, vMin = Double.POSITIVE_INFINITY, fMin = Double.POSITIVE_INFINITY;
+		double uMax = Double.NEGATIVE_INFINITY, vMax = Double.NEGATIVE_INFINITY;
+		for (Point corner : box.getCorners()) {
+			double u = dot(corner, right);
+			double v = dot(corner, up);
+			uMin = Math.min(uMin, u);
+			uMax = Math.max(uMax, u);
+			vMin = Math.min(vMin, v);
+			vMax = Math.max(vMax, v);
+			fMin = Math.min(fMin, dot(corner, forward));
+		}
+		minU = uMin;
+		minV = vMin;
+		minF = fMin - 1;
+		size = Math.max(Math.max(uMax - uMin, vMax - vMin), 1);
+	}
+
+	/**
+	 * Calculates the dot product of a point (as a vector from the origin) and a
+	 * vector.
+	 *
+	 * @param p the point
+	 * @param v the vector
+	 * @return the dot product
+	 */
+	private static double dot(Point p, Vector v) {
+		return p.getX() * v.getX() + p.getY() * v.getY() + p.getZ() * v.getZ();
+	}
+
+	/**
+	 * Approximates the transparency factor between a point and the light, and
+	 * requests an exact shadow ray if an unbounded geometry crosses the way to the
+	 * light beyond the map plane.
+	 */
+	@Override
+	Double3 transparency(Point point) {
+		Double3 result = super.transparency(point);
+		if (result == null || unbounded == null || result.equals(Double3.ZERO))
+			return result;
+		double mapDistance = dot(point, forward) - minF;
+		List<GeoPoint> intersections = unbounded.findGeoIntersections(new Ray(point, forward.scale(-1)));
+		if (intersections != null)
+			for (GeoPoint intersection : intersections)
+				if (intersection.point.distance(point) > mapDistance)
+					return null;
+		return result;
+	}
+
+	@Override
+	protected Ray texelRay(int face, double x, double y) {
+		double u = minU + x / resolution * size;
+		double v = minV + y / resolution * size;
+		return new Ray(new Point(right.getX() * u + up.getX() * v + forward.getX() * minF,
+				right.getY() * u + up.getY() * v + forward.getY() * minF,
+				right.getZ() * u + up.getZ() * v + forward.getZ() * minF), forward);
+	}
+
+	@Override
+	protected boolean project(Point point, double[] texel) {
+		double x = (dot(point, right) - minU) / size * resolution;
+		double y = (dot(point, up) - minV) / size * resolution;
+		if (x < 0 || x > resolution || y < 0 || y > resolution)
+			return false;
+
+		texel[0] = 0;
+		texel[1] = x;
+		texel[2] = y;
+		texel[3] = dot(point, forward) - minF;
+		texel[4] = size / resolution;
+		return true;
+	}
+}
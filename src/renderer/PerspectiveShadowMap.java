@@ -0,0 +1,71 @@
+package renderer;
+
+import lighting.SpotLight;
+import primitives.*;
+
+/**
+ * A perspective shadow map of a spot light, looking along the direction of the
+ * light and covering its bounding cone (up to a maximal angle).
+ */
+class PerspectiveShadowMap extends ShadowMap {
+	/** The maximal half angle of the field of view of the map */
+	private static final double MAX_HALF_ANGLE = Math.toRadians(75);
+
+	/** The position of the light */
+	private final Point position;
+	/** The direction of the light */
+	private final Vector forward;
+	/** The horizontal direction of the map */
+	private final Vector right;
+	/** The vertical direction of the map */
+	private final Vector up;
+	/** The tangent of the half angle of the field of view */
+	private final double tan;
+
+	/**
+	 * Constructs an empty perspective shadow map of a spot light.
+	 *
+	 * @param light      the spot light
+	 * @param resolution the resolution of the map
+	 * @param filtering  whether to use percentage-closer filtering
+	 */
+	PerspectiveShadowMap(SpotLight light, int resolution, boolean filtering) {
+		super(resolution, 1, filtering);
+		position = light.getPosition();
+		forward = light.getDirection();
+		right = forward.getOrto();
+		up = forward.crossProduct(right).normalize();
+		double cos = Math.max(light.getConeCosine(), Math.cos(MAX_HALF_ANGLE));
+		tan = Math.sqrt(1 - cos * cos) / cos;
+	}
+
+	@Override
+	protected Ray texelRay(int face, double x, double y) {
+		double u = (2 * x / resolution - 1) * tan;
+		double v = (2 * y / resolution - 1) * tan;
+		return new Ray(position, new Vector(forward.getX() + right.getX() * u + up.getX() * v,
+				forward.getY() + right.getY() * u + up.getY() * v, forward.getZ() + right.getZ() * u + up.getZ() * v));
+	}
+
+	@Override
+	protected boolean project(Point point, double[] texel) {
+		double dx = point.getX() - position.getX();
+		double dy = point.getY() - position.getY();
+		double dz = point.getZ() - position.getZ();
+		double z = dx * forward.getX() + dy * forward.getY() + dz * forward.getZ();
+		if (z <= 0)
+			return false;
+		double u = (dx * right.getX() + dy * right.getY() + dz * right.getZ()) / (z * tan);
+		double v = (dx * up.getX() + dy * up.getY() + dz * up.getZ()) / (z * tan);
+		if (u < -1 || u > 1 || v < -1 || v > 1)
+			return false;
+
+		double depth = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		texel[0] = 0;
+		texel[1] = (u + 1) / 2 * resolution;
+		texel[2] = (v + 1) / 2 * resolution;
+		texel[3] = depth;
+		texel[4] = 2 * depth * tan / resolution;
+		return true;
+	}
+}
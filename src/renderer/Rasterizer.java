@@ -0,0 +1,486 @@
+package renderer;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import geometries.*;
+import primitives.*;
+import primitives.Vector;
+import scene.CompiledScene;
+
+import static primitives.Util.*;
+
+/**
+ * Finds the primary visibility of an image by rasterization instead of ray
+ * tracing. The triangles and the polygons of the scene are projected onto the
+ * view plane of the camera and scan converted with a depth buffer; the spheres
+ * are projected to their screen rectangles and the planes cover the whole
+ * image, and both are solved per pixel. The result is a {@link HitBuffer} of
+ * the geometry visible through the center of every pixel. <br/>
+ * Primitives crossing the plane of the camera cannot be projected; they are
+ * left, together with the rest of the geometries, to be intersected with the
+ * primary rays. The image is rasterized in bands of rows in parallel, so no two
+ * threads write the same pixel; the projected primitives are sorted once into
+ * the bands that their rows overlap, so a band scans only its own primitives.
+ */
+public final class Rasterizer {
+	/** The distance, in pixels, from an edge under which the coverage is unsure */
+	private static final double EDGE_EPSILON = 1E-4;
+	/** The relative depth difference under which two primitives are tied */
+	private static final double DEPTH_EPSILON = 1E-9;
+	/** The relative distance, along vTo, of the nearest projectable vertex */
+	private static final double NEAR_EPSILON = 1E-6;
+	/** The height of the bands of rows rasterized in parallel */
+	private static final int BAND_HEIGHT = 16;
+
+	/** The scene */
+	private final CompiledScene scene;
+
+	/**
+	 * A triangle projected onto the view plane, in pixel coordinates.
+	 *
+	 * @param geometry  the triangle, or the polygon the triangle is a part of
+	 * @param j         the columns of the vertices
+	 * @param i         the rows of the vertices
+	 * @param nx        the x coordinate of the normal
+	 * @param ny        the y coordinate of the normal
+	 * @param nz        the z coordinate of the normal
+	 * @param numerator the dot product of the normal and the vector from the
+	 *                  camera to a vertex
+	 */
+	private record ProjectedTriangle(Geometry geometry, double[] j, double[] i, double nx, double ny, double nz,
+			double numerator) {
+	}
+
+	/**
+	 * A sphere projected onto the view plane.
+	 *
+	 * @param sphere        the sphere
+	 * @param ux            the x coordinate of the vector from the camera to the
+	 *                      center
+	 * @param uy            the y coordinate of the vector from the camera to the
+	 *                      center
+	 * @param uz            the z coordinate of the vector from the camera to the
+	 *                      center
+	 * @param radiusSquared the squared radius
+	 * @param bounds        the columns and rows of the screen rectangle: min j,
+	 *                      max j, min i, max i
+	 */
+	private record ProjectedSphere(Sphere sphere, double ux, double uy, double uz, double radiusSquared,
+			int[] bounds) {
+	}
+
+	/**
+	 * A plane seen from the camera.
+	 *
+	 * @param plane     the plane
+	 * @param nx        the x coordinate of the normal
+	 * @param ny        the y coordinate of the normal
+	 * @param nz        the z coordinate of the normal
+	 * @param numerator the dot product of the normal and the vector from the
+	 *                  camera to the reference point of the plane
+	 */
+	private record ProjectedPlane(Plane plane, double nx, double ny, double nz, double numerator) {
+	}
+
+	/**
+	 * The view basis of a camera for one resolution.
+	 */
+	private static final class View {
+		/** The number of columns and rows */
+		final int nX, nY;
+		/** The location of the camera */
+		final Point p0;
+		/** The coordinates of the camera basis */
+		final double toX, toY, toZ, rightX, rightY, rightZ, upX, upY, upZ;
+		/** The distance of the view plane */
+		final double distance;
+		/** The size of a pixel */
+		final double rX, rY;
+		/** The vector from the camera to the center of the view plane */
+		final double cx, cy, cz;
+		/** The horizontal offset of each column and the vertical offset of each row */
+		final double[] xJ, yI;
+
+		/**
+		 * Captures the view basis of a camera.
+		 *
+		 * @param camera the camera
+		 * @param nX     the number of columns
+		 * @param nY     the number of rows
+		 */
+		View(Camera camera, int nX, int nY) {
+			this.nX = nX;
+			this.nY = nY;
+			p0 = camera.getCameraLocation();
+			Vector vTo = camera.getVto(), vRight = camera.getVright(), vUp = camera.getVup();
+			toX = vTo.getX();
+			toY = vTo.getY();
+			toZ = vTo.getZ();
+			rightX = vRight.getX();
+			rightY = vRight.getY();
+			rightZ = vRight.getZ();
+			upX = vUp.getX();
+			upY = vUp.getY();
+			upZ = vUp.getZ();
+			distance = camera.getDistanceFromCamera();
+			rX = camera.getWidth() / nX;
+			rY = camera.getHeight() / nY;
+			cx = toX * distance;
+			cy = toY * distance;
+			cz = toZ * distance;
+			xJ = new double[nX];
+			for (int j = 0; j < nX; ++j)
+				xJ[j] = (j - (nX - 1) / 2d) * rX;
+			yI = new double[nY];
+			for (int i = 0; i < nY; ++i)
+				yI[i] = -(i - (nY - 1) / 2d) * rY;
+		}
+
+		/**
+		 * Projects a point onto the view plane.
+		 *
+		 * @param point the point
+		 * @param out   output: the column and the row of the projection
+		 * @return false if the point is not in front of the camera
+		 */
+		boolean project(Point point, double[] out) {
+			double wx = point.getX() - p0.getX(), wy = point.getY() - p0.getY(), wz = point.getZ() - p0.getZ();
+			double z = wx * toX + wy * toY + wz * toZ;
+			if (z <= distance * NEAR_EPSILON)
+				return false;
+			double scale = distance / z;
+			out[0] = (wx * rightX + wy * rightY + wz * rightZ) * scale / rX + (nX - 1) / 2d;
+			out[1] = (nY - 1) / 2d - (wx * upX + wy * upY + wz * upZ) * scale / rY;
+			return true;
+		}
+	}
+
+	/**
+	 * Constructs a rasterizer of a scene.
+	 *
+	 * @param scene the compiled scene
+	 */
+	public Rasterizer(CompiledScene scene) {
+		this.scene = scene;
+	}
+
+	/**
+	 * Rasterizes the primary visibility of the scene as seen by a camera.
+	 *
+	 * @param camera the camera
+	 * @param nX     the number of columns of the image
+	 * @param nY     the number of rows of the image
+	 * @return the hit buffer
+	 */
+	public HitBuffer rasterize(Camera camera, int nX, int nY) {
+		View view = new View(camera, nX, nY);
+		List<ProjectedTriangle> triangles = new ArrayList<>();
+		List<ProjectedSphere> spheres = new ArrayList<>();
+		List<ProjectedPlane> planes = new ArrayList<>();
+		List<Intersectable> remaining = new ArrayList<>(scene.getOthers());
+
+		for (Triangle triangle : scene.getTriangles())
+			if (!project(view, triangle, triangle.getVertices(), triangles))
+				remaining.add(triangle);
+		for (Polygon polygon : scene.getPolygons())
+			if (!project(view, polygon, polygon.getVertices(), triangles))
+				remaining.add(polygon);
+		for (Sphere sphere : scene.getSpheres()) {
+			ProjectedSphere projected = project(view, sphere);
+			if (projected == null)
+				remaining.add(sphere);
+			else
+				spheres.add(projected);
+		}
+		for (Plane plane : scene.getPlanes()) {
+			ProjectedPlane projected = project(view, plane);
+			if (projected == null)
+				remaining.add(plane);
+			else
+				planes.add(projected);
+		}
+
+		HitBuffer buffer = new HitBuffer(nX, nY,
+				remaining.isEmpty() ? null : AccelerationStructure.BVH.build(remaining), scene.geometries);
+		int bands = (nY + BAND_HEIGHT - 1) / BAND_HEIGHT;
+		List<List<ProjectedTriangle>> triangleBins = bin(triangles, bands, nY,
+				triangle -> Math.min(triangle.i()[0], Math.min(triangle.i()[1], triangle.i()[2])),
+				triangle -> Math.max(triangle.i()[0], Math.max(triangle.i()[1], triangle.i()[2])));
+		List<List<ProjectedSphere>> sphereBins = bin(spheres, bands, nY, sphere -> sphere.bounds()[2],
+				sphere -> sphere.bounds()[3]);
+		IntStream.range(0, bands).parallel().forEach(band -> {
+			int rowMin = band * BAND_HEIGHT;
+			int rowMax = Math.min(rowMin + BAND_HEIGHT, nY) - 1;
+			for (ProjectedTriangle triangle : triangleBins.get(band))
+				rasterize(view, triangle, rowMin, rowMax, buffer);
+			for (ProjectedSphere sphere : sphereBins.get(band))
+				rasterize(view, sphere, rowMin, rowMax, buffer);
+			for (ProjectedPlane plane : planes)
+				rasterize(view, plane, rowMin, rowMax, buffer);
+			// convert the depths along the pixel vectors to distances from the camera
+			for (int i = rowMin; i <= rowMax; ++i)
+				for (int j = 0; j < nX; ++j) {
+					int pixel = i * nX + j;
+					if (buffer.geometries[pixel] != null) {
+						double dx = view.cx + view.rightX * view.xJ[j] + view.upX * view.yI[i];
+						double dy = view.cy + view.rightY * view.xJ[j] + view.upY * view.yI[i];
+						double dz = view.cz + view.rightZ * view.xJ[j] + view.upZ * view.yI[i];
+						buffer.depths[pixel] *= Math.sqrt(dx * dx + dy * dy + dz * dz);
+					}
+				}
+		});
+		return buffer;
+	}
+
+	/**
+	 * Sorts projected primitives into the bands of rows that they overlap.
+	 *
+	 * @param <T>        the type of the primitives
+	 * @param primitives the primitives
+	 * @param bands      the amount of bands
+	 * @param nY         the number of rows of the image
+	 * @param top        the first row of a primitive, possibly fractional
+	 * @param bottom     the last row of a primitive, possibly fractional
+	 * @return the primitives of each band
+	 */
+	private static <T> List<List<T>> bin(List<T> primitives, int bands, int nY, ToDoubleFunction<T> top,
+			ToDoubleFunction<T> bottom) {
+		List<List<T>> bins = new ArrayList<>(bands);
+		for (int band = 0; band < bands; ++band)
+			bins.add(new ArrayList<>());
+		for (T primitive : primitives) {
+			int first = Math.max(0, (int) Math.floor(top.applyAsDouble(primitive)));
+			int last = Math.min(nY - 1, (int) Math.ceil(bottom.applyAsDouble(primitive)));
+			if (first > last)
+				continue;
+			for (int band = first / BAND_HEIGHT; band <= last / BAND_HEIGHT; ++band)
+				bins.get(band).add(primitive);
+		}
+		return bins;
+	}
+
+	/**
+	 * Projects a convex polygon as a fan of triangles.
+	 *
+	 * @param view      the view
+	 * @param geometry  the polygon
+	 * @param vertices  the vertices of the polygon
+	 * @param triangles output: the projected triangles
+	 * @return false if the polygon is not entirely in front of the camera
+	 */
+	private static boolean project(View view, Geometry geometry, List<Point> vertices,
+			List<ProjectedTriangle> triangles) {
+		int size = vertices.size();
+		double[] js = new double[size], is = new double[size], out = new double[2];
+		for (int k = 0; k < size; ++k) {
+			if (!view.project(vertices.get(k), out))
+				return false;
+			js[k] = out[0];
+			is[k] = out[1];
+		}
+
+		Vector normal = geometry.getNormal(vertices.getFirst());
+		double nx = normal.getX(), ny = normal.getY(), nz = normal.getZ();
+		Point v0 = vertices.getFirst();
+		Point p0 = view.p0;
+		double numerator = nx * (v0.getX() - p0.getX()) + ny * (v0.getY() - p0.getY()) + nz * (v0.getZ() - p0.getZ());
+		for (int k = 1; k < size - 1; ++k)
+			triangles.add(new ProjectedTriangle(geometry, new double[] { js[0], js[k], js[k + 1] },
+					new double[] { is[0], is[k], is[k + 1] }, nx, ny, nz, numerator));
+		return true;
+	}
+
+	/**
+	 * Projects a sphere to its screen rectangle.
+	 *
+	 * @param view   the view
+	 * @param sphere the sphere
+	 * @return the projected sphere, or null if the sphere is not entirely in front
+	 *         of the camera
+	 */
+	private static ProjectedSphere project(View view, Sphere sphere) {
+		BoundingBox box = sphere.getBoundingBox();
+		double[] out = new double[2];
+		double minJ = Double.POSITIVE_INFINITY, maxJ = Double.NEGATIVE_INFINITY;
+		double minI = Double.POSITIVE_INFINITY, maxI = Double.NEGATIVE_INFINITY;
+		for (int corner = 0; corner < 8; ++corner) {
+			Point point = new Point((corner & 1) == 0 ? box.minX : box.maxX, (corner & 2) == 0 ? box.minY : box.maxY,
+					(corner & 4) == 0 ? box.minZ : box.maxZ);
+			if (!view.project(point, out))
+				return null;
+			minJ = Math.min(minJ, out[0]);
+			maxJ = Math.max(maxJ, out[0]);
+			minI = Math.min(minI, out[1]);
+			maxI = Math.max(maxI, out[1]);
+		}
+
+		double radius = (box.maxX - box.minX) / 2;
+		Point p0 = view.p0;
+		return new ProjectedSphere(sphere, (box.minX + box.maxX) / 2 - p0.getX(),
+				(box.minY + box.maxY) / 2 - p0.getY(), (box.minZ + box.maxZ) / 2 - p0.getZ(), radius * radius,
+				new int[] { (int) Math.floor(minJ), (int) Math.ceil(maxJ), (int) Math.floor(minI),
+						(int) Math.ceil(maxI) });
+	}
+
+	/**
+	 * Prepares a plane for solving per pixel.
+	 *
+	 * @param view  the view
+	 * @param plane the plane
+	 * @return the projected plane, or null if the camera lies on the plane
+	 */
+	private static ProjectedPlane project(View view, Plane plane) {
+		Vector normal = plane.getNormal();
+		Point q = plane.getPoint();
+		Point p0 = view.p0;
+		double nx = normal.getX(), ny = normal.getY(), nz = normal.getZ();
+		double numerator = nx * (q.getX() - p0.getX()) + ny * (q.getY() - p0.getY()) + nz * (q.getZ() - p0.getZ());
+		return isZero(numerator) ? null : new ProjectedPlane(plane, nx, ny, nz, numerator);
+	}
+
+	/**
+	 * Scan converts a projected triangle into the rows of a band.
+	 *
+	 * @param view     the view
+	 * @param triangle the triangle
+	 * @param rowMin   the first row of the band
+	 * @param rowMax   the last row of the band
+	 * @param buffer   the hit buffer
+	 */
+	private static void rasterize(View view, ProjectedTriangle triangle, int rowMin, int rowMax, HitBuffer buffer) {
+		double[] js = triangle.j(), is = triangle.i();
+		int i0 = Math.max(rowMin, (int) Math.floor(Math.min(is[0], Math.min(is[1], is[2]))));
+		int i1 = Math.min(rowMax, (int) Math.ceil(Math.max(is[0], Math.max(is[1], is[2]))));
+		int j0 = Math.max(0, (int) Math.floor(Math.min(js[0], Math.min(js[1], js[2]))));
+		int j1 = Math.min(view.nX - 1, (int) Math.ceil(Math.max(js[0], Math.max(js[1], js[2]))));
+		if (i0 > i1 || j0 > j1)
+			return;
+
+		double area = (js[1] - js[0]) * (is[2] - is[0]) - (is[1] - is[0]) * (js[2] - js[0]);
+		double[] lengths = new double[3];
+		for (int k = 0; k < 3; ++k) {
+			int next = (k + 1) % 3;
+			lengths[k] = Math.hypot(js[next] - js[k], is[next] - is[k]);
+		}
+		boolean degenerate = Math.abs(area) <= EDGE_EPSILON * Math.max(lengths[0], Math.max(lengths[1], lengths[2]));
+
+		for (int i = i0; i <= i1; ++i)
+			for (int j = j0; j <= j1; ++j) {
+				int pixel = i * view.nX + j;
+				if (degenerate) {
+					// a triangle seen edge on: let the rays decide
+					buffer.unresolved[pixel] = true;
+					continue;
+				}
+				boolean inside = true;
+				for (int k = 0; k < 3; ++k) {
+					int next = (k + 1) % 3;
+					double edge = (js[next] - js[k]) * (i - is[k]) - (is[next] - is[k]) * (j - js[k]);
+					if (Math.abs(edge) <= EDGE_EPSILON * lengths[k]) {
+						buffer.unresolved[pixel] = true;
+						inside = false;
+						break;
+					}
+					if (edge * area < 0) {
+						inside = false;
+						break;
+					}
+				}
+				if (!inside)
+					continue;
+
+				double dx = view.cx + view.rightX * view.xJ[j] + view.upX * view.yI[i];
+				double dy = view.cy + view.rightY * view.xJ[j] + view.upY * view.yI[i];
+				double dz = view.cz + view.rightZ * view.xJ[j] + view.upZ * view.yI[i];
+				double s = triangle.numerator() / (triangle.nx() * dx + triangle.ny() * dy + triangle.nz() * dz);
+				if (s > 0)
+					write(buffer, pixel, triangle.geometry(), s);
+			}
+	}
+
+	/**
+	 * Solves the intersections of a projected sphere with the pixel vectors of the
+	 * rows of a band.
+	 *
+	 * @param view   the view
+	 * @param sphere the sphere
+	 * @param rowMin the first row of the band
+	 * @param rowMax the last row of the band
+	 * @param buffer the hit buffer
+	 */
+	private static void rasterize(View view, ProjectedSphere sphere, int rowMin, int rowMax, HitBuffer buffer) {
+		int[] bounds = sphere.bounds();
+		int i0 = Math.max(rowMin, bounds[2]), i1 = Math.min(rowMax, bounds[3]);
+		int j0 = Math.max(0, bounds[0]), j1 = Math.min(view.nX - 1, bounds[1]);
+		double ux = sphere.ux(), uy = sphere.uy(), uz = sphere.uz();
+		double c = ux * ux + uy * uy + uz * uz - sphere.radiusSquared();
+		double tangent = sphere.radiusSquared() * DEPTH_EPSILON * 1E3;
+
+		for (int i = i0; i <= i1; ++i)
+			for (int j = j0; j <= j1; ++j) {
+				double dx = view.cx + view.rightX * view.xJ[j] + view.upX * view.yI[i];
+				double dy = view.cy + view.rightY * view.xJ[j] + view.upY * view.yI[i];
+				double dz = view.cz + view.rightZ * view.xJ[j] + view.upZ * view.yI[i];
+				double a = dx * dx + dy * dy + dz * dz;
+				double b = ux * dx + uy * dy + uz * dz;
+				// the squared half chord, in scene units
+				double thSquared = (b * b - a * c) / a;
+				int pixel = i * view.nX + j;
+				if (Math.abs(thSquared) <= tangent) {
+					buffer.unresolved[pixel] = true;
+					continue;
+				}
+				if (thSquared < 0)
+					continue;
+				double s = (b - Math.sqrt(b * b - a * c)) / a;
+				if (s > 0)
+					write(buffer, pixel, sphere.sphere(), s);
+			}
+	}
+
+	/**
+	 * Solves the intersections of a plane with the pixel vectors of the rows of a
+	 * band.
+	 *
+	 * @param view   the view
+	 * @param plane  the plane
+	 * @param rowMin the first row of the band
+	 * @param rowMax the last row of the band
+	 * @param buffer the hit buffer
+	 */
+	private static void rasterize(View view, ProjectedPlane plane, int rowMin, int rowMax, HitBuffer buffer) {
+		for (int i = rowMin; i <= rowMax; ++i)
+			for (int j = 0; j < view.nX; ++j) {
+				double dx = view.cx + view.rightX * view.xJ[j] + view.upX * view.yI[i];
+				double dy = view.cy + view.rightY * view.xJ[j] + view.upY * view.yI[i];
+				double dz = view.cz + view.rightZ * view.xJ[j] + view.upZ * view.yI[i];
+				double s = plane.numerator() / (plane.nx() * dx + plane.ny() * dy + plane.nz() * dz);
+				// a pixel vector parallel to the plane gives an infinite or NaN depth and fails
+				if (s > 0 && s != Double.POSITIVE_INFINITY)
+					write(buffer, i * view.nX + j, plane.plane(), s);
+			}
+	}
+
+	/**
+	 * Writes a primitive into a pixel of the hit buffer if it is closer than the
+	 * primitive already there. A pixel of primitives at equal depths is left to
+	 * the rays.
+	 *
+	 * @param buffer   the hit buffer
+	 * @param pixel    the pixel
+	 * @param geometry the primitive
+	 * @param s        the depth, along the vector from the camera to the pixel
+	 */
+	private static void write(HitBuffer buffer, int pixel, Geometry geometry, double s) {
+		double current = buffer.depths[pixel];
+		if (current != Double.POSITIVE_INFINITY && Math.abs(s - current) <= current * DEPTH_EPSILON) {
+			if (buffer.geometries[pixel] != geometry)
+				buffer.unresolved[pixel] = true;
+		} else if (s < current) {
+			buffer.geometries[pixel] = geometry;
+			buffer.depths[pixel] = s;
+		}
+	}
+}
@@ -2,7 +2,9 @@ package renderer;
 
 import java.util.List;
 
+import geometries.Intersectable.GeoPoint;
 import primitives.*;
+import scene.CompiledScene;
 import scene.Scene;
 
 /**
@@ -23,6 +25,23 @@ public abstract class RayTracerBase {
 		this.scene = scene;
 	}
 
+	/**
+	 * Prepares the ray tracer for rendering the current state of the scene. The
+	 * camera calls it once before rendering an image. The default implementation
+	 * does nothing.
+	 */
+	public void prepare() {
+	}
+
+	/**
+	 * Prepares the ray tracer for rendering after only the lights, the ambient
+	 * light or the background of the scene changed, such as when relighting from
+	 * a geometry buffer. The default implementation prepares everything.
+	 */
+	public void prepareLights() {
+		prepare();
+	}
+
 	/**
 	 * Traces a ray and determines the color at the intersection point. This method
 	 * must be implemented by subclasses.
@@ -31,6 +50,65 @@ public abstract class RayTracerBase {
 	 * @return The color at the intersection point.
 	 */
 	public abstract Color traceRay(Ray ray);
+
+	/**
+	 * Traces a primary ray whose closest intersection is already known, such as
+	 * an intersection found by rasterization. The default implementation ignores
+	 * the intersection and traces the ray.
+	 *
+	 * @param ray The ray to trace.
+	 * @param hit The closest intersection of the ray, or null if the ray hits
+	 *            nothing.
+	 * @return The color at the intersection point.
+	 */
+	public Color traceRay(Ray ray, GeoPoint hit) {
+		return traceRay(ray);
+	}
+
+	/**
+	 * Shades a primary sample cached in a geometry buffer. The default
+	 * implementation shades it as a ray with a known closest intersection.
+	 *
+	 * @param sample The sample.
+	 * @return The color of the sample.
+	 */
+	public Color shade(GBuffer.Sample sample) {
+		return traceRay(sample.ray(), sample.hit());
+	}
+
+	/**
+	 * Returns the compiled snapshot of the scene that the tracer renders, for
+	 * passes that find the primary visibility by other means than tracing.
+	 *
+	 * @return the compiled scene, or null if the tracer does not compile the scene
+	 */
+	public CompiledScene getCompiledScene() {
+		return null;
+	}
+
+	/**
+	 * Returns the width and height, in pixels, of the tiles that a camera should
+	 * trace as packets with {@link #traceRays(Ray[])}.
+	 *
+	 * @return the size of the tiles
+	 */
+	public int getPacketSize() {
+		return 4;
+	}
+
+	/**
+	 * Traces a packet of coherent rays, such as the primary rays of a tile of
+	 * neighbouring pixels. The default implementation traces the rays one by one.
+	 *
+	 * @param rays The rays to trace.
+	 * @return The color of each ray.
+	 */
+	public Color[] traceRays(Ray[] rays) {
+		Color[] colors = new Color[rays.length];
+		for (int i = 0; i < rays.length; ++i)
+			colors[i] = traceRay(rays[i]);
+		return colors;
+	}
 	
 	/**
 	 * Calculates the average color from a list of rays.
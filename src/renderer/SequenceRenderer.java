@@ -0,0 +1,270 @@
+package renderer;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import geometries.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Renders an animation as a numbered sequence of images. The camera follows a
+ * path of keyframes, and animated geometries are moved by a transform per
+ * frame. <br/>
+ * The geometries of the scene itself are static: their acceleration structure
+ * is built once and shared by all the frames. Only the animated geometries are
+ * transformed every frame; they are kept in a {@link DynamicBVH} whose leaves
+ * are moved and refitted from frame to frame. While a frame is rendered, the
+ * image of the previous frame is encoded and written in the background.
+ */
+public class SequenceRenderer {
+	/**
+	 * A keyframe of the camera path. Between keyframes the location, the target
+	 * and the spin angle are interpolated linearly.
+	 *
+	 * @param frame    the frame of the key
+	 * @param position the location of the camera
+	 * @param target   the point the camera looks at
+	 * @param spin     the angle, in degrees, by which the camera spins around its
+	 *                 axis
+	 */
+	public record CameraKey(int frame, Point position, Point target, double spin) {
+	}
+
+	/**
+	 * An animated geometry.
+	 *
+	 * @param geometry the geometry at its rest position
+	 * @param track    the transform of the geometry in each frame
+	 */
+	private record Animated(Intersectable geometry, IntFunction<Transform> track) {
+	}
+
+	/** The scene, whose geometries are static */
+	private final Scene scene;
+	/** The builder of the camera of the frames */
+	private final Camera.Builder camera;
+	/** The name of the sequence, the prefix of the image names */
+	private final String name;
+	/** The resolution of the images */
+	private final int nX, nY;
+	/** The keyframes of the camera, sorted by frame */
+	private final List<CameraKey> keys = new ArrayList<>();
+	/** The animated geometries */
+	private final List<Animated> animated = new ArrayList<>();
+	/** The kind of the acceleration structure of the static geometries */
+	private AccelerationStructure acceleration = AccelerationStructure.BVH;
+	/** Creates the ray tracer of a frame */
+	private Function<Scene, RayTracerBase> rayTracer = SimpleRayTracer::new;
+
+	/**
+	 * Constructs a sequence renderer.
+	 *
+	 * @param scene  the scene; its geometries are static
+	 * @param camera the camera builder, with the view plane and the rendering
+	 *               settings of the frames; its view, image writer and ray tracer
+	 *               are set for every frame
+	 * @param name   the name of the sequence; frame N is written to the image
+	 *               name_N, with N padded to four digits
+	 * @param nX     the number of columns of the images
+	 * @param nY     the number of rows of the images
+	 */
+	public SequenceRenderer(Scene scene, Camera.Builder camera, String name, int nX, int nY) {
+		this.scene = scene;
+		this.camera = camera;
+		this.name = name;
+		this.nX = nX;
+		this.nY = nY;
+	}
+
+	/**
+	 * Adds a keyframe to the camera path.
+	 *
+	 * @param frame    the frame of the key
+	 * @param position the location of the camera
+	 * @param target   the point the camera looks at
+	 * @param spin     the spin angle of the camera, in degrees
+	 * @return the sequence renderer itself
+	 * @throws IllegalArgumentException if there is already a key for the frame
+	 */
+	public SequenceRenderer addCameraKey(int frame, Point position, Point target, double spin) {
+		for (CameraKey key : keys)
+			if (key.frame() == frame)
+				throw new IllegalArgumentException("There is already a camera key for frame " + frame);
+		keys.add(new CameraKey(frame, position, target, spin));
+		keys.sort(Comparator.comparingInt(CameraKey::frame));
+		return this;
+	}
+
+	/**
+	 * Adds an animated geometry. The geometry must not be a part of the
+	 * geometries of the scene.
+	 *
+	 * @param geometry the geometry at its rest position
+	 * @param track    the transform of the geometry in each frame
+	 * @return the sequence renderer itself
+	 */
+	public SequenceRenderer animate(Intersectable geometry, IntFunction<Transform> track) {
+		animated.add(new Animated(geometry, track));
+		return this;
+	}
+
+	/**
+	 * Sets the kind of the acceleration structure of the static geometries.
+	 *
+	 * @param acceleration the kind of the acceleration structure
+	 * @return the sequence renderer itself
+	 */
+	public SequenceRenderer setAcceleration(AccelerationStructure acceleration) {
+		this.acceleration = acceleration;
+		return this;
+	}
+
+	/**
+	 * Sets the creator of the ray tracer of a frame.
+	 *
+	 * @param rayTracer creates the ray tracer of the scene of a frame
+	 * @return the sequence renderer itself
+	 */
+	public SequenceRenderer setRayTracer(Function<Scene, RayTracerBase> rayTracer) {
+		this.rayTracer = rayTracer;
+		return this;
+	}
+
+	/**
+	 * Renders the frames of the sequence and writes their images.
+	 *
+	 * @param first the first frame
+	 * @param last  the last frame
+	 * @throws MissingResourceException if there are no camera keys
+	 */
+	public void render(int first, int last) {
+		if (keys.isEmpty())
+			throw new MissingResourceException("Missing camera path", SequenceRenderer.class.getName(), "keys");
+
+		List<Intersectable> primitives = new ArrayList<>();
+		flatten(scene.geometries, primitives);
+		Intersectable statics = acceleration.build(primitives);
+		DynamicBVH moving = new DynamicBVH();
+		List<Intersectable> current = new ArrayList<>();
+
+		ExecutorService writer = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> pending = null;
+			for (int frame = first; frame <= last; ++frame) {
+				moveAnimated(frame, moving, current);
+				Camera frameCamera = frameCamera(frame, frameScene(frame, statics, moving));
+				frameCamera.renderImage();
+				// at most one image waits to be written while the next frame renders
+				if (pending != null)
+					pending.get();
+				pending = writer.submit(frameCamera::writeToImage);
+			}
+			if (pending != null)
+				pending.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Failed to write a frame of " + name, e.getCause());
+		} finally {
+			writer.shutdown();
+		}
+	}
+
+	/**
+	 * Moves the animated geometries to a frame. The primitives of the transformed
+	 * copies replace, one by one, the primitives of the previous frame in the
+	 * hierarchy of the animated geometries.
+	 *
+	 * @param frame   the frame
+	 * @param moving  the hierarchy of the animated geometries
+	 * @param current in and out: the primitives of the animated geometries in the
+	 *                hierarchy
+	 */
+	private void moveAnimated(int frame, DynamicBVH moving, List<Intersectable> current) {
+		List<Intersectable> moved = new ArrayList<>();
+		for (Animated geometry : animated)
+			flatten(geometry.geometry().transform(geometry.track().apply(frame)), moved);
+		if (current.isEmpty())
+			moving.insert(moved.toArray(new Intersectable[0]));
+		else
+			for (int i = 0; i < moved.size(); ++i)
+				moving.move(current.get(i), moved.get(i));
+		current.clear();
+		current.addAll(moved);
+	}
+
+	/**
+	 * Creates the scene of a frame: the lights of the scene, the shared static
+	 * acceleration structure and the animated geometries.
+	 *
+	 * @param frame   the frame
+	 * @param statics the acceleration structure of the static geometries
+	 * @param moving  the hierarchy of the animated geometries
+	 * @return the scene of the frame
+	 */
+	private Scene frameScene(int frame, Intersectable statics, DynamicBVH moving) {
+		Scene frameScene = new Scene(scene.name + " " + frame).setBackground(scene.background)
+				.setAmbientLight(scene.ambientLight).setLight(scene.lights);
+		frameScene.geometries.add(statics);
+		if (!animated.isEmpty())
+			frameScene.geometries.add(moving);
+		return frameScene;
+	}
+
+	/**
+	 * Builds the camera of a frame, interpolating the camera path.
+	 *
+	 * @param frame      the frame
+	 * @param frameScene the scene of the frame
+	 * @return the camera
+	 */
+	private Camera frameCamera(int frame, Scene frameScene) {
+		CameraKey from = keys.getFirst(), to = keys.getLast();
+		for (CameraKey key : keys) {
+			if (key.frame() <= frame)
+				from = key;
+			if (key.frame() >= frame) {
+				to = key;
+				break;
+			}
+		}
+		double t = from.frame() >= to.frame() ? 0 : (double) (frame - from.frame()) / (to.frame() - from.frame());
+
+		return camera.setView(interpolate(from.position(), to.position(), t),
+				interpolate(from.target(), to.target(), t)) //
+				.cameraSpin(from.spin() + (to.spin() - from.spin()) * t) //
+				.setImageWriter(new ImageWriter(String.format("%s_%04d", name, frame), nX, nY)) //
+				.setRayTracer(rayTracer.apply(frameScene)) //
+				.build();
+	}
+
+	/**
+	 * Interpolates linearly between two points.
+	 *
+	 * @param a the first point
+	 * @param b the second point
+	 * @param t the interpolation parameter, 0 for the first point and 1 for the
+	 *          second
+	 * @return the interpolated point
+	 */
+	private static Point interpolate(Point a, Point b, double t) {
+		return new Point(a.getX() + (b.getX() - a.getX()) * t, a.getY() + (b.getY() - a.getY()) * t,
+				a.getZ() + (b.getZ() - a.getZ()) * t);
+	}
+
+	/**
+	 * Collects the primitives of a tree of geometries.
+	 *
+	 * @param geometry   the geometry (or collection of geometries)
+	 * @param primitives output: the primitives
+	 */
+	private static void flatten(Intersectable geometry, List<Intersectable> primitives) {
+		if (geometry instanceof Geometries collection)
+			for (Intersectable child : collection.getGeometries())
+				flatten(child, primitives);
+		else
+			primitives.add(geometry);
+	}
+}
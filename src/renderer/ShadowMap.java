@@ -0,0 +1,189 @@
+package renderer;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import geometries.*;
+import geometries.Intersectable.GeoPoint;
+import lighting.*;
+import primitives.*;
+import scene.CompiledScene;
+
+/**
+ * A precomputed depth map of a light source, used to approximate shadow rays.
+ * The map consists of one or more square faces of texels; each texel holds the
+ * distance from the light to the first geometry hit by a ray cast from the
+ * light through the texel center. A point is lit if it is not farther from the
+ * light than the depth stored in its texel. <br/>
+ * The lookup examines the 3x3 texels around the point. If they all agree the
+ * point is fully lit or fully shadowed. If they disagree - the point is near a
+ * depth discontinuity - the map either returns the bilinearly filtered
+ * fraction of lit texels (percentage-closer filtering) or requests an exact shadow ray. An
+ * exact ray is also requested when the first hit of any of the texels is
+ * transparent, or when the point is out of the map.
+ */
+abstract class ShadowMap {
+	/** The depth comparison bias, in texel sizes */
+	private static final double BIAS_TEXELS = 2;
+	/** The minimal depth comparison bias, same as the offset of a shadow ray head */
+	private static final double MIN_BIAS = 0.1;
+
+	/** The resolution of each face of the map */
+	protected final int resolution;
+	/** The amount of faces of the map */
+	private final int faces;
+	/** The depths of the texels, face by face, row by row */
+	private final float[] depths;
+	/** Texels whose first hit is a transparent geometry */
+	private final boolean[] transparent;
+	/** Whether to filter the texels around a depth discontinuity */
+	private final boolean filtering;
+
+	/**
+	 * Constructs an empty shadow map.
+	 *
+	 * @param resolution the resolution of each face of the map
+	 * @param faces      the amount of faces of the map
+	 * @param filtering  whether to use percentage-closer filtering
+	 */
+	protected ShadowMap(int resolution, int faces, boolean filtering) {
+		this.resolution = resolution;
+		this.faces = faces;
+		this.filtering = filtering;
+		depths = new float[faces * resolution * resolution];
+		transparent = new boolean[depths.length];
+	}
+
+	/**
+	 * Creates and builds a shadow map for a light source.
+	 *
+	 * @param light      the light source, one of the lights of the snapshot
+	 * @param scene      the compiled snapshot of the scene
+	 * @param unbounded  the unbounded geometries of the scene, which may lie
+	 *                   outside the bounds of the scene
+	 * @param resolution the resolution of each face of the map
+	 * @param filtering  whether to use percentage-closer filtering
+	 * @return the shadow map, or null if the light does not support shadow maps
+	 */
+	static ShadowMap create(LightSource light, CompiledScene scene, List<Intersectable> unbounded, int resolution,
+			boolean filtering) {
+		BoundingBox bounds = scene.getBounds();
+		ShadowMap map;
+		if (light instanceof AreaLight)
+			return null; // soft shadows are sampled
+		else if (light instanceof SpotLight spot)
+			map = new PerspectiveShadowMap(spot, resolution, filtering);
+		else if (light instanceof PointLight point)
+			map = new CubeShadowMap(point, resolution, filtering);
+		else if (light instanceof DirectionalLight directional) {
+			if (bounds == null)
+				return null;
+			map = new OrthographicShadowMap(directional, bounds, unbounded, resolution, filtering);
+		} else
+			return null;
+		map.build(scene.getOccluders(light), scene);
+		return map;
+	}
+
+	/**
+	 * Builds the map by casting the texel rays into the geometries, in parallel.
+	 *
+	 * @param geometries the geometries of the scene
+	 * @param scene      the compiled snapshot of the scene, for the materials
+	 */
+	private void build(Intersectable geometries, CompiledScene scene) {
+		int faceSize = resolution * resolution;
+		IntStream.range(0, depths.length).parallel().forEach(index -> {
+			int texel = index % faceSize;
+			Ray ray = texelRay(index / faceSize, texel % resolution + 0.5, texel / resolution + 0.5);
+			GeoPoint hit = geometries.findClosestGeoIntersection(ray);
+			if (hit == null)
+				depths[index] = Float.POSITIVE_INFINITY;
+			else {
+				depths[index] = (float) ray.getHead().distance(hit.point);
+				transparent[index] = !scene.getMaterial(hit.geometry).kT.equals(Double3.ZERO);
+			}
+		});
+	}
+
+	/**
+	 * Approximates the transparency factor between a point and the light.
+	 *
+	 * @param point the point
+	 * @return the transparency factor, or null if an exact shadow ray is required
+	 */
+	Double3 transparency(Point point) {
+		double[] texel = new double[5];
+		if (!project(point, texel))
+			return null;
+
+		int face = (int) texel[0];
+		int x = Math.min((int) texel[1], resolution - 1);
+		int y = Math.min((int) texel[2], resolution - 1);
+		double depth = texel[3] - MIN_BIAS - BIAS_TEXELS * texel[4];
+
+		int lit = 0;
+		int count = 0;
+		for (int i = Math.max(y - 1, 0); i <= Math.min(y + 1, resolution - 1); ++i)
+			for (int j = Math.max(x - 1, 0); j <= Math.min(x + 1, resolution - 1); ++j) {
+				int index = (face * resolution + i) * resolution + j;
+				if (transparent[index])
+					return null;
+				++count;
+				if (depth <= depths[index])
+					++lit;
+			}
+
+		if (lit == count)
+			return Double3.ONE;
+		if (lit == 0)
+			return Double3.ZERO;
+		return filtering ? new Double3(filter(face, texel[1] - 0.5, texel[2] - 0.5, depth)) : null;
+	}
+
+	/**
+	 * Calculates the fraction of lit texels around a point of a face by bilinear
+	 * interpolation of the depth comparisons of the four nearest texels.
+	 *
+	 * @param face  the face
+	 * @param x     the horizontal coordinate, relative to the texel centers
+	 * @param y     the vertical coordinate, relative to the texel centers
+	 * @param depth the (biased) depth of the point
+	 * @return the lit fraction
+	 */
+	private double filter(int face, double x, double y, double depth) {
+		int x0 = (int) Math.floor(x);
+		int y0 = (int) Math.floor(y);
+		double wx = x - x0;
+		double wy = y - y0;
+		double result = 0;
+		for (int i = 0; i <= 1; ++i)
+			for (int j = 0; j <= 1; ++j) {
+				int row = Math.clamp(y0 + i, 0, resolution - 1);
+				int col = Math.clamp(x0 + j, 0, resolution - 1);
+				if (depth <= depths[(face * resolution + row) * resolution + col])
+					result += (i == 0 ? 1 - wy : wy) * (j == 0 ? 1 - wx : wx);
+			}
+		return result;
+	}
+
+	/**
+	 * Constructs the ray from the light through a point of a face of the map.
+	 *
+	 * @param face the face
+	 * @param x    the horizontal texel coordinate (0 to resolution)
+	 * @param y    the vertical texel coordinate (0 to resolution)
+	 * @return the ray
+	 */
+	protected abstract Ray texelRay(int face, double x, double y);
+
+	/**
+	 * Projects a point onto the map.
+	 *
+	 * @param point the point
+	 * @param texel output: the face, the horizontal and vertical texel coordinates,
+	 *              the depth of the point and the size of a texel at that depth
+	 * @return false if the point is out of the map, true otherwise
+	 */
+	protected abstract boolean project(Point point, double[] texel);
+}
@@ -1,13 +1,16 @@
 package renderer;
 
+import geometries.*;
 import geometries.Intersectable.GeoPoint;
 import lighting.*;
 import primitives.*;
+import primitives.Vector;
 import static primitives.Util.*;
 
-import java.util.List;
+import java.nio.file.Path;
+import java.util.*;
 
-import scene.Scene;
+import scene.*;
 
 /**
  * A simple implementation of the RayTracerBase class. This class provides basic
@@ -18,17 +21,128 @@ public class SimpleRayTracer extends RayTracerBase {
 	/**
 	 * The maximum recursion level for color calculation.
 	 */
-	private static final int MAX_CALC_COLOR_LEVEL = 10;
+	static final int MAX_CALC_COLOR_LEVEL = 10;
 
 	/**
 	 * The minimum attenuation factor for color calculation.
 	 */
-	private static final double MIN_CALC_COLOR_K = 0.007;
+	static final double MIN_CALC_COLOR_K = 0.007;
 
 	/**
 	 * The initial attenuation factor for color calculation.
 	 */
-	private static final Double3 INITIAL_K = Double3.ONE;
+	static final Double3 INITIAL_K = Double3.ONE;
+
+	/**
+	 * The compiled snapshot of the scene, built by {@link #prepare()}. It is
+	 * volatile for the double-checked preparation in {@link #ensurePrepared()},
+	 * and written after the shadow maps so that a thread that sees it sees them
+	 * too.
+	 */
+	volatile CompiledScene compiled = null;
+
+	/**
+	 * The resolution of the shadow maps, 0 if shadow maps are not used.
+	 */
+	private int shadowMapResolution = 0;
+
+	/**
+	 * Whether to use percentage-closer filtering in the shadow maps.
+	 */
+	private boolean shadowMapFiltering = false;
+
+	/**
+	 * The kind of the acceleration structures of the compiled scene, chosen from
+	 * the geometries by default.
+	 */
+	private AccelerationStructure acceleration = AccelerationStructure.AUTO;
+
+	/**
+	 * The cache of the hierarchies built in earlier runs, null to always build
+	 * them.
+	 */
+	private BVHCache bvhCache = null;
+
+	/**
+	 * The shadow maps of the lights, built by {@link #prepare()}.
+	 */
+	private Map<LightSource, ShadowMap> shadowMaps = Map.of();
+
+	/**
+	 * The trace stack of each rendering thread.
+	 */
+	private final ThreadLocal<TraceStack> stacks = ThreadLocal.withInitial(TraceStack::new);
+
+	/**
+	 * A fixed size stack of pending secondary rays. Each entry holds the ray, its
+	 * remaining recursion level and the attenuation accumulated along its path.
+	 * Since the rays are processed depth first and every ray adds at most two
+	 * rays, the stack never holds more than two rays per recursion level.
+	 */
+	private static class TraceStack {
+		/** The capacity of the stack */
+		private static final int CAPACITY = 2 * MAX_CALC_COLOR_LEVEL;
+		/** The pending rays */
+		private final Ray[] rays = new Ray[CAPACITY];
+		/** The remaining recursion level of each pending ray */
+		private final int[] levels = new int[CAPACITY];
+		/** The accumulated attenuation of each pending ray */
+		private final Double3[] attenuations = new Double3[CAPACITY];
+		/** The amount of pending rays */
+		private int size = 0;
+
+		/**
+		 * Pushes a ray onto the stack.
+		 *
+		 * @param ray   the ray
+		 * @param level the remaining recursion level of the ray
+		 * @param k     the accumulated attenuation of the ray
+		 */
+		void push(Ray ray, int level, Double3 k) {
+			rays[size] = ray;
+			levels[size] = level;
+			attenuations[size++] = k;
+		}
+
+		/**
+		 * Removes the top ray from the stack.
+		 *
+		 * @return the top ray
+		 */
+		Ray pop() {
+			Ray ray = rays[--size];
+			rays[size] = null;
+			attenuations[size] = null;
+			return ray;
+		}
+
+		/**
+		 * Returns the remaining recursion level of the top ray.
+		 *
+		 * @return the level of the top ray
+		 */
+		int level() {
+			return levels[size - 1];
+		}
+
+		/**
+		 * Returns the accumulated attenuation of the top ray.
+		 *
+		 * @return the attenuation of the top ray
+		 */
+		Double3 attenuation() {
+			return attenuations[size - 1];
+		}
+
+		/**
+		 * Checks whether there are no pending rays.
+		 *
+		 * @return true if the stack is empty
+		 */
+		boolean isEmpty() {
+			return size == 0;
+		}
+	}
 
 	/**
 	 * Constructs a new SimpleRayTracer with the specified scene.
@@ -39,6 +153,139 @@ public class SimpleRayTracer extends RayTracerBase {
 		super(scene);
 	}
 
+	/**
+	 * Enables approximating the shadow rays of point, spot and directional lights
+	 * by precomputed shadow maps. Points near depth discontinuities are either
+	 * filtered or traced exactly.
+	 *
+	 * @param resolution the resolution of each face of the maps, 0 to trace exact
+	 *                   shadow rays
+	 * @param filtering  true to use percentage-closer filtering near depth
+	 *                   discontinuities, false to trace exact shadow rays there
+	 * @return the ray tracer itself for method chaining
+	 */
+	public SimpleRayTracer setShadowMaps(int resolution, boolean filtering) {
+		if (resolution < 0)
+			throw new IllegalArgumentException("Shadow map resolution must not be negative");
+		this.shadowMapResolution = resolution;
+		this.shadowMapFiltering = filtering;
+		return this;
+	}
+
+	/**
+	 * Sets the kind of the acceleration structures the scene is compiled into.
+	 *
+	 * @param acceleration the kind of the acceleration structures
+	 * @return the ray tracer itself for method chaining
+	 */
+	public SimpleRayTracer setAcceleration(AccelerationStructure acceleration) {
+		if (acceleration == null)
+			throw new IllegalArgumentException("Acceleration structure must not be null");
+		this.acceleration = acceleration;
+		return this;
+	}
+
+	/**
+	 * Returns a ray tracer of the same class, scene and settings, except that it
+	 * compiles the scene into another kind of acceleration structures. This ray
+	 * tracer and its compiled snapshot are not changed, so cameras that share it
+	 * are not affected.
+	 *
+	 * @param acceleration the kind of the acceleration structures
+	 * @return the new ray tracer
+	 */
+	public SimpleRayTracer withAcceleration(AccelerationStructure acceleration) {
+		SimpleRayTracer tracer = newInstance() //
+				.setShadowMaps(shadowMapResolution, shadowMapFiltering) //
+				.setAcceleration(acceleration);
+		tracer.bvhCache = bvhCache;
+		return tracer;
+	}
+
+	/**
+	 * Creates a ray tracer of the same class and scene with the default settings,
+	 * for {@link #withAcceleration(AccelerationStructure)} to copy the settings
+	 * into. A subclass overrides it to create an instance of its own class.
+	 *
+	 * @return the new ray tracer
+	 */
+	protected SimpleRayTracer newInstance() {
+		return new SimpleRayTracer(scene);
+	}
+
+	/**
+	 * Sets a directory in which the built hierarchies are kept between runs, so
+	 * a scene whose geometries didn't change loads its hierarchies instead of
+	 * building them. Only the bounding volume hierarchies are kept; the other
+	 * structures are always built.
+	 *
+	 * @param directory the directory of the cache, null to always build
+	 * @return the ray tracer itself for method chaining
+	 */
+	public SimpleRayTracer setBVHCache(Path directory) {
+		this.bvhCache = directory == null ? null : new BVHCache(directory);
+		return this;
+	}
+
+	/**
+	 * Compiles the current state of the scene and builds the shadow maps of the
+	 * lights if enabled. The rendering uses the compiled snapshot, so changes to
+	 * the scene take effect only after the next preparation.
+	 */
+	@Override
+	public synchronized void prepare() {
+		publish(scene.compile(acceleration, bvhCache));
+	}
+
+	/**
+	 * Compiles the current lights of the scene over the geometries of the last
+	 * compiled snapshot, without building the acceleration structure over the
+	 * geometries again, and rebuilds the shadow maps if enabled. If there is no
+	 * snapshot yet, or it was compiled into another kind of structure, the whole
+	 * scene is compiled.
+	 */
+	@Override
+	public synchronized void prepareLights() {
+		CompiledScene current = compiled;
+		if (current == null || current.getAcceleration() != acceleration)
+			prepare();
+		else
+			publish(current.relight(scene));
+	}
+
+	/**
+	 * Builds the shadow maps of a compiled snapshot if enabled and publishes the
+	 * snapshot to the rendering.
+	 *
+	 * @param snapshot the compiled snapshot
+	 */
+	private void publish(CompiledScene snapshot) {
+		Map<LightSource, ShadowMap> maps = new HashMap<>();
+		if (shadowMapResolution > 0) {
+			List<Intersectable> unbounded = snapshot.getPrimitives().stream()
+					.filter(primitive -> primitive.getBoundingBox() == null).toList();
+			for (LightSource light : snapshot.lights) {
+				ShadowMap map = ShadowMap.create(light, snapshot, unbounded, shadowMapResolution,
+						shadowMapFiltering);
+				if (map != null)
+					maps.put(light, map);
+			}
+		}
+		shadowMaps = maps;
+		compiled = snapshot;
+	}
+
+	/**
+	 * Makes sure the tracer is prepared, for tracing without a camera.
+	 */
+	void ensurePrepared() {
+		if (compiled == null)
+			synchronized (this) {
+				if (compiled == null)
+					prepare();
+			}
+	}
+
 	/**
 	 * Finds the closest intersection point of a ray with the geometries in the
 	 * scene.
@@ -48,7 +295,7 @@ public class SimpleRayTracer extends RayTracerBase {
 	 *         geometries, or null if no intersections are found.
 	 */
 	private GeoPoint findClosestIntersection(Ray ray) {
-		return ray.findClosestGeoPoint(scene.geometries.findGeoIntersections(ray));
+		return compiled.geometries.findClosestGeoIntersection(ray);
 	}
 
 	/**
@@ -61,47 +308,159 @@ public class SimpleRayTracer extends RayTracerBase {
 	 */
 	@Override
 	public Color traceRay(Ray ray) {
+		ensurePrepared();
 		GeoPoint closestPoint = findClosestIntersection(ray);
-		return closestPoint == null ? scene.background : calcColor(closestPoint, ray);
+		return closestPoint == null ? compiled.background : calcColor(closestPoint, ray);
+	}
+
+	/**
+	 * Shades a primary ray from its known closest intersection, tracing only the
+	 * secondary and shadow rays.
+	 *
+	 * @param ray The ray to trace.
+	 * @param hit The closest intersection of the ray, or null if the ray hits
+	 *            nothing.
+	 * @return The color of the intersection point, or the background color if
+	 *         there is no intersection.
+	 */
+	@Override
+	public Color traceRay(Ray ray, GeoPoint hit) {
+		ensurePrepared();
+		return hit == null ? compiled.background : calcColor(hit, ray);
+	}
+
+	/**
+	 * Shades a cached primary sample with the normal stored in the sample, tracing
+	 * only the secondary and shadow rays.
+	 *
+	 * @param sample The sample.
+	 * @return The color of the sample, or the background color if it has no
+	 *         intersection.
+	 */
+	@Override
+	public Color shade(GBuffer.Sample sample) {
+		ensurePrepared();
+		if (sample.hit() == null)
+			return compiled.background;
+		TraceStack stack = stacks.get();
+		return compiled.ambientLight.getIntensity().add(calcColor(
+				calcColor(sample.hit(), sample.ray(), sample.normal(), MAX_CALC_COLOR_LEVEL, INITIAL_K, stack), stack));
+	}
+
+	@Override
+	public CompiledScene getCompiledScene() {
+		ensurePrepared();
+		return compiled;
+	}
+
+	/**
+	 * Traces a packet of coherent rays. The closest intersections of all the rays
+	 * are found together by the acceleration structure; the intersections are
+	 * then shaded one by one.
+	 *
+	 * @param rays The rays to trace.
+	 * @return The color of each ray.
+	 */
+	@Override
+	public Color[] traceRays(Ray[] rays) {
+		ensurePrepared();
+		GeoPoint[] hits = new GeoPoint[rays.length];
+		compiled.geometries.findClosestGeoIntersections(rays, hits);
+		Color[] colors = new Color[rays.length];
+		for (int i = 0; i < rays.length; ++i)
+			colors[i] = hits[i] == null ? compiled.background : calcColor(hits[i], rays[i]);
+		return colors;
 	}
 
 	/**
 	 * Calculates the color at a given point in the scene, taking into account the
-	 * ambient light intensity of the scene combined with local effects.
+	 * ambient light intensity of the scene combined with local and global effects.
 	 *
 	 * @param gp  The intersection point to calculate the color for.
 	 * @param ray The ray that intersects with the point.
 	 * @return The color at the specified intersection point.
 	 */
 	private Color calcColor(GeoPoint gp, Ray ray) {
-		return scene.ambientLight.getIntensity().add(calcColor(gp, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K));
+		return compiled.ambientLight.getIntensity().add(calcColor(gp, ray, stacks.get()));
 	}
 
 	/**
 	 * Calculates the color at a given point in the scene, taking into account the
-	 * reflection and refraction effects.
+	 * reflection and refraction effects. Instead of recursing, the secondary rays
+	 * are kept on the thread's trace stack together with their accumulated
+	 * attenuation and are processed in a loop until the stack is exhausted.
 	 *
 	 * @param gp    The intersection point to calculate the color for.
 	 * @param ray   The ray that intersects with the point.
-	 * @param level The recursion level.
-	 * @param k     The attenuation factor.
+	 * @param stack The (empty) trace stack of the current thread.
 	 * @return The color at the specified intersection point.
 	 */
-	private Color calcColor(GeoPoint gp, Ray ray, int level, Double3 k) {
+	private Color calcColor(GeoPoint gp, Ray ray, TraceStack stack) {
+		return calcColor(calcColor(gp, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K, stack), stack);
+	}
+
+	/**
+	 * Adds the contributions of the secondary rays on the trace stack to the
+	 * contribution of a primary intersection point, until the stack is exhausted.
+	 *
+	 * @param color The contribution of the primary intersection point.
+	 * @param stack The trace stack of the current thread.
+	 * @return The color of the primary intersection point.
+	 */
+	private Color calcColor(Color color, TraceStack stack) {
+		while (!stack.isEmpty()) {
+			int level = stack.level();
+			Double3 k = stack.attenuation();
+			Ray secondary = stack.pop();
+			GeoPoint hit = findClosestIntersection(secondary);
+			color = color.add(hit == null ? compiled.background.scale(k) : calcColor(hit, secondary, level, k, stack));
+		}
+		return color;
+	}
+
+	/**
+	 * Calculates the contribution of a single intersection point - its local
+	 * effects scaled by the attenuation accumulated along the path to it - and
+	 * pushes its reflected and refracted rays onto the trace stack.
+	 *
+	 * @param gp    The intersection point to calculate the color for.
+	 * @param ray   The ray that intersects with the point.
+	 * @param level The remaining recursion level.
+	 * @param k     The attenuation factor accumulated along the path.
+	 * @param stack The trace stack of the current thread.
+	 * @return The contribution of the point to the final color.
+	 */
+	private Color calcColor(GeoPoint gp, Ray ray, int level, Double3 k, TraceStack stack) {
+		return calcColor(gp, ray, gp.geometry.getNormal(gp.point), level, k, stack);
+	}
+
+	/**
+	 * Calculates the contribution of a single intersection point whose normal is
+	 * already known.
+	 *
+	 * @param gp    The intersection point to calculate the color for.
+	 * @param ray   The ray that intersects with the point.
+	 * @param n     The normal vector at the point.
+	 * @param level The remaining recursion level.
+	 * @param k     The attenuation factor accumulated along the path.
+	 * @param stack The trace stack of the current thread.
+	 * @return The contribution of the point to the final color.
+	 */
+	private Color calcColor(GeoPoint gp, Ray ray, Vector n, int level, Double3 k, TraceStack stack) {
 		Vector v = ray.getDirection();
-		Vector n = gp.geometry.getNormal(gp.point);
 		double vn = v.dotProduct(n);
 		if (isZero(vn))
 			return Color.BLACK;
 
-		Color color = calcLocalEffects(gp, v, n, vn, k);
-		return 1 == level ? color : color.add(calcGlobalEffects(gp, v, n, vn, level, k));
-
+		if (level > 1)
+			pushGlobalEffects(gp, v, n, vn, level, k, stack);
+		return calcLocalEffects(gp, v, n, vn, k).scale(k);
 	}
 
 	/**
-	 * Calculates the global effects (reflection and refraction) at the intersection
-	 * point.
+	 * Pushes the global effects (reflection and refraction) rays of the
+	 * intersection point onto the trace stack. A ray is pushed only if its
+	 * accumulated attenuation is still significant.
 	 *
 	 * @param gp    The intersection point to calculate the effects for.
 	 * @param v     The direction vector of the incoming ray.
@@ -109,31 +468,17 @@ public class SimpleRayTracer extends RayTracerBase {
 	 * @param vn    The dot product of v and n
 	 * @param level The recursion level.
 	 * @param k     The attenuation factor.
-	 * @return The color resulting from the global effects.
+	 * @param stack The trace stack of the current thread.
 	 */
-	private Color calcGlobalEffects(GeoPoint gp, Vector v, Vector n, double vn, int level, Double3 k) {
-		Material material = gp.geometry.getMaterial();
-		Ray reflectedRay = constructReflectedRay(gp.point, v, n, vn);
-		Ray refractedRay = constructRefractedRay(gp, v, n);
-		return calcGlobalEffect(reflectedRay, level, k, material.kR)
-				.add(calcGlobalEffect(refractedRay, level, k, material.kT));
-	}
-
-	/**
-	 * Calculates the global effect (reflection or refraction) for a given ray.
-	 *
-	 * @param ray   The ray for which to calculate the effect.
-	 * @param level The recursion level.
-	 * @param k     The attenuation factor.
-	 * @param kx    The current attenuation factor.
-	 * @return The color resulting from the global effect.
-	 */
-	private Color calcGlobalEffect(Ray ray, int level, Double3 k, Double3 kx) {
-		Double3 kkx = k.product(kx);
-		if (kkx.lowerThan(MIN_CALC_COLOR_K))
-			return Color.BLACK;
-		GeoPoint gp = findClosestIntersection(ray);
-		return (gp == null ? scene.background : calcColor(gp, ray, level - 1, kkx)).scale(kx);
+	private void pushGlobalEffects(GeoPoint gp, Vector v, Vector n, double vn, int level, Double3 k,
+			TraceStack stack) {
+		Material material = compiled.getMaterial(gp.geometry);
+		Double3 kkr = k.product(material.kR);
+		if (!kkr.lowerThan(MIN_CALC_COLOR_K))
+			stack.push(constructReflectedRay(gp.point, v, n, vn), level - 1, kkr);
+		Double3 kkt = k.product(material.kT);
+		if (!kkt.lowerThan(MIN_CALC_COLOR_K))
+			stack.push(constructRefractedRay(gp, v, n), level - 1, kkt);
 	}
 
 	/**
@@ -144,7 +489,7 @@ public class SimpleRayTracer extends RayTracerBase {
 	 * @param n  The normal vector at the intersection point.
 	 * @return The refracted ray originating from the intersection point.
 	 */
-	private Ray constructRefractedRay(GeoPoint gp, Vector v, Vector n) {
+	Ray constructRefractedRay(GeoPoint gp, Vector v, Vector n) {
 		return new Ray(gp.point, v, n);
 	}
 
@@ -158,7 +503,7 @@ public class SimpleRayTracer extends RayTracerBase {
 	 *                 vector.
 	 * @return The reflected ray originating from the intersection point.
 	 */
-	private Ray constructReflectedRay(Point pointGeo, Vector v, Vector n, double vn) {
+	Ray constructReflectedRay(Point pointGeo, Vector v, Vector n, double vn) {
 		Vector r = v.subtract(n.scale(2 * vn));
 		return new Ray(pointGeo, r, n);
 	}
@@ -173,26 +518,92 @@ public class SimpleRayTracer extends RayTracerBase {
 	 * @param n  The normal vector at the intersection point.
 	 * @return The transparency factor at the specified intersection point.
 	 */
-	private Double3 transparency(GeoPoint gp, LightSource ls, Vector l, Vector n) {
-		Vector lightDir = l.scale(-1);
+	Double3 transparency(GeoPoint gp, LightSource ls, Vector l, Vector n) {
+		ShadowMap map = shadowMaps.get(ls);
+		if (map != null) {
+			Double3 ktr = map.transparency(gp.point);
+			if (ktr != null)
+				return ktr;
+		}
+		return transparency(gp, compiled.getOccluders(ls), l.scale(-1), ls.getDistance(gp.point), n);
+	}
+
+	/**
+	 * Calculates the transparency factor at a given point in the scene by checking
+	 * for obstructions on the way to a given direction up to a given distance.
+	 *
+	 * @param gp        The geometric point.
+	 * @param occluders The potential occluders of the light.
+	 * @param lightDir  The (normalized) direction from the point to the light.
+	 * @param distance  The distance from the point to the light.
+	 * @param n         The normal vector at the intersection point.
+	 * @return The transparency factor at the specified intersection point.
+	 */
+	private Double3 transparency(GeoPoint gp, Intersectable occluders, Vector lightDir, double distance, Vector n) {
 		Ray lR = new Ray(gp.point, lightDir, n);
 		Double3 ktr = Double3.ONE;
 
-		var intersections = scene.geometries.findGeoIntersections(lR);
+		var intersections = occluders.findGeoIntersections(lR, distance);
 		if (intersections == null)
 			return ktr;
 
-		double distanceToLight = ls.getDistance(gp.point);
 		for (GeoPoint intersectionPoint : intersections) {
-			if (alignZero(intersectionPoint.point.distance(gp.point) - distanceToLight) <= 0) {
-				ktr = ktr.product(intersectionPoint.geometry.getMaterial().kT);
-				if (ktr.lowerThan(MIN_CALC_COLOR_K))
-					return Double3.ZERO;
-			}
+			ktr = ktr.product(compiled.getMaterial(intersectionPoint.geometry).kT);
+			if (ktr.lowerThan(MIN_CALC_COLOR_K))
+				return Double3.ZERO;
 		}
 		return ktr;
 	}
 
+	/**
+	 * Calculates the transparency factor at a given point in the scene towards a
+	 * sample point on the surface of an area light.
+	 *
+	 * @param gp        The geometric point.
+	 * @param occluders The potential occluders of the light.
+	 * @param sample    The sample point on the light.
+	 * @param n         The normal vector at the intersection point.
+	 * @return The transparency factor towards the sample point.
+	 */
+	private Double3 transparency(GeoPoint gp, Intersectable occluders, Point sample, Vector n) {
+		Vector toSample = sample.subtract(gp.point);
+		double distance = toSample.length();
+		return transparency(gp, occluders, toSample.scale(1 / distance), distance, n);
+	}
+
+	/**
+	 * Calculates the soft shadow transparency factor at a given point for an area
+	 * light by adaptive stratified sampling of the light surface. One ray is traced
+	 * to each of the four corner strata first; only if they disagree - as happens
+	 * in penumbrae - the rest of the strata are sampled as well and the average of
+	 * all the samples is returned.
+	 *
+	 * @param gp   The geometric point.
+	 * @param area The area light.
+	 * @param n    The normal vector at the intersection point.
+	 * @return The transparency factor at the specified intersection point.
+	 */
+	Double3 softShadow(GeoPoint gp, AreaLight area, Vector n) {
+		int last = area.getGridSize() - 1;
+		Intersectable lightOccluders = compiled.getOccluders(area);
+		Double3 first = transparency(gp, lightOccluders, area.getSample(0, 0), n);
+		Double3 sum = first;
+		boolean agree = true;
+		for (int corner = 1; corner < 4; ++corner) {
+			Double3 ktr = transparency(gp, lightOccluders, area.getSample(corner / 2 * last, corner % 2 * last), n);
+			agree = agree && ktr.equals(first);
+			sum = sum.add(ktr);
+		}
+		if (agree)
+			return first;
+
+		for (int i = 0; i <= last; ++i)
+			for (int j = 0; j <= last; ++j)
+				if ((i != 0 && i != last) || (j != 0 && j != last))
+					sum = sum.add(transparency(gp, lightOccluders, area.getSample(i, j), n));
+		return sum.reduce((last + 1) * (last + 1));
+	}
+
 	/**
 	 * Calculates the local effects (diffuse and specular) at the intersection
 	 * point.
@@ -207,12 +618,15 @@ public class SimpleRayTracer extends RayTracerBase {
 	private Color calcLocalEffects(GeoPoint gp, Vector v, Vector n, double vn, Double3 k) {
 		Color color = gp.geometry.getEmission();
 
-		Material material = gp.geometry.getMaterial();
-		for (LightSource lightSource : scene.lights) {
+		Material material = compiled.getMaterial(gp.geometry);
+		for (LightSource lightSource : findLights(gp.point, material, k)) {
+			if (!lightSource.canAffect(gp.point))
+				continue;
 			Vector l = lightSource.getL(gp.point);
 			double nl = alignZero(n.dotProduct(l));
 			if ((nl * vn > 0)) {
-				Double3 ktr = transparency(gp, lightSource, l, n);
+				Double3 ktr = lightSource instanceof AreaLight area ? softShadow(gp, area, n)
+						: transparency(gp, lightSource, l, n);
 				if (ktr.product(k).greaterThan(MIN_CALC_COLOR_K)) {
 					Color iL = lightSource.getIntensity(gp.point).scale(ktr);
 					color = color.add(iL.scale(calcDiffusive(material, nl).add(calcSpecular(material, n, l, nl, v))));
@@ -222,6 +636,21 @@ public class SimpleRayTracer extends RayTracerBase {
 		return color;
 	}
 
+	/**
+	 * Finds the lights that may contribute to the color at a point. Clusters of
+	 * lights whose bounded contribution, after the material and the attenuation
+	 * factor are applied, is below {@link #MIN_CALC_COLOR_K} are skipped.
+	 *
+	 * @param point    The point.
+	 * @param material The material at the point.
+	 * @param k        The attenuation factor.
+	 * @return The lights to calculate the local effects with.
+	 */
+	List<LightSource> findLights(Point point, Material material, Double3 k) {
+		double factor = (material.kD.max() + material.kS.max()) * k.max();
+		return compiled.lightTree.getLights(point, MIN_CALC_COLOR_K / factor);
+	}
+
 	/**
 	 * Calculates the diffuse reflection component at the intersection point.
 	 *
@@ -229,7 +658,7 @@ public class SimpleRayTracer extends RayTracerBase {
 	 * @param nl       The dot product of the normal and light direction vectors.
 	 * @return The diffuse reflection component.
 	 */
-	private Double3 calcDiffusive(Material material, double nl) {
+	Double3 calcDiffusive(Material material, double nl) {
 		return material.kD.scale(nl > 0 ? nl : -nl);
 	}
 
@@ -243,7 +672,7 @@ public class SimpleRayTracer extends RayTracerBase {
 	 * @param v        The view direction vector.
 	 * @return The specular reflection component.
 	 */
-	private Double3 calcSpecular(Material material, Vector n, Vector l, double nl, Vector v) {
+	Double3 calcSpecular(Material material, Vector n, Vector l, double nl, Vector v) {
 		Vector r = l.subtract(n.scale(2 * nl));
 		double mminusRV = alignZero(-r.dotProduct(v));
 		return mminusRV <= 0 ? Double3.ZERO : material.kS.scale(Math.pow(mminusRV, material.shininess));
@@ -253,13 +682,14 @@ public class SimpleRayTracer extends RayTracerBase {
         Color aver = Color.BLACK;
         if (rays.size() == 0)
             return aver;
+        ensurePrepared();
 
         for (Ray ray : rays) {
             GeoPoint point = findClosestIntersection(ray);
 
             // If no intersections are found, add the background color of the scene
             if (point == null)
-                aver = aver.add(scene.background);
+                aver = aver.add(compiled.background);
             else {
                 Color c = calcColor(point, ray);
                 aver = aver.add(c);
@@ -0,0 +1,333 @@
+package renderer;
+
+import java.util.*;
+
+import geometries.Intersectable.GeoPoint;
+import lighting.*;
+import primitives.*;
+import primitives.Vector;
+import scene.*;
+
+import static primitives.Util.*;
+
+/**
+ * A wavefront (stream) ray tracer. Instead of following every path depth first,
+ * a batch of rays is traced in stages: the closest intersections of all the
+ * rays in the queue are found (extend), the intersections are shaded - which
+ * emits shadow requests and secondary (reflected and refracted) rays into
+ * separate queues - then all the shadow rays are traced, and the secondary
+ * rays become the next queue. Before each stage the queued rays are sorted by
+ * direction octant and origin cell, so that similar rays are traced together
+ * and the extend stage can trace them in coherent packets. <br/>
+ * The tracer computes the same shading as {@link SimpleRayTracer}. It works
+ * best with large batches: use it with a camera that traces in packets.
+ */
+public class WavefrontRayTracer extends SimpleRayTracer {
+	/** The amount of rays traced together in the extend stage */
+	private static final int PACKET = 64;
+	/** The amount of origin cells along each axis of the scene bounds */
+	private static final int CELLS = 16;
+	/** The width and height, in pixels, of the tiles the camera should trace */
+	private static final int TILE_SIZE = 32;
+
+	/**
+	 * A queue of rays along paths: each ray with the pixel it contributes to, its
+	 * remaining recursion level and the attenuation accumulated along its path
+	 */
+	private static final class RayQueue {
+		/** The rays */
+		private Ray[] rays = new Ray[64];
+		/** The pixel of each ray */
+		private int[] pixels = new int[64];
+		/** The remaining recursion level of each ray */
+		private int[] levels = new int[64];
+		/** The accumulated attenuation of each ray */
+		private Double3[] attenuations = new Double3[64];
+		/** The amount of rays in the queue */
+		private int size = 0;
+
+		/**
+		 * Adds a ray to the queue.
+		 *
+		 * @param ray   the ray
+		 * @param pixel the pixel of the ray
+		 * @param level the remaining recursion level
+		 * @param k     the accumulated attenuation
+		 */
+		private void add(Ray ray, int pixel, int level, Double3 k) {
+			if (size == rays.length) {
+				rays = Arrays.copyOf(rays, size * 2);
+				pixels = Arrays.copyOf(pixels, size * 2);
+				levels = Arrays.copyOf(levels, size * 2);
+				attenuations = Arrays.copyOf(attenuations, size * 2);
+			}
+			rays[size] = ray;
+			pixels[size] = pixel;
+			levels[size] = level;
+			attenuations[size++] = k;
+		}
+
+		/**
+		 * Sorts the queue by the bucket of the rays.
+		 *
+		 * @param bounds the bounds of the scene, may be null
+		 */
+		private void sort(BoundingBox bounds) {
+			long[] keys = new long[size];
+			for (int i = 0; i < size; ++i)
+				keys[i] = (long) bucket(rays[i].getHead(), rays[i].getDirection(), bounds) << 32 | i;
+			Arrays.sort(keys);
+			Ray[] sortedRays = new Ray[rays.length];
+			int[] sortedPixels = new int[rays.length];
+			int[] sortedLevels = new int[rays.length];
+			Double3[] sortedAttenuations = new Double3[rays.length];
+			for (int i = 0; i < size; ++i) {
+				int from = (int) keys[i];
+				sortedRays[i] = rays[from];
+				sortedPixels[i] = pixels[from];
+				sortedLevels[i] = levels[from];
+				sortedAttenuations[i] = attenuations[from];
+			}
+			rays = sortedRays;
+			pixels = sortedPixels;
+			levels = sortedLevels;
+			attenuations = sortedAttenuations;
+		}
+	}
+
+	/**
+	 * A request to trace a shadow ray from a shaded point to a light, and the
+	 * contribution of the light to the pixel if the point is not shadowed
+	 *
+	 * @param pixel     the pixel
+	 * @param gp        the shaded point
+	 * @param light     the light
+	 * @param l         the direction from the light to the point
+	 * @param n         the normal at the point
+	 * @param intensity the intensity of the light at the point
+	 * @param factor    the diffuse and specular factor of the point
+	 * @param k         the attenuation accumulated along the path to the point
+	 */
+	private record ShadowRequest(int pixel, GeoPoint gp, LightSource light, Vector l, Vector n, Color intensity,
+			Double3 factor, Double3 k) {
+	}
+
+	/**
+	 * Constructs a new wavefront ray tracer with the specified scene.
+	 *
+	 * @param scene The scene to be rendered.
+	 */
+	public WavefrontRayTracer(Scene scene) {
+		super(scene);
+	}
+
+	@Override
+	protected WavefrontRayTracer newInstance() {
+		return new WavefrontRayTracer(scene);
+	}
+
+	/**
+	 * Calculates the bucket of a ray - the octant of its direction and the cell of
+	 * its origin in the scene bounds.
+	 *
+	 * @param origin    the origin of the ray
+	 * @param direction the direction of the ray
+	 * @param bounds    the bounds of the scene, may be null
+	 * @return the bucket
+	 */
+	private static int bucket(Point origin, Vector direction, BoundingBox bounds) {
+		int octant = (direction.getX() < 0 ? 1 : 0) | (direction.getY() < 0 ? 2 : 0) | (direction.getZ() < 0 ? 4 : 0);
+		if (bounds == null)
+			return octant;
+		int x = cell(origin.getX(), bounds.minX, bounds.maxX);
+		int y = cell(origin.getY(), bounds.minY, bounds.maxY);
+		int z = cell(origin.getZ(), bounds.minZ, bounds.maxZ);
+		return ((octant * CELLS + x) * CELLS + y) * CELLS + z;
+	}
+
+	/**
+	 * Calculates the cell of a coordinate along an axis of the scene bounds.
+	 *
+	 * @param value the coordinate
+	 * @param min   the minimal coordinate of the bounds
+	 * @param max   the maximal coordinate of the bounds
+	 * @return the cell, clamped to the bounds
+	 */
+	private static int cell(double value, double min, double max) {
+		return max <= min ? 0 : Math.clamp((long) ((value - min) / (max - min) * CELLS), 0, CELLS - 1);
+	}
+
+	@Override
+	public Color traceRay(Ray ray) {
+		return traceRays(new Ray[] { ray })[0];
+	}
+
+	@Override
+	public Color average_color_calculator(List<Ray> rays) {
+		if (rays.isEmpty())
+			return Color.BLACK;
+		Color sum = Color.BLACK;
+		for (Color color : traceRays(rays.toArray(new Ray[0])))
+			sum = sum.add(color);
+		return sum.reduce(rays.size());
+	}
+
+	@Override
+	public int getPacketSize() {
+		return TILE_SIZE;
+	}
+
+	/**
+	 * Traces a batch of rays stage by stage.
+	 *
+	 * @param rays The rays to trace.
+	 * @return The color of each ray.
+	 */
+	@Override
+	public Color[] traceRays(Ray[] rays) {
+		ensurePrepared();
+		CompiledScene snapshot = compiled;
+		Color[] colors = new Color[rays.length];
+		Arrays.fill(colors, Color.BLACK);
+
+		RayQueue queue = new RayQueue();
+		for (int i = 0; i < rays.length; ++i)
+			queue.add(rays[i], i, MAX_CALC_COLOR_LEVEL, INITIAL_K);
+
+		boolean primary = true;
+		while (queue.size > 0) {
+			queue.sort(snapshot.getBounds());
+			GeoPoint[] hits = extend(snapshot, queue);
+			RayQueue secondary = new RayQueue();
+			List<ShadowRequest> shadows = new ArrayList<>();
+			for (int i = 0; i < queue.size; ++i)
+				shade(snapshot, queue, i, hits[i], primary, colors, secondary, shadows);
+			traceShadows(snapshot, shadows, colors);
+			queue = secondary;
+			primary = false;
+		}
+		return colors;
+	}
+
+	/**
+	 * The extend stage - finds the closest intersections of the queued rays, in
+	 * packets of consecutive (and therefore similar) rays.
+	 *
+	 * @param snapshot the compiled scene
+	 * @param queue    the queue
+	 * @return the closest intersection of each ray
+	 */
+	private GeoPoint[] extend(CompiledScene snapshot, RayQueue queue) {
+		GeoPoint[] hits = new GeoPoint[queue.size];
+		for (int start = 0; start < queue.size; start += PACKET) {
+			int count = Math.min(PACKET, queue.size - start);
+			Ray[] packet = Arrays.copyOfRange(queue.rays, start, start + count);
+			GeoPoint[] packetHits = new GeoPoint[count];
+			snapshot.geometries.findClosestGeoIntersections(packet, packetHits);
+			System.arraycopy(packetHits, 0, hits, start, count);
+		}
+		return hits;
+	}
+
+	/**
+	 * The shade stage of one ray - adds the ambient light, the background or the
+	 * emission to the pixel, emits the reflected and refracted rays, and emits a
+	 * shadow request for every light that may contribute. Area lights are sampled
+	 * immediately, since their adaptive sampling depends on the results.
+	 *
+	 * @param snapshot  the compiled scene
+	 * @param queue     the queue
+	 * @param index     the index of the ray in the queue
+	 * @param gp        the closest intersection of the ray, may be null
+	 * @param primary   whether the queue holds primary rays
+	 * @param colors    the colors of the pixels
+	 * @param secondary the queue of the secondary rays
+	 * @param shadows   the shadow requests
+	 */
+	private void shade(CompiledScene snapshot, RayQueue queue, int index, GeoPoint gp, boolean primary,
+			Color[] colors, RayQueue secondary, List<ShadowRequest> shadows) {
+		int pixel = queue.pixels[index];
+		Double3 k = queue.attenuations[index];
+		if (gp == null) {
+			colors[pixel] = colors[pixel].add(primary ? snapshot.background : snapshot.background.scale(k));
+			return;
+		}
+		if (primary)
+			colors[pixel] = colors[pixel].add(snapshot.ambientLight.getIntensity());
+
+		Ray ray = queue.rays[index];
+		Vector v = ray.getDirection();
+		Vector n = gp.geometry.getNormal(gp.point);
+		double vn = v.dotProduct(n);
+		if (isZero(vn))
+			return;
+
+		Material material = snapshot.getMaterial(gp.geometry);
+		int level = queue.levels[index];
+		if (level > 1) {
+			Double3 kkr = k.product(material.kR);
+			if (!kkr.lowerThan(MIN_CALC_COLOR_K))
+				secondary.add(constructReflectedRay(gp.point, v, n, vn), pixel, level - 1, kkr);
+			Double3 kkt = k.product(material.kT);
+			if (!kkt.lowerThan(MIN_CALC_COLOR_K))
+				secondary.add(constructRefractedRay(gp, v, n), pixel, level - 1, kkt);
+		}
+
+		colors[pixel] = colors[pixel].add(gp.geometry.getEmission().scale(k));
+		for (LightSource light : findLights(gp.point, material, k)) {
+			if (!light.canAffect(gp.point))
+				continue;
+			Vector l = light.getL(gp.point);
+			double nl = alignZero(n.dotProduct(l));
+			if (nl * vn <= 0)
+				continue;
+			Double3 factor = calcDiffusive(material, nl).add(calcSpecular(material, n, l, nl, v));
+			ShadowRequest request = new ShadowRequest(pixel, gp, light, l, n, light.getIntensity(gp.point), factor,
+					k);
+			if (light instanceof AreaLight area)
+				addLight(request, softShadow(gp, area, n), colors);
+			else
+				shadows.add(request);
+		}
+	}
+
+	/**
+	 * The shadow stage - traces the shadow rays of all the requests, sorted by
+	 * light and by bucket, and adds the contributions of the lit points.
+	 *
+	 * @param snapshot the compiled scene
+	 * @param shadows  the shadow requests
+	 * @param colors   the colors of the pixels
+	 */
+	private void traceShadows(CompiledScene snapshot, List<ShadowRequest> shadows, Color[] colors) {
+		Map<LightSource, Integer> lightIndices = new IdentityHashMap<>();
+		for (LightSource light : snapshot.lights)
+			lightIndices.put(light, lightIndices.size());
+		long[] keys = new long[shadows.size()];
+		for (int i = 0; i < keys.length; ++i) {
+			ShadowRequest request = shadows.get(i);
+			long bucket = (long) lightIndices.getOrDefault(request.light(), 0) << 20
+					| bucket(request.gp().point, request.l(), snapshot.getBounds());
+			keys[i] = bucket << 32 | i;
+		}
+		Arrays.sort(keys);
+		for (long key : keys) {
+			ShadowRequest request = shadows.get((int) key);
+			addLight(request, transparency(request.gp(), request.light(), request.l(), request.n()), colors);
+		}
+	}
+
+	/**
+	 * Adds the contribution of a light to a pixel, unless it is insignificant.
+	 *
+	 * @param request the shadow request of the light
+	 * @param ktr     the transparency factor between the point and the light
+	 * @param colors  the colors of the pixels
+	 */
+	private static void addLight(ShadowRequest request, Double3 ktr, Color[] colors) {
+		if (ktr.product(request.k()).greaterThan(MIN_CALC_COLOR_K)) {
+			Color contribution = request.intensity().scale(ktr).scale(request.factor()).scale(request.k());
+			colors[request.pixel()] = colors[request.pixel()].add(contribution);
+		}
+	}
+}
@@ -0,0 +1,376 @@
+package scene;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+
+/**
+ * A snapshot of a scene, prepared for rendering. Compiling a scene flattens its
+ * tree of geometries into arrays of primitives grouped by type, builds an
+ * acceleration structure over them, interns copies of the materials into a
+ * palette of distinct values, copies the lights and precomputes the per-light
+ * data - the light tree and the potential occluders of each light. The
+ * independent steps run in parallel. <br/>
+ * Later changes to the scene do not affect a snapshot: adding geometries or
+ * lights, changing the background, and editing a material or a light in place
+ * all need the scene to be compiled again. The snapshot refers to the
+ * geometries of the scene themselves, though, so a geometry must not be moved
+ * or given another material while it is rendered; the materials of the
+ * primitives of an {@link Instance} are not copied either, since the primitives
+ * of its prototype are not known to the snapshot.
+ */
+public final class CompiledScene {
+	/** The name of the scene */
+	public final String name;
+	/** The background color of the scene */
+	public final Color background;
+	/** The ambient light of the scene */
+	public final AmbientLight ambientLight;
+	/** The copies of the light sources of the scene */
+	public final List<LightSource> lights;
+	/** The acceleration structure over all the primitives */
+	public final Intersectable geometries;
+	/** The light tree over the light sources */
+	public final LightTree lightTree;
+
+	/** The spheres of the scene */
+	private final Sphere[] spheres;
+	/** The triangles of the scene */
+	private final Triangle[] triangles;
+	/** The polygons of the scene, excluding triangles */
+	private final Polygon[] polygons;
+	/** The planes of the scene */
+	private final Plane[] planes;
+	/** The rest of the primitives of the scene */
+	private final Intersectable[] others;
+	/** All the primitives, grouped by type in the order of the arrays above */
+	private final List<Intersectable> primitives;
+	/**
+	 * The interned copy of each material of the primitives, by the material of
+	 * the scene
+	 */
+	private final Map<Material, Material> materials;
+	/** The bounding box of all the bounded primitives */
+	private final BoundingBox bounds;
+	/** The acceleration structure over the potential occluders of each light */
+	private final Map<LightSource, Intersectable> occluders;
+	/** The logger of the per-light structures */
+	private static final Logger logger = Logger.getLogger("CompiledScene");
+
+	/** The kind of the acceleration structures */
+	private final AccelerationStructure acceleration;
+	/**
+	 * The kind of the acceleration structures that is built: the kind chosen for
+	 * all the primitives if the kind is automatic
+	 */
+	private final AccelerationStructure structure;
+	/** The cache of built hierarchies, null if they are always built */
+	private final BVHCache cache;
+
+	/**
+	 * Compiles a scene.
+	 *
+	 * @param scene        the scene
+	 * @param acceleration the kind of the acceleration structures to build
+	 * @param cache        the cache of built hierarchies, null to always build
+	 */
+	CompiledScene(Scene scene, AccelerationStructure acceleration, BVHCache cache) {
+		this.acceleration = acceleration;
+		this.cache = cache;
+		name = scene.name;
+		background = scene.background;
+		ambientLight = scene.ambientLight;
+		lights = copy(scene.lights);
+		CompletableFuture<LightTree> lightTreeTask = CompletableFuture.supplyAsync(() -> new LightTree(lights));
+
+		List<Sphere> sphereList = new ArrayList<>();
+		List<Triangle> triangleList = new ArrayList<>();
+		List<Polygon> polygonList = new ArrayList<>();
+		List<Plane> planeList = new ArrayList<>();
+		List<Intersectable> otherList = new ArrayList<>();
+		flatten(scene.geometries, geometry -> {
+			switch (geometry) {
+			case Sphere sphere -> sphereList.add(sphere);
+			case Triangle triangle -> triangleList.add(triangle);
+			case Polygon polygon -> polygonList.add(polygon);
+			case Plane plane -> planeList.add(plane);
+			default -> otherList.add(geometry);
+			}
+		});
+		spheres = sphereList.toArray(new Sphere[0]);
+		triangles = triangleList.toArray(new Triangle[0]);
+		polygons = polygonList.toArray(new Polygon[0]);
+		planes = planeList.toArray(new Plane[0]);
+		others = otherList.toArray(new Intersectable[0]);
+
+		List<Intersectable> all = new ArrayList<>();
+		all.addAll(sphereList);
+		all.addAll(triangleList);
+		all.addAll(polygonList);
+		all.addAll(planeList);
+		all.addAll(otherList);
+		primitives = Collections.unmodifiableList(all);
+
+		materials = intern(all);
+		BoundingBox box = null;
+		for (Intersectable primitive : all) {
+			BoundingBox primitiveBox = primitive.getBoundingBox();
+			if (primitiveBox != null)
+				box = primitiveBox.union(box);
+		}
+		bounds = box;
+
+		// the structure is chosen once for the whole scene and also used for the
+		// occluders of every light
+		structure = acceleration == AccelerationStructure.AUTO ? SceneAnalyzer.analyze(all).structure()
+				: acceleration;
+		geometries = structure.build(all, cache);
+		occluders = buildOccluders();
+		lightTree = lightTreeTask.join();
+	}
+
+	/**
+	 * Compiles the lights of a scene over the geometries of another snapshot.
+	 *
+	 * @param base  the snapshot whose geometries are kept
+	 * @param scene the scene whose lights, ambient light and background are taken,
+	 *              with the current materials of the geometries
+	 */
+	private CompiledScene(CompiledScene base, Scene scene) {
+		acceleration = base.acceleration;
+		structure = base.structure;
+		cache = base.cache;
+		name = scene.name;
+		background = scene.background;
+		ambientLight = scene.ambientLight;
+		lights = copy(scene.lights);
+		CompletableFuture<LightTree> lightTreeTask = CompletableFuture.supplyAsync(() -> new LightTree(lights));
+		spheres = base.spheres;
+		triangles = base.triangles;
+		polygons = base.polygons;
+		planes = base.planes;
+		others = base.others;
+		primitives = base.primitives;
+		materials = intern(primitives);
+		bounds = base.bounds;
+		geometries = base.geometries;
+		occluders = buildOccluders();
+		lightTree = lightTreeTask.join();
+	}
+
+	/**
+	 * Compiles the current lights, ambient light and background of a scene, and
+	 * the current materials of its geometries, over the geometries of this
+	 * snapshot, for relighting a scene whose geometries did not move. The
+	 * acceleration structure over the geometries is shared, and only the
+	 * materials and the per-light data are built again.
+	 *
+	 * @param scene the scene
+	 * @return the relit snapshot
+	 */
+	public CompiledScene relight(Scene scene) {
+		return new CompiledScene(this, scene);
+	}
+
+	/**
+	 * Returns the kind of the acceleration structures of the snapshot.
+	 *
+	 * @return the kind of the acceleration structures
+	 */
+	public AccelerationStructure getAcceleration() {
+		return acceleration;
+	}
+
+	/**
+	 * Copies lights, so that later changes of the lights don't affect the
+	 * snapshot. A light added more than once is copied once.
+	 *
+	 * @param lights the lights
+	 * @return an unmodifiable list of the copies
+	 */
+	private static List<LightSource> copy(List<LightSource> lights) {
+		Map<LightSource, LightSource> copies = new IdentityHashMap<>();
+		return lights.stream().map(light -> copies.computeIfAbsent(light, LightSource::copy)).toList();
+	}
+
+	/**
+	 * Interns copies of the materials of primitives into a palette of distinct
+	 * values.
+	 *
+	 * @param primitives the primitives
+	 * @return the interned copy of each material, by the material of the scene
+	 */
+	private static Map<Material, Material> intern(List<Intersectable> primitives) {
+		Map<Material, Material> palette = new HashMap<>();
+		Map<Material, Material> interned = new IdentityHashMap<>();
+		for (Intersectable primitive : primitives)
+			if (primitive instanceof Geometry geometry)
+				interned.computeIfAbsent(geometry.getMaterial(),
+						material -> palette.computeIfAbsent(copy(material), copy -> copy));
+		return interned;
+	}
+
+	/**
+	 * Copies a material, so that later changes of the material don't affect the
+	 * snapshot.
+	 *
+	 * @param material the material
+	 * @return the copy
+	 */
+	private static Material copy(Material material) {
+		return new Material().setKD(material.kD).setKS(material.kS).setKT(material.kT).setKR(material.kR)
+				.setShininess(material.shininess);
+	}
+
+	/**
+	 * Recursively visits the primitives of a tree of geometries.
+	 *
+	 * @param geometry the geometry (or collection of geometries)
+	 * @param visitor  the visitor of the primitives
+	 */
+	private static void flatten(Intersectable geometry, Consumer<Intersectable> visitor) {
+		if (geometry instanceof Geometries collection)
+			for (Intersectable child : collection.getGeometries())
+				flatten(child, visitor);
+		else
+			visitor.accept(geometry);
+	}
+
+	/**
+	 * Builds the acceleration structures over the potential occluders of all the
+	 * lights, in parallel. A light added to the scene more than once gets one
+	 * structure.
+	 *
+	 * @return the acceleration structure over the potential occluders of each
+	 *         light
+	 */
+	private Map<LightSource, Intersectable> buildOccluders() {
+		return lights.parallelStream().distinct()
+				.collect(Collectors.toMap(light -> light, this::buildOccluders, (a, b) -> a, IdentityHashMap::new));
+	}
+
+	/**
+	 * Builds the acceleration structure over the primitives that may occlude a
+	 * light - the primitives whose bounding box intersects the influence volume of
+	 * the light, and all the unbounded primitives - of the kind built over all the
+	 * primitives.
+	 *
+	 * @param light the light
+	 * @return the acceleration structure
+	 */
+	private Intersectable buildOccluders(LightSource light) {
+		List<Intersectable> candidates = new ArrayList<>();
+		for (Intersectable primitive : primitives) {
+			BoundingBox box = primitive.getBoundingBox();
+			if (box == null || light.canAffect(box))
+				candidates.add(primitive);
+		}
+		if (candidates.size() == primitives.size())
+			return geometries;
+		logger.fine(() -> structure + " over " + candidates.size() + " occluders of " + light);
+		return structure.build(candidates, cache);
+	}
+
+	/**
+	 * Returns the acceleration structure over the potential occluders of a light.
+	 *
+	 * @param light the light, one of the copies in {@link #lights}
+	 * @return the potential occluders, or all the geometries if the light is not
+	 *         part of the snapshot
+	 */
+	public Intersectable getOccluders(LightSource light) {
+		return occluders.getOrDefault(light, geometries);
+	}
+
+	/**
+	 * Returns the material of a geometry as it was when the scene was compiled.
+	 * Equal materials are interned into one copy.
+	 *
+	 * @param geometry the geometry
+	 * @return the interned copy of its material, or its current material if the
+	 *         material was not in the scene when it was compiled
+	 */
+	public Material getMaterial(Geometry geometry) {
+		Material material = geometry.getMaterial();
+		return materials.getOrDefault(material, material);
+	}
+
+	/**
+	 * Returns the palette of the distinct materials of the primitives.
+	 *
+	 * @return an unmodifiable list of the interned copies of the materials
+	 */
+	public List<Material> getMaterials() {
+		return materials.values().stream().distinct().toList();
+	}
+
+	/**
+	 * Returns the bounding box of all the bounded primitives.
+	 *
+	 * @return the bounding box, or null if there are no bounded primitives
+	 */
+	public BoundingBox getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Returns all the primitives, grouped by type: spheres, triangles, polygons,
+	 * planes and the rest.
+	 *
+	 * @return an unmodifiable list of the primitives
+	 */
+	public List<Intersectable> getPrimitives() {
+		return primitives;
+	}
+
+	/**
+	 * Returns the spheres of the scene.
+	 *
+	 * @return an unmodifiable list of the spheres
+	 */
+	public List<Sphere> getSpheres() {
+		return List.of(spheres);
+	}
+
+	/**
+	 * Returns the triangles of the scene.
+	 *
+	 * @return an unmodifiable list of the triangles
+	 */
+	public List<Triangle> getTriangles() {
+		return List.of(triangles);
+	}
+
+	/**
+	 * Returns the polygons of the scene, excluding the triangles.
+	 *
+	 * @return an unmodifiable list of the polygons
+	 */
+	public List<Polygon> getPolygons() {
+		return List.of(polygons);
+	}
+
+	/**
+	 * Returns the planes of the scene.
+	 *
+	 * @return an unmodifiable list of the planes
+	 */
+	public List<Plane> getPlanes() {
+		return List.of(planes);
+	}
+
+	/**
+	 * Returns the primitives of the scene that are not spheres, polygons or planes.
+	 *
+	 * @return an unmodifiable list of the primitives
+	 */
+	public List<Intersectable> getOthers() {
+		return List.of(others);
+	}
+}
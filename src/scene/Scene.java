@@ -88,4 +88,37 @@ public class Scene {
 		this.lights = lights;
 		return this;
 	}
+
+	/**
+	 * Compiles the current state of the scene into a snapshot for rendering,
+	 * accelerated by the structures that a {@link SceneAnalyzer} chooses for its
+	 * geometries.
+	 *
+	 * @return the compiled scene
+	 */
+	public CompiledScene compile() {
+		return compile(AccelerationStructure.AUTO);
+	}
+
+	/**
+	 * Compiles the current state of the scene into a snapshot for rendering.
+	 *
+	 * @param acceleration the kind of the acceleration structures to build
+	 * @return the compiled scene
+	 */
+	public CompiledScene compile(AccelerationStructure acceleration) {
+		return compile(acceleration, null);
+	}
+
+	/**
+	 * Compiles the current state of the scene into a snapshot for rendering,
+	 * loading the hierarchies from a cache of hierarchies built in earlier runs.
+	 *
+	 * @param acceleration the kind of the acceleration structures to build
+	 * @param cache        the cache of built hierarchies, null to always build
+	 * @return the compiled scene
+	 */
+	public CompiledScene compile(AccelerationStructure acceleration, BVHCache cache) {
+		return new CompiledScene(this, acceleration, cache);
+	}
 }
@@ -0,0 +1,213 @@
+package test;
+
+import static java.lang.System.out;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.*;
+
+import geometries.*;
+import primitives.*;
+import primitives.Vector;
+
+/**
+ * JIT compilation benchmark of the intersection loops. The program runs itself
+ * in a child JVM with {@code -XX:+PrintCompilation -XX:+PrintInlining}, traces
+ * a mixed scene of spheres, triangles, polygons and planes there, and reports
+ * from the inlining log how the optimizing (C2) compiler bound the intersection
+ * method of every primitive type at each of its call sites in the per-type
+ * loops of {@code PrimitiveArrays}: inlined, or called directly when the method
+ * is too big to inline (which still avoids the virtual dispatch). A call site
+ * compiled several times is reported by its worst binding. The check fails if
+ * any of these call sites is virtual, i.e. megamorphic, if a method has no
+ * compiled call site, or if the child JVM fails. <br/>
+ * The child runs only the C2 compiler, on a single thread, so the inlining tree
+ * of every compilation follows the line that starts it and each call site can
+ * be attributed to the method that contains it.
+ *
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+public final class InliningBenchmark {
+	/** The argument that runs the workload instead of the check */
+	private static final String WORKLOAD = "workload";
+	/** The amount of rays traced in each round of the workload */
+	private static final int RAYS = 100_000;
+	/** The amount of rounds of the workload */
+	private static final int ROUNDS = 20;
+	/** The prefix of the methods of the per-type loops */
+	private static final String LOOPS = "geometries.PrimitiveArrays::";
+	/** A line of the log that starts the compilation of a method */
+	private static final Pattern COMPILATION = Pattern
+			.compile("^\\s*\\d+\\s+\\d+\\s+[%sbn! ]*(\\S+::\\S+)(?: @ \\d+)? \\(\\d+ bytes\\)(.*)$");
+	/** A call in an inlining tree: the indentation, bytecode index and callee */
+	private static final Pattern CALL = Pattern.compile("^(\\s*)@ (\\d+)\\s+(\\S+) \\(\\d+ bytes\\)\\s*(.*)$");
+	/** The intersection methods to check */
+	private static final List<String> METHODS = List.of("geometries.Sphere::findGeoIntersectionsHelper",
+			"geometries.Triangle::findGeoIntersectionsHelper", "geometries.Polygon::findGeoIntersectionsHelper",
+			"geometries.Plane::findGeoIntersectionsHelper");
+
+	/** How the JIT compiler bound a call, from best to worst */
+	private enum Binding {
+		/** The method was inlined */
+		INLINED,
+		/** The method was bound statically and called directly, but not inlined */
+		DIRECT,
+		/** The method was called virtually */
+		VIRTUAL
+	}
+
+	/**
+	 * A method in the current inlining tree.
+	 *
+	 * @param indent the indentation of its line
+	 * @param method the method
+	 */
+	private record Caller(int indent, String method) {
+	}
+
+	/**
+	 * The worst binding of a call site.
+	 *
+	 * @param binding the binding
+	 * @param reason  the decision of the compiler
+	 */
+	private record Site(Binding binding, String reason) {
+	}
+
+	/** Utility class - no instances */
+	private InliningBenchmark() {
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args no arguments to run the check, "workload" to run only the
+	 *             workload
+	 * @throws IOException          if the child JVM cannot be started
+	 * @throws InterruptedException if interrupted while waiting for the child JVM
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length > 0 && args[0].equals(WORKLOAD)) {
+			workload();
+			return;
+		}
+
+		String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+		Process process = new ProcessBuilder(java, "-XX:-TieredCompilation", "-XX:CICompilerCount=1",
+				"-XX:+UnlockDiagnosticVMOptions", "-XX:+PrintCompilation", "-XX:+PrintInlining", "-cp",
+				System.getProperty("java.class.path"), InliningBenchmark.class.getName(), WORKLOAD)
+				.redirectErrorStream(true).start();
+
+		// the call sites of each method, by their caller and bytecode index
+		Map<String, Map<String, Site>> sites = new HashMap<>();
+		List<String> output = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			String compiled = null;
+			Deque<Caller> callers = new ArrayDeque<>();
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				output.add(line);
+				if (line.startsWith("Rays per second"))
+					out.println(line);
+				Matcher call = CALL.matcher(line);
+				if (call.matches()) {
+					int indent = call.group(1).length();
+					while (!callers.isEmpty() && callers.peek().indent() >= indent)
+						callers.pop();
+					String caller = callers.isEmpty() ? compiled : callers.peek().method();
+					String callee = call.group(3);
+					callers.push(new Caller(indent, callee));
+					if (caller != null && caller.startsWith(LOOPS) && METHODS.contains(callee)) {
+						Site site = new Site(binding(call.group(4)), call.group(4));
+						sites.computeIfAbsent(callee, m -> new TreeMap<>()).merge(caller + " @ " + call.group(2), site,
+								(a, b) -> b.binding().compareTo(a.binding()) > 0 ? b : a);
+					}
+					continue;
+				}
+				// a method made not entrant is reported between the trees
+				Matcher compilation = COMPILATION.matcher(line);
+				if (compilation.matches() && compilation.group(2).isBlank()) {
+					compiled = compilation.group(1);
+					callers.clear();
+				}
+			}
+		}
+		int exitCode = process.waitFor();
+		if (exitCode != 0) {
+			output.forEach(out::println);
+			out.println("ERROR: the workload failed with exit code " + exitCode);
+			System.exit(exitCode);
+		}
+
+		boolean success = true;
+		for (String method : METHODS) {
+			Map<String, Site> methodSites = sites.getOrDefault(method, Map.of());
+			if (methodSites.isEmpty()) {
+				out.println(method + ": not compiled in the loops");
+				success = false;
+			}
+			for (Map.Entry<String, Site> entry : methodSites.entrySet()) {
+				Site site = entry.getValue();
+				out.println(method + " at " + entry.getKey() + ": " + site.binding() + " - " + site.reason());
+				success &= site.binding() != Binding.VIRTUAL;
+			}
+		}
+		out.println(success ? "All the intersection call sites are monomorphic"
+				: "ERROR: some intersection call sites are megamorphic or not compiled");
+		if (!success)
+			System.exit(1);
+	}
+
+	/**
+	 * Classifies a decision of the compiler in the inlining log.
+	 *
+	 * @param decision the decision
+	 * @return the binding of the call
+	 */
+	private static Binding binding(String decision) {
+		if (decision.contains("inline (hot)") || decision.contains("force inline")
+				|| decision.contains("late inline succeeded"))
+			return Binding.INLINED;
+		if (decision.contains("virtual call") || decision.contains("no static binding"))
+			return Binding.VIRTUAL;
+		return Binding.DIRECT;
+	}
+
+	/**
+	 * Traces rays through a mixed scene and prints the throughput.
+	 */
+	private static void workload() {
+		List<Intersectable> geometries = new ArrayList<>();
+		for (int i = 0; i < 10; ++i)
+			for (int j = 0; j < 10; ++j) {
+				double x = i * 10 - 50, y = j * 10 - 50;
+				switch ((i + j) % 3) {
+				case 0 -> geometries.add(new Sphere(new Point(x, y, -100), 4));
+				case 1 -> geometries.add(new Triangle(new Point(x - 4, y - 4, -100), new Point(x + 4, y - 4, -100),
+						new Point(x, y + 4, -100)));
+				default -> geometries.add(new Polygon(new Point(x - 4, y - 4, -100), new Point(x + 4, y - 4, -100),
+						new Point(x + 4, y + 4, -100), new Point(x - 4, y + 4, -100)));
+				}
+			}
+		geometries.add(new Plane(new Point(0, 0, -200), new Vector(0, 0, 1)));
+		Geometries scene = new Geometries(geometries.toArray(new Intersectable[0]));
+		BVH bvh = new BVH(geometries);
+
+		Random random = new Random(1);
+		Ray[] rays = new Ray[RAYS];
+		for (int i = 0; i < RAYS; ++i)
+			rays[i] = new Ray(Point.ZERO, new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+
+		long hits = 0;
+		long start = System.nanoTime();
+		for (int round = 0; round < ROUNDS; ++round)
+			for (Ray ray : rays) {
+				if (bvh.findClosestGeoIntersection(ray) != null)
+					++hits;
+				if (round % 4 == 0 && scene.findGeoIntersections(ray) != null)
+					++hits;
+			}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		out.println("Rays per second: " + Math.round(RAYS * ROUNDS / seconds) + " (" + hits + " hits)");
+	}
+}
@@ -0,0 +1,161 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.geometries.StructureFixtures.*;
+
+import java.io.IOException;
+import java.nio.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import geometries.*;
+import primitives.*;
+
+/**
+ * Unit tests for {@link geometries.BVHCache}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class BVHCacheTest {
+	/** The directory of the cache files */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Builds a grid of small spheres and triangles above a plane.
+	 *
+	 * @return the geometries
+	 */
+	private static List<Intersectable> geometries() {
+		List<Intersectable> result = grid(300);
+		result.add(new Plane(new Point(0, 0, -5), new Vector(0, 0, 1)));
+		return result;
+	}
+
+	/**
+	 * Counts the cache files.
+	 *
+	 * @return the amount of files in the cache directory
+	 * @throws IOException if the directory can't be listed
+	 */
+	private long files() throws IOException {
+		try (var stream = Files.list(directory)) {
+			return stream.count();
+		}
+	}
+
+	/**
+	 * Stores the hierarchy of the geometries in a new cache, corrupts its file and
+	 * checks that the corrupt file is replaced by a rebuilt hierarchy.
+	 *
+	 * @param name    the name of the cache directory
+	 * @param corrupt the corruption of the contents of the file
+	 * @throws IOException if the cache directory can't be accessed
+	 */
+	private void assertReplaced(String name, Consumer<ByteBuffer> corrupt) throws IOException {
+		BVHCache cache = new BVHCache(directory.resolve(name));
+		List<Intersectable> geometries = geometries();
+		Intersectable reference = new Geometries(geometries.toArray(new Intersectable[0]));
+		FlatBVH built = cache.get(geometries, BVH.Strategy.SAH);
+		Path file;
+		try (var stream = Files.list(directory.resolve(name))) {
+			file = stream.findFirst().orElseThrow();
+		}
+		byte[] stored = Files.readAllBytes(file);
+		ByteBuffer contents = ByteBuffer.wrap(stored.clone()).order(ByteOrder.LITTLE_ENDIAN);
+		corrupt.accept(contents);
+		Files.write(file, contents.array());
+
+		FlatBVH rebuilt = cache.get(geometries, BVH.Strategy.SAH);
+		assertEquals(built.getNodeCount(), rebuilt.getNodeCount(), "Wrong number of nodes");
+		for (int i = 0; i < 50; ++i)
+			assertSameIntersections(reference, rebuilt,
+					new Ray(new Point(i * 0.4 - 1, i * 0.3 - 2, 10), new Vector(i * 0.003, 0.05, -1)));
+		assertArrayEquals(stored, Files.readAllBytes(file), "The corrupt file wasn't replaced");
+	}
+
+	/**
+	 * Test method for {@link geometries.BVHCache#get(List, BVH.Strategy)}.
+	 *
+	 * @throws IOException if the cache directory can't be accessed
+	 */
+	@Test
+	void testGet() throws IOException {
+		BVHCache cache = new BVHCache(directory);
+		List<Intersectable> geometries = geometries();
+		BVH tree = new BVH(geometries, BVH.Strategy.SAH);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: A built hierarchy is stored, and loaded again for the same geometries
+		FlatBVH built = cache.get(geometries, BVH.Strategy.SAH);
+		assertEquals(1, files(), "The hierarchy wasn't stored");
+		FlatBVH loaded = cache.get(geometries(), BVH.Strategy.SAH);
+		assertEquals(1, files(), "The hierarchy was stored twice");
+		assertEquals(built.getNodeCount(), loaded.getNodeCount(), "Wrong number of nodes");
+		for (int i = 0; i < 100; ++i) {
+			Ray ray = new Ray(new Point(i * 0.2 - 1, i * 0.15 - 2, 10), new Vector(i * 0.003, 0.05, -1));
+			assertSameIntersections(tree, loaded, ray);
+		}
+
+		// TC02: Other geometries or another strategy are stored apart
+		List<Intersectable> moved = geometries();
+		moved.set(0, new Sphere(new Point(0, 0, 3), 0.4));
+		cache.get(moved, BVH.Strategy.SAH);
+		cache.get(geometries, BVH.Strategy.MEDIAN);
+		assertEquals(3, files(), "Wrong number of stored hierarchies");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: A corrupt file is replaced
+		try (var stream = Files.list(directory)) {
+			for (Path file : stream.toList())
+				Files.write(file, new byte[] { 1, 2, 3 });
+		}
+		FlatBVH rebuilt = cache.get(geometries, BVH.Strategy.SAH);
+		assertEquals(built.getNodeCount(), rebuilt.getNodeCount(), "Wrong number of nodes");
+		assertEquals(built.getNodeCount(), cache.get(geometries, BVH.Strategy.SAH).getNodeCount(),
+				"The replaced hierarchy wasn't loaded");
+
+		// TC12: No bounded geometries
+		List<Intersectable> plane = List.of(new Plane(new Point(0, 0, -5), new Vector(0, 0, 1)));
+		cache.get(plane, BVH.Strategy.SAH);
+		assertEquals(new Point(0, 0, -5), cache.get(plane, BVH.Strategy.SAH)
+				.findClosestGeoIntersection(new Ray(new Point(0, 0, 10), new Vector(0, 0, -1))).point,
+				"Wrong closest intersection");
+
+		// TC13: A file whose root points at a second child out of the nodes is
+		// replaced
+		assertReplaced("offset", contents -> contents.putInt(16 + 24, Integer.MAX_VALUE));
+
+		// TC14: A file whose root points at itself as its second child is replaced
+		assertReplaced("cycle", contents -> contents.putInt(16 + 24, 0));
+
+		// TC15: A file whose order of the geometries repeats a geometry is replaced
+		assertReplaced("order",
+				contents -> contents.putInt(contents.capacity() - 4, contents.getInt(contents.capacity() - 8)));
+
+		// TC16: A geometry listed twice is stored once per listing, and the file is
+		// loaded rather than replaced
+		Path twiceDirectory = directory.resolve("twice");
+		BVHCache twiceCache = new BVHCache(twiceDirectory);
+		List<Intersectable> twice = geometries();
+		twice.add(twice.getFirst());
+		twiceCache.get(twice, BVH.Strategy.SAH);
+		Path file;
+		try (var stream = Files.list(twiceDirectory)) {
+			file = stream.findFirst().orElseThrow();
+		}
+		FileTime stored = FileTime.fromMillis(0);
+		Files.setLastModifiedTime(file, stored);
+		FlatBVH twiceLoaded = twiceCache.get(twice, BVH.Strategy.SAH);
+		assertEquals(stored, Files.getLastModifiedTime(file), "The file wasn't loaded");
+		Intersectable twiceReference = new Geometries(twice.toArray(new Intersectable[0]));
+		for (int i = 0; i < 50; ++i)
+			assertSameIntersections(twiceReference, twiceLoaded,
+					new Ray(new Point(i * 0.4 - 1, i * 0.3 - 2, 10), new Vector(i * 0.003, 0.05, -1)));
+	}
+}
@@ -0,0 +1,193 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.geometries.StructureFixtures.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+
+/**
+ * Unit tests for {@link geometries.BVH}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class BVHTest {
+
+	/**
+	 * Test method for {@link geometries.BVH#findGeoIntersections(primitives.Ray)}.
+	 */
+	@Test
+	void testFindGeoIntersections() {
+		List<Intersectable> geometries = spheres(20);
+		geometries.add(new Plane(new Point(0, 0, -5), new Vector(0, 0, 1)));
+		BVH bvh = new BVH(geometries);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray along the row of spheres hits all of them
+		Ray ray = new Ray(new Point(-10, 0, 0), new Vector(1, 0, 0));
+		assertEquals(40, bvh.findGeoIntersections(ray).size(), "Wrong number of intersections");
+
+		// TC02: Ray crossing one sphere and the plane
+		ray = new Ray(new Point(30, 0, 10), new Vector(0, 0, -1));
+		assertEquals(3, bvh.findGeoIntersections(ray).size(), "Wrong number of intersections");
+
+		// TC03: Ray missing everything
+		assertNull(bvh.findGeoIntersections(new Ray(new Point(0, 10, 0), new Vector(1, 0, 0))),
+				"There shouldn't be any intersections");
+
+		// TC04: Intersections up to a distance
+		ray = new Ray(new Point(-10, 0, 0), new Vector(1, 0, 0));
+		assertEquals(3, bvh.findGeoIntersections(ray, 13).size(), "Wrong number of close intersections");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: No geometries
+		assertNull(new BVH(List.of()).findGeoIntersections(ray), "There shouldn't be any intersections");
+		// TC12: The bounding box is unknown when there are unbounded geometries
+		assertNull(bvh.getBoundingBox(), "Unbounded geometries have no bounding box");
+	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.BVH#findClosestGeoIntersection(primitives.Ray)}.
+	 */
+	@Test
+	void testFindClosestGeoIntersection() {
+		List<Intersectable> geometries = spheres(20);
+		BVH bvh = new BVH(geometries);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray along the row of spheres from the far end
+		GeoPoint closest = bvh.findClosestGeoIntersection(new Ray(new Point(100, 0, 0), new Vector(-1, 0, 0)));
+		assertEquals(new Point(58, 0, 0), closest.point, "Wrong closest intersection");
+		assertSame(geometries.get(19), closest.geometry, "Wrong closest geometry");
+
+		// TC02: Closest intersection with a plane in front of the spheres
+		geometries.add(new Plane(new Point(0, 0, 5), new Vector(0, 0, 1)));
+		bvh = new BVH(geometries);
+		closest = bvh.findClosestGeoIntersection(new Ray(new Point(30, 0, 10), new Vector(0, 0, -1)));
+		assertEquals(new Point(30, 0, 5), closest.point, "Wrong closest intersection");
+
+		// TC03: Ray missing everything
+		assertNull(bvh.findClosestGeoIntersection(new Ray(new Point(0, 10, 10), new Vector(1, 0, 0))),
+				"There shouldn't be any intersections");
+
+		// TC04: A packet of rays finds the same intersections as single rays
+		Ray[] rays = new Ray[16];
+		for (int i = 0; i < rays.length; ++i)
+			rays[i] = new Ray(new Point(i * 4, -10, 0.5), new Vector(0, 1, 0));
+		GeoPoint[] packet = new GeoPoint[rays.length];
+		bvh.findClosestGeoIntersections(rays, packet);
+		for (int i = 0; i < rays.length; ++i) {
+			GeoPoint single = bvh.findClosestGeoIntersection(rays[i]);
+			assertEquals(single == null ? null : single.point, packet[i] == null ? null : packet[i].point,
+					"Wrong packet intersection");
+		}
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Ray starting inside a sphere
+		closest = new BVH(spheres(20)).findClosestGeoIntersection(new Ray(new Point(30, 0, 0), new Vector(0, 1, 0)));
+		assertEquals(new Point(30, 1, 0), closest.point, "Wrong closest intersection from inside");
+	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.BVH#BVH(java.util.List, geometries.BVH.Strategy)}.
+	 */
+	@Test
+	void testSurfaceAreaHeuristic() {
+		List<Intersectable> geometries = spheres(200);
+		// a dense cluster of small triangles next to the row of spheres
+		for (int i = 0; i < 2000; ++i)
+			geometries.add(new Triangle(new Point(i % 40 * 0.1, 5 + i / 40 * 0.1, 0),
+					new Point(i % 40 * 0.1 + 0.05, 5 + i / 40 * 0.1, 0), new Point(i % 40 * 0.1, 5.05 + i / 40 * 0.1, 0)));
+		BVH median = new BVH(geometries);
+		BVH sah = new BVH(geometries, BVH.Strategy.SAH);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The hierarchies find the same intersections
+		for (int i = 0; i < 100; ++i) {
+			Ray ray = new Ray(new Point(i * 0.07 - 1, i * 0.1 - 2, 10), new Vector(i * 0.01, 0.1, -1));
+			assertSameIntersections(median, sah, ray);
+		}
+
+		// TC02: The statistics describe the tree, whose cost is lower than the median
+		// split tree
+		BVH.Statistics statistics = sah.getStatistics();
+		assertEquals(BVH.Strategy.SAH, statistics.strategy(), "Wrong strategy");
+		assertEquals(geometries.size(), statistics.geometries(), "Wrong number of geometries");
+		assertEquals(2 * statistics.leaves() - 1, statistics.nodes(), "Wrong number of nodes");
+		assertTrue(statistics.cost() < median.getStatistics().cost(), "SAH tree is not cheaper");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Geometries with a common center
+		List<Intersectable> nested = new ArrayList<>();
+		for (int i = 1; i <= 20; ++i)
+			nested.add(new Sphere(new Point(0, 0, 0), i));
+		GeoPoint closest = new BVH(nested, BVH.Strategy.SAH)
+				.findClosestGeoIntersection(new Ray(new Point(0, 0, 30), new Vector(0, 0, -1)));
+		assertEquals(new Point(0, 0, 20), closest.point, "Wrong closest intersection");
+
+		// TC12: Geometries spaced exponentially, which the heuristic peels off one
+		// by one, give a tree of a bounded depth that every structure traverses
+		List<Intersectable> spaced = new ArrayList<>();
+		for (int k = 0; k < 1500; ++k)
+			spaced.add(new Sphere(new Point(Math.pow(1.5, k), 0, 0), 0.1));
+		Geometries flat = new Geometries(spaced.toArray(new Intersectable[0]));
+		Ray ray = new Ray(new Point(-1, 0, 0), new Vector(1, 0, 0));
+		BVH deep = new BVH(spaced, BVH.Strategy.SAH);
+		assertTrue(deep.getStatistics().depth() <= 48 + 12, "Too deep: " + deep.getStatistics().depth());
+		for (AccelerationStructure structure : List.of(AccelerationStructure.SAH_BVH, AccelerationStructure.FLAT_BVH,
+				AccelerationStructure.LBVH, AccelerationStructure.WIDE_BVH, AccelerationStructure.LAZY_BVH,
+				AccelerationStructure.AUTO))
+			assertSameIntersections(flat, structure.build(spaced), ray);
+	}
+
+	/**
+	 * Test method for {@link geometries.BVH#BVH(List, BVH.Strategy)} with the
+	 * Morton code strategy.
+	 */
+	@Test
+	void testMorton() {
+		List<Intersectable> geometries = spheres(200);
+		// more triangles than a chunk of the radix sort
+		for (int i = 0; i < 20000; ++i)
+			geometries.add(new Triangle(new Point(i % 200 * 0.02, 5 + i / 200 * 0.02, 0),
+					new Point(i % 200 * 0.02 + 0.01, 5 + i / 200 * 0.02, 0),
+					new Point(i % 200 * 0.02, 5.01 + i / 200 * 0.02, 0)));
+		BVH median = new BVH(geometries);
+		BVH morton = new BVH(geometries, BVH.Strategy.MORTON);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The hierarchies find the same intersections
+		for (int i = 0; i < 100; ++i) {
+			Ray ray = new Ray(new Point(i * 0.07 - 1, i * 0.1 - 2, 10), new Vector(i * 0.01, 0.1, -1));
+			assertSameIntersections(median, morton, ray);
+		}
+
+		// TC02: The statistics describe the tree
+		BVH.Statistics statistics = morton.getStatistics();
+		assertEquals(BVH.Strategy.MORTON, statistics.strategy(), "Wrong strategy");
+		assertEquals(geometries.size(), statistics.geometries(), "Wrong number of geometries");
+		assertEquals(2 * statistics.leaves() - 1, statistics.nodes(), "Wrong number of nodes");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Geometries with a common center, thus equal codes
+		List<Intersectable> nested = new ArrayList<>();
+		for (int i = 1; i <= 20; ++i)
+			nested.add(new Sphere(new Point(0, 0, 0), i));
+		GeoPoint closest = new BVH(nested, BVH.Strategy.MORTON)
+				.findClosestGeoIntersection(new Ray(new Point(0, 0, 30), new Vector(0, 0, -1)));
+		assertEquals(new Point(0, 0, 20), closest.point, "Wrong closest intersection");
+
+		// TC12: A single geometry
+		closest = new BVH(List.of(new Sphere(new Point(0, 0, 0), 1)), BVH.Strategy.MORTON)
+				.findClosestGeoIntersection(new Ray(new Point(0, 0, 30), new Vector(0, 0, -1)));
+		assertEquals(new Point(0, 0, 1), closest.point, "Wrong closest intersection");
+	}
+}
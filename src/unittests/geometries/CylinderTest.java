@@ -10,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import geometries.Cylinder;
 import primitives.Point;
 import primitives.Ray;
+import primitives.Transform;
 
 import primitives.Vector;
 
@@ -78,4 +79,23 @@ class CylinderTest {
 
 	}
 
+	/**
+	 * Test method for {@link geometries.Cylinder#transform(primitives.Transform)}.
+	 */
+	@Test
+	void testTransform() {
+		Cylinder c = new Cylinder(6, new Ray(new Point(4, 0, 0), new Vector(1, 0, 0)), 2);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: A moved and scaled cylinder has its axis moved and its height scaled
+		Cylinder moved = (Cylinder) c.transform(Transform.scaling(2).then(Transform.translation(new Vector(0, 5, 0))));
+		assertEquals(new Vector(1, 0, 0), moved.getNormal(new Point(20, 5, 1)), "Wrong top base of a moved cylinder");
+		assertEquals(new Vector(0, 1, 0), moved.getNormal(new Point(14, 9, 0)), "Wrong side of a moved cylinder");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: A cylinder can't be scaled non uniformly
+		assertThrows(IllegalArgumentException.class, () -> c.transform(Transform.scaling(2, 1, 1)),
+				"Scaled a cylinder non uniformly");
+	}
+
 }
@@ -0,0 +1,150 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.geometries.StructureFixtures.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+
+/**
+ * Unit tests for {@link geometries.DynamicBVH}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class DynamicBVHTest {
+
+	/**
+	 * Test method for {@link geometries.DynamicBVH#insert(Intersectable...)}.
+	 */
+	@Test
+	void testInsert() {
+		DynamicBVH bvh = new DynamicBVH();
+		List<Intersectable> geometries = spheres(20);
+		for (Intersectable geometry : geometries)
+			bvh.insert(geometry);
+		Ray ray = new Ray(new Point(-10, 0, 0), new Vector(1, 0, 0));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray along the row of inserted spheres hits all of them
+		assertEquals(40, bvh.findGeoIntersections(ray).size(), "Wrong number of intersections");
+		assertEquals(new Point(-1, 0, 0), bvh.findClosestGeoIntersection(ray).point, "Wrong closest intersection");
+
+		// TC02: Inserted unbounded geometry
+		bvh.insert(new Plane(new Point(0, 0, -5), new Vector(0, 0, 1)));
+		assertEquals(3, bvh.findGeoIntersections(new Ray(new Point(30, 0, 10), new Vector(0, 0, -1))).size(),
+				"Wrong number of intersections");
+		assertNull(bvh.getBoundingBox(), "Unbounded geometries have no bounding box");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Inserting a geometry twice
+		assertThrows(IllegalArgumentException.class, () -> bvh.insert(geometries.getFirst()),
+				"Inserted a geometry twice");
+		// TC12: Empty hierarchy
+		assertNull(new DynamicBVH().findGeoIntersections(ray), "There shouldn't be any intersections");
+	}
+
+	/**
+	 * Test method for {@link geometries.DynamicBVH#remove(Intersectable...)}.
+	 */
+	@Test
+	void testRemove() {
+		List<Intersectable> geometries = spheres(20);
+		DynamicBVH bvh = new DynamicBVH(geometries);
+		Ray ray = new Ray(new Point(-10, 0, 0), new Vector(1, 0, 0));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Removing every other sphere
+		for (int i = 0; i < 20; i += 2)
+			bvh.remove(geometries.get(i));
+		assertEquals(20, bvh.findGeoIntersections(ray).size(), "Wrong number of intersections");
+		GeoPoint closest = bvh.findClosestGeoIntersection(ray);
+		assertSame(geometries.get(1), closest.geometry, "Removed geometry was found");
+		assertEquals(new BoundingBox(2, -1, -1, 58, 1, 1).toString(), bvh.getBoundingBox().toString(),
+				"Bounds were not refitted");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Removing all the geometries
+		bvh.remove(geometries.toArray(new Intersectable[0]));
+		assertNull(bvh.findGeoIntersections(ray), "There shouldn't be any intersections");
+	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.DynamicBVH#move(Intersectable, Intersectable)}.
+	 */
+	@Test
+	void testMove() {
+		List<Intersectable> geometries = spheres(20);
+		DynamicBVH bvh = new DynamicBVH(geometries);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: A sphere moved slightly within its neighborhood
+		Intersectable moved = geometries.get(5).transform(Transform.translation(new Vector(0, 0.5, 0)));
+		bvh.move(geometries.get(5), moved);
+		GeoPoint closest = bvh.findClosestGeoIntersection(new Ray(new Point(15, 10, 0), new Vector(0, -1, 0)));
+		assertSame(moved, closest.geometry, "Wrong moved geometry");
+		assertEquals(new Point(15, 1.5, 0), closest.point, "Wrong moved intersection");
+
+		// TC02: A sphere moved far away from its neighbors
+		Intersectable far = geometries.get(10).transform(Transform.translation(new Vector(0, 100, 0)));
+		bvh.move(geometries.get(10), far);
+		assertNull(bvh.findGeoIntersections(new Ray(new Point(30, 10, 0), new Vector(0, -1, 0)), 20),
+				"Found the geometry at its old location");
+		closest = bvh.findClosestGeoIntersection(new Ray(new Point(30, 200, 0), new Vector(0, -1, 0)));
+		assertSame(far, closest.geometry, "Wrong far geometry");
+		assertEquals(new Point(30, 101, 0), closest.point, "Wrong far intersection");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Moving a geometry that is not in the hierarchy
+		assertThrows(IllegalArgumentException.class, () -> bvh.move(geometries.get(10), far),
+				"Moved a geometry that is not in the hierarchy");
+	}
+
+	/**
+	 * Test method for {@link geometries.DynamicBVH#getCost()}.
+	 */
+	@Test
+	void testRebuild() {
+		// the first spheres are scattered already, the others are scattered by the
+		// test - fewer than a quarter of them, so the estimate of a full build stays
+		List<Intersectable> geometries = spheres(200);
+		List<Intersectable> scattered = new ArrayList<>();
+		for (int i = 0; i < geometries.size(); ++i)
+			scattered.add(geometries.get(i)
+					.transform(Transform.translation(new Vector(0.5, (i * 37 % 200) * 3 - 3 * i, 0))));
+		List<Intersectable> initial = new ArrayList<>(scattered.subList(0, 151));
+		initial.addAll(geometries.subList(151, 200));
+		DynamicBVH bvh = new DynamicBVH(initial).setRebuildThreshold(1.05);
+		DynamicBVH lenient = new DynamicBVH(initial);
+		double builtCost = bvh.getCost();
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Scattering the rest of the spheres degrades the hierarchy past the
+		// threshold until it is rebuilt
+		for (int i = 151; i < 200; ++i) {
+			bvh.move(geometries.get(i), scattered.get(i));
+			lenient.move(geometries.get(i), scattered.get(i));
+		}
+		bvh.awaitRebuild();
+		lenient.awaitRebuild();
+		DynamicBVH fresh = new DynamicBVH(scattered);
+		assertTrue(lenient.getCost() > builtCost * 1.05, "The hierarchy did not degrade");
+		assertTrue(bvh.getCost() < lenient.getCost(), "The hierarchy was not rebuilt");
+		assertTrue(bvh.getCost() <= fresh.getCost() * 1.05, "The hierarchy was not rebuilt");
+		assertTrue(builtCost >= 1, "Wrong cost");
+
+		// TC02: The rebuilt hierarchy finds the same intersections
+		for (int i = 0; i < 600; i += 7)
+			assertSameIntersections(fresh, bvh, new Ray(new Point(i * 0.1, i, 10), new Vector(0, 0, -1)));
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Threshold below 1
+		assertThrows(IllegalArgumentException.class, () -> bvh.setRebuildThreshold(0.5), "Accepted a low threshold");
+	}
+}
@@ -0,0 +1,67 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.geometries.StructureFixtures.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import primitives.*;
+
+/**
+ * Unit tests for {@link geometries.FlatBVH}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class FlatBVHTest {
+
+	/**
+	 * Test method for {@link geometries.FlatBVH#findClosestGeoIntersection(Ray)}
+	 * and {@link geometries.FlatBVH#findGeoIntersections(Ray, double)}.
+	 */
+	@Test
+	void testFindIntersections() {
+		List<Intersectable> geometries = grid(400);
+		BVH tree = new BVH(geometries, BVH.Strategy.SAH);
+		FlatBVH heap = new FlatBVH(geometries);
+		FlatBVH offHeap = new FlatBVH(geometries, BVH.Strategy.SAH, true);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The flat hierarchies find the same intersections as the tree, on and
+		// off the heap
+		assertFalse(heap.isOffHeap(), "Nodes should be on the heap");
+		assertTrue(offHeap.isOffHeap(), "Nodes should be off the heap");
+		assertEquals(tree.getStatistics().nodes(), offHeap.getNodeCount(), "Wrong number of nodes");
+		for (int i = 0; i < 200; ++i) {
+			Ray ray = new Ray(new Point(i * 0.1 - 1, i * 0.07 - 2, 10), new Vector(i * 0.003, 0.05, -1));
+			for (FlatBVH flat : List.of(heap, offHeap))
+				assertSameIntersections(tree, flat, ray, 10.5);
+		}
+
+		// TC02: Unbounded geometries are intersected beside the nodes
+		List<Intersectable> withPlane = new ArrayList<>(geometries);
+		withPlane.add(new Plane(new Point(0, 0, -5), new Vector(0, 0, 1)));
+		FlatBVH flat = new FlatBVH(withPlane, BVH.Strategy.MEDIAN, true);
+		assertNull(flat.getBoundingBox(), "An unbounded hierarchy has no bounding box");
+		assertEquals(new Point(-3, -3, -5),
+				flat.findClosestGeoIntersection(new Ray(new Point(-3, -3, 10), new Vector(0, 0, -1))).point,
+				"Wrong closest intersection");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: No geometries
+		FlatBVH empty = new FlatBVH(List.of());
+		assertEquals(0, empty.getNodeCount(), "Wrong number of nodes");
+		assertNull(empty.findClosestGeoIntersection(new Ray(new Point(0, 0, 10), new Vector(0, 0, -1))),
+				"There shouldn't be any intersections");
+
+		// TC12: A ray grazing the float bounds of a sphere
+		FlatBVH single = new FlatBVH(List.of(new Sphere(new Point(0.1, 0.1, 0.1), 0.3)));
+		assertEquals(1, single.getNodeCount(), "Wrong number of nodes");
+		assertEquals(new Point(0.1, 0.1, 0.4),
+				single.findClosestGeoIntersection(new Ray(new Point(0.1, 0.1, 10), new Vector(0, 0, -1))).point,
+				"Wrong closest intersection");
+	}
+}
@@ -5,6 +5,8 @@ package unittests.geometries;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import geometries.*;
@@ -57,4 +59,126 @@ class GeometriesTest {
 		assertEquals(4, result.size(), "There should be four intersections");
 	}
 
+	/**
+	 * Test method for
+	 * {@link geometries.Geometries#findClosestGeoIntersection(primitives.Ray)}.
+	 */
+	@Test
+	void testFindClosestGeoIntersection() {
+		Sphere sphere = new Sphere(new Point(6, 2, 0), 1);
+		Plane plane = new Plane(new Point(2, 2, 1), new Vector(-1, 0, 0));
+		Geometries geometries = new Geometries(sphere, plane,
+				new Triangle(new Point(19, -20, 26), new Point(20, 20, 1), new Point(18, -18, -28)));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The plane is the closest of all the geometries
+		var closest = geometries.findClosestGeoIntersection(new Ray(new Point(0, 2, 0), new Vector(1, 0, 0)));
+		assertSame(plane, closest.geometry, "Wrong closest geometry");
+		assertEquals(new Point(2, 2, 0), closest.point, "Wrong closest intersection");
+
+		// TC02: Only the intersections up to a distance
+		assertEquals(2, geometries.findGeoIntersections(new Ray(new Point(0, 2, 0), new Vector(1, 0, 0)), 6).size(),
+				"Wrong number of close intersections");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Geometries added after intersecting are intersected as well
+		geometries.add(new Sphere(new Point(1, 2, 0), 0.5));
+		closest = geometries.findClosestGeoIntersection(new Ray(new Point(0, 2, 0), new Vector(1, 0, 0)));
+		assertEquals(new Point(0.5, 2, 0), closest.point, "Added geometry not intersected");
+	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.Geometries#intersect(primitives.RayBatch, int)}.
+	 */
+	@Test
+	void testIntersectBatch() {
+		Geometries geometries = new Geometries(new Sphere(new Point(6, 2, 0), 1), //
+				new Geometries(new Sphere(new Point(10, 5, 0), 1), new Plane(new Point(2, 2, 1), new Vector(-1, 0, 0))),
+				new Triangle(new Point(19, -20, 26), new Point(20, 20, 1), new Point(18, -18, -28)));
+		RayBatch batch = new RayBatch(new Ray(new Point(0, 2, 0), new Vector(1, 0, 0)), //
+				new Ray(new Point(10, 5, -5), new Vector(0, 0, 1)), //
+				new Ray(new Point(0, 2, 0), new Vector(0, 1, 0)));
+		int next = geometries.intersect(batch, 10);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The closest primitive is in a nested collection
+		assertEquals(new Point(2, 2, 0), batch.getPoint(0), "Wrong closest intersection");
+		assertEquals(12, batch.primitive[0], "Wrong primitive index");
+
+		// TC02: The primitives are numbered depth first
+		assertEquals(4, batch.distance[1], 0.00001, "Wrong distance");
+		assertEquals(11, batch.primitive[1], "Wrong primitive index");
+		assertEquals(4, geometries.countPrimitives(), "Wrong number of primitives");
+		assertEquals(14, next, "Wrong index following the primitives");
+
+		// TC03: Acceleration structures and instances number the primitives inside
+		Sphere hit = new Sphere(new Point(4, 0, 0), 1);
+		Geometries prototype = new Geometries(new Sphere(new Point(0, 0, 10), 1), hit);
+		Geometries structures = new Geometries(
+				new BVH(List.of(new Sphere(new Point(0, 10, 0), 1), prototype, new Sphere(new Point(0, 20, 0), 1))),
+				new Instance(prototype, Transform.translation(new Vector(0, 0, -20))));
+		RayBatch nested = new RayBatch(new Ray(new Point(4, 0, -30), new Vector(0, 0, 1)),
+				new Ray(new Point(4, 0, 30), new Vector(0, 0, -1)));
+		assertEquals(6, structures.intersect(nested, 0), "Wrong index following the primitives");
+		assertEquals(5, nested.primitive[0], "Wrong primitive index in an instance");
+		assertEquals(2, nested.primitive[1], "Wrong primitive index in a hierarchy");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Ray misses all the geometries
+		assertFalse(batch.isHit(2), "There shouldn't be any intersection");
+
+		// TC12: No geometries
+		batch.reset();
+		new Geometries().intersect(batch, 0);
+		assertFalse(batch.isHit(0), "There shouldn't be any intersection");
+	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.Geometries#transform(primitives.Transform)}.
+	 */
+	@Test
+	void testTransform() {
+		Material material = new Material().setKD(0.3);
+		Geometries geometries = new Geometries(new Sphere(new Point(0, 0, 0), 1).setMaterial(material),
+				new Triangle(new Point(-1, -1, 5), new Point(1, -1, 5), new Point(0, 1, 5)));
+		Ray ray = new Ray(new Point(10, 0, -10), new Vector(0, 0, 1));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Translated geometries are intersected at their new location
+		Intersectable moved = geometries.transform(Transform.translation(new Vector(10, 0, 0)));
+		var closest = moved.findClosestGeoIntersection(ray);
+		assertEquals(new Point(10, 0, -1), closest.point, "Wrong transformed intersection");
+		assertSame(material, closest.geometry.getMaterial(), "The material was not copied");
+		assertNull(geometries.findIntersections(ray), "The original geometries were moved");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: A sphere can't be scaled non uniformly
+		assertThrows(IllegalArgumentException.class, () -> geometries.transform(Transform.scaling(1, 2, 1)),
+				"Scaled a sphere non uniformly");
+	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.Geometries#remove(geometries.Intersectable...)}.
+	 */
+	@Test
+	void testRemove() {
+		Sphere near = new Sphere(new Point(0, 0, 0), 1);
+		Sphere far = new Sphere(new Point(0, 0, 5), 1);
+		Geometries geometries = new Geometries(near, far);
+		Ray ray = new Ray(new Point(0, 0, -10), new Vector(0, 0, 1));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Removing one of the geometries
+		geometries.remove(near);
+		assertEquals(new Point(0, 0, 4), geometries.findClosestGeoIntersection(ray).point,
+				"Removed geometry was intersected");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Removing a geometry that is not in the collection
+		geometries.remove(near);
+		assertEquals(1, geometries.getGeometries().size(), "Wrong number of geometries");
+	}
 }
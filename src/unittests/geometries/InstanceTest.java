@@ -0,0 +1,100 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+
+/**
+ * Unit tests for {@link geometries.Instance}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class InstanceTest {
+	/** The material of the shared sphere */
+	private final Material material = new Material().setKD(0.4);
+	/** The shared unit sphere */
+	private final Sphere sphere = (Sphere) new Sphere(new Point(0, 0, 0), 1).setMaterial(material);
+
+	/**
+	 * Test method for
+	 * {@link geometries.Instance#findGeoIntersections(primitives.Ray)}.
+	 */
+	@Test
+	void testFindGeoIntersections() {
+		Instance instance = new Instance(sphere,
+				Transform.scaling(2).then(Transform.translation(new Vector(10, 0, 0))));
+		Ray ray = new Ray(new Point(0, 0, 0), new Vector(1, 0, 0));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray through a scaled and translated instance
+		List<GeoPoint> intersections = instance.findGeoIntersections(ray);
+		assertEquals(2, intersections.size(), "Wrong number of intersections");
+		assertEquals(new Point(8, 0, 0), instance.findClosestGeoIntersection(ray).point,
+				"Wrong closest intersection");
+
+		// TC02: The intersection has the appearance of the shared geometry and a
+		// normal in the world
+		GeoPoint top = instance.findClosestGeoIntersection(new Ray(new Point(10, 10, 0), new Vector(0, -1, 0)));
+		assertEquals(new Point(10, 2, 0), top.point, "Wrong intersection");
+		assertSame(material, top.geometry.getMaterial(), "Wrong material");
+		assertEquals(new Vector(0, 1, 0), top.geometry.getNormal(top.point), "Wrong normal");
+
+		// TC03: Intersections up to a distance in the world
+		assertEquals(1, instance.findGeoIntersections(ray, 9).size(), "Wrong number of close intersections");
+		assertNull(instance.findGeoIntersections(ray, 7), "There shouldn't be close intersections");
+
+		// TC04: Non uniformly scaled instance of a sphere (an ellipsoid)
+		Instance ellipsoid = new Instance(sphere, Transform.scaling(1, 2, 1));
+		GeoPoint side = ellipsoid.findClosestGeoIntersection(new Ray(new Point(0.6, 0, 10), new Vector(0, 0, -1)));
+		assertEquals(new Point(0.6, 0, 0.8), side.point, "Wrong ellipsoid intersection");
+		Point slope = new Point(0, Math.sqrt(2), Math.sqrt(0.5));
+		Vector normal = ellipsoid.findClosestGeoIntersection(new Ray(new Point(0, Math.sqrt(2), 10),
+				new Vector(0, 0, -1))).geometry.getNormal(slope);
+		assertEquals(0, normal.dotProduct(new Vector(0, -2, 1)), 0.00001, "Wrong ellipsoid normal");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: The ray misses the instance
+		assertNull(instance.findGeoIntersections(new Ray(new Point(0, 5, 0), new Vector(1, 0, 0))),
+				"There shouldn't be any intersections");
+	}
+
+	/**
+	 * Test method for {@link geometries.Instance#getBoundingBox()}.
+	 */
+	@Test
+	void testGetBoundingBox() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Rotated and translated instance
+		BoundingBox box = new Instance(sphere,
+				Transform.rotation(new Vector(0, 0, 1), 90).then(Transform.translation(new Vector(5, 0, 0))))
+				.getBoundingBox();
+		assertEquals(4, box.minX, 0.00001, "Wrong bounding box");
+		assertEquals(6, box.maxX, 0.00001, "Wrong bounding box");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Instance of an unbounded geometry
+		assertNull(new Instance(new Plane(new Point(0, 0, 0), new Vector(0, 0, 1)), Transform.IDENTITY)
+				.getBoundingBox(), "Unbounded instance has a bounding box");
+	}
+
+	/**
+	 * Test method for {@link geometries.Instance#transform(primitives.Transform)}.
+	 */
+	@Test
+	void testTransform() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: A moved instance shares the prototype
+		Instance instance = new Instance(sphere, Transform.translation(new Vector(3, 0, 0)));
+		Instance moved = (Instance) instance.transform(Transform.translation(new Vector(0, 3, 0)));
+		assertSame(sphere, moved.getPrototype(), "The prototype was copied");
+		assertEquals(new Point(3, 4, 0),
+				moved.findClosestGeoIntersection(new Ray(new Point(3, 10, 0), new Vector(0, -1, 0))).point,
+				"Wrong moved instance");
+	}
+}
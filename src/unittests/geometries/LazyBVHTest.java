@@ -0,0 +1,73 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.geometries.StructureFixtures.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import primitives.*;
+
+/**
+ * Unit tests for {@link geometries.LazyBVH}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class LazyBVHTest {
+
+	/**
+	 * Builds a grid of small spheres.
+	 *
+	 * @param side the amount of spheres along each side of the grid
+	 * @return the spheres
+	 */
+	private static List<Intersectable> sphereGrid(int side) {
+		List<Intersectable> result = new ArrayList<>();
+		for (int i = 0; i < side * side; ++i)
+			result.add(new Sphere(new Point(i % side, i / side, 0), 0.4));
+		return result;
+	}
+
+	/**
+	 * Test method for {@link geometries.LazyBVH#findClosestGeoIntersection(Ray)}
+	 * and {@link geometries.LazyBVH#findGeoIntersections(Ray, double)}.
+	 */
+	@Test
+	void testFindIntersections() {
+		List<Intersectable> geometries = sphereGrid(40);
+		BVH tree = new BVH(geometries);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Only the top levels are built up front, and a ray builds only the
+		// nodes on its way
+		LazyBVH lazy = new LazyBVH(geometries, 2);
+		assertEquals(7, lazy.getNodeCount(), "Wrong number of eager nodes");
+		Ray ray = new Ray(new Point(3, 3, 10), new Vector(0, 0, -1));
+		assertEquals(new Point(3, 3, 0.4), lazy.findClosestGeoIntersection(ray).point,
+				"Wrong closest intersection");
+		int built = lazy.getNodeCount();
+		assertTrue(built < tree.getStatistics().nodes() / 4, "Too many nodes were built");
+		lazy.findClosestGeoIntersection(ray);
+		assertEquals(built, lazy.getNodeCount(), "Nodes were built twice");
+
+		// TC02: Concurrent rays find the same intersections as the eager tree, and
+		// every node is built once
+		LazyBVH shared = new LazyBVH(geometries, 0);
+		List<Ray> rays = IntStream.range(0, 2000)
+				.mapToObj(i -> new Ray(new Point(i % 45 - 2, i / 45 - 2, 10), new Vector(0.01 * (i % 7), 0.02, -1)))
+				.toList();
+		rays.parallelStream().forEach(r -> assertSameIntersections(tree, shared, r));
+		assertTrue(shared.getNodeCount() <= tree.getStatistics().nodes(), "Nodes were built twice");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: No geometries
+		assertNull(new LazyBVH(List.of()).findClosestGeoIntersection(ray), "There shouldn't be any intersections");
+
+		// TC12: Negative eager depth
+		assertThrows(IllegalArgumentException.class, () -> new LazyBVH(geometries, -1), "Negative depth");
+	}
+}
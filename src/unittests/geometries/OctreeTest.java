@@ -0,0 +1,125 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.geometries.StructureFixtures.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import primitives.*;
+
+/**
+ * Unit tests for {@link geometries.Octree}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class OctreeTest {
+
+	/**
+	 * Builds a few huge geometries beside dense clusters of small spheres and
+	 * triangles.
+	 *
+	 * @return the geometries
+	 */
+	private static List<Intersectable> geometries() {
+		Random random = new Random(3);
+		List<Intersectable> result = new ArrayList<>();
+		result.add(new Sphere(new Point(0, 0, -200), 150));
+		result.add(new Polygon(new Point(-300, -300, -10), new Point(300, -300, -10), new Point(300, 300, -10),
+				new Point(-300, 300, -10)));
+		for (int cluster = 0; cluster < 4; ++cluster) {
+			double cx = cluster * 40 - 60, cy = cluster % 2 * 30;
+			for (int i = 0; i < 150; ++i) {
+				double x = cx + random.nextDouble() * 4, y = cy + random.nextDouble() * 4, z = random.nextDouble() * 4;
+				result.add(i % 2 == 0 ? new Sphere(new Point(x, y, z), 0.2)
+						: new Triangle(new Point(x, y, z), new Point(x + 0.3, y, z), new Point(x, y + 0.3, z + 0.1)));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Test method for {@link geometries.Octree#findClosestGeoIntersection(Ray)}
+	 * and {@link geometries.Octree#findGeoIntersections(Ray, double)}.
+	 */
+	@Test
+	void testFindIntersections() {
+		List<Intersectable> geometries = geometries();
+		Geometries flat = new Geometries(geometries.toArray(new Intersectable[0]));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The octree finds the same intersections as the flat list, once each,
+		// with deep and shallow trees and with small and large leaves
+		for (Octree octree : List.of(new Octree(geometries), new Octree(geometries, 3, 1),
+				new Octree(geometries, 12, 32)))
+			for (int i = 0; i < 300; ++i) {
+				Ray ray = new Ray(new Point(i % 30 * 4 - 62, i / 30 * 4 - 2, 30),
+						new Vector(0.01 * (i % 7) - 0.03, 0.002 * (i % 5), -1));
+				assertSameIntersections(flat, octree, ray, 35);
+			}
+
+		// TC02: Unbounded geometries are intersected beside the tree
+		List<Intersectable> withPlane = new ArrayList<>(geometries);
+		withPlane.add(new Plane(new Point(0, 0, 25), new Vector(0, 0, 1)));
+		Octree octree = new Octree(withPlane);
+		assertNull(octree.getBoundingBox(), "An unbounded tree has no bounding box");
+		assertEquals(new Point(1, 1, 25),
+				octree.findClosestGeoIntersection(new Ray(new Point(1, 1, 30), new Vector(0, 0, -1))).point,
+				"Wrong closest intersection");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: No geometries
+		assertNull(new Octree(List.of()).findClosestGeoIntersection(new Ray(new Point(0, 0, 10), new Vector(0, 0, -1))),
+				"There shouldn't be any intersections");
+
+		// TC12: A tree of a single node
+		assertEquals(new Point(0, 0, 1),
+				new Octree(List.of(new Sphere(new Point(0, 0, 0), 1)), 0, 1)
+						.findClosestGeoIntersection(new Ray(new Point(0, 0, 10), new Vector(0, 0, -1))).point,
+				"Wrong closest intersection");
+
+		// TC13: Negative depth or non-positive occupancy
+		assertThrows(IllegalArgumentException.class, () -> new Octree(geometries, -1, 8), "Negative depth");
+		assertThrows(IllegalArgumentException.class, () -> new Octree(geometries, 8, 0), "Zero occupancy");
+	}
+
+	/**
+	 * Test method for {@link geometries.Octree#getReferenceCount()}.
+	 */
+	@Test
+	void testGetReferenceCount() {
+		// a flat mesh of 20000 triangles in the plane z = 0
+		List<Intersectable> mesh = new ArrayList<>();
+		for (int i = 0; i < 100; ++i)
+			for (int j = 0; j < 100; ++j) {
+				Point p00 = new Point(i, j, 0), p10 = new Point(i + 1, j, 0), p01 = new Point(i, j + 1, 0),
+						p11 = new Point(i + 1, j + 1, 0);
+				mesh.add(new Triangle(p00, p10, p11));
+				mesh.add(new Triangle(p00, p11, p01));
+			}
+		Geometries flat = new Geometries(mesh.toArray(new Intersectable[0]));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: A geometry overlapping several octants is referenced by each of them
+		Octree octree = new Octree(geometries());
+		assertTrue(octree.getReferenceCount() >= geometries().size(), "Too few references");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: The geometries of a flat mesh lie in the middle plane of every node
+		// along z, and are referenced by one side of it only
+		Octree flatOctree = new Octree(mesh);
+		assertTrue(flatOctree.getReferenceCount() < mesh.size() * 3,
+				"Too many references: " + flatOctree.getReferenceCount());
+		for (int i = 0; i < 200; ++i) {
+			Ray ray = new Ray(new Point(i % 20 * 5 + 0.5, i / 20 * 10 + 0.25 * (i % 3), 10),
+					new Vector(0.01 * (i % 7), 0.002 * (i % 5), -1));
+			assertSameIntersections(flat, flatOctree, ray);
+		}
+		// a ray along the edges of the triangles, through the middles of the nodes
+		assertSameIntersections(flat, flatOctree, new Ray(new Point(50, 50, 10), new Vector(0, 0, -1)));
+	}
+}
@@ -119,4 +119,28 @@ public class PlaneTest {
 
 	}
 
+	/**
+	 * Test method for {@link geometries.Plane#intersect(primitives.RayBatch, int)}.
+	 */
+	@Test
+	void testIntersectBatch() {
+		Plane plane = new Plane(new Point(0, 0, 1), new Vector(0, 0, 1));
+		RayBatch batch = new RayBatch(new Ray(new Point(0, 0, 0), new Vector(0, 0, 2)), //
+				new Ray(new Point(0, 0, 0), new Vector(0, 0, -1)), //
+				new Ray(new Point(0, 0, 0), new Vector(1, 0, 0)));
+		plane.intersect(batch, 2);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray crosses the plane
+		assertEquals(1, batch.distance[0], DELTA, "Wrong distance");
+		assertEquals(2, batch.primitive[0], "Wrong primitive");
+		assertEquals(new Vector(0, 0, 1), batch.getNormal(0), "Wrong normal");
+
+		// TC02: Ray goes away from the plane
+		assertFalse(batch.isHit(1), "There shouldn't be any intersection");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Ray is parallel to the plane
+		assertFalse(batch.isHit(2), "There shouldn't be any intersection with a parallel ray");
+	}
 }
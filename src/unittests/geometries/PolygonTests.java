@@ -123,4 +123,30 @@ public class PolygonTests {
 				"There shouldn't be any intersections");
 	}
 
+	/**
+	 * Test method for
+	 * {@link geometries.Polygon#intersect(primitives.RayBatch, int)}.
+	 */
+	@Test
+	public void testIntersectBatch() {
+		Polygon square = new Polygon(new Point(0, 0, 1), new Point(1, 0, 1), new Point(1, 1, 1), new Point(0, 1, 1));
+		Vector up = new Vector(0, 0, 1);
+		RayBatch batch = new RayBatch(new Ray(new Point(0.5, 0.5, 0), up), //
+				new Ray(new Point(2, 2, 0), up), //
+				new Ray(new Point(1, 0.5, 0), up));
+		square.intersect(batch, 5);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray hits inside the polygon
+		assertEquals(new Point(0.5, 0.5, 1), batch.getPoint(0), "Wrong intersection");
+		assertEquals(5, batch.primitive[0], "Wrong primitive");
+		assertEquals(1, Math.abs(batch.normalZ[0]), DELTA, "Wrong normal");
+
+		// TC02: Ray misses the polygon
+		assertFalse(batch.isHit(1), "There shouldn't be any intersection");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Ray hits an edge
+		assertFalse(batch.isHit(2), "There shouldn't be any intersection on an edge");
+	}
 }
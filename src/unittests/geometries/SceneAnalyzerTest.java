@@ -0,0 +1,78 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import primitives.*;
+
+/**
+ * Unit tests for {@link geometries.SceneAnalyzer}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class SceneAnalyzerTest {
+
+	/**
+	 * Test method for {@link geometries.SceneAnalyzer#analyze(List)}.
+	 */
+	@Test
+	void testAnalyze() {
+		Random random = new Random(7);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Evenly spread spheres are split at the median
+		List<Intersectable> even = new ArrayList<>();
+		for (int i = 0; i < 1000; ++i)
+			even.add(new Sphere(new Point(random.nextDouble() * 100, random.nextDouble() * 100,
+					random.nextDouble() * 100), 1));
+		assertEquals(AccelerationStructure.BVH, SceneAnalyzer.analyze(even).structure(), "Wrong structure");
+
+		// TC02: Evenly spread triangles in a plane are split at the median
+		List<Intersectable> floor = new ArrayList<>();
+		for (int i = 0; i < 400; ++i)
+			floor.add(new Triangle(new Point(i % 20, i / 20, 0), new Point(i % 20 + 1, i / 20, 0),
+					new Point(i % 20, i / 20 + 1, 0)));
+		assertEquals(AccelerationStructure.BVH, SceneAnalyzer.analyze(floor).structure(), "Wrong structure");
+
+		// TC03: Clustered spheres are split by the surface area heuristic
+		List<Intersectable> clustered = new ArrayList<>();
+		for (int i = 0; i < 1000; ++i) {
+			double offset = i % 2 == 0 ? 0 : 100;
+			clustered.add(new Sphere(new Point(offset + random.nextDouble() * 3, offset + random.nextDouble() * 3,
+					offset + random.nextDouble() * 3), 0.1));
+		}
+		SceneAnalyzer.Choice choice = SceneAnalyzer.analyze(clustered);
+		assertEquals(AccelerationStructure.SAH_BVH, choice.structure(), "Wrong structure");
+		assertTrue(choice.reason().startsWith("clustered"), "Wrong reason");
+
+		// TC04: A huge sphere among small ones is split by the surface area heuristic
+		List<Intersectable> mixed = new ArrayList<>(even);
+		mixed.add(new Sphere(new Point(50, 50, 50), 1000));
+		assertEquals(AccelerationStructure.SAH_BVH, SceneAnalyzer.analyze(mixed).structure(), "Wrong structure");
+
+		// TC05: A few geometries are kept in a flat list
+		assertEquals(AccelerationStructure.FLAT, SceneAnalyzer.analyze(even.subList(0, 5)).structure(),
+				"Wrong structure");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Unbounded geometries beside a few bounded ones are kept in a flat list
+		List<Intersectable> planes = new ArrayList<>(even.subList(0, 3));
+		for (int i = 0; i < 10; ++i)
+			planes.add(new Plane(new Point(0, 0, i), new Vector(0, 0, 1)));
+		choice = SceneAnalyzer.analyze(planes);
+		assertEquals(AccelerationStructure.FLAT, choice.structure(), "Wrong structure");
+		assertTrue(choice.reason().contains("10 unbounded"), "Wrong reason");
+
+		// TC12: Geometries with a common center
+		List<Intersectable> nested = new ArrayList<>();
+		for (int i = 1; i <= 20; ++i)
+			nested.add(new Sphere(new Point(0, 0, 0), i));
+		assertEquals(AccelerationStructure.SAH_BVH, SceneAnalyzer.analyze(nested).structure(), "Wrong structure");
+	}
+}
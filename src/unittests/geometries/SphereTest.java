@@ -133,4 +133,40 @@ class SphereTest {
 
 	}
 
+	/**
+	 * Test method for
+	 * {@link geometries.Sphere#intersect(primitives.RayBatch, int)}.
+	 */
+	@Test
+	void testIntersectBatch() {
+		Sphere sphere = new Sphere(p100, 1d);
+		RayBatch batch = new RayBatch(new Ray(new Point(-1, 0, 0), new Vector(2, 0, 0)), //
+				new Ray(p100, new Vector(0, 0, 1)), //
+				new Ray(new Point(-1, 0, 0), new Vector(0, 1, 0)), //
+				new Ray(new Point(-1, 1, 0), new Vector(1, 0, 0)), //
+				new Ray(new Point(-1, 0, 0), new Vector(1, 0, 0)));
+		batch.record(4, 0.5, 3, 0, 0, 1);
+		sphere.intersect(batch, 7);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray starts before the sphere
+		assertEquals(1, batch.distance[0], 0.00001, "Wrong distance");
+		assertEquals(7, batch.primitive[0], "Wrong primitive");
+		assertEquals(new Vector(-1, 0, 0), batch.getNormal(0), "Wrong normal");
+
+		// TC02: Ray starts inside the sphere
+		assertEquals(new Point(1, 0, 1), batch.getPoint(1), "Wrong intersection from inside");
+		assertEquals(new Vector(0, 0, 1), batch.getNormal(1), "Wrong normal from inside");
+
+		// TC03: Ray misses the sphere
+		assertFalse(batch.isHit(2), "There shouldn't be any intersection");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Ray is tangent to the sphere
+		assertFalse(batch.isHit(3), "There shouldn't be any intersection with a tangent ray");
+
+		// TC12: A closer intersection is kept
+		assertEquals(3, batch.primitive[4], "A closer intersection was replaced");
+		assertEquals(0.5, batch.distance[4], 0.00001, "A closer intersection was replaced");
+	}
 }
@@ -0,0 +1,88 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import geometries.*;
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+
+/**
+ * Shared fixtures of the tests of the acceleration structures: the geometries
+ * they are built over, and the comparison of a structure with a reference.
+ *
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+final class StructureFixtures {
+	/** A private constructor for the static utility class */
+	private StructureFixtures() {
+	}
+
+	/**
+	 * Builds a row of unit spheres along the x axis.
+	 *
+	 * @param count the amount of spheres
+	 * @return the spheres
+	 */
+	static List<Intersectable> spheres(int count) {
+		List<Intersectable> result = new ArrayList<>();
+		for (int i = 0; i < count; ++i)
+			result.add(new Sphere(new Point(3 * i, 0, 0), 1));
+		return result;
+	}
+
+	/**
+	 * Builds a grid of small spheres and triangles, twenty in a row, alternating
+	 * between a sphere and a triangle above it.
+	 *
+	 * @param count the amount of geometries
+	 * @return the geometries
+	 */
+	static List<Intersectable> grid(int count) {
+		List<Intersectable> result = new ArrayList<>();
+		for (int i = 0; i < count; ++i) {
+			double x = i % 20, y = i / 20;
+			if (i % 2 == 0)
+				result.add(new Sphere(new Point(x, y, 0), 0.4));
+			else
+				result.add(new Triangle(new Point(x, y, 1), new Point(x + 0.5, y, 1.2), new Point(x, y + 0.5, 1.1)));
+		}
+		return result;
+	}
+
+	/**
+	 * Asserts that a structure finds the same intersections of a ray as a
+	 * reference: the same closest point and as many intersection points.
+	 *
+	 * @param reference the reference geometries
+	 * @param structure the tested structure
+	 * @param ray       the ray
+	 */
+	static void assertSameIntersections(Intersectable reference, Intersectable structure, Ray ray) {
+		assertSameIntersections(reference, structure, ray, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Asserts that a structure finds the same intersections of a ray as a
+	 * reference: the same closest point and as many intersection points up to a
+	 * distance.
+	 *
+	 * @param reference   the reference geometries
+	 * @param structure   the tested structure
+	 * @param ray         the ray
+	 * @param maxDistance the distance up to which the intersection points are
+	 *                    counted
+	 */
+	static void assertSameIntersections(Intersectable reference, Intersectable structure, Ray ray,
+			double maxDistance) {
+		GeoPoint expected = reference.findClosestGeoIntersection(ray);
+		GeoPoint actual = structure.findClosestGeoIntersection(ray);
+		assertEquals(expected == null ? null : expected.point, actual == null ? null : actual.point,
+				"Wrong closest intersection");
+		List<GeoPoint> all = reference.findGeoIntersections(ray, maxDistance);
+		List<GeoPoint> found = structure.findGeoIntersections(ray, maxDistance);
+		assertEquals(all == null ? 0 : all.size(), found == null ? 0 : found.size(), "Wrong number of intersections");
+	}
+}
@@ -12,6 +12,7 @@ import org.junit.jupiter.api.Test;
 import geometries.Triangle;
 import primitives.Point;
 import primitives.Ray;
+import primitives.RayBatch;
 import primitives.Vector;
 
 /**
@@ -88,4 +89,34 @@ class TriangleTest {
 				"There shouldn't be any intersections");
 	}
 
+	/**
+	 * Test method for
+	 * {@link geometries.Triangle#intersect(primitives.RayBatch, int)}.
+	 */
+	@Test
+	void testIntersectBatch() {
+		Triangle triangle = new Triangle(new Point(0, 0, 0), new Point(2, 0, 0), new Point(0, 2, 0));
+		Vector down = new Vector(0, 0, -1);
+		RayBatch batch = new RayBatch(new Ray(new Point(0.5, 0.5, 1), down), //
+				new Ray(new Point(3, 3, 1), down), //
+				new Ray(new Point(1, 0, 1), down), //
+				new Ray(new Point(0, 0, 1), down));
+		triangle.intersect(batch, 0);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray hits inside the triangle
+		assertEquals(new Point(0.5, 0.5, 0), batch.getPoint(0), "Wrong intersection");
+		assertEquals(0, batch.primitive[0], "Wrong primitive");
+		assertEquals(new Vector(0, 0, 1), batch.getNormal(0), "Wrong normal");
+
+		// TC02: Ray misses the triangle
+		assertFalse(batch.isHit(1), "There shouldn't be any intersection");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Ray hits an edge
+		assertFalse(batch.isHit(2), "There shouldn't be any intersection on an edge");
+
+		// TC12: Ray hits a vertex
+		assertFalse(batch.isHit(3), "There shouldn't be any intersection on a vertex");
+	}
 }
@@ -10,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import geometries.Tube;
 import primitives.Point;
 import primitives.Ray;
+import primitives.Transform;
 import primitives.Vector;
 
 /**
@@ -42,4 +43,27 @@ class TubeTest {
 				"getNormal() wrong when point on surface is peralle to head point result");
 	}
 
+	/**
+	 * Test method for {@link geometries.Tube#transform(primitives.Transform)}.
+	 */
+	@Test
+	void testTransform() {
+		Tube tube = new Tube(1, new Ray(new Point(0, 0, 0), new Vector(1, 0, 0)));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: A rotated and moved tube has its axis moved with it
+		Tube moved = (Tube) tube.transform(Transform.rotation(new Vector(0, 0, 1), 90)
+				.then(Transform.translation(new Vector(5, 0, 0))));
+		assertEquals(new Vector(1, 0, 0), moved.getNormal(new Point(6, 3, 0)), "Wrong normal of a moved tube");
+
+		// TC02: A scaled tube has a scaled radius
+		Tube scaled = (Tube) tube.transform(Transform.scaling(2));
+		assertEquals(new Vector(0, 0, 1), scaled.getNormal(new Point(3, 0, 2)), "Wrong normal of a scaled tube");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: A tube can't be scaled non uniformly
+		assertThrows(IllegalArgumentException.class, () -> tube.transform(Transform.scaling(1, 2, 1)),
+				"Scaled a tube non uniformly");
+	}
+
 }
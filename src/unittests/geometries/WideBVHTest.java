@@ -0,0 +1,108 @@
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static unittests.geometries.StructureFixtures.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import primitives.*;
+import primitives.Vector;
+
+/**
+ * Unit tests for {@link geometries.WideBVH}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class WideBVHTest {
+
+	/**
+	 * Builds a random scene of triangles and spheres above a plane.
+	 *
+	 * @param random the random generator
+	 * @return the geometries
+	 */
+	private static List<Intersectable> scene(Random random) {
+		List<Intersectable> geometries = new ArrayList<>();
+		for (int i = 0; i < 200; ++i) {
+			Point p = new Point(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+					random.nextDouble() * -100);
+			if (i % 4 == 0)
+				geometries.add(new Sphere(p, 1 + random.nextDouble() * 3));
+			else
+				geometries.add(new Triangle(p, p.add(new Vector(5, random.nextDouble(), 1)),
+						p.add(new Vector(random.nextDouble(), 5, -1))));
+		}
+		geometries.add(new Plane(new Point(0, 0, -150), new Vector(0, 0, 1)));
+		return geometries;
+	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.WideBVH#findClosestGeoIntersection(primitives.Ray)} and
+	 * {@link geometries.WideBVH#findGeoIntersections(primitives.Ray, double)}.
+	 */
+	@Test
+	void testSameAsBVH() {
+		Random random = new Random(7);
+		List<Intersectable> geometries = scene(random);
+		BVH bvh = new BVH(geometries);
+		WideBVH wide = new WideBVH(geometries);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Random rays find the same intersections as the binary hierarchy
+		for (int i = 0; i < 2000; ++i) {
+			Ray ray = new Ray(new Point(0, 0, 50),
+					new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+			assertEquals(bvh.findClosestGeoIntersection(ray).geometry, wide.findClosestGeoIntersection(ray).geometry,
+					"Wrong closest geometry");
+			assertSameIntersections(bvh, wide, ray);
+			assertSameIntersections(bvh, wide, ray, 100);
+		}
+
+		// =============== Boundary Values Tests ==================
+		// TC11: A ray missing everything
+		assertNull(wide.findClosestGeoIntersection(new Ray(new Point(0, 0, 50), new Vector(0, 0, 1))),
+				"There shouldn't be any intersections");
+		// TC12: No geometries
+		assertNull(new WideBVH(List.of()).findGeoIntersections(new Ray(Point.ZERO, new Vector(1, 0, 0))),
+				"There shouldn't be any intersections");
+		// TC13: A single leaf
+		Triangle triangle = new Triangle(new Point(-1, -1, -5), new Point(1, -1, -5), new Point(0, 1, -5));
+		assertSame(triangle, new WideBVH(List.of(triangle))
+				.findClosestGeoIntersection(new Ray(Point.ZERO, new Vector(0, 0, -1))).geometry, "Wrong geometry");
+	}
+
+	/**
+	 * Test method for {@link geometries.WideBVH#WideBVH(List, boolean)}.
+	 */
+	@Test
+	void testVectorized() {
+		Random random = new Random(11);
+		List<Intersectable> geometries = scene(random);
+		WideBVH scalar = new WideBVH(geometries, false);
+		WideBVH vectorized = new WideBVH(geometries, true);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The scalar loops are used when requested
+		assertFalse(scalar.isVectorized(), "The hierarchy should not be vectorized");
+		// TC02: The vector API is used whenever it is available and wide enough
+		assertEquals(WideBVH.isVectorAPIAvailable(), vectorized.isVectorized(), "Wrong lane loops");
+		// TC03: Both paths find the same intersections
+		for (int i = 0; i < 2000; ++i) {
+			Ray ray = new Ray(new Point(0, 0, 50),
+					new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+			assertEquals(scalar.findClosestGeoIntersection(ray).geometry,
+					vectorized.findClosestGeoIntersection(ray).geometry, "Wrong closest geometry");
+			assertSameIntersections(scalar, vectorized, ray);
+		}
+
+		// =============== Boundary Values Tests ==================
+		// TC11: A ray parallel to the triangles of a leaf
+		Triangle triangle = new Triangle(new Point(-1, -1, -5), new Point(1, -1, -5), new Point(0, 1, -5));
+		assertNull(new WideBVH(List.of(triangle), true).findGeoIntersections(new Ray(new Point(-5, 0, -5),
+				new Vector(1, 0, 0))), "There shouldn't be any intersections");
+	}
+}
@@ -0,0 +1,64 @@
+package unittests.lighting;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import lighting.*;
+import primitives.*;
+
+/**
+ * Unit tests for the sampling of {@link lighting.RectangleLight} and
+ * {@link lighting.DiskLight}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class AreaLightTest {
+	/** DELTA for tests */
+	private static final double DELTA = 0.000001;
+
+	/**
+	 * Test method for {@link lighting.AreaLight#getSample(int, int)} of a
+	 * rectangle light.
+	 */
+	@Test
+	void testRectangleSample() {
+		AreaLight light = new RectangleLight(new Color(100, 100, 100), new Point(0, 0, 10), new Vector(4, 0, 0),
+				new Vector(0, 2, 0)).setGridSize(2);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Each sample lies on the rectangle, inside its own stratum
+		for (int i = 0; i < 2; ++i)
+			for (int j = 0; j < 2; ++j) {
+				Point sample = light.getSample(i, j);
+				assertEquals(10, sample.getZ(), DELTA, "Sample must lie in the plane of the light");
+				assertTrue(sample.getX() >= -2 + 2 * i - DELTA && sample.getX() <= 2 * i + DELTA,
+						"Sample out of its stratum in the first edge");
+				assertTrue(sample.getY() >= -1 + j - DELTA && sample.getY() <= j + DELTA,
+						"Sample out of its stratum in the second edge");
+			}
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Grid size smaller than 2
+		assertThrows(IllegalArgumentException.class, () -> light.setGridSize(1), "Grid of 1 must be rejected");
+	}
+
+	/**
+	 * Test method for {@link lighting.AreaLight#getSample(int, int)} of a disk
+	 * light.
+	 */
+	@Test
+	void testDiskSample() {
+		Point center = new Point(1, 2, 3);
+		AreaLight light = new DiskLight(new Color(100, 100, 100), center, new Vector(0, 0, 1), 5).setGridSize(3);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: All the samples lie on the disk
+		for (int i = 0; i < 3; ++i)
+			for (int j = 0; j < 3; ++j) {
+				Point sample = light.getSample(i, j);
+				assertEquals(3, sample.getZ(), DELTA, "Sample must lie in the plane of the disk");
+				assertTrue(sample.distance(center) <= 5 + DELTA, "Sample must lie inside the disk");
+			}
+	}
+}
@@ -0,0 +1,53 @@
+package unittests.lighting;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import lighting.*;
+import primitives.*;
+
+/**
+ * Unit tests for {@link lighting.LightTree}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class LightTreeTest {
+
+	/** A near, strongly attenuated light */
+	private final PointLight near = new PointLight(new Color(100, 100, 100), new Point(0, 0, 10)).setKQ(0.01);
+	/** A far, strongly attenuated light */
+	private final PointLight far = new PointLight(new Color(100, 100, 100), new Point(1000, 0, 0)).setKQ(0.01);
+	/** A far spot light with no attenuation */
+	private final SpotLight spot = new SpotLight(new Color(100, 0, 0), new Vector(-1, 0, 0), new Point(2000, 0, 0));
+	/** A directional light */
+	private final DirectionalLight directional = new DirectionalLight(new Color(50, 50, 50), new Vector(0, 0, -1));
+
+	/**
+	 * Test method for {@link lighting.LightTree#getLights(primitives.Point, double)}.
+	 */
+	@Test
+	void testGetLights() {
+		LightTree tree = new LightTree(List.of(near, far, spot, directional));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The far attenuated light is skipped, all the others are kept
+		List<LightSource> result = tree.getLights(Point.ZERO, 0.1);
+		assertEquals(3, result.size(), "Wrong number of significant lights");
+		assertTrue(result.containsAll(List.of(near, spot, directional)), "Wrong significant lights");
+
+		// TC02: A high threshold keeps only the lights without attenuation
+		result = tree.getLights(Point.ZERO, 60);
+		assertEquals(List.of(directional, spot), result, "Wrong lights for high threshold");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Zero threshold keeps all the lights
+		assertEquals(4, tree.getLights(Point.ZERO, 0).size(), "Zero threshold must keep all the lights");
+
+		// TC12: No point lights at all
+		assertEquals(List.of(directional), new LightTree(List.of(directional)).getLights(Point.ZERO, 1),
+				"Directional light must always be kept");
+	}
+}
@@ -0,0 +1,97 @@
+package unittests.lighting;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import lighting.*;
+import primitives.*;
+
+/**
+ * Unit tests for the influence volumes of {@link lighting.PointLight} and
+ * {@link lighting.SpotLight}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class PointLightTest {
+	/** DELTA for tests */
+	private static final double DELTA = 0.000001;
+
+	/**
+	 * Test method for {@link lighting.PointLight#getInfluenceRadius()}.
+	 */
+	@Test
+	void testGetInfluenceRadius() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Linear attenuation only: 100 / (1 + d) = 1 at d = 99
+		PointLight light = new PointLight(new Color(100, 50, 0), Point.ZERO).setKL(1).setCutoff(1);
+		assertEquals(99, light.getInfluenceRadius(), DELTA, "Wrong radius for linear attenuation");
+
+		// TC02: Quadratic attenuation: 100 / (1 + d + d^2) = 1 at d = 9.4624...
+		light.setKQ(1);
+		assertEquals((Math.sqrt(1 + 4 * 99) - 1) / 2, light.getInfluenceRadius(), DELTA,
+				"Wrong radius for quadratic attenuation");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: No attenuation - infinite radius
+		assertEquals(Double.POSITIVE_INFINITY,
+				new PointLight(new Color(100, 50, 0), Point.ZERO).getInfluenceRadius(), "Radius must be infinite");
+		// TC12: Light weaker than the cutoff - zero radius
+		assertEquals(0, new PointLight(new Color(1, 1, 1), Point.ZERO).setKC(2).setCutoff(1).getInfluenceRadius(),
+				DELTA, "Radius must be zero");
+	}
+
+	/**
+	 * Test method for {@link lighting.PointLight#canAffect(primitives.Point)} and
+	 * {@link lighting.SpotLight#canAffect(primitives.Point)}.
+	 */
+	@Test
+	void testCanAffect() {
+		PointLight light = new PointLight(new Color(100, 50, 0), Point.ZERO).setKL(1).setCutoff(1);
+		SpotLight spot = new SpotLight(new Color(100, 50, 0), new Vector(0, 0, 1), Point.ZERO).setKL(1)
+				.setNarrowBeam(2).setCutoff(4);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Point inside the sphere of effect
+		assertTrue(light.canAffect(new Point(0, 50, 0)), "Point inside the sphere must be affected");
+		// TC02: Point outside the sphere of effect
+		assertFalse(light.canAffect(new Point(0, 100, 0)), "Point outside the sphere must not be affected");
+		// TC03: Point inside the cone of the spot light (cos limit is 0.2)
+		assertTrue(spot.canAffect(new Point(1, 0, 1)), "Point inside the cone must be affected");
+		// TC04: Point out of the cone of the spot light
+		assertFalse(spot.canAffect(new Point(10, 0, 1)), "Point out of the cone must not be affected");
+		// TC05: Point behind the spot light
+		assertFalse(spot.canAffect(new Point(0, 0, -1)), "Point behind the spot must not be affected");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Point on the sphere of effect
+		assertTrue(light.canAffect(new Point(0, 99, 0)), "Point on the sphere must be affected");
+	}
+
+	/**
+	 * Test method for {@link lighting.PointLight#canAffect(primitives.BoundingBox)}
+	 * and {@link lighting.SpotLight#canAffect(primitives.BoundingBox)}.
+	 */
+	@Test
+	void testCanAffectBox() {
+		PointLight light = new PointLight(new Color(100, 50, 0), Point.ZERO).setKL(1).setCutoff(1);
+		SpotLight spot = new SpotLight(new Color(100, 50, 0), new Vector(0, 0, 1), Point.ZERO).setKL(1)
+				.setNarrowBeam(2).setCutoff(4);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Box intersecting the sphere of effect
+		assertTrue(light.canAffect(new BoundingBox(90, -1, -1, 110, 1, 1)), "Box must be affected");
+		// TC02: Box out of the sphere of effect
+		assertFalse(light.canAffect(new BoundingBox(100, -1, -1, 110, 1, 1)), "Box must not be affected");
+		// TC03: Box inside the cone of the spot light
+		assertTrue(spot.canAffect(new BoundingBox(-1, -1, 10, 1, 1, 12)), "Box in the cone must be affected");
+		// TC04: Box out of the cone of the spot light
+		assertFalse(spot.canAffect(new BoundingBox(20, -1, 1, 22, 1, 3)), "Box out of the cone must not be affected");
+		// TC05: Box behind the spot light
+		assertFalse(spot.canAffect(new BoundingBox(-1, -1, -12, 1, 1, -10)), "Box behind the spot must not be affected");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Box containing the light
+		assertTrue(spot.canAffect(new BoundingBox(-1, -1, -1, 1, 1, 1)), "Box around the spot must be affected");
+	}
+}
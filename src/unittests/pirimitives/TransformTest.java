@@ -0,0 +1,93 @@
+package unittests.pirimitives;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.Point;
+import primitives.Transform;
+import primitives.Vector;
+
+/**
+ * Testing Transform
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class TransformTest {
+
+	/**
+	 * Test method for {@link primitives.Transform#apply(primitives.Point)}.
+	 */
+	@Test
+	void testApply() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Translation
+		assertEquals(new Point(2, 3, 4), Transform.translation(new Vector(1, 1, 1)).apply(new Point(1, 2, 3)),
+				"Wrong translated point");
+
+		// TC02: Rotation around the z axis
+		assertEquals(new Point(0, 1, 0), Transform.rotation(new Vector(0, 0, 1), 90).apply(new Point(1, 0, 0)),
+				"Wrong rotated point");
+
+		// TC03: Scaling and then translation
+		Transform transform = Transform.scaling(2).then(Transform.translation(new Vector(0, 0, 1)));
+		assertEquals(new Point(2, 4, 7), transform.apply(new Point(1, 2, 3)), "Wrong combined transform");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Identity
+		assertEquals(new Point(1, 2, 3), Transform.IDENTITY.apply(new Point(1, 2, 3)), "Identity moved a point");
+	}
+
+	/**
+	 * Test method for {@link primitives.Transform#inverse()}.
+	 */
+	@Test
+	void testInverse() {
+		Transform transform = Transform.rotation(new Vector(1, 2, 3), 33).then(Transform.scaling(1, 2, 3))
+				.then(Transform.translation(new Vector(-4, 5, 6)));
+		Point point = new Point(7, -8, 9);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The inverse undoes the transform
+		assertEquals(point, transform.inverse().apply(transform.apply(point)), "Wrong inverse");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: A scale factor of zero
+		assertThrows(IllegalArgumentException.class, () -> Transform.scaling(1, 0, 1), "Created a singular scaling");
+	}
+
+	/**
+	 * Test method for {@link primitives.Transform#applyToNormal(primitives.Vector)}.
+	 */
+	@Test
+	void testApplyToNormal() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The normal of a plane stays orthogonal to it under non uniform scaling
+		Transform transform = Transform.scaling(1, 4, 1);
+		Vector normal = transform.applyToNormal(new Vector(1, 1, 0));
+		Vector inPlane = transform.applyToVector(new Vector(1, -1, 0));
+		assertEquals(0, normal.dotProduct(inPlane), 0.00001, "Transformed normal is not orthogonal");
+		assertEquals(1, normal.length(), 0.00001, "Transformed normal is not normalized");
+
+		// TC02: A reflection keeps the normal direction of the reflected surface
+		assertEquals(new Vector(0, 0, -1), Transform.scaling(1, 1, -1).applyToNormal(new Vector(0, 0, 1)),
+				"Wrong reflected normal");
+	}
+
+	/**
+	 * Test method for {@link primitives.Transform#isUniform()}.
+	 */
+	@Test
+	void testIsUniform() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Rotation and uniform scaling
+		Transform uniform = Transform.rotation(new Vector(1, 1, 0), 40).then(Transform.scaling(3));
+		assertTrue(uniform.isUniform(), "Rotation and uniform scaling is uniform");
+		assertEquals(3, uniform.getScale(), 0.00001, "Wrong scale");
+
+		// TC02: Non uniform scaling
+		assertFalse(Transform.scaling(1, 2, 1).isUniform(), "Non uniform scaling is uniform");
+		assertThrows(IllegalStateException.class, () -> Transform.scaling(1, 2, 1).getScale(),
+				"Scale of a non uniform transform");
+	}
+}
@@ -0,0 +1,49 @@
+package unittests.renderer;
+
+import static java.awt.Color.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.AmbientLight;
+import lighting.SpotLight;
+import primitives.*;
+import renderer.Camera;
+import renderer.SequenceRenderer;
+import scene.Scene;
+
+/**
+ * Testing the rendering of image sequences
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+public class AnimationTests {
+	/** Scene of the tests */
+	private final Scene scene = new Scene("Animation scene");
+	/** Camera builder of the tests */
+	private final Camera.Builder camera = Camera.getBuilder().setVpDistance(1000).setVpSize(200, 200);
+
+	/**
+	 * Produce a short sequence of a sphere orbiting over two static triangles,
+	 * with the camera moving around them
+	 */
+	@Test
+	public void orbitingSphere() {
+		scene.geometries.add(
+				new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60)), //
+				new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60)));
+		scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+		scene.lights.add(new SpotLight(new Color(700, 400, 400), new Vector(-1, -1, -4), new Point(40, 40, 115)) //
+				.setKL(4E-4).setKQ(2E-5));
+
+		new SequenceRenderer(scene, camera, "animationOrbitingSphere", 200, 200) //
+				.addCameraKey(0, new Point(0, 0, 1000), new Point(0, 0, -100), 0) //
+				.addCameraKey(2, new Point(100, 50, 1000), new Point(0, 0, -100), 10) //
+				.animate(new Sphere(new Point(40, 0, -11), 30d).setEmission(new Color(BLUE)) //
+						.setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)), //
+						frame -> Transform.rotation(new Vector(0, 0, 1), 45 * frame)) //
+				.render(0, 2);
+	}
+}
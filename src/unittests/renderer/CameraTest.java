@@ -1,13 +1,18 @@
 package unittests.renderer;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import geometries.*;
 import primitives.*;
 import renderer.Camera;
 import renderer.ImageWriter;
+import renderer.RayTracerBase;
 import renderer.SimpleRayTracer;
+import renderer.WavefrontRayTracer;
 import scene.Scene;
 
 /**
@@ -59,4 +64,84 @@ class CameraTest {
 
 	}
 
+	/**
+	 * Test method for
+	 * {@link renderer.Camera#constructRays(int, int, int, int, int, int, primitives.RayBatch)}.
+	 */
+	@Test
+	void testConstructRays() {
+		Camera camera = cameraBuilder.setVpSize(8, 8).build();
+
+		// ============ Equivalence Partitions Tests ==============
+		// EP01: 4X4 rectangle of 2X2 pixels inside the view plane
+		RayBatch batch = camera.constructRays(4, 4, 1, 0, 2, 2, new RayBatch(4));
+		for (int i = 0; i < 2; ++i)
+			for (int j = 0; j < 2; ++j)
+				assertEquals(camera.constructRay(4, 4, 1 + j, i), batch.getRay(i * 2 + j), "Bad ray");
+
+		// =============== Boundary Values Tests ==================
+		// BV01: Rectangle out of the view plane
+		assertThrows(IllegalArgumentException.class, () -> camera.constructRays(4, 4, 3, 0, 2, 1, new RayBatch(2)),
+				"Constructed rays out of the view plane");
+
+		// BV02: Batch too small for the rectangle
+		assertThrows(IllegalArgumentException.class, () -> camera.constructRays(4, 4, 0, 0, 2, 2, new RayBatch(3)),
+				"Constructed rays into a small batch");
+	}
+
+	/**
+	 * Test method for
+	 * {@link renderer.Camera.Builder#setAcceleration(geometries.AccelerationStructure)}.
+	 */
+	@Test
+	void testSetAcceleration() {
+		Scene scene = new Scene("Test");
+		for (int i = 0; i < 20; ++i)
+			scene.geometries.add(new Sphere(new Point(i, 0, -20), 0.3));
+
+		// ============ Equivalence Partitions Tests ==============
+		// EP01: Without an override evenly spread spheres are split at the median
+		SimpleRayTracer tracer = new SimpleRayTracer(scene);
+		cameraBuilder.setVpSize(8, 8).setRayTracer(tracer).build();
+		tracer.prepare();
+		assertInstanceOf(BVH.class, tracer.getCompiledScene().geometries, "Wrong automatic structure");
+
+		// EP02: The override is applied to a copy of the ray tracer, which is not
+		// changed
+		Camera overridden = cameraBuilder.setAcceleration(AccelerationStructure.LAZY_BVH).build();
+		assertNotSame(tracer, overridden.getRayTracer(), "The shared ray tracer was overridden");
+		overridden.getRayTracer().prepare();
+		assertInstanceOf(LazyBVH.class, overridden.getRayTracer().getCompiledScene().geometries,
+				"The override was ignored");
+		tracer.prepare();
+		assertInstanceOf(BVH.class, tracer.getCompiledScene().geometries, "The shared ray tracer was changed");
+
+		// EP03: A ray tracer that doesn't compile the scene can't be overridden
+		assertThrows(IllegalStateException.class, () -> cameraBuilder.setRayTracer(new RayTracerBase(scene) {
+			@Override
+			public Color traceRay(Ray ray) {
+				return Color.BLACK;
+			}
+
+			@Override
+			public Color average_color_calculator(List<Ray> rays) {
+				return Color.BLACK;
+			}
+		}).build(), "Overrode a ray tracer without acceleration structures");
+
+		// =============== Boundary Values Tests ==================
+		// BV01: Clearing the override keeps the choice of the ray tracer
+		assertSame(tracer, cameraBuilder.setRayTracer(tracer).setAcceleration(null).build().getRayTracer(),
+				"The override wasn't cleared");
+
+		// BV02: The copy of a subclass of the ray tracer keeps its class
+		WavefrontRayTracer wavefront = new WavefrontRayTracer(scene);
+		RayTracerBase copy = cameraBuilder.setRayTracer(wavefront).setAcceleration(AccelerationStructure.OCTREE)
+				.build().getRayTracer();
+		assertNotSame(wavefront, copy, "The shared ray tracer was overridden");
+		assertEquals(WavefrontRayTracer.class, copy.getClass(), "The copy lost the class of the ray tracer");
+		copy.prepare();
+		assertInstanceOf(Octree.class, copy.getCompiledScene().geometries, "The override was ignored");
+	}
+
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package unittests.renderer;
 
 import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import org.junit.jupiter.api.Test;
 
@@ -10,6 +11,7 @@ import primitives.*;
 import renderer.Camera;
 import renderer.ImageWriter;
 import renderer.SimpleRayTracer;
+import renderer.WavefrontRayTracer;
 import scene.Scene;
 
 /**
@@ -69,6 +71,50 @@ public class ReflectionRefractionTests {
 				.writeToImage();
 	}
 
+	/**
+	 * Produce a picture of a sphere lighted by spot, point and directional lights,
+	 * on mirrors, traced by the wavefront ray tracer, and check that the wavefront
+	 * ray tracer finds the same colors as the simple ray tracer
+	 */
+	@Test
+	public void twoSpheresOnMirrorsWavefront() {
+		scene.geometries.add(
+				new Sphere(new Point(-950, -900, -1000), 400d).setEmission(new Color(0, 50, 100)).setMaterial(
+						new Material().setKD(0.25).setKS(0.25).setShininess(20).setKT(new Double3(0.5, 0, 0))),
+				new Sphere(new Point(-950, -900, -1000), 200d).setEmission(new Color(100, 50, 20))
+						.setMaterial(new Material().setKD(0.25).setKS(0.25).setShininess(20)),
+				new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500), new Point(670, 670, 3000))
+						.setEmission(new Color(20, 20, 20)).setMaterial(new Material().setKR(1)),
+				new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+						new Point(-1500, -1500, -2000)).setEmission(new Color(20, 20, 20))
+						.setMaterial(new Material().setKR(new Double3(0.5, 0, 0.4))));
+		scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+		scene.lights.add(new SpotLight(new Color(1020, 400, 400), new Vector(-1, -1, -4), new Point(-750, -750, -150))
+				.setKL(0.00001).setKQ(0.000005));
+		scene.lights.add(new PointLight(new Color(300, 300, 500), new Point(600, 400, 1500)).setKL(0.0001));
+		scene.lights.add(new DirectionalLight(new Color(150, 100, 50), new Vector(1, 1, -2)));
+
+		// rays from the camera through a 64x64 grid over the view plane, hitting
+		// the mirrors, the transparent sphere and the background
+		Ray[] rays = new Ray[64 * 64];
+		for (int i = 0; i < 64; ++i)
+			for (int j = 0; j < 64; ++j)
+				rays[i * 64 + j] = new Ray(new Point(0, 0, 10000),
+						new Vector(-1250 + (j + 0.5) * 2500 / 64, 1250 - (i + 0.5) * 2500 / 64, -10000));
+		SimpleRayTracer simple = new SimpleRayTracer(scene);
+		Color[] colors = new WavefrontRayTracer(scene).traceRays(rays);
+		for (int i = 0; i < rays.length; ++i)
+			assertEquals(simple.traceRay(rays[i]).getColor(), colors[i].getColor(), "Wrong color of ray " + i);
+
+		cameraBuilder.setRayTracer(new WavefrontRayTracer(scene)).setPacketTracing(true) //
+				.setLocation(new Point(0, 0, 10000)) //
+				.setVpDistance(10000).setVpSize(2500, 2500) //
+				.setImageWriter(new ImageWriter("reflectionTwoSpheresMirroredWavefront", 500, 500)) //
+				.build() //
+				.renderImage() //
+				.writeToImage();
+	}
+
 	/**
 	 * Produce a picture of a two triangles lighted by a spot light with a partially
 	 * transparent Sphere producing partial shadow
@@ -2,11 +2,17 @@
 package unittests.renderer;
 
 import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
 import geometries.*;
 import lighting.AmbientLight;
+import lighting.DirectionalLight;
+import lighting.RectangleLight;
 import lighting.SpotLight;
 import primitives.*;
 import renderer.Camera;
@@ -33,6 +39,32 @@ public class ShadowTests {
 	/** The material of the triangles in the tests */
 	private final Material trMaterial = new Material().setKD(0.5).setKS(0.5).setShininess(30);
 
+	/**
+	 * An image writer that keeps the written colors, for comparing pictures
+	 */
+	private static class RecordingImageWriter extends ImageWriter {
+		/** The written colors, row by row */
+		private final java.awt.Color[] pixels;
+
+		/**
+		 * Constructs a recording image writer.
+		 *
+		 * @param imageName the name of the image
+		 * @param nX        the number of columns
+		 * @param nY        the number of rows
+		 */
+		RecordingImageWriter(String imageName, int nX, int nY) {
+			super(imageName, nX, nY);
+			pixels = new java.awt.Color[nX * nY];
+		}
+
+		@Override
+		public void writePixel(int xIndex, int yIndex, Color color) {
+			super.writePixel(xIndex, yIndex, color);
+			pixels[yIndex * getNx() + xIndex] = color.getColor();
+		}
+	}
+
 	/**
 	 * Helper function for the tests in this module
 	 * 
@@ -111,4 +143,210 @@ public class ShadowTests {
 		camera.setImageWriter(new ImageWriter("shadowTrianglesSphere", 600, 600)).build().renderImage().writeToImage();
 	}
 
+	/**
+	 * Produce a picture of a two triangles lighted by a spot light with a Sphere
+	 * producing a shading, where the triangles and the sphere are instances of
+	 * shared geometries
+	 */
+	@Test
+	public void trianglesSphereInstanced() {
+		Intersectable triangles = AccelerationStructure.BVH.build(List.of(
+				new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60)), //
+				new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60))));
+		Intersectable unitSphere = new Sphere(new Point(0, 0, 0), 1d) //
+				.setEmission(new Color(BLUE)) //
+				.setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30));
+		scene.geometries.add(new Instance(triangles, Transform.IDENTITY), //
+				new Instance(unitSphere, Transform.scaling(30).then(Transform.translation(new Vector(0, 0, -11)))));
+		scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+		scene.lights.add(new SpotLight(new Color(700, 400, 400), new Vector(-1, -1, -4), new Point(40, 40, 115)) //
+				.setKL(4E-4).setKQ(2E-5));
+
+		camera.setImageWriter(new ImageWriter("shadowTrianglesSphereInstanced", 600, 600)).build().renderImage()
+				.writeToImage();
+	}
+
+	/**
+	 * Produce a picture of a two triangles lighted by a spot light with a Sphere
+	 * producing a shading, traced through a 4-wide bounding volume hierarchy
+	 */
+	@Test
+	public void trianglesSphereWideBVH() {
+		scene.geometries.add(
+				new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60)), //
+				new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60)), //
+				new Sphere(new Point(0, 0, -11), 30d) //
+						.setEmission(new Color(BLUE)) //
+						.setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)) //
+		);
+		scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+		scene.lights.add(new SpotLight(new Color(700, 400, 400), new Vector(-1, -1, -4), new Point(40, 40, 115)) //
+				.setKL(4E-4).setKQ(2E-5));
+
+		camera.setRayTracer(new SimpleRayTracer(scene).setAcceleration(AccelerationStructure.WIDE_BVH))
+				.setImageWriter(new ImageWriter("shadowTrianglesSphereWide", 600, 600)).build().renderImage()
+				.writeToImage();
+	}
+
+	/**
+	 * Produce a picture of a two triangles lighted by a spot light with a Sphere
+	 * producing a shading, with the primary rays traced in packets
+	 */
+	@Test
+	public void trianglesSpherePackets() {
+		scene.geometries.add(
+				new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60)), //
+				new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60)), //
+				new Sphere(new Point(0, 0, -11), 30d) //
+						.setEmission(new Color(BLUE)) //
+						.setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)) //
+		);
+		scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+		scene.lights.add(new SpotLight(new Color(700, 400, 400), new Vector(-1, -1, -4), new Point(40, 40, 115)) //
+				.setKL(4E-4).setKQ(2E-5));
+
+		camera.setPacketTracing(true).setMultithreading(3)
+				.setImageWriter(new ImageWriter("shadowTrianglesSpherePackets", 600, 600)).build().renderImage()
+				.writeToImage();
+	}
+
+	/**
+	 * Produce a picture of a two triangles lighted by a spot light with a Sphere
+	 * producing a shading, with the primary visibility found by rasterization
+	 */
+	@Test
+	public void trianglesSphereRasterized() {
+		scene.geometries.add(
+				new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60)), //
+				new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60)), //
+				new Sphere(new Point(0, 0, -11), 30d) //
+						.setEmission(new Color(BLUE)) //
+						.setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)) //
+		);
+		scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+		scene.lights.add(new SpotLight(new Color(700, 400, 400), new Vector(-1, -1, -4), new Point(40, 40, 115)) //
+				.setKL(4E-4).setKQ(2E-5));
+
+		camera.setRasterization(true)
+				.setImageWriter(new ImageWriter("shadowTrianglesSphereRasterized", 600, 600)).build().renderImage()
+				.writeToImage();
+	}
+
+	/**
+	 * Produce a picture of a two triangles lighted by a spot light with a Sphere
+	 * producing a shading, relit from a geometry buffer captured with another
+	 * light and another material of the triangles
+	 */
+	@Test
+	public void trianglesSphereRelit() {
+		Material triangleMaterial = new Material().setKS(0.2).setShininess(20);
+		scene.geometries.add(
+				new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150)) //
+						.setMaterial(triangleMaterial), //
+				new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150)) //
+						.setMaterial(triangleMaterial), //
+				new Sphere(new Point(0, 0, -11), 30d) //
+						.setEmission(new Color(BLUE)) //
+						.setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)) //
+		);
+		scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+		scene.lights.add(new SpotLight(new Color(200, 200, 200), new Vector(1, 1, -4), new Point(-40, -40, 115)));
+
+		RecordingImageWriter relitImage = new RecordingImageWriter("shadowTrianglesSphereRelit", 600, 600);
+		Camera relit = camera.setGBufferCaching(true).setImageWriter(relitImage).build().renderImage();
+
+		// relight with the light and the material of the trianglesSphere picture
+		scene.lights.clear();
+		scene.lights.add(new SpotLight(new Color(700, 400, 400), new Vector(-1, -1, -4), new Point(40, 40, 115)) //
+				.setKL(4E-4).setKQ(2E-5));
+		triangleMaterial.setKS(0.8).setShininess(60);
+		relit.renderImage().writeToImage();
+
+		// the relit picture matches a picture traced from scratch
+		RecordingImageWriter freshImage = new RecordingImageWriter("shadowTrianglesSphereFresh", 600, 600);
+		camera.setGBufferCaching(false).setRayTracer(new SimpleRayTracer(scene)).setImageWriter(freshImage).build()
+				.renderImage();
+		for (int pixel = 0; pixel < freshImage.pixels.length; ++pixel) {
+			java.awt.Color expected = freshImage.pixels[pixel], result = relitImage.pixels[pixel];
+			assertTrue(Math.abs(expected.getRed() - result.getRed()) <= 1
+					&& Math.abs(expected.getGreen() - result.getGreen()) <= 1
+					&& Math.abs(expected.getBlue() - result.getBlue()) <= 1,
+					"The relit picture differs at pixel " + pixel + ": " + result + " instead of " + expected);
+		}
+	}
+
+	/**
+	 * Produce a picture of a two triangles lighted by a rectangular area light with
+	 * a Sphere producing a soft shadow
+	 */
+	@Test
+	public void trianglesSphereSoftShadow() {
+		scene.geometries.add(
+				new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKD(0.5).setKS(0.3).setShininess(60)), //
+				new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKD(0.5).setKS(0.3).setShininess(60)), //
+				new Sphere(new Point(0, 0, -11), 30d) //
+						.setEmission(new Color(BLUE)) //
+						.setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)) //
+		);
+		scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+		scene.lights.add(new RectangleLight(new Color(700, 400, 400), new Point(40, 40, 115), new Vector(30, 0, 0),
+				new Vector(0, 30, 0)).setGridSize(6).setKL(4E-4).setKQ(2E-5));
+
+		camera.setImageWriter(new ImageWriter("shadowTrianglesSphereSoft", 600, 600)).build().renderImage()
+				.writeToImage();
+	}
+
+	/**
+	 * Produce a picture of a two triangles lighted by a spot light with a Sphere
+	 * producing a shading, with the shadow rays approximated by a filtered shadow
+	 * map
+	 */
+	@Test
+	public void trianglesSphereShadowMap() {
+		scene.geometries.add(
+				new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60)), //
+				new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKS(0.8).setShininess(60)), //
+				new Sphere(new Point(0, 0, -11), 30d) //
+						.setEmission(new Color(BLUE)) //
+						.setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)) //
+		);
+		scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+		scene.lights.add(new SpotLight(new Color(700, 400, 400), new Vector(-1, -1, -4), new Point(40, 40, 115)) //
+				.setKL(4E-4).setKQ(2E-5));
+
+		camera.setRayTracer(new SimpleRayTracer(scene).setShadowMaps(1024, true))
+				.setImageWriter(new ImageWriter("shadowTrianglesSphereMap", 600, 600)).build().renderImage()
+				.writeToImage();
+	}
+
+	/**
+	 * Checks that an unbounded occluder outside the bounds of the scene, between a
+	 * directional light and a sphere, shadows the sphere also when the shadow rays
+	 * are approximated by a shadow map
+	 */
+	@Test
+	public void planeOverSphereShadowMap() {
+		scene.geometries.add(new Sphere(new Point(0, 0, 0), 10d).setMaterial(new Material().setKD(0.5)),
+				new Plane(new Point(0, 0, 20), new Vector(0, 0, 1)).setMaterial(new Material().setKD(0.5)));
+		scene.lights.add(new DirectionalLight(new Color(200, 200, 200), new Vector(0, 0, -1)));
+
+		Ray ray = new Ray(new Point(100, 0, 5), new Vector(-1, 0, 0));
+		java.awt.Color exact = new SimpleRayTracer(scene).traceRay(ray).getColor();
+		java.awt.Color mapped = new SimpleRayTracer(scene).setShadowMaps(256, true).traceRay(ray).getColor();
+		assertEquals(BLACK, exact, "The plane should shadow the sphere");
+		assertEquals(exact, mapped, "The shadow map should not miss the plane");
+	}
+
 }
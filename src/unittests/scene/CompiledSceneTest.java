@@ -0,0 +1,190 @@
+package unittests.scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import renderer.SimpleRayTracer;
+import scene.*;
+
+/**
+ * Unit tests for {@link scene.CompiledScene}
+ * 
+ * @author Yoni Leventhal, Adiel Yekutiel
+ */
+class CompiledSceneTest {
+	/** The directory of the cache of built hierarchies */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Test method for {@link scene.Scene#compile()}.
+	 */
+	@Test
+	void testCompile() {
+		Scene scene = new Scene("Test scene");
+		Sphere sphere = new Sphere(new Point(0, 0, -10), 1);
+		sphere.setMaterial(new Material().setKD(0.5));
+		Triangle triangle = new Triangle(new Point(0, 0, 0), new Point(1, 0, 0), new Point(0, 1, 0));
+		triangle.setMaterial(new Material().setKD(0.5));
+		Plane plane = new Plane(new Point(0, 0, -20), new Vector(0, 0, 1));
+		scene.geometries.add(new Geometries(sphere, new Geometries(triangle)), plane);
+		PointLight light = new PointLight(new Color(100, 100, 100), new Point(0, 0, 10)).setKQ(1E4);
+		scene.lights.add(light);
+
+		// ============ Equivalence Partitions Tests ==============
+		CompiledScene compiled = scene.compile();
+		// TC01: The geometries are flattened and grouped by type
+		assertEquals(3, compiled.getPrimitives().size(), "Wrong number of primitives");
+		assertEquals(1, compiled.getSpheres().size(), "Wrong number of spheres");
+		assertEquals(1, compiled.getTriangles().size(), "Wrong number of triangles");
+		assertEquals(1, compiled.getPlanes().size(), "Wrong number of planes");
+		assertSame(sphere, compiled.getPrimitives().getFirst(), "Spheres should come first");
+
+		// TC02: The occluders of an attenuated light exclude far geometries
+		assertNull(compiled.getOccluders(compiled.lights.getFirst()).findGeoIntersections(new Ray(new Point(0, 0, -5), new Vector(0, 0, -1)),
+				12), "The far sphere should not be an occluder");
+
+		// TC03: The snapshot is not affected by later changes of the scene
+		scene.geometries.add(new Sphere(new Point(10, 0, 0), 1));
+		scene.lights.add(new DirectionalLight(new Color(10, 10, 10), new Vector(0, 0, -1)));
+		assertEquals(3, compiled.getPrimitives().size(), "The snapshot should not change");
+		assertEquals(1, compiled.lights.size(), "The snapshot should not change");
+
+		// TC04: Equal materials are interned into one copy, besides the default
+		// material of the plane
+		assertEquals(2, compiled.getMaterials().size(), "Wrong number of distinct materials");
+		assertSame(compiled.getMaterial(sphere), compiled.getMaterial(triangle), "Equal materials should be interned");
+		assertNotSame(sphere.getMaterial(), compiled.getMaterial(sphere), "The material should be copied");
+
+		// TC05: The snapshot is not affected by later changes of the materials and
+		// the lights
+		sphere.getMaterial().setKD(0.9);
+		light.setKQ(0);
+		assertEquals(new Double3(0.5), compiled.getMaterial(sphere).kD, "The material should not change");
+		assertNotSame(light, compiled.lights.getFirst(), "The light should be copied");
+		assertEquals(light.getClass(), compiled.lights.getFirst().getClass(), "Wrong class of the copied light");
+		assertTrue(Double.isFinite(((PointLight) compiled.lights.getFirst()).getInfluenceRadius()),
+				"The light should not change");
+
+		// TC06: Relighting takes the current materials and lights
+		CompiledScene relit = compiled.relight(scene);
+		assertEquals(new Double3(0.9), relit.getMaterial(sphere).kD, "The material should be taken again");
+		assertEquals(2, relit.lights.size(), "The lights should be taken again");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: A light added twice shines twice, like two equal lights
+		Scene twice = new Scene("Twice");
+		Scene twoLights = new Scene("Two lights");
+		PointLight lamp = new PointLight(new Color(100, 100, 100), new Point(0, 0, 10));
+		for (Scene s : List.of(twice, twoLights)) {
+			s.geometries.add(new Sphere(new Point(0, 0, -10), 1).setMaterial(new Material().setKD(0.5)));
+			s.lights.add(lamp);
+		}
+		twice.lights.add(lamp);
+		twoLights.lights.add(new PointLight(new Color(100, 100, 100), new Point(0, 0, 10)));
+		Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, -1));
+		assertEquals(new SimpleRayTracer(twoLights).traceRay(ray).getColor(),
+				new SimpleRayTracer(twice).traceRay(ray).getColor(),
+				"Wrong color of a light added twice");
+	}
+
+	/**
+	 * Test method for
+	 * {@link scene.Scene#compile(geometries.AccelerationStructure, geometries.BVHCache)}.
+	 *
+	 * @throws IOException if the cache directory can't be listed
+	 */
+	@Test
+	void testCompileWithCache() throws IOException {
+		Scene scene = new Scene("Test scene");
+		for (int i = 0; i < 20; ++i)
+			scene.geometries.add(new Sphere(new Point(3 * i, 0, -10), 1));
+		scene.lights.add(new DirectionalLight(new Color(100, 100, 100), new Vector(0, 0, -1)));
+		BVHCache cache = new BVHCache(directory);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: A hierarchy is stored in the cache and loaded from it
+		CompiledScene compiled = scene.compile(AccelerationStructure.SAH_BVH, cache);
+		assertInstanceOf(FlatBVH.class, compiled.geometries, "The hierarchy wasn't taken from the cache");
+		long files;
+		try (var stream = Files.list(directory)) {
+			files = stream.count();
+		}
+		assertEquals(1, files, "The hierarchy wasn't stored");
+		CompiledScene again = scene.compile(AccelerationStructure.SAH_BVH, cache);
+		assertEquals(new Point(0, 0, -9), again.geometries
+				.findClosestGeoIntersection(new Ray(new Point(0, 0, 0), new Vector(0, 0, -1))).point,
+				"Wrong closest intersection");
+
+		// TC02: A structure that the cache doesn't keep is built
+		assertInstanceOf(Octree.class, scene.compile(AccelerationStructure.OCTREE, cache).geometries,
+				"Wrong acceleration structure");
+		try (var stream = Files.list(directory)) {
+			assertEquals(files, stream.count(), "The octree shouldn't be stored");
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link scene.Scene#compile(geometries.AccelerationStructure, geometries.BVHCache)}
+	 * with the automatic structure.
+	 */
+	@Test
+	void testCompileAutomatic() {
+		Scene scene = new Scene("Test scene");
+		for (int i = 0; i < 40; ++i)
+			scene.geometries.add(new Sphere(new Point(3 * i, 0, -2), 1));
+		PointLight near = new PointLight(new Color(100, 100, 100), new Point(0, 0, 2)).setKQ(1E4);
+		PointLight far = new PointLight(new Color(100, 100, 100), new Point(60, 0, 2)).setKQ(1E4);
+		scene.lights.add(near);
+		scene.lights.add(far);
+
+		AtomicInteger choices = new AtomicInteger();
+		Handler counter = new Handler() {
+			@Override
+			public void publish(LogRecord logRecord) {
+				choices.incrementAndGet();
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		Logger analyzer = Logger.getLogger("SceneAnalyzer");
+		analyzer.addHandler(counter);
+		try {
+			// ============ Equivalence Partitions Tests ==============
+			// TC01: The structure is chosen once, and the occluders of every light use
+			// the structure chosen for the scene
+			CompiledScene compiled = scene.compile(AccelerationStructure.AUTO, null);
+			assertEquals(1, choices.get(), "The structure should be chosen once");
+			assertInstanceOf(BVH.class, compiled.geometries, "Wrong automatic structure");
+			LightSource compiledNear = compiled.lights.getFirst(), compiledFar = compiled.lights.getLast();
+			assertNotSame(compiled.geometries, compiled.getOccluders(compiledNear), "The occluders should be culled");
+			assertInstanceOf(BVH.class, compiled.getOccluders(compiledNear), "Wrong structure of the occluders");
+			assertInstanceOf(BVH.class, compiled.getOccluders(compiledFar), "Wrong structure of the occluders");
+
+			// TC02: Relighting keeps the chosen structure without choosing again
+			CompiledScene relit = compiled.relight(scene);
+			assertEquals(1, choices.get(), "The structure shouldn't be chosen again");
+			assertInstanceOf(BVH.class, relit.getOccluders(relit.lights.getLast()), "Wrong structure of the occluders");
+		} finally {
+			analyzer.removeHandler(counter);
+		}
+	}
+}